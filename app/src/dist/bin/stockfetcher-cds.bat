@@ -0,0 +1,18 @@
+@rem
+@rem Starts Stockfetcher with an application class data sharing (AppCDS)
+@rem archive; see bin/stockfetcher-cds.
+@rem
+
+@echo off
+setlocal
+
+set APP_HOME=%~dp0..
+set ARCHIVE=%APP_HOME%\lib\stockfetcher.jsa
+
+if exist "%ARCHIVE%" (
+    set JAVA_OPTS=%JAVA_OPTS% -XX:SharedArchiveFile="%ARCHIVE%"
+) else (
+    set JAVA_OPTS=%JAVA_OPTS% -XX:ArchiveClassesAtExit="%ARCHIVE%"
+)
+
+call "%APP_HOME%\bin\app.bat" %*
@@ -1,39 +1,60 @@
 package stockfetcher;
 
-import java.sql.SQLException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import stockfetcher.db.StartupCache;
 import stockfetcher.db.StockDatabase;
+import stockfetcher.metrics.Metrics;
+import stockfetcher.metrics.PrometheusEndpoint;
+import stockfetcher.schedule.RefreshScheduler;
+import stockfetcher.ui.UIController;
 
 public class StockfetcherApp extends Application {
 
 	private static final Logger logger = LoggerFactory.getLogger(StockfetcherApp.class);
 	
+	// Exit as soon as the UI is interactive, for startup benchmarks and
+	// class data sharing training runs
+	private static final boolean EXIT_WHEN_INTERACTIVE = Boolean.getBoolean("stockfetcher.startup.exit");
+	
+	private volatile boolean databaseReady = false;
+	private long firstFrame = -1;
+	
 	public static void main(String[] args) {
 		launch(args);
 	}
 
 	@Override
 	public void start(Stage stage) throws Exception {
-		// Initialize the database
-		try {
-			StockDatabase.initialize();
-		} catch(SQLException e) {
-			logger.error("Unable to initialize stock database: {}", e.getMessage());
-			System.exit(-1);
-		}
+		// Connect to the database and check the schema while the UI loads
+		var database = new Task<Void>() {
+			@Override
+			protected Void call() throws Exception {
+				StockDatabase.initialize();
+				return null;
+			}
+		};
+		new Thread(database).start();
+		
+		// Serve metrics if a port was given
+		PrometheusEndpoint.startIfConfigured();
 		
 		// Load the UI 
 		FXMLLoader loader = new FXMLLoader(ClassLoader.getSystemResource("app_layout.fxml"));
 		
 		BorderPane pane = loader.<BorderPane>load();
+		UIController controller = loader.getController();
 		Scene scene = new Scene(pane);
 		
 		// Setup and show window
@@ -41,7 +62,58 @@ public class StockfetcherApp extends Application {
 		stage.setScene(scene);
 		stage.setMinWidth(850);
 		stage.setMinHeight(600);
+		
+		// The first frame is drawn after the first layout pulse of the shown window
+		scene.addPostLayoutPulseListener(new Runnable() {
+			@Override
+			public void run() {
+				if(firstFrame == -1) {
+					firstFrame = recordSinceLaunch("startup.first_frame");
+					logger.info("First frame {} ms after launch.", firstFrame);
+					Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+				}
+			}
+		});
 		stage.show();
+		
+		database.setOnSucceeded(e -> {
+			databaseReady = true;
+			controller.databaseReady();
+			long interactive = recordSinceLaunch("startup.interactive");
+			logger.info("Interactive {} ms after launch.", interactive);
+			
+			// Keep prices current in the background
+			RefreshScheduler.startIfEnabled();
+			
+			if(EXIT_WHEN_INTERACTIVE) {
+				System.out.printf("startup first_frame_ms=%d interactive_ms=%d%n", firstFrame, interactive);
+				Platform.exit();
+			}
+		});
+		database.setOnFailed(e -> {
+			logger.error("Unable to initialize stock database: {}", database.getException().getMessage());
+			System.exit(-1);
+		});
+	}
+	
+	@Override
+	public void stop() {
+		RefreshScheduler.stop();
+		PrometheusEndpoint.stop();
+		if(databaseReady) {
+			StartupCache.writeSymbols(StockDatabase.trackedSymbolsProperty());
+		}
+	}
+	
+	/**
+	 * Records the time since the JVM started.
+	 * @param timer
+	 * @return milliseconds since the JVM started
+	 */
+	private static long recordSinceLaunch(String timer) {
+		long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		Metrics.timer(timer).record(TimeUnit.MILLISECONDS.toNanos(millis));
+		return millis;
 	}
 
 }
@@ -0,0 +1,82 @@
+package stockfetcher.analytics;
+
+/**
+ * Average true range, using Wilder smoothing. The high, low, and close of
+ * each bar are adjusted by that bar's own adjustment factor, so a split
+ * doesn't show up as a gap between one close and the next.
+ */
+public final class Atr implements Indicator {
+
+	private final int period;
+	private final ExponentialMean range;
+	private double previousClose = Double.NaN;
+
+	public Atr(int period) {
+		this.period = period;
+		this.range = ExponentialMean.wilder(period);
+	}
+
+	@Override
+	public String getName() {
+		return String.format("ATR(%d)", period);
+	}
+
+	@Override
+	public int getOutputCount() {
+		return 1;
+	}
+
+	@Override
+	public String getOutputName(int output) {
+		return getName();
+	}
+
+	@Override
+	public boolean isOverlay() {
+		return false;
+	}
+
+	@Override
+	public void update(Bar bar) {
+		double adjustment = bar.adjustment();
+		double high = bar.high * adjustment;
+		double low = bar.low * adjustment;
+		double trueRange = high - low;
+		if(!Double.isNaN(previousClose)) {
+			trueRange = Math.max(trueRange, Math.max(
+				Math.abs(high - previousClose),
+				Math.abs(low - previousClose)
+			));
+		}
+		range.update(trueRange);
+		previousClose = bar.close * adjustment;
+	}
+
+	@Override
+	public boolean isReady() {
+		return range.isReady();
+	}
+
+	@Override
+	public double getValue(int output) {
+		return range.value();
+	}
+
+	@Override
+	public int getStateSize() {
+		return 1 + range.stateSize();
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		state[offset] = previousClose;
+		range.saveState(state, offset + 1);
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		previousClose = state[offset];
+		range.restoreState(state, offset + 1);
+	}
+
+}
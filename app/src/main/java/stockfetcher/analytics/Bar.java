@@ -0,0 +1,61 @@
+package stockfetcher.analytics;
+
+import stockfetcher.api.PriceData;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Mutable view of a single price bar. A single instance is reused while
+ * stepping through a series so that indicator updates don't allocate.
+ */
+public final class Bar {
+
+	public long epochDay;
+	public double open;
+	public double high;
+	public double low;
+	public double close;
+	public double adjClose;
+	public double volume;
+
+	/**
+	 * Points this bar at the given index of a series.
+	 * @param series
+	 * @param index
+	 * @return this bar
+	 */
+	public Bar set(PriceSeries series, int index) {
+		epochDay = series.getEpochDay(index);
+		open = series.getOpen(index);
+		high = series.getHigh(index);
+		low = series.getLow(index);
+		close = series.getClose(index);
+		adjClose = series.getAdjClose(index);
+		volume = series.getVolume(index);
+		return this;
+	}
+
+	/**
+	 * @return factor bringing this bar's unadjusted prices in line with its
+	 * adjusted close; 1 if either close is missing
+	 */
+	public double adjustment() {
+		return close > 0 && adjClose > 0 ? adjClose / close : 1;
+	}
+
+	/**
+	 * Copies the values from a downloaded price row.
+	 * @param data
+	 * @return this bar
+	 */
+	public Bar set(PriceData data) {
+		epochDay = data.date.toEpochDay();
+		open = data.open;
+		high = data.high;
+		low = data.low;
+		close = data.close;
+		adjClose = data.adjClose;
+		volume = data.volume;
+		return this;
+	}
+
+}
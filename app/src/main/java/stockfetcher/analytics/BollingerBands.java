@@ -0,0 +1,92 @@
+package stockfetcher.analytics;
+
+/**
+ * Bollinger bands of the adjusted close. Outputs the middle band (simple
+ * moving average) and the upper and lower bands, offset from the middle
+ * by a multiple of the window's standard deviation.
+ */
+public final class BollingerBands implements Indicator {
+
+	public static final int MIDDLE = 0;
+	public static final int UPPER = 1;
+	public static final int LOWER = 2;
+
+	private final int period;
+	private final double width;
+	private final RollingStdDev std;
+
+	/**
+	 * @param period window size
+	 * @param width number of standard deviations between the middle and outer bands
+	 */
+	public BollingerBands(int period, double width) {
+		this.period = period;
+		this.width = width;
+		this.std = new RollingStdDev(period);
+	}
+
+	@Override
+	public String getName() {
+		return String.format("BB(%d,%s)", period, Indicators.formatNumber(width));
+	}
+
+	@Override
+	public int getOutputCount() {
+		return 3;
+	}
+
+	@Override
+	public String getOutputName(int output) {
+		switch(output) {
+		case UPPER:
+			return getName() + " Upper";
+		case LOWER:
+			return getName() + " Lower";
+		default:
+			return getName();
+		}
+	}
+
+	@Override
+	public boolean isOverlay() {
+		return true;
+	}
+
+	@Override
+	public void update(Bar bar) {
+		std.update(bar.adjClose);
+	}
+
+	@Override
+	public boolean isReady() {
+		return std.isReady();
+	}
+
+	@Override
+	public double getValue(int output) {
+		switch(output) {
+		case UPPER:
+			return std.mean() + width * std.value();
+		case LOWER:
+			return std.mean() - width * std.value();
+		default:
+			return std.mean();
+		}
+	}
+
+	@Override
+	public int getStateSize() {
+		return std.stateSize();
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		std.saveState(state, offset);
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		std.restoreState(state, offset);
+	}
+
+}
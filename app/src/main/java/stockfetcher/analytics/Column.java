@@ -0,0 +1,35 @@
+package stockfetcher.analytics;
+
+/**
+ * Price columns an indicator can be computed over. Prices are adjusted for
+ * splits and dividends the same way charts draw them (each scaled by its
+ * bar's adjusted close over close), so CLOSE is the adjusted close and
+ * indicators over any column line up with the chart.
+ */
+public enum Column {
+
+	OPEN,
+	HIGH,
+	LOW,
+	CLOSE,
+	ADJ_CLOSE,
+	VOLUME;
+
+	public double get(Bar bar) {
+		switch(this) {
+		case OPEN:
+			return bar.open * bar.adjustment();
+		case HIGH:
+			return bar.high * bar.adjustment();
+		case LOW:
+			return bar.low * bar.adjustment();
+		case VOLUME:
+			return bar.volume;
+		case CLOSE:
+		case ADJ_CLOSE:
+		default:
+			return bar.adjClose;
+		}
+	}
+
+}
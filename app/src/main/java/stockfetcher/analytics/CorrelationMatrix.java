@@ -0,0 +1,78 @@
+package stockfetcher.analytics;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Pairwise covariance and correlation of daily returns for a set of
+ * symbols. Each pair uses only the days on which both symbols traded, so
+ * the number of observations can differ between pairs.
+ */
+public final class CorrelationMatrix {
+
+	private final List<String> symbols;
+	private final LocalDate start;
+	private final LocalDate end;
+	private final double[][] covariance;
+	private final double[][] correlation;
+	private final int[][] observations;
+
+	CorrelationMatrix(List<String> symbols, LocalDate start, LocalDate end, double[][] covariance,
+			double[][] correlation, int[][] observations) {
+		this.symbols = List.copyOf(symbols);
+		this.start = start;
+		this.end = end;
+		this.covariance = covariance;
+		this.correlation = correlation;
+		this.observations = observations;
+	}
+
+	/**
+	 * @return symbols in matrix order
+	 */
+	public List<String> getSymbols() {
+		return symbols;
+	}
+
+	public int size() {
+		return symbols.size();
+	}
+
+	public LocalDate getStart() {
+		return start;
+	}
+
+	public LocalDate getEnd() {
+		return end;
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return sample covariance of the daily returns of symbols i and j; NaN
+	 * if they share fewer than two days
+	 */
+	public double getCovariance(int i, int j) {
+		return covariance[i][j];
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return correlation of the daily returns of symbols i and j; NaN if
+	 * they share fewer than two days or either is constant
+	 */
+	public double getCorrelation(int i, int j) {
+		return correlation[i][j];
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return number of days with returns for both symbols
+	 */
+	public int getObservations(int i, int j) {
+		return observations[i][j];
+	}
+
+}
@@ -0,0 +1,335 @@
+package stockfetcher.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import stockfetcher.db.PriceSeries;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Computes correlation and covariance matrices of daily returns across
+ * many symbols.
+ * <p>
+ * Returns are aligned on a shared calendar of every day any symbol in the
+ * universe traded. A symbol missing a day has no return for that day or
+ * the day after, and each pair is computed over the days both symbols
+ * have returns. Pairs are split into square tiles of symbols which are
+ * computed in parallel on the common fork/join pool.
+ */
+public final class Correlations {
+
+	// Symbols per side of a tile. Two tiles of ~5 years of returns fit in L2
+	private static final int TILE_SIZE = 32;
+
+	private static final int MAX_CACHED_MATRICES = 8;
+
+	private static final LinkedHashMap<String, CachedMatrix> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedMatrix> eldest) {
+			return size() > MAX_CACHED_MATRICES;
+		}
+	};
+
+	private Correlations() {}
+
+	/**
+	 * Returns the correlation matrix for the given symbols and date window.
+	 * Results are cached per universe and window, and recomputed once any
+	 * of the symbols' prices change. Symbols whose prices cannot be loaded
+	 * are left out of the matrix.
+	 * @param symbols
+	 * @param start first day of the window (inclusive)
+	 * @param end last day of the window (inclusive)
+	 * @return correlation matrix
+	 */
+	public static CorrelationMatrix forSymbols(List<String> symbols, LocalDate start, LocalDate end) {
+		ArrayList<PriceSeries> series = new ArrayList<>(symbols.size());
+		for(String symbol : symbols) {
+			PriceSeries prices = StockDatabase.getPriceSeries(symbol);
+			if(prices != null) {
+				series.add(prices);
+			}
+		}
+
+		String key = start + "/" + end + "/" + String.join(",", symbols);
+		long[] versions = new long[series.size()];
+		for(int i = 0; i < versions.length; i++) {
+			versions[i] = series.get(i).getVersion();
+		}
+
+		synchronized(cache) {
+			CachedMatrix cached = cache.get(key);
+			if(cached != null && Arrays.equals(cached.versions, versions)) {
+				return cached.matrix;
+			}
+		}
+
+		CorrelationMatrix matrix = compute(series, start, end);
+		synchronized(cache) {
+			cache.put(key, new CachedMatrix(versions, matrix));
+		}
+		return matrix;
+	}
+
+	/**
+	 * Computes the correlation matrix for the given series without caching.
+	 * @param series
+	 * @param start first day of the window (inclusive)
+	 * @param end last day of the window (inclusive)
+	 * @return correlation matrix, in the same order as series
+	 */
+	public static CorrelationMatrix compute(List<PriceSeries> series, LocalDate start, LocalDate end) {
+		long startNanos = System.nanoTime();
+		try {
+			int n = series.size();
+			ArrayList<String> symbols = new ArrayList<>(n);
+			for(PriceSeries prices : series) {
+				symbols.add(prices.getSymbol());
+			}
+
+			PairwiseStats stats = new PairwiseStats(alignReturns(series, start, end));
+			int tiles = (n + TILE_SIZE - 1) / TILE_SIZE;
+			int[] tilePairs = new int[tiles * (tiles + 1)];
+			int count = 0;
+			for(int a = 0; a < tiles; a++) {
+				for(int b = a; b < tiles; b++) {
+					tilePairs[count++] = a;
+					tilePairs[count++] = b;
+				}
+			}
+			if(count > 0) {
+				ForkJoinPool.commonPool().invoke(new TileTask(stats, tilePairs, 0, count / 2));
+			}
+
+			return new CorrelationMatrix(symbols, start, end, stats.covariance, stats.correlation, stats.observations);
+		} finally {
+			Metrics.timer("analytics.correlations").recordSince(startNanos);
+		}
+	}
+
+	/**
+	 * Lines up the daily returns of every series on a shared calendar.
+	 * @return returns indexed by [series][day], NaN where a series has no return
+	 */
+	static double[][] alignReturns(List<PriceSeries> series, LocalDate start, LocalDate end) {
+		long first = start.toEpochDay();
+		long last = end.toEpochDay();
+		int span = (int) Math.max(0, last - first + 1);
+
+		// Calendar of every day any symbol traded in the window
+		boolean[] traded = new boolean[span];
+		for(PriceSeries prices : series) {
+			for(int i = prices.indexOf(first); i < prices.size() && prices.getEpochDay(i) <= last; i++) {
+				traded[(int) (prices.getEpochDay(i) - first)] = true;
+			}
+		}
+		int[] dayIndex = new int[span];
+		int days = 0;
+		for(int d = 0; d < span; d++) {
+			dayIndex[d] = traded[d] ? days++ : -1;
+		}
+
+		double[][] returns = new double[series.size()][Math.max(0, days - 1)];
+		for(int k = 0; k < series.size(); k++) {
+			PriceSeries prices = series.get(k);
+			double[] row = returns[k];
+			Arrays.fill(row, Double.NaN);
+
+			int previousDay = -1;
+			double previousPrice = Double.NaN;
+			for(int i = prices.indexOf(first); i < prices.size() && prices.getEpochDay(i) <= last; i++) {
+				int day = dayIndex[(int) (prices.getEpochDay(i) - first)];
+				double price = prices.getAdjClose(i);
+				if(day > 0 && previousDay == day - 1 && previousPrice > 0) {
+					row[day - 1] = price / previousPrice - 1;
+				}
+				previousDay = day;
+				previousPrice = price;
+			}
+		}
+		return returns;
+	}
+
+	/**
+	 * Pairwise statistics over the aligned returns. Symbols with a return
+	 * on every day are centered up front so their pairs need only a single
+	 * dot product; any pair involving a symbol with gaps uses masked sums.
+	 */
+	private static final class PairwiseStats {
+		final int n;
+		final int days;
+		final double[][] values;
+		final double[][] masks;
+		final boolean[] complete;
+
+		final double[][] covariance;
+		final double[][] correlation;
+		final int[][] observations;
+
+		PairwiseStats(double[][] returns) {
+			n = returns.length;
+			days = n == 0 ? 0 : returns[0].length;
+			values = new double[n][];
+			masks = new double[n][];
+			complete = new boolean[n];
+			covariance = new double[n][n];
+			correlation = new double[n][n];
+			observations = new int[n][n];
+
+			double[] ones = new double[days];
+			Arrays.fill(ones, 1);
+			for(int k = 0; k < n; k++) {
+				double[] row = returns[k];
+				int present = 0;
+				double sum = 0;
+				for(double value : row) {
+					if(!Double.isNaN(value)) {
+						present++;
+						sum += value;
+					}
+				}
+
+				if(present == days) {
+					double mean = days == 0 ? 0 : sum / days;
+					for(int t = 0; t < days; t++) {
+						row[t] -= mean;
+					}
+					complete[k] = true;
+					masks[k] = ones;
+				}
+				else {
+					double[] mask = new double[days];
+					for(int t = 0; t < days; t++) {
+						if(Double.isNaN(row[t])) {
+							row[t] = 0;
+						}
+						else {
+							mask[t] = 1;
+						}
+					}
+					masks[k] = mask;
+				}
+				values[k] = row;
+			}
+		}
+
+		void computeTile(int a, int b) {
+			int rowEnd = Math.min(n, (a + 1) * TILE_SIZE);
+			int colEnd = Math.min(n, (b + 1) * TILE_SIZE);
+			for(int i = a * TILE_SIZE; i < rowEnd; i++) {
+				for(int j = a == b ? i : b * TILE_SIZE; j < colEnd; j++) {
+					computePair(i, j);
+				}
+			}
+		}
+
+		private void computePair(int i, int j) {
+			double[] x = values[i];
+			double[] y = values[j];
+
+			int count;
+			double cov;
+			double varX;
+			double varY;
+			if(complete[i] && complete[j]) {
+				count = days;
+				cov = dot(x, y) / (count - 1);
+				varX = dot(x, x) / (count - 1);
+				varY = dot(y, y) / (count - 1);
+			}
+			else {
+				// Only days both symbols have returns for
+				double[] maskX = masks[i];
+				double[] maskY = masks[j];
+				RunningStats stats = new RunningStats();
+				for(int t = 0; t < days; t++) {
+					if(maskX[t] != 0 && maskY[t] != 0) {
+						stats.add(x[t], y[t]);
+					}
+				}
+				count = (int) stats.getCount();
+				cov = stats.getSampleCovariance();
+				varX = stats.getSampleVarianceX();
+				varY = stats.getSampleVarianceY();
+			}
+
+			double corr = Double.NaN;
+			if(count < 2) {
+				cov = Double.NaN;
+			}
+			else if(varX > 0 && varY > 0) {
+				corr = Math.max(-1, Math.min(1, cov / Math.sqrt(varX * varY)));
+			}
+
+			covariance[i][j] = cov;
+			covariance[j][i] = cov;
+			correlation[i][j] = corr;
+			correlation[j][i] = corr;
+			observations[i][j] = count;
+			observations[j][i] = count;
+		}
+
+		private static double dot(double[] a, double[] b) {
+			// Independent sums let the multiplies overlap
+			double s0 = 0;
+			double s1 = 0;
+			double s2 = 0;
+			double s3 = 0;
+			int t = 0;
+			for(; t + 3 < a.length; t += 4) {
+				s0 += a[t] * b[t];
+				s1 += a[t + 1] * b[t + 1];
+				s2 += a[t + 2] * b[t + 2];
+				s3 += a[t + 3] * b[t + 3];
+			}
+			for(; t < a.length; t++) {
+				s0 += a[t] * b[t];
+			}
+			return (s0 + s1) + (s2 + s3);
+		}
+	}
+
+	private static final class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final PairwiseStats stats;
+		private final int[] tilePairs;
+		private final int from;
+		private final int to;
+
+		TileTask(PairwiseStats stats, int[] tilePairs, int from, int to) {
+			this.stats = stats;
+			this.tilePairs = tilePairs;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from == 1) {
+				stats.computeTile(tilePairs[from * 2], tilePairs[from * 2 + 1]);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new TileTask(stats, tilePairs, from, mid), new TileTask(stats, tilePairs, mid, to));
+		}
+	}
+
+	private static final class CachedMatrix {
+		final long[] versions;
+		final CorrelationMatrix matrix;
+
+		CachedMatrix(long[] versions, CorrelationMatrix matrix) {
+			this.versions = versions;
+			this.matrix = matrix;
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package stockfetcher.analytics;
+
+/**
+ * Exponentially weighted mean. The first output is the simple mean of the
+ * first {@code period} values, after which each value is blended in with
+ * the smoothing factor.
+ */
+public final class ExponentialMean implements Operator {
+
+	private final int period;
+	private final double alpha;
+	private int count = 0;
+	private double mean = 0;
+
+	/**
+	 * @param period number of values used to seed the mean
+	 * @param alpha smoothing factor applied to each new value
+	 */
+	public ExponentialMean(int period, double alpha) {
+		if(period < 1) {
+			throw new IllegalArgumentException("Period must be at least 1: " + period);
+		}
+		this.period = period;
+		this.alpha = alpha;
+	}
+
+	/**
+	 * @param period
+	 * @return standard EMA with a smoothing factor of 2 / (period + 1)
+	 */
+	public static ExponentialMean ema(int period) {
+		return new ExponentialMean(period, 2.0 / (period + 1));
+	}
+
+	/**
+	 * @param period
+	 * @return Wilder's smoothed average with a smoothing factor of 1 / period
+	 */
+	public static ExponentialMean wilder(int period) {
+		return new ExponentialMean(period, 1.0 / period);
+	}
+
+	@Override
+	public double update(double value) {
+		if(count < period) {
+			count++;
+			mean += (value - mean) / count;
+		}
+		else {
+			mean += alpha * (value - mean);
+		}
+		return value();
+	}
+
+	@Override
+	public double value() {
+		return isReady() ? mean : Double.NaN;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count >= period;
+	}
+
+	@Override
+	public int stateSize() {
+		return 2;
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		state[offset] = count;
+		state[offset + 1] = mean;
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		count = (int) state[offset];
+		mean = state[offset + 1];
+	}
+
+}
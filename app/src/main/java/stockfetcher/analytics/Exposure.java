@@ -0,0 +1,29 @@
+package stockfetcher.analytics;
+
+import java.util.List;
+
+import javafx.util.Pair;
+
+/**
+ * Look-through exposure of a portfolio, in the same units as the
+ * portfolio weights. Only reported ETF holdings are known, so the
+ * exposures may add up to less than the total portfolio weight.
+ */
+public class Exposure {
+
+	/**
+	 * Underlying (non-ETF) symbols as (symbol, weight), largest first.
+	 */
+	public final List<Pair<String, Double>> holdings;
+
+	/**
+	 * Sectors as (sector, weight), largest first.
+	 */
+	public final List<Pair<String, Double>> sectors;
+
+	public Exposure(List<Pair<String, Double>> holdings, List<Pair<String, Double>> sectors) {
+		this.holdings = List.copyOf(holdings);
+		this.sectors = List.copyOf(sectors);
+	}
+
+}
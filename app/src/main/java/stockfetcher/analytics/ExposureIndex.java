@@ -0,0 +1,317 @@
+package stockfetcher.analytics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.util.Pair;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Look-through index over stored ETF holdings and sector weightings.
+ * <p>
+ * Every ETF's holdings are resolved once when the index is built: holdings
+ * which are themselves ETFs are replaced by their own (resolved) holdings,
+ * memoized so shared funds are only expanded once. An inverted index from
+ * each underlying symbol to the ETFs holding it is built from the result,
+ * so both portfolio look-through and "held by" lookups only touch the
+ * symbols involved. The index is immutable and safe to share between
+ * threads; build a new one when ETF data changes.
+ */
+public final class ExposureIndex {
+
+	private final HashMap<String, Integer> ids = new HashMap<>();
+	private final ArrayList<String> symbols = new ArrayList<>();
+
+	// Indexed by symbol id; null for symbols which are not ETFs
+	private final ArrayList<Weights> directHoldings = new ArrayList<>();
+	private final ArrayList<Map<String, Double>> directSectors = new ArrayList<>();
+
+	private final Weights[] resolvedHoldings;
+	private final ArrayList<Map<String, Double>> resolvedSectors;
+	private boolean[] resolving;
+
+	// Underlying symbol id -> (ETF symbol, look-through weight), largest first
+	private final HashMap<Integer, List<Pair<String, Double>>> heldBy = new HashMap<>();
+
+	/**
+	 * Builds the index from the ETF data in the database.
+	 * @return new index
+	 */
+	public static ExposureIndex load() {
+		long start = System.nanoTime();
+		try {
+			return new ExposureIndex(StockDatabase.getAllEtfHoldings(), StockDatabase.getAllEtfSectors());
+		} finally {
+			Metrics.timer("analytics.exposure_index").recordSince(start);
+		}
+	}
+
+	/**
+	 * @param holdings map of ETF symbol to its holdings as (symbol, percent)
+	 * @param sectors map of ETF symbol to its sectors as (sector, percent)
+	 */
+	public ExposureIndex(Map<String, ? extends List<Pair<String, Double>>> holdings,
+			Map<String, ? extends List<Pair<String, Double>>> sectors) {
+		for(var etf : holdings.entrySet()) {
+			int etfId = id(etf.getKey());
+			ArrayList<Pair<String, Double>> list = new ArrayList<>(etf.getValue());
+			Weights weights = new Weights(list.size());
+			for(var holding : list) {
+				weights.add(id(holding.getKey()), holding.getValue() / 100);
+			}
+			directHoldings.set(etfId, weights);
+		}
+		for(var etf : sectors.entrySet()) {
+			HashMap<String, Double> weights = new HashMap<>();
+			for(var sector : etf.getValue()) {
+				weights.merge(sector.getKey(), sector.getValue() / 100, Double::sum);
+			}
+			directSectors.set(id(etf.getKey()), weights);
+		}
+
+		int count = symbols.size();
+		resolvedHoldings = new Weights[count];
+		resolvedSectors = new ArrayList<>(Collections.nCopies(count, null));
+		resolving = new boolean[count];
+		for(int id = 0; id < count; id++) {
+			if(isEtf(id)) {
+				resolveHoldings(id);
+				resolveSectors(id);
+			}
+		}
+		resolving = null;
+
+		// Inverted index of underlying symbol -> holding ETFs
+		for(int etf = 0; etf < count; etf++) {
+			Weights resolved = resolvedHoldings[etf];
+			if(resolved == null) {
+				continue;
+			}
+			for(int i = 0; i < resolved.size; i++) {
+				heldBy.computeIfAbsent(resolved.ids[i], held -> new ArrayList<>())
+					.add(new Pair<>(symbols.get(etf), resolved.weights[i]));
+			}
+		}
+		for(var list : heldBy.values()) {
+			list.sort(ExposureIndex::byWeightDescending);
+		}
+	}
+
+	/**
+	 * @param symbol
+	 * @return true if holdings or sectors are stored for the symbol
+	 */
+	public boolean isEtf(String symbol) {
+		Integer id = ids.get(symbol);
+		return id != null && isEtf(id);
+	}
+
+	/**
+	 * Returns the underlying holdings of an ETF, with nested ETFs expanded.
+	 * @param etf
+	 * @return holdings as (symbol, fraction of the ETF), largest first; empty if unknown
+	 */
+	public List<Pair<String, Double>> getLookThroughHoldings(String etf) {
+		Integer id = ids.get(etf);
+		if(id == null || resolvedHoldings[id] == null) {
+			return List.of();
+		}
+		return resolvedHoldings[id].toList(symbols);
+	}
+
+	/**
+	 * Finds every ETF holding the given symbol, directly or through other
+	 * ETFs.
+	 * @param symbol
+	 * @return holding ETFs as (ETF symbol, fraction of the ETF), largest first
+	 */
+	public List<Pair<String, Double>> getHeldBy(String symbol) {
+		Integer id = ids.get(symbol);
+		if(id == null) {
+			return List.of();
+		}
+		return Collections.unmodifiableList(heldBy.getOrDefault(id, List.of()));
+	}
+
+	/**
+	 * Computes the look-through exposure of a portfolio. Positions which
+	 * are not ETFs count as exposure to themselves.
+	 * @param portfolio map of symbol to portfolio weight
+	 * @return aggregated symbol and sector exposure
+	 */
+	public Exposure getExposure(Map<String, Double> portfolio) {
+		double[] totals = new double[symbols.size()];
+		HashMap<String, Double> unknown = new HashMap<>();
+		HashMap<String, Double> sectors = new HashMap<>();
+
+		for(var position : portfolio.entrySet()) {
+			double weight = position.getValue();
+			Integer id = ids.get(position.getKey());
+			if(id == null) {
+				unknown.merge(position.getKey(), weight, Double::sum);
+				continue;
+			}
+
+			Weights resolved = resolvedHoldings[id];
+			if(resolved == null) {
+				totals[id] += weight;
+			}
+			else {
+				for(int i = 0; i < resolved.size; i++) {
+					totals[resolved.ids[i]] += weight * resolved.weights[i];
+				}
+			}
+
+			if(resolvedSectors.get(id) != null) {
+				for(var sector : resolvedSectors.get(id).entrySet()) {
+					sectors.merge(sector.getKey(), weight * sector.getValue(), Double::sum);
+				}
+			}
+		}
+
+		ArrayList<Pair<String, Double>> holdings = new ArrayList<>();
+		for(int id = 0; id < totals.length; id++) {
+			if(totals[id] != 0) {
+				holdings.add(new Pair<>(symbols.get(id), totals[id]));
+			}
+		}
+		for(var position : unknown.entrySet()) {
+			holdings.add(new Pair<>(position.getKey(), position.getValue()));
+		}
+		holdings.sort(ExposureIndex::byWeightDescending);
+
+		ArrayList<Pair<String, Double>> sectorList = new ArrayList<>();
+		for(var sector : sectors.entrySet()) {
+			sectorList.add(new Pair<>(sector.getKey(), sector.getValue()));
+		}
+		sectorList.sort(ExposureIndex::byWeightDescending);
+
+		return new Exposure(holdings, sectorList);
+	}
+
+	private Weights resolveHoldings(int etf) {
+		if(resolvedHoldings[etf] != null) {
+			return resolvedHoldings[etf];
+		}
+		if(resolving[etf]) {
+			// Circular holdings; the caller keeps this ETF as a plain holding
+			return null;
+		}
+		Weights direct = directHoldings.get(etf);
+		if(direct == null) {
+			return null;
+		}
+
+		resolving[etf] = true;
+		HashMap<Integer, Double> totals = new HashMap<>();
+		for(int i = 0; i < direct.size; i++) {
+			int held = direct.ids[i];
+			double weight = direct.weights[i];
+			Weights nested = directHoldings.get(held) == null ? null : resolveHoldings(held);
+			if(nested == null) {
+				totals.merge(held, weight, Double::sum);
+			}
+			else {
+				for(int j = 0; j < nested.size; j++) {
+					totals.merge(nested.ids[j], weight * nested.weights[j], Double::sum);
+				}
+			}
+		}
+		resolving[etf] = false;
+
+		Weights resolved = new Weights(totals.size());
+		totals.entrySet().stream()
+			.sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
+			.forEach(entry -> resolved.add(entry.getKey(), entry.getValue()));
+		resolvedHoldings[etf] = resolved;
+		return resolved;
+	}
+
+	/**
+	 * Uses the ETF's own sector weightings if stored; otherwise derives
+	 * them from any ETFs it holds.
+	 */
+	private Map<String, Double> resolveSectors(int etf) {
+		if(resolvedSectors.get(etf) != null) {
+			return resolvedSectors.get(etf);
+		}
+		if(directSectors.get(etf) != null) {
+			resolvedSectors.set(etf, directSectors.get(etf));
+			return resolvedSectors.get(etf);
+		}
+		Weights direct = directHoldings.get(etf);
+		if(direct == null || resolving[etf]) {
+			return null;
+		}
+
+		resolving[etf] = true;
+		HashMap<String, Double> totals = new HashMap<>();
+		for(int i = 0; i < direct.size; i++) {
+			Map<String, Double> nested = isEtf(direct.ids[i]) ? resolveSectors(direct.ids[i]) : null;
+			if(nested != null) {
+				for(var sector : nested.entrySet()) {
+					totals.merge(sector.getKey(), direct.weights[i] * sector.getValue(), Double::sum);
+				}
+			}
+		}
+		resolving[etf] = false;
+
+		if(!totals.isEmpty()) {
+			resolvedSectors.set(etf, totals);
+		}
+		return resolvedSectors.get(etf);
+	}
+
+	private boolean isEtf(int id) {
+		return directHoldings.get(id) != null || directSectors.get(id) != null;
+	}
+
+	private int id(String symbol) {
+		Integer id = ids.get(symbol);
+		if(id == null) {
+			id = symbols.size();
+			ids.put(symbol, id);
+			symbols.add(symbol);
+			directHoldings.add(null);
+			directSectors.add(null);
+		}
+		return id;
+	}
+
+	private static int byWeightDescending(Pair<String, Double> a, Pair<String, Double> b) {
+		return Double.compare(b.getValue(), a.getValue());
+	}
+
+	/**
+	 * Sparse list of (symbol id, weight).
+	 */
+	private static final class Weights {
+		int[] ids;
+		double[] weights;
+		int size = 0;
+
+		Weights(int capacity) {
+			ids = new int[capacity];
+			weights = new double[capacity];
+		}
+
+		void add(int id, double weight) {
+			ids[size] = id;
+			weights[size] = weight;
+			size++;
+		}
+
+		List<Pair<String, Double>> toList(List<String> symbols) {
+			ArrayList<Pair<String, Double>> list = new ArrayList<>(size);
+			for(int i = 0; i < size; i++) {
+				list.add(new Pair<>(symbols.get(ids[i]), weights[i]));
+			}
+			return list;
+		}
+	}
+
+}
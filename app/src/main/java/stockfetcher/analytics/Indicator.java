@@ -0,0 +1,69 @@
+package stockfetcher.analytics;
+
+/**
+ * Technical indicator computed bar by bar. Indicators keep rolling state,
+ * so feeding a new bar is O(1), and that state can be saved and restored
+ * to resume a computation where it left off.
+ */
+public interface Indicator {
+
+	/**
+	 * @return canonical name of this indicator, e.g. "SMA(50)". Parsing the
+	 * name with {@link Indicators#parse(String)} creates an equivalent indicator.
+	 */
+	public String getName();
+
+	/**
+	 * @return number of values (lines) this indicator outputs per bar
+	 */
+	public int getOutputCount();
+
+	/**
+	 * @param output
+	 * @return display name of the given output
+	 */
+	public String getOutputName(int output);
+
+	/**
+	 * @return true if the outputs are on the same scale as the price, and
+	 * may be drawn over the price chart
+	 */
+	public boolean isOverlay();
+
+	/**
+	 * Feeds the next bar into this indicator.
+	 * @param bar
+	 */
+	public void update(Bar bar);
+
+	/**
+	 * @return true once enough bars have been seen to produce outputs
+	 */
+	public boolean isReady();
+
+	/**
+	 * @param output
+	 * @return current value of the given output; NaN if not yet ready
+	 */
+	public double getValue(int output);
+
+	/**
+	 * @return number of doubles needed to save this indicator's state
+	 */
+	public int getStateSize();
+
+	/**
+	 * Writes this indicator's state into the array.
+	 * @param state destination
+	 * @param offset position of the first value written
+	 */
+	public void saveState(double[] state, int offset);
+
+	/**
+	 * Restores state previously written by {@link #saveState(double[], int)}.
+	 * @param state source
+	 * @param offset position of the first value read
+	 */
+	public void restoreState(double[] state, int offset);
+
+}
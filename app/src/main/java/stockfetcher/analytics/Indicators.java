@@ -0,0 +1,241 @@
+package stockfetcher.analytics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import stockfetcher.db.IndicatorState;
+import stockfetcher.db.PriceSeries;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Helpers for creating indicators from their names and running them over
+ * price series.
+ */
+public final class Indicators {
+
+	private static final Pattern SPEC = Pattern.compile("([A-Za-z]+)\\s*(?:\\((.*)\\))?");
+
+	private Indicators() {}
+
+	/**
+	 * Creates an indicator from its name, e.g. "SMA(50)", "EMA(20,VOLUME)",
+	 * "RSI", "MACD(12,26,9)", "BB(20,2)", or "ATR(14)". Parameters may be
+	 * omitted for everything but SMA and EMA to use the usual defaults.
+	 * @param spec
+	 * @return new indicator
+	 * @throws IllegalArgumentException if the spec is invalid
+	 */
+	public static Indicator parse(String spec) {
+		Matcher matcher = SPEC.matcher(spec.trim());
+		if(!matcher.matches()) {
+			throw new IllegalArgumentException("Invalid indicator: " + spec);
+		}
+
+		String type = matcher.group(1).toUpperCase(Locale.ROOT);
+		String[] args = matcher.group(2) == null || matcher.group(2).isBlank()
+				? new String[0]
+				: matcher.group(2).split(",");
+
+		try {
+			switch(type) {
+			case "SMA":
+				return new Sma(columnArg(args, 1), intArg(args, 0, -1));
+			case "EMA":
+				return new Ema(columnArg(args, 1), intArg(args, 0, -1));
+			case "RSI":
+				return new Rsi(intArg(args, 0, 14));
+			case "MACD":
+				return new Macd(intArg(args, 0, 12), intArg(args, 1, 26), intArg(args, 2, 9));
+			case "BB":
+				return new BollingerBands(intArg(args, 0, 20), doubleArg(args, 1, 2));
+			case "ATR":
+				return new Atr(intArg(args, 0, 14));
+			default:
+				throw new IllegalArgumentException("Unknown indicator: " + type);
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid indicator parameters: " + spec);
+		}
+	}
+
+	/**
+	 * Creates indicators from a comma-separated list of names. Commas inside
+	 * parentheses belong to the indicator parameters.
+	 * @param specs e.g. "SMA(50), MACD(12,26,9)"
+	 * @return new indicators, in order
+	 * @throws IllegalArgumentException if any spec is invalid
+	 */
+	public static List<Indicator> parseList(String specs) {
+		ArrayList<Indicator> indicators = new ArrayList<>();
+		int depth = 0;
+		int start = 0;
+		for(int i = 0; i <= specs.length(); i++) {
+			char c = i < specs.length() ? specs.charAt(i) : ',';
+			if(c == '(') {
+				depth++;
+			}
+			else if(c == ')') {
+				depth--;
+			}
+			else if(c == ',' && depth == 0) {
+				String spec = specs.substring(start, i).trim();
+				if(!spec.isEmpty()) {
+					indicators.add(parse(spec));
+				}
+				start = i + 1;
+			}
+		}
+		return indicators;
+	}
+
+	/**
+	 * Runs an indicator over a full series.
+	 * @param series
+	 * @param indicator fresh indicator; its state is advanced to the end of the series
+	 * @return values indexed by [output][bar]; NaN where the indicator was not yet ready
+	 */
+	public static double[][] compute(PriceSeries series, Indicator indicator) {
+		double[][] values = new double[indicator.getOutputCount()][series.size()];
+		Bar bar = new Bar();
+		for(int i = 0; i < series.size(); i++) {
+			indicator.update(bar.set(series, i));
+			for(int output = 0; output < values.length; output++) {
+				values[output][i] = indicator.getValue(output);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Runs indicators over a full series, returning only their final values.
+	 * @param series
+	 * @param indicators fresh indicators; their states are advanced to the end of the series
+	 * @return final values indexed by [indicator][output]
+	 */
+	public static double[][] latest(PriceSeries series, List<Indicator> indicators) {
+		Bar bar = new Bar();
+		for(int i = 0; i < series.size(); i++) {
+			bar.set(series, i);
+			for(Indicator indicator : indicators) {
+				indicator.update(bar);
+			}
+		}
+
+		double[][] values = new double[indicators.size()][];
+		for(int i = 0; i < values.length; i++) {
+			Indicator indicator = indicators.get(i);
+			values[i] = new double[indicator.getOutputCount()];
+			for(int output = 0; output < values[i].length; output++) {
+				values[i][output] = indicator.getValue(output);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Computes the final indicator values for many series in parallel.
+	 * @param series
+	 * @param specs indicator names, created fresh for every series
+	 * @return map of symbol to final values indexed by [indicator][output]
+	 */
+	public static Map<String, double[][]> latestAll(Collection<PriceSeries> series, List<String> specs) {
+		long start = System.nanoTime();
+		try {
+			ConcurrentHashMap<String, double[][]> results = new ConcurrentHashMap<>();
+			series.parallelStream().forEach(s -> {
+				ArrayList<Indicator> indicators = new ArrayList<>(specs.size());
+				for(String spec : specs) {
+					indicators.add(parse(spec));
+				}
+				results.put(s.getSymbol(), latest(s, indicators));
+			});
+			return results;
+		} finally {
+			Metrics.timer("analytics.indicators").recordSince(start);
+		}
+	}
+
+	/**
+	 * Brings an indicator up to date for the given series, resuming from the
+	 * state saved in the database (if any) so only bars after the last run
+	 * are processed. The saved state is only used if the bar it was saved
+	 * at is still in the series with the same adjusted close; otherwise
+	 * (a split or dividend since, or rewritten history) the indicator is
+	 * computed from the start. The new state is saved afterwards.
+	 * @param series full price history
+	 * @param spec indicator name
+	 * @return indicator with its state advanced to the end of the series
+	 */
+	public static Indicator resume(PriceSeries series, String spec) {
+		long startNanos = System.nanoTime();
+		try {
+			Indicator indicator = parse(spec);
+			int start = 0;
+
+			IndicatorState saved = StockDatabase.loadIndicatorState(series.getSymbol(), indicator.getName());
+			if(saved != null && saved.state.length == indicator.getStateSize()) {
+				int last = series.indexOf(saved.lastDate.toEpochDay());
+				if(last < series.size()
+						&& series.getEpochDay(last) == saved.lastDate.toEpochDay()
+						&& series.getAdjClose(last) == saved.lastAdjClose) {
+					indicator.restoreState(saved.state, 0);
+					start = last + 1;
+				}
+			}
+
+			Bar bar = new Bar();
+			for(int i = start; i < series.size(); i++) {
+				indicator.update(bar.set(series, i));
+			}
+
+			if(start < series.size()) {
+				int last = series.size() - 1;
+				double[] state = new double[indicator.getStateSize()];
+				indicator.saveState(state, 0);
+				StockDatabase.saveIndicatorState(series.getSymbol(), indicator.getName(), series.getDate(last), series.getAdjClose(last), state);
+			}
+			return indicator;
+		} finally {
+			Metrics.timer("analytics.indicator_resume").recordSince(startNanos);
+		}
+	}
+
+	/**
+	 * Formats a parameter without trailing zeros (2.0 -> "2", 2.5 -> "2.5").
+	 */
+	static String formatNumber(double value) {
+		if(value == Math.rint(value)) {
+			return String.valueOf((long) value);
+		}
+		return String.valueOf(value);
+	}
+
+	private static int intArg(String[] args, int index, int defaultValue) {
+		if(index < args.length) {
+			return Integer.parseInt(args[index].trim());
+		}
+		if(defaultValue < 0) {
+			throw new IllegalArgumentException("Missing indicator period.");
+		}
+		return defaultValue;
+	}
+
+	private static double doubleArg(String[] args, int index, double defaultValue) {
+		return index < args.length ? Double.parseDouble(args[index].trim()) : defaultValue;
+	}
+
+	private static Column columnArg(String[] args, int index) {
+		if(index < args.length) {
+			return Column.valueOf(args[index].trim().toUpperCase(Locale.ROOT));
+		}
+		return Column.ADJ_CLOSE;
+	}
+
+}
@@ -0,0 +1,76 @@
+package stockfetcher.analytics;
+
+/**
+ * Least squares line through a price history, extended past the last
+ * price, with bands at whole standard deviations of the prices.
+ */
+public final class LinearForecast {
+
+	/**
+	 * Offset of each line from the fit, in standard deviations.
+	 */
+	public static final int[] DEVIATIONS = {0, 1, -1, 2, -2};
+
+	/**
+	 * Days of the history followed by every day up to the end of the
+	 * forecast.
+	 */
+	public final double[] days;
+
+	/**
+	 * lines[k][i] is the fit plus DEVIATIONS[k] standard deviations on days[i].
+	 */
+	public final double[][] lines;
+
+	/**
+	 * Smallest and largest value on any line.
+	 */
+	public final double min;
+	public final double max;
+
+	private LinearForecast(double[] days, double[][] lines, double min, double max) {
+		this.days = days;
+		this.lines = lines;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Fits a line through the points and extends it daily past the last.
+	 * @param x epoch days in ascending order
+	 * @param y prices; same length as x
+	 * @param endDay day after the last forecast day
+	 * @return fitted and forecast lines
+	 */
+	public static LinearForecast fit(double[] x, double[] y, long endDay) {
+		if(x.length == 0) {
+			throw new IllegalArgumentException("At least one price is needed to forecast.");
+		}
+
+		RunningStats stats = RunningStats.of(x, y);
+		double std = stats.getStdDevY();
+
+		int future = (int) Math.max(0, endDay - ((long) x[x.length - 1] + 1));
+		int n = x.length + future;
+		double[] days = new double[n];
+		System.arraycopy(x, 0, days, 0, x.length);
+		for(int i = 0; i < future; i++) {
+			days[x.length + i] = (long) x[x.length - 1] + 1 + i;
+		}
+
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double[][] lines = new double[DEVIATIONS.length][n];
+		for(int i = 0; i < n; i++) {
+			double fit = stats.predict(days[i]);
+			for(int k = 0; k < DEVIATIONS.length; k++) {
+				double value = fit + DEVIATIONS[k] * std;
+				lines[k][i] = value;
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+		}
+		return new LinearForecast(days, lines, min, max);
+	}
+
+}
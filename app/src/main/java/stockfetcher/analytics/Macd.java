@@ -0,0 +1,106 @@
+package stockfetcher.analytics;
+
+/**
+ * Moving average convergence/divergence of the adjusted close. Outputs
+ * the MACD line (fast EMA - slow EMA), its signal EMA, and the histogram
+ * (MACD - signal).
+ */
+public final class Macd implements Indicator {
+
+	public static final int MACD = 0;
+	public static final int SIGNAL = 1;
+	public static final int HISTOGRAM = 2;
+
+	private final int fastPeriod;
+	private final int slowPeriod;
+	private final int signalPeriod;
+	private final ExponentialMean fast;
+	private final ExponentialMean slow;
+	private final ExponentialMean signal;
+
+	public Macd(int fastPeriod, int slowPeriod, int signalPeriod) {
+		this.fastPeriod = fastPeriod;
+		this.slowPeriod = slowPeriod;
+		this.signalPeriod = signalPeriod;
+		this.fast = ExponentialMean.ema(fastPeriod);
+		this.slow = ExponentialMean.ema(slowPeriod);
+		this.signal = ExponentialMean.ema(signalPeriod);
+	}
+
+	@Override
+	public String getName() {
+		return String.format("MACD(%d,%d,%d)", fastPeriod, slowPeriod, signalPeriod);
+	}
+
+	@Override
+	public int getOutputCount() {
+		return 3;
+	}
+
+	@Override
+	public String getOutputName(int output) {
+		switch(output) {
+		case SIGNAL:
+			return getName() + " Signal";
+		case HISTOGRAM:
+			return getName() + " Histogram";
+		default:
+			return getName();
+		}
+	}
+
+	@Override
+	public boolean isOverlay() {
+		return false;
+	}
+
+	@Override
+	public void update(Bar bar) {
+		fast.update(bar.adjClose);
+		slow.update(bar.adjClose);
+		if(fast.isReady() && slow.isReady()) {
+			signal.update(fast.value() - slow.value());
+		}
+	}
+
+	@Override
+	public boolean isReady() {
+		return signal.isReady();
+	}
+
+	@Override
+	public double getValue(int output) {
+		if(!isReady()) {
+			return Double.NaN;
+		}
+		double macd = fast.value() - slow.value();
+		switch(output) {
+		case SIGNAL:
+			return signal.value();
+		case HISTOGRAM:
+			return macd - signal.value();
+		default:
+			return macd;
+		}
+	}
+
+	@Override
+	public int getStateSize() {
+		return fast.stateSize() + slow.stateSize() + signal.stateSize();
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		fast.saveState(state, offset);
+		slow.saveState(state, offset + fast.stateSize());
+		signal.saveState(state, offset + fast.stateSize() + slow.stateSize());
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		fast.restoreState(state, offset);
+		slow.restoreState(state, offset + fast.stateSize());
+		signal.restoreState(state, offset + fast.stateSize() + slow.stateSize());
+	}
+
+}
@@ -0,0 +1,184 @@
+package stockfetcher.analytics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo forecasts of future prices from a history of daily closes.
+ * <p>
+ * Paths are simulated in log price space in parallel on the common
+ * fork/join pool, each chunk of paths with its own split of the caller's
+ * random generator. Paths are never stored: every step of every path is
+ * counted into a histogram for that step, and percentiles are read back
+ * from the merged histograms. Each step's histogram spans a fixed number
+ * of standard deviations around the expected log price, so the bands are
+ * accurate to a small fraction of a standard deviation.
+ */
+public final class MonteCarlo {
+
+	public enum Model {
+		/**
+		 * Geometric Brownian motion: normally distributed daily log
+		 * returns with the historical mean and standard deviation.
+		 */
+		GBM,
+
+		/**
+		 * Daily log returns drawn with replacement from the history, which
+		 * keeps its fat tails and skew.
+		 */
+		BOOTSTRAP
+	}
+
+	private static final int BINS = 1024;
+
+	// Histograms cover the expected log price +/- this many standard deviations.
+	// Anything outside is counted in the first or last bin
+	private static final double RANGE_DEVIATIONS = 8;
+
+	// Paths advanced together one step at a time, so a step's histogram
+	// row stays in cache while the block is counted into it
+	private static final int BLOCK = 1024;
+
+	private MonteCarlo() {}
+
+	/**
+	 * Simulates price paths starting from the last price.
+	 * @param prices daily closes, oldest first; must all be positive
+	 * @param model
+	 * @param horizon number of trading days to simulate
+	 * @param paths number of paths
+	 * @param percentiles levels to report, as fractions in ascending order
+	 * @param random source of randomness; the result is the same for the same seed
+	 * @return percentile bands for each day of the horizon
+	 */
+	public static MonteCarloForecast forecast(double[] prices, Model model, int horizon, int paths,
+			double[] percentiles, SplittableRandom random) {
+		if(prices.length < 2) {
+			throw new IllegalArgumentException("At least two prices are needed to forecast.");
+		}
+		if(horizon < 1 || paths < 1) {
+			throw new IllegalArgumentException("Horizon and path count must be positive.");
+		}
+		for(double price : prices) {
+			if(!(price > 0)) {
+				throw new IllegalArgumentException("Prices must be positive.");
+			}
+		}
+
+		// Daily log returns without the leading NaN
+		double[] returns = new double[prices.length];
+		SeriesKernels.get().logReturns(prices, returns);
+		returns = Arrays.copyOfRange(returns, 1, returns.length);
+
+		RunningStats stats = new RunningStats();
+		for(double r : returns) {
+			stats.add(r);
+		}
+		double mean = stats.getMeanY();
+		double std = returns.length > 1 ? Math.sqrt(stats.getSampleVarianceY()) : 0;
+
+		// Histogram range for each step
+		double[] lower = new double[horizon];
+		double[] binsPerUnit = new double[horizon];
+		for(int t = 0; t < horizon; t++) {
+			double halfWidth = Math.max(1e-9, RANGE_DEVIATIONS * std * Math.sqrt(t + 1));
+			lower[t] = mean * (t + 1) - halfWidth;
+			binsPerUnit[t] = BINS / (2 * halfWidth);
+		}
+
+		// Each chunk gets its own generator, split off here so the result
+		// doesn't depend on which thread runs which chunk
+		int chunks = Math.min(ceilDiv(paths, BLOCK), 4 * ForkJoinPool.getCommonPoolParallelism());
+		SplittableRandom[] randoms = new SplittableRandom[chunks];
+		for(int c = 0; c < chunks; c++) {
+			randoms[c] = random.split();
+		}
+
+		final double[] sample = returns;
+		final double drift = mean;
+		final double volatility = std;
+		int[] counts = IntStream.range(0, chunks).parallel()
+			.mapToObj(c -> {
+				int chunkPaths = paths / chunks + (c < paths % chunks ? 1 : 0);
+				return simulate(model, sample, drift, volatility, horizon, chunkPaths, lower, binsPerUnit, randoms[c]);
+			})
+			.reduce(MonteCarlo::merge)
+			.get();
+
+		// Read the percentiles back out of each step's histogram
+		double last = prices[prices.length - 1];
+		double[][] bands = new double[percentiles.length][horizon];
+		for(int t = 0; t < horizon; t++) {
+			int row = t * BINS;
+			double binWidth = 1 / binsPerUnit[t];
+			long below = 0;
+			int bin = 0;
+			for(int k = 0; k < percentiles.length; k++) {
+				double target = percentiles[k] * paths;
+				while(bin < BINS - 1 && below + counts[row + bin] < target) {
+					below += counts[row + bin];
+					bin++;
+				}
+
+				// Assume the paths are spread evenly through the bin
+				int count = counts[row + bin];
+				double fraction = count == 0 ? 0.5 : Math.min(1, Math.max(0, (target - below) / count));
+				bands[k][t] = last * Math.exp(lower[t] + (bin + fraction) * binWidth);
+			}
+		}
+
+		return new MonteCarloForecast(model, paths, percentiles.clone(), bands);
+	}
+
+	/**
+	 * Simulates one chunk of paths.
+	 * @return histogram counts, BINS per step
+	 */
+	private static int[] simulate(Model model, double[] returns, double mean, double std, int horizon, int paths,
+			double[] lower, double[] binsPerUnit, SplittableRandom random) {
+		int[] counts = new int[horizon * BINS];
+		double[] logPrices = new double[BLOCK];
+
+		for(int done = 0; done < paths; done += BLOCK) {
+			int size = Math.min(BLOCK, paths - done);
+			Arrays.fill(logPrices, 0, size, 0);
+
+			for(int t = 0; t < horizon; t++) {
+				if(model == Model.GBM) {
+					for(int p = 0; p < size; p++) {
+						logPrices[p] += mean + std * random.nextGaussian();
+					}
+				}
+				else {
+					for(int p = 0; p < size; p++) {
+						logPrices[p] += returns[random.nextInt(returns.length)];
+					}
+				}
+
+				int row = t * BINS;
+				double low = lower[t];
+				double scale = binsPerUnit[t];
+				for(int p = 0; p < size; p++) {
+					int bin = (int) ((logPrices[p] - low) * scale);
+					counts[row + Math.max(0, Math.min(BINS - 1, bin))]++;
+				}
+			}
+		}
+		return counts;
+	}
+
+	private static int[] merge(int[] a, int[] b) {
+		for(int i = 0; i < a.length; i++) {
+			a[i] += b[i];
+		}
+		return a;
+	}
+
+	private static int ceilDiv(int a, int b) {
+		return (a + b - 1) / b;
+	}
+
+}
@@ -0,0 +1,40 @@
+package stockfetcher.analytics;
+
+/**
+ * Percentile bands of simulated future prices. Step 0 is the first
+ * trading day after the last known price.
+ */
+public final class MonteCarloForecast {
+
+	public final MonteCarlo.Model model;
+
+	/**
+	 * Number of simulated paths.
+	 */
+	public final int paths;
+
+	/**
+	 * Percentile levels in ascending order, as fractions (0.5 = median).
+	 */
+	public final double[] percentiles;
+
+	/**
+	 * bands[k][t] is the price at percentiles[k] on step t.
+	 */
+	public final double[][] bands;
+
+	MonteCarloForecast(MonteCarlo.Model model, int paths, double[] percentiles, double[][] bands) {
+		this.model = model;
+		this.paths = paths;
+		this.percentiles = percentiles;
+		this.bands = bands;
+	}
+
+	/**
+	 * @return number of simulated trading days
+	 */
+	public int getHorizon() {
+		return bands.length == 0 ? 0 : bands[0].length;
+	}
+
+}
@@ -0,0 +1,47 @@
+package stockfetcher.analytics;
+
+/**
+ * Streaming operator over a sequence of values. Each update is O(1) and
+ * allocation free. Operators are the building blocks for indicators, and
+ * their rolling state can be saved and restored so a computation can be
+ * resumed later without replaying the full history.
+ */
+public interface Operator {
+
+	/**
+	 * Feeds the next value into this operator.
+	 * @param value
+	 * @return the operator's output after the update; NaN if not yet ready
+	 */
+	public double update(double value);
+
+	/**
+	 * @return the operator's current output; NaN if not yet ready
+	 */
+	public double value();
+
+	/**
+	 * @return true once enough values have been seen to produce an output
+	 */
+	public boolean isReady();
+
+	/**
+	 * @return number of doubles needed to save this operator's state
+	 */
+	public int stateSize();
+
+	/**
+	 * Writes this operator's state into the array.
+	 * @param state destination
+	 * @param offset position of the first value written
+	 */
+	public void saveState(double[] state, int offset);
+
+	/**
+	 * Restores state previously written by {@link #saveState(double[], int)}.
+	 * @param state source
+	 * @param offset position of the first value read
+	 */
+	public void restoreState(double[] state, int offset);
+
+}
@@ -0,0 +1,91 @@
+package stockfetcher.analytics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import stockfetcher.db.PriceSeries;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Risk summary of one symbol's adjusted close history.
+ */
+public class RiskMetrics {
+
+	private static final double TRADING_DAYS_PER_YEAR = 252;
+
+	public final String symbol;
+
+	/**
+	 * Annualized volatility of daily log returns over the most recent
+	 * window; NaN if the history is shorter than the window.
+	 */
+	public final double volatility;
+
+	/**
+	 * Largest peak-to-trough decline over the full history, as a fraction.
+	 */
+	public final double maxDrawdown;
+
+	/**
+	 * Latest daily return in standard deviations of the recent window.
+	 */
+	public final double returnZScore;
+
+	public RiskMetrics(String symbol, double volatility, double maxDrawdown, double returnZScore) {
+		this.symbol = symbol;
+		this.volatility = volatility;
+		this.maxDrawdown = maxDrawdown;
+		this.returnZScore = returnZScore;
+	}
+
+	/**
+	 * Computes the risk metrics for a single series.
+	 * @param series
+	 * @param window number of daily returns used for volatility and z-scores
+	 * @param kernels
+	 * @return metrics for the series
+	 */
+	public static RiskMetrics of(PriceSeries series, int window, SeriesKernels kernels) {
+		double[] prices = series.getAdjCloses();
+		double volatility = Double.NaN;
+		double zScore = Double.NaN;
+
+		if(prices.length > window) {
+			// Drop the leading NaN so it doesn't spread through the windows
+			double[] returns = new double[prices.length];
+			kernels.logReturns(prices, returns);
+			returns = Arrays.copyOfRange(returns, 1, returns.length);
+
+			double[] rolling = new double[returns.length];
+			int last = returns.length - 1;
+			kernels.rollingVariance(returns, window, rolling);
+			volatility = Math.sqrt(rolling[last] * TRADING_DAYS_PER_YEAR);
+			kernels.zScores(returns, window, rolling);
+			zScore = rolling[last];
+		}
+
+		return new RiskMetrics(series.getSymbol(), volatility, kernels.maxDrawdown(prices), zScore);
+	}
+
+	/**
+	 * Computes risk metrics for many series in parallel, using the fastest
+	 * available kernels.
+	 * @param series
+	 * @param window number of daily returns used for volatility and z-scores
+	 * @return map of symbol to metrics
+	 */
+	public static Map<String, RiskMetrics> scan(Collection<PriceSeries> series, int window) {
+		long start = System.nanoTime();
+		try {
+			SeriesKernels kernels = SeriesKernels.get();
+			ConcurrentHashMap<String, RiskMetrics> results = new ConcurrentHashMap<>();
+			series.parallelStream().forEach(s -> results.put(s.getSymbol(), of(s, window, kernels)));
+			return results;
+		} finally {
+			Metrics.timer("analytics.risk_scan").recordSince(start);
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package stockfetcher.analytics;
+
+/**
+ * Arithmetic mean over a fixed window of the most recent values.
+ */
+public final class RollingMean implements Operator {
+
+	private final double[] window;
+	private int count = 0;
+	private int next = 0;
+	private double sum = 0;
+
+	public RollingMean(int period) {
+		if(period < 1) {
+			throw new IllegalArgumentException("Period must be at least 1: " + period);
+		}
+		window = new double[period];
+	}
+
+	@Override
+	public double update(double value) {
+		if(count == window.length) {
+			sum -= window[next];
+		}
+		else {
+			count++;
+		}
+		window[next] = value;
+		sum += value;
+		next = (next + 1) % window.length;
+		return value();
+	}
+
+	@Override
+	public double value() {
+		return isReady() ? sum / window.length : Double.NaN;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count == window.length;
+	}
+
+	@Override
+	public int stateSize() {
+		return window.length + 3;
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		state[offset] = count;
+		state[offset + 1] = next;
+		state[offset + 2] = sum;
+		System.arraycopy(window, 0, state, offset + 3, window.length);
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		count = (int) state[offset];
+		next = (int) state[offset + 1];
+		sum = state[offset + 2];
+		System.arraycopy(state, offset + 3, window, 0, window.length);
+	}
+
+}
@@ -0,0 +1,83 @@
+package stockfetcher.analytics;
+
+/**
+ * Population standard deviation over a fixed window of the most recent
+ * values. The window's mean and sum of squared deviations are updated in
+ * place as values enter and leave, so each update is O(1).
+ */
+public final class RollingStdDev implements Operator {
+
+	private final double[] window;
+	private int count = 0;
+	private int next = 0;
+	private double mean = 0;
+	private double m2 = 0;
+
+	public RollingStdDev(int period) {
+		if(period < 1) {
+			throw new IllegalArgumentException("Period must be at least 1: " + period);
+		}
+		window = new double[period];
+	}
+
+	@Override
+	public double update(double value) {
+		if(count == window.length) {
+			// Replace the oldest value
+			double old = window[next];
+			double newMean = mean + (value - old) / count;
+			m2 += (value - old) * (value - newMean + old - mean);
+			mean = newMean;
+		}
+		else {
+			count++;
+			double delta = value - mean;
+			mean += delta / count;
+			m2 += delta * (value - mean);
+		}
+		window[next] = value;
+		next = (next + 1) % window.length;
+		return value();
+	}
+
+	/**
+	 * @return mean of the values in the window; NaN if not yet ready
+	 */
+	public double mean() {
+		return isReady() ? mean : Double.NaN;
+	}
+
+	@Override
+	public double value() {
+		return isReady() ? Math.sqrt(Math.max(0, m2) / count) : Double.NaN;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count == window.length;
+	}
+
+	@Override
+	public int stateSize() {
+		return window.length + 4;
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		state[offset] = count;
+		state[offset + 1] = next;
+		state[offset + 2] = mean;
+		state[offset + 3] = m2;
+		System.arraycopy(window, 0, state, offset + 4, window.length);
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		count = (int) state[offset];
+		next = (int) state[offset + 1];
+		mean = state[offset + 2];
+		m2 = state[offset + 3];
+		System.arraycopy(state, offset + 4, window, 0, window.length);
+	}
+
+}
@@ -0,0 +1,86 @@
+package stockfetcher.analytics;
+
+/**
+ * Relative strength index of the adjusted close, using Wilder smoothing
+ * of the average gain and loss.
+ */
+public final class Rsi implements Indicator {
+
+	private final int period;
+	private final ExponentialMean gains;
+	private final ExponentialMean losses;
+	private double previous = Double.NaN;
+
+	public Rsi(int period) {
+		this.period = period;
+		this.gains = ExponentialMean.wilder(period);
+		this.losses = ExponentialMean.wilder(period);
+	}
+
+	@Override
+	public String getName() {
+		return String.format("RSI(%d)", period);
+	}
+
+	@Override
+	public int getOutputCount() {
+		return 1;
+	}
+
+	@Override
+	public String getOutputName(int output) {
+		return getName();
+	}
+
+	@Override
+	public boolean isOverlay() {
+		return false;
+	}
+
+	@Override
+	public void update(Bar bar) {
+		if(!Double.isNaN(previous)) {
+			double change = bar.adjClose - previous;
+			gains.update(Math.max(change, 0));
+			losses.update(Math.max(-change, 0));
+		}
+		previous = bar.adjClose;
+	}
+
+	@Override
+	public boolean isReady() {
+		return gains.isReady();
+	}
+
+	@Override
+	public double getValue(int output) {
+		if(!isReady()) {
+			return Double.NaN;
+		}
+		double loss = losses.value();
+		if(loss == 0) {
+			return 100;
+		}
+		return 100 - 100 / (1 + gains.value() / loss);
+	}
+
+	@Override
+	public int getStateSize() {
+		return 1 + gains.stateSize() + losses.stateSize();
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		state[offset] = previous;
+		gains.saveState(state, offset + 1);
+		losses.saveState(state, offset + 1 + gains.stateSize());
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		previous = state[offset];
+		gains.restoreState(state, offset + 1);
+		losses.restoreState(state, offset + 1 + gains.stateSize());
+	}
+
+}
@@ -0,0 +1,211 @@
+package stockfetcher.analytics;
+
+import java.util.stream.IntStream;
+
+/**
+ * Single-pass statistics over a stream of (x, y) pairs. Values are
+ * accumulated using Welford's online co-moment updates, so the mean,
+ * variance, covariance, and least squares fit are all available after
+ * one pass without the precision loss of summing raw squares (epoch
+ * day x values are ~19,000, so x² sums quickly swamp the variance).
+ * <p>
+ * Partial results can be combined with {@link #merge(RunningStats)},
+ * which allows the accumulation to be split across threads.
+ */
+public final class RunningStats {
+
+	private long count = 0;
+	private double meanX = 0;
+	private double meanY = 0;
+	private double m2X = 0;
+	private double m2Y = 0;
+	private double coMoment = 0;
+
+	public RunningStats() {}
+
+	/**
+	 * Accumulates the statistics for the given points.
+	 * @param x x values
+	 * @param y y values; must be the same length as x
+	 * @return stats for all points
+	 */
+	public static RunningStats of(double[] x, double[] y) {
+		RunningStats stats = new RunningStats();
+		for(int i = 0; i < x.length; i++) {
+			stats.add(x[i], y[i]);
+		}
+		return stats;
+	}
+
+	/**
+	 * Accumulates the statistics for the given points, splitting the work
+	 * across the common fork/join pool and merging the partial results.
+	 * @param x x values
+	 * @param y y values; must be the same length as x
+	 * @return stats for all points
+	 */
+	public static RunningStats parallelOf(double[] x, double[] y) {
+		return IntStream.range(0, x.length).parallel().collect(
+			RunningStats::new,
+			(stats, i) -> stats.add(x[i], y[i]),
+			RunningStats::merge
+		);
+	}
+
+	/**
+	 * Adds a single value, using its position in the stream as the x value.
+	 * Useful when only the y statistics (mean, variance) are needed.
+	 * @param y
+	 */
+	public void add(double y) {
+		add(count, y);
+	}
+
+	/**
+	 * Adds a single (x, y) point.
+	 * @param x
+	 * @param y
+	 */
+	public void add(double x, double y) {
+		count++;
+		double dx = x - meanX;
+		double dy = y - meanY;
+		meanX += dx / count;
+		meanY += dy / count;
+		m2X += dx * (x - meanX);
+		m2Y += dy * (y - meanY);
+		coMoment += dx * (y - meanY);
+	}
+
+	/**
+	 * Merges the statistics from another partial result into this one.
+	 * @param other partial result; not modified
+	 */
+	public void merge(RunningStats other) {
+		if(other.count == 0) {
+			return;
+		}
+		if(count == 0) {
+			count = other.count;
+			meanX = other.meanX;
+			meanY = other.meanY;
+			m2X = other.m2X;
+			m2Y = other.m2Y;
+			coMoment = other.coMoment;
+			return;
+		}
+
+		double total = count + other.count;
+		double dx = other.meanX - meanX;
+		double dy = other.meanY - meanY;
+		double weight = count * (double) other.count / total;
+
+		m2X += other.m2X + dx * dx * weight;
+		m2Y += other.m2Y + dy * dy * weight;
+		coMoment += other.coMoment + dx * dy * weight;
+		meanX += dx * other.count / total;
+		meanY += dy * other.count / total;
+		count += other.count;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMeanX() {
+		return meanX;
+	}
+
+	public double getMeanY() {
+		return meanY;
+	}
+
+	/**
+	 * @return population variance of x; NaN if no values
+	 */
+	public double getVarianceX() {
+		return count == 0 ? Double.NaN : m2X / count;
+	}
+
+	/**
+	 * @return population variance of y; NaN if no values
+	 */
+	public double getVarianceY() {
+		return count == 0 ? Double.NaN : m2Y / count;
+	}
+
+	/**
+	 * @return sample (n - 1) variance of x; NaN if fewer than two values
+	 */
+	public double getSampleVarianceX() {
+		return count < 2 ? Double.NaN : m2X / (count - 1);
+	}
+
+	/**
+	 * @return sample (n - 1) variance of y; NaN if fewer than two values
+	 */
+	public double getSampleVarianceY() {
+		return count < 2 ? Double.NaN : m2Y / (count - 1);
+	}
+
+	/**
+	 * @return population standard deviation of y
+	 */
+	public double getStdDevY() {
+		return Math.sqrt(getVarianceY());
+	}
+
+	/**
+	 * @return population covariance of x and y; NaN if no values
+	 */
+	public double getCovariance() {
+		return count == 0 ? Double.NaN : coMoment / count;
+	}
+
+	/**
+	 * @return sample (n - 1) covariance of x and y; NaN if fewer than two values
+	 */
+	public double getSampleCovariance() {
+		return count < 2 ? Double.NaN : coMoment / (count - 1);
+	}
+
+	/**
+	 * @return pearson correlation of x and y; NaN if either has no variance
+	 */
+	public double getCorrelation() {
+		return coMoment / Math.sqrt(m2X * m2Y);
+	}
+
+	/**
+	 * @return slope of the least squares line y = intercept + slope * x
+	 */
+	public double getSlope() {
+		return coMoment / m2X;
+	}
+
+	/**
+	 * @return intercept of the least squares line y = intercept + slope * x
+	 */
+	public double getIntercept() {
+		return meanY - getSlope() * meanX;
+	}
+
+	/**
+	 * @return value of the least squares line at x
+	 */
+	public double predict(double x) {
+		return meanY + getSlope() * (x - meanX);
+	}
+
+	/**
+	 * @return population standard deviation of the residuals from the least squares line
+	 */
+	public double getResidualStdDev() {
+		if(count == 0) {
+			return Double.NaN;
+		}
+		double residual = m2Y - coMoment * coMoment / m2X;
+		return Math.sqrt(Math.max(0, residual) / count);
+	}
+
+}
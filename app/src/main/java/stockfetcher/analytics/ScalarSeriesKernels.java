@@ -0,0 +1,117 @@
+package stockfetcher.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Plain loop kernels. These are the reference the vector kernels are
+ * checked against, and the fallback when the vector module is missing.
+ */
+final class ScalarSeriesKernels implements SeriesKernels {
+
+	static final ScalarSeriesKernels INSTANCE = new ScalarSeriesKernels();
+
+	// Window sums are recomputed from scratch this often, so rounding
+	// errors from the running updates can't build up over long series
+	static final int SEGMENT = 1024;
+
+	private ScalarSeriesKernels() {}
+
+	@Override
+	public void logReturns(double[] prices, double[] out) {
+		if(prices.length == 0) {
+			return;
+		}
+		out[0] = Double.NaN;
+		for(int i = 1; i < prices.length; i++) {
+			out[i] = Math.log(prices[i] / prices[i - 1]);
+		}
+	}
+
+	@Override
+	public void rollingSum(double[] values, int window, double[] out) {
+		rolling(values, window, out, 1, null);
+	}
+
+	@Override
+	public void rollingMean(double[] values, int window, double[] out) {
+		rolling(values, window, out, 1.0 / window, null);
+	}
+
+	@Override
+	public void rollingVariance(double[] values, int window, double[] out) {
+		rolling(values, window, null, 1, out);
+	}
+
+	@Override
+	public void zScores(double[] values, int window, double[] out) {
+		double[] mean = new double[values.length];
+		rolling(values, window, mean, 1.0 / window, out);
+		for(int i = window - 1; i < values.length; i++) {
+			double std = Math.sqrt(out[i]);
+			out[i] = std > 0 ? (values[i] - mean[i]) / std : Double.NaN;
+		}
+	}
+
+	@Override
+	public void scale(double[] values, double factor, double offset, double[] out) {
+		for(int i = 0; i < values.length; i++) {
+			out[i] = values[i] * factor + offset;
+		}
+	}
+
+	@Override
+	public double maxDrawdown(double[] prices) {
+		double peak = Double.NEGATIVE_INFINITY;
+		double worst = 0;
+		for(double price : prices) {
+			peak = Math.max(peak, price);
+			worst = Math.max(worst, 1 - price / peak);
+		}
+		return worst;
+	}
+
+	/**
+	 * Running window sums, written as scaled sums and/or sample variances.
+	 * Values are shifted by the first value of each segment so the sums
+	 * of squares don't lose precision on prices far from zero.
+	 */
+	private static void rolling(double[] values, int window, double[] sums, double sumScale, double[] variances) {
+		int n = values.length;
+		int first = window - 1;
+		if(sums != null) {
+			Arrays.fill(sums, 0, Math.min(n, first), Double.NaN);
+		}
+		if(variances != null) {
+			Arrays.fill(variances, 0, Math.min(n, first), Double.NaN);
+		}
+
+		for(int start = first; start < n; start += SEGMENT) {
+			int end = Math.min(n, start + SEGMENT);
+			double shift = variances == null ? 0 : values[start];
+
+			double sum = 0;
+			double sumSq = 0;
+			for(int k = start - first; k <= start; k++) {
+				double x = values[k] - shift;
+				sum += x;
+				sumSq += x * x;
+			}
+
+			for(int i = start; i < end; i++) {
+				if(i > start) {
+					double in = values[i] - shift;
+					double out = values[i - window] - shift;
+					sum += in - out;
+					sumSq += (in - out) * (in + out);
+				}
+				if(sums != null) {
+					sums[i] = (sum + window * shift) * sumScale;
+				}
+				if(variances != null) {
+					variances[i] = Math.max(0, (sumSq - sum * sum / window) / (window - 1));
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,451 @@
+package stockfetcher.analytics;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compiled screener query. A query is a condition evaluated on each
+ * symbol's latest bar, optionally followed by a ranking expression:
+ * <pre>
+ * ADJ_CLOSE &gt; SMA(200) AND VOLUME &gt; 150% * SMA(50,VOLUME) SORT BY RSI DESC
+ * </pre>
+ * Terms are price columns (OPEN, HIGH, LOW, CLOSE, ADJ_CLOSE or PRICE,
+ * VOLUME; prices adjusted as in {@link Column}) and indicators in the
+ * usual notation. Multi-line indicators take an output name or number
+ * (MACD.SIGNAL, BB(20,2).UPPER), and any term can look back a number of
+ * bars (CLOSE[5]). Terms combine with + - * /, comparisons
+ * (&gt; &gt;= &lt; &lt;= = !=), AND, OR, NOT and parentheses. Numbers may
+ * end in % (50% = 0.5).
+ * <p>
+ * AND and OR stop as soon as the result is known. The indicators a query
+ * refers to are computed once per symbol and then kept up to date bar by
+ * bar (see {@link Screener}). Comparisons involving a missing value (e.g.
+ * an indicator that isn't ready) are false.
+ */
+public final class Screen {
+
+	/**
+	 * Expression node. Conditions evaluate to 1 (true) or 0 (false).
+	 */
+	interface Node {
+		double eval(ScreenContext context);
+	}
+
+	private final String query;
+	private final Node condition;
+	private final Node rank;
+	private final boolean descending;
+	private final Set<String> indicators;
+
+	private Screen(String query, Node condition, Node rank, boolean descending, Set<String> indicators) {
+		this.query = query;
+		this.condition = condition;
+		this.rank = rank;
+		this.descending = descending;
+		this.indicators = Collections.unmodifiableSet(indicators);
+	}
+
+	/**
+	 * Parses a screener query.
+	 * @param query
+	 * @return compiled query
+	 * @throws IllegalArgumentException if the query is invalid
+	 */
+	public static Screen parse(String query) {
+		return new Parser(query).parseQuery();
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * @return true if results are ranked by an expression rather than by symbol
+	 */
+	public boolean isRanked() {
+		return rank != null;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * @return canonical names of the indicators the query refers to
+	 */
+	public Set<String> getIndicators() {
+		return indicators;
+	}
+
+	/**
+	 * @return true if the symbol in the context passes the condition
+	 */
+	boolean matches(ScreenContext context) {
+		return condition.eval(context) != 0;
+	}
+
+	/**
+	 * @return ranking value for the symbol in the context; NaN if unranked
+	 */
+	double rank(ScreenContext context) {
+		return rank == null ? Double.NaN : rank.eval(context);
+	}
+
+	private static double truth(boolean value) {
+		return value ? 1 : 0;
+	}
+
+	/**
+	 * Recursive descent parser. Precedence from lowest to highest:
+	 * OR, AND, NOT, comparison, + -, * /, unary minus.
+	 */
+	private static final class Parser {
+
+		private final String text;
+		private int pos = 0;
+		private final LinkedHashSet<String> indicators = new LinkedHashSet<>();
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		Screen parseQuery() {
+			skipSpace();
+			if(pos == text.length()) {
+				throw new IllegalArgumentException("Empty screener query.");
+			}
+
+			Node condition = parseOr();
+			Node rank = null;
+			boolean descending = true;
+			if(acceptKeyword("SORT")) {
+				expectKeyword("BY");
+				rank = parseSum();
+				if(acceptKeyword("ASC")) {
+					descending = false;
+				}
+				else {
+					acceptKeyword("DESC");
+				}
+			}
+
+			skipSpace();
+			if(pos < text.length()) {
+				throw error("Unexpected '" + text.substring(pos) + "'");
+			}
+			return new Screen(text, condition, rank, descending, indicators);
+		}
+
+		private Node parseOr() {
+			Node left = parseAnd();
+			while(acceptKeyword("OR")) {
+				Node a = left;
+				Node b = parseAnd();
+				left = context -> truth(a.eval(context) != 0 || b.eval(context) != 0);
+			}
+			return left;
+		}
+
+		private Node parseAnd() {
+			Node left = parseNot();
+			while(acceptKeyword("AND")) {
+				Node a = left;
+				Node b = parseNot();
+				left = context -> truth(a.eval(context) != 0 && b.eval(context) != 0);
+			}
+			return left;
+		}
+
+		private Node parseNot() {
+			if(acceptKeyword("NOT")) {
+				Node operand = parseNot();
+				return context -> truth(operand.eval(context) == 0);
+			}
+			return parseComparison();
+		}
+
+		private Node parseComparison() {
+			Node a = parseSum();
+			skipSpace();
+			Node b;
+			if(accept(">=")) {
+				b = parseSum();
+				return context -> truth(a.eval(context) >= b.eval(context));
+			}
+			if(accept("<=")) {
+				b = parseSum();
+				return context -> truth(a.eval(context) <= b.eval(context));
+			}
+			if(accept("!=")) {
+				b = parseSum();
+				return context -> {
+					double x = a.eval(context);
+					double y = b.eval(context);
+					return truth(!Double.isNaN(x) && !Double.isNaN(y) && x != y);
+				};
+			}
+			if(accept(">")) {
+				b = parseSum();
+				return context -> truth(a.eval(context) > b.eval(context));
+			}
+			if(accept("<")) {
+				b = parseSum();
+				return context -> truth(a.eval(context) < b.eval(context));
+			}
+			if(accept("==") || accept("=")) {
+				b = parseSum();
+				return context -> truth(a.eval(context) == b.eval(context));
+			}
+			return a;
+		}
+
+		private Node parseSum() {
+			Node left = parseProduct();
+			while(true) {
+				skipSpace();
+				Node a = left;
+				if(accept("+")) {
+					Node b = parseProduct();
+					left = context -> a.eval(context) + b.eval(context);
+				}
+				else if(accept("-")) {
+					Node b = parseProduct();
+					left = context -> a.eval(context) - b.eval(context);
+				}
+				else {
+					return left;
+				}
+			}
+		}
+
+		private Node parseProduct() {
+			Node left = parseUnary();
+			while(true) {
+				skipSpace();
+				Node a = left;
+				if(accept("*")) {
+					Node b = parseUnary();
+					left = context -> a.eval(context) * b.eval(context);
+				}
+				else if(accept("/")) {
+					Node b = parseUnary();
+					left = context -> a.eval(context) / b.eval(context);
+				}
+				else {
+					return left;
+				}
+			}
+		}
+
+		private Node parseUnary() {
+			skipSpace();
+			if(accept("-")) {
+				Node operand = parseUnary();
+				return context -> -operand.eval(context);
+			}
+			return parsePrimary();
+		}
+
+		private Node parsePrimary() {
+			skipSpace();
+			if(pos == text.length()) {
+				throw error("Unexpected end of query");
+			}
+
+			char c = text.charAt(pos);
+			if(c == '(') {
+				pos++;
+				Node inner = parseOr();
+				expect(")");
+				return inner;
+			}
+			if(Character.isDigit(c) || c == '.') {
+				return parseNumber();
+			}
+			if(Character.isLetter(c)) {
+				return parseTerm();
+			}
+			throw error("Unexpected '" + c + "'");
+		}
+
+		private Node parseNumber() {
+			int start = pos;
+			while(pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+				pos++;
+			}
+			double value;
+			try {
+				value = Double.parseDouble(text.substring(start, pos));
+			} catch (NumberFormatException e) {
+				throw error("Invalid number '" + text.substring(start, pos) + "'");
+			}
+			if(accept("%")) {
+				value /= 100;
+			}
+			final double constant = value;
+			return context -> constant;
+		}
+
+		private Node parseTerm() {
+			String name = readIdentifier();
+			String upper = name.toUpperCase(Locale.ROOT);
+			skipSpace();
+
+			// Indicator parameters are passed through to Indicators.parse
+			String spec = name;
+			if(pos < text.length() && text.charAt(pos) == '(') {
+				int close = text.indexOf(')', pos);
+				if(close < 0) {
+					throw error("Missing ')' after " + name);
+				}
+				spec = name + text.substring(pos, close + 1);
+				pos = close + 1;
+			}
+
+			Column column = null;
+			if(spec.equals(name)) {
+				if(upper.equals("PRICE")) {
+					column = Column.ADJ_CLOSE;
+				}
+				else {
+					for(Column c : Column.values()) {
+						if(c.name().equals(upper)) {
+							column = c;
+						}
+					}
+				}
+			}
+
+			if(column != null) {
+				final Column col = column;
+				final int lag = parseLag();
+				return context -> context.column(col, lag);
+			}
+
+			Indicator indicator;
+			try {
+				indicator = Indicators.parse(spec);
+			} catch (IllegalArgumentException e) {
+				throw error(e.getMessage());
+			}
+			int output = parseOutput(indicator);
+			final int lag = parseLag();
+
+			// Looked up by canonical name, so all references share one cached indicator
+			final String key = indicator.getName();
+			indicators.add(key);
+			return context -> context.indicator(key, output, lag);
+		}
+
+		private int parseOutput(Indicator indicator) {
+			skipSpace();
+			if(!accept(".")) {
+				return 0;
+			}
+			skipSpace();
+			if(pos < text.length() && Character.isDigit(text.charAt(pos))) {
+				int output = readInt();
+				if(output >= indicator.getOutputCount()) {
+					throw error(indicator.getName() + " has no output " + output);
+				}
+				return output;
+			}
+
+			String name = readIdentifier();
+			for(int output = 0; output < indicator.getOutputCount(); output++) {
+				String outputName = indicator.getOutputName(output);
+				if(outputName.equalsIgnoreCase(indicator.getName() + " " + name)) {
+					return output;
+				}
+			}
+			throw error(indicator.getName() + " has no output " + name);
+		}
+
+		private int parseLag() {
+			skipSpace();
+			if(!accept("[")) {
+				return 0;
+			}
+			skipSpace();
+			if(pos == text.length() || !Character.isDigit(text.charAt(pos))) {
+				throw error("Expected a number of bars");
+			}
+			int lag = readInt();
+			if(lag > ScreenContext.MAX_LAG) {
+				throw error("Cannot look back more than " + ScreenContext.MAX_LAG + " bars");
+			}
+			expect("]");
+			return lag;
+		}
+
+		private String readIdentifier() {
+			int start = pos;
+			while(pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+				pos++;
+			}
+			if(start == pos) {
+				throw error("Expected a name");
+			}
+			return text.substring(start, pos);
+		}
+
+		private int readInt() {
+			int start = pos;
+			while(pos < text.length() && Character.isDigit(text.charAt(pos))) {
+				pos++;
+			}
+			try {
+				return Integer.parseInt(text.substring(start, pos));
+			} catch (NumberFormatException e) {
+				throw error("Invalid number '" + text.substring(start, pos) + "'");
+			}
+		}
+
+		private boolean acceptKeyword(String keyword) {
+			skipSpace();
+			int end = pos + keyword.length();
+			if(end <= text.length()
+					&& text.regionMatches(true, pos, keyword, 0, keyword.length())
+					&& (end == text.length() || !(Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_'))) {
+				pos = end;
+				return true;
+			}
+			return false;
+		}
+
+		private void expectKeyword(String keyword) {
+			if(!acceptKeyword(keyword)) {
+				throw error("Expected " + keyword);
+			}
+		}
+
+		private boolean accept(String token) {
+			if(text.startsWith(token, pos)) {
+				pos += token.length();
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(String token) {
+			skipSpace();
+			if(!accept(token)) {
+				throw error("Expected '" + token + "'");
+			}
+		}
+
+		private void skipSpace() {
+			while(pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + (pos + 1) + ".");
+		}
+
+	}
+
+}
@@ -0,0 +1,299 @@
+package stockfetcher.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import stockfetcher.api.PriceData;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Screener state for one symbol: its last few bars and the indicators
+ * screens have asked for, each with its rolling state and last few
+ * values. The full history is only needed to load the context (or to add
+ * an indicator); after that, new bars are applied as they come in, so the
+ * screener doesn't keep every symbol's price series in memory.
+ * <p>
+ * A bar for the latest day replaces it (refreshes during the session
+ * revise today's bar). A changed bar further back means the history was
+ * adjusted for a split or dividend, which rewrites the adjusted closes the
+ * indicators were built from, so the context goes cold and is loaded
+ * again. Only bars still in the window are checked; an adjustment always
+ * changes those too.
+ * <p>
+ * Not thread safe; the screener evaluates each symbol on one thread at a
+ * time.
+ */
+final class ScreenContext {
+
+	/**
+	 * Furthest back a query can look, in bars.
+	 */
+	static final int MAX_LAG = 20;
+
+	private static final int WINDOW = MAX_LAG + 1;
+
+	private static final int MAX_INDICATORS = 32;
+
+	// Ring of the latest bars, indexed by bar number % WINDOW
+	private final long[] days = new long[WINDOW];
+	private final double[] open = new double[WINDOW];
+	private final double[] high = new double[WINDOW];
+	private final double[] low = new double[WINDOW];
+	private final double[] close = new double[WINDOW];
+	private final double[] adjClose = new double[WINDOW];
+	private final double[] volume = new double[WINDOW];
+
+	// Bars fed since the context was loaded; 0 while cold
+	private int count = 0;
+
+	private final Bar bar = new Bar();
+	private final Bar view = new Bar();
+	private final LinkedHashMap<String, CachedIndicator> indicators = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedIndicator> eldest) {
+			return size() > MAX_INDICATORS;
+		}
+	};
+
+	/**
+	 * @param names canonical indicator names
+	 * @return true if the context is loaded and has all the indicators
+	 */
+	boolean has(Collection<String> names) {
+		if(count == 0) {
+			return false;
+		}
+		for(String name : names) {
+			if(indicators.get(name) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Loads the context from a symbol's full history, computing the given
+	 * indicators along with the ones already kept.
+	 * @param history
+	 * @param names canonical indicator names
+	 */
+	void load(PriceSeries history, Collection<String> names) {
+		ArrayList<String> all = new ArrayList<>(indicators.keySet());
+		for(String name : names) {
+			if(!all.contains(name)) {
+				all.add(name);
+			}
+		}
+		indicators.clear();
+		for(String name : all) {
+			indicators.put(name, new CachedIndicator(Indicators.parse(name)));
+		}
+
+		count = 0;
+		int last = history.size() - 1;
+		for(int i = 0; i <= last; i++) {
+			append(bar.set(history, i), i == last);
+		}
+	}
+
+	/**
+	 * Brings a loaded context up to date with a newer series of the symbol.
+	 * @param series
+	 * @return false if the context is cold, or went cold because the
+	 * series doesn't continue it
+	 */
+	boolean apply(PriceSeries series) {
+		if(count == 0) {
+			return false;
+		}
+		for(int i = series.indexOf(days[oldest() % WINDOW]); i < series.size() && count > 0; i++) {
+			apply(bar.set(series, i));
+		}
+		if(count > 0 && (series.isEmpty() || series.getEpochDay(series.size() - 1) != latestDay())) {
+			count = 0;
+		}
+		return count > 0;
+	}
+
+	/**
+	 * Applies newly written bars of the symbol, in date order.
+	 * @param bars
+	 */
+	void apply(List<PriceData> bars) {
+		for(PriceData data : bars) {
+			if(count == 0) {
+				return;
+			}
+			apply(bar.set(data));
+		}
+	}
+
+	/**
+	 * @return date of the latest bar
+	 */
+	LocalDate getDate() {
+		return LocalDate.ofEpochDay(latestDay());
+	}
+
+	/**
+	 * @param column
+	 * @param lag number of bars back from the latest
+	 * @return column value; NaN if the history is too short
+	 */
+	double column(Column column, int lag) {
+		int number = count - 1 - lag;
+		if(number < 0) {
+			return Double.NaN;
+		}
+		int slot = number % WINDOW;
+		view.epochDay = days[slot];
+		view.open = open[slot];
+		view.high = high[slot];
+		view.low = low[slot];
+		view.close = close[slot];
+		view.adjClose = adjClose[slot];
+		view.volume = volume[slot];
+		return column.get(view);
+	}
+
+	/**
+	 * @param name canonical indicator name
+	 * @param output
+	 * @param lag number of bars back from the latest
+	 * @return indicator output; NaN if not ready or not loaded
+	 */
+	double indicator(String name, int output, int lag) {
+		CachedIndicator cached = indicators.get(name);
+		int number = count - 1 - lag;
+		if(cached == null || number < 0) {
+			return Double.NaN;
+		}
+		return cached.recent[output][number % WINDOW];
+	}
+
+	private void apply(Bar bar) {
+		long latest = latestDay();
+		if(bar.epochDay > latest) {
+			append(bar, true);
+			return;
+		}
+		if(bar.epochDay == latest) {
+			if(!matches(count - 1, bar)) {
+				replaceLatest(bar);
+			}
+			return;
+		}
+
+		// Older bars are only checked while still in the window
+		for(int number = count - 2; number >= oldest(); number--) {
+			if(days[number % WINDOW] == bar.epochDay) {
+				if(!matches(number, bar)) {
+					count = 0;
+				}
+				return;
+			}
+		}
+		if(bar.epochDay > days[oldest() % WINDOW]) {
+			// A bar missing from the window
+			count = 0;
+		}
+	}
+
+	/**
+	 * @param keep true to keep the indicator states from before the bar,
+	 * so it can be replaced
+	 */
+	private void append(Bar bar, boolean keep) {
+		store(count % WINDOW, bar);
+		for(CachedIndicator cached : indicators.values()) {
+			cached.feed(bar, count, keep);
+		}
+		count++;
+	}
+
+	private void replaceLatest(Bar bar) {
+		store((count - 1) % WINDOW, bar);
+		for(CachedIndicator cached : indicators.values()) {
+			cached.replace(bar, count - 1);
+		}
+	}
+
+	private void store(int slot, Bar bar) {
+		days[slot] = bar.epochDay;
+		open[slot] = bar.open;
+		high[slot] = bar.high;
+		low[slot] = bar.low;
+		close[slot] = bar.close;
+		adjClose[slot] = bar.adjClose;
+		volume[slot] = bar.volume;
+	}
+
+	/**
+	 * @return true if the bar is the one in the window, at the precision
+	 * prices are stored with (updates carry the downloaded values)
+	 */
+	private boolean matches(int number, Bar bar) {
+		int slot = number % WINDOW;
+		return days[slot] == bar.epochDay
+				&& PriceSeries.samePrice(open[slot], bar.open)
+				&& PriceSeries.samePrice(high[slot], bar.high)
+				&& PriceSeries.samePrice(low[slot], bar.low)
+				&& PriceSeries.samePrice(close[slot], bar.close)
+				&& PriceSeries.samePrice(adjClose[slot], bar.adjClose)
+				&& volume[slot] == bar.volume;
+	}
+
+	private long latestDay() {
+		return days[(count - 1) % WINDOW];
+	}
+
+	/**
+	 * @return number of the oldest bar still in the window
+	 */
+	private int oldest() {
+		return Math.max(0, count - WINDOW);
+	}
+
+	private static final class CachedIndicator {
+
+		private final Indicator indicator;
+
+		// State from before the latest bar, to feed it again when it's replaced
+		private final double[] previous;
+
+		// Ring of recent outputs, indexed by [output][bar number % WINDOW]
+		private final double[][] recent;
+
+		CachedIndicator(Indicator indicator) {
+			this.indicator = indicator;
+			previous = new double[indicator.getStateSize()];
+			recent = new double[indicator.getOutputCount()][WINDOW];
+		}
+
+		void feed(Bar bar, int number, boolean keep) {
+			if(keep) {
+				indicator.saveState(previous, 0);
+			}
+			indicator.update(bar);
+			record(number);
+		}
+
+		void replace(Bar bar, int number) {
+			indicator.restoreState(previous, 0);
+			indicator.update(bar);
+			record(number);
+		}
+
+		private void record(int number) {
+			for(int output = 0; output < recent.length; output++) {
+				recent[output][number % WINDOW] = indicator.getValue(output);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,31 @@
+package stockfetcher.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * A symbol that passed a screen.
+ */
+public final class ScreenResult {
+
+	public final String symbol;
+
+	/**
+	 * Date of the bar the screen was evaluated on.
+	 */
+	public final LocalDate date;
+
+	public final double adjClose;
+
+	/**
+	 * Value of the query's ranking expression; NaN for unranked queries.
+	 */
+	public final double score;
+
+	public ScreenResult(String symbol, LocalDate date, double adjClose, double score) {
+		this.symbol = symbol;
+		this.date = date;
+		this.adjClose = adjClose;
+		this.score = score;
+	}
+
+}
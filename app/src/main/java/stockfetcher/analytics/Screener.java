@@ -0,0 +1,181 @@
+package stockfetcher.analytics;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import stockfetcher.db.PriceSeries;
+import stockfetcher.db.PriceUpdate;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Runs screens over many symbols in parallel. Each symbol keeps its last
+ * few bars and computed indicators between runs (see
+ * {@link ScreenContext}), so screening again after a price refresh only
+ * processes the new bars.
+ */
+public class Screener {
+
+	// Updates waiting to be applied; past this many, contexts are dropped instead
+	private static final int MAX_PENDING = 100_000;
+
+	private final ConcurrentHashMap<String, ScreenContext> contexts = new ConcurrentHashMap<>();
+
+	private final ConcurrentLinkedQueue<PriceUpdate> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private volatile boolean listening = false;
+
+	/**
+	 * Screens the given symbols from the database. A symbol's history is
+	 * read the first time it's screened (or when the query needs an
+	 * indicator it doesn't have yet), and only held while its indicators
+	 * catch up; afterwards the bars written since are applied. Symbols
+	 * whose prices cannot be loaded are skipped.
+	 * @param screen
+	 * @param symbols
+	 * @return matching symbols in rank order
+	 */
+	public List<ScreenResult> screenSymbols(Screen screen, Collection<String> symbols) {
+		listen();
+		applyUpdates();
+
+		long start = System.nanoTime();
+		try {
+			return symbols.parallelStream()
+				.map(symbol -> evaluate(screen, symbol))
+				.filter(Objects::nonNull)
+				.sorted(order(screen))
+				.collect(Collectors.toList());
+		} finally {
+			Metrics.timer("analytics.screen").recordSince(start);
+		}
+	}
+
+	/**
+	 * Screens the given series. Symbols screened before are brought up to
+	 * date from the bars at the end of their series.
+	 * @param screen
+	 * @param series
+	 * @return matching symbols in rank order
+	 */
+	public List<ScreenResult> screen(Screen screen, Collection<PriceSeries> series) {
+		long start = System.nanoTime();
+		try {
+			return series.parallelStream()
+				.map(s -> evaluate(screen, s))
+				.filter(Objects::nonNull)
+				.sorted(order(screen))
+				.collect(Collectors.toList());
+		} finally {
+			Metrics.timer("analytics.screen").recordSince(start);
+		}
+	}
+
+	/**
+	 * Drops cached state for symbols not in the given collection.
+	 * @param symbols
+	 */
+	public void retainSymbols(Collection<String> symbols) {
+		contexts.keySet().retainAll(symbols);
+	}
+
+	private ScreenResult evaluate(Screen screen, String symbol) {
+		ScreenContext context = contexts.computeIfAbsent(symbol, s -> new ScreenContext());
+		synchronized(context) {
+			if(!context.has(screen.getIndicators())) {
+				PriceSeries history = StockDatabase.loadPriceHistory(symbol);
+				if(history == null || history.isEmpty()) {
+					return null;
+				}
+				context.load(history, screen.getIndicators());
+			}
+			return evaluate(screen, symbol, context);
+		}
+	}
+
+	private ScreenResult evaluate(Screen screen, PriceSeries series) {
+		if(series.isEmpty()) {
+			return null;
+		}
+
+		ScreenContext context = contexts.computeIfAbsent(series.getSymbol(), symbol -> new ScreenContext());
+		synchronized(context) {
+			if(!context.apply(series) || !context.has(screen.getIndicators())) {
+				context.load(series, screen.getIndicators());
+			}
+			return evaluate(screen, series.getSymbol(), context);
+		}
+	}
+
+	private static ScreenResult evaluate(Screen screen, String symbol, ScreenContext context) {
+		if(!screen.matches(context)) {
+			return null;
+		}
+		return new ScreenResult(symbol, context.getDate(), context.column(Column.ADJ_CLOSE, 0), screen.rank(context));
+	}
+
+	/**
+	 * Starts collecting price updates for the symbols screened so far.
+	 */
+	private void listen() {
+		if(listening) {
+			return;
+		}
+		synchronized(this) {
+			if(!listening) {
+				StockDatabase.addPriceUpdateListener(this::priceUpdated);
+				listening = true;
+			}
+		}
+	}
+
+	private void priceUpdated(PriceUpdate update) {
+		if(!contexts.containsKey(update.symbol)) {
+			return;
+		}
+		if(pendingCount.incrementAndGet() > MAX_PENDING) {
+			// Not screened in a long while; cheaper to load again when it is
+			pending.clear();
+			pendingCount.set(0);
+			contexts.clear();
+			return;
+		}
+		pending.add(update);
+	}
+
+	private void applyUpdates() {
+		PriceUpdate update;
+		while((update = pending.poll()) != null) {
+			pendingCount.decrementAndGet();
+			ScreenContext context = contexts.get(update.symbol);
+			if(context != null) {
+				synchronized(context) {
+					context.apply(update.bars);
+				}
+			}
+		}
+	}
+
+	private static Comparator<ScreenResult> order(Screen screen) {
+		Comparator<ScreenResult> bySymbol = Comparator.comparing(result -> result.symbol);
+		if(!screen.isRanked()) {
+			return bySymbol;
+		}
+
+		// Missing scores go last in either direction
+		Comparator<ScreenResult> byScore = (a, b) -> {
+			if(Double.isNaN(a.score) || Double.isNaN(b.score)) {
+				return Boolean.compare(Double.isNaN(a.score), Double.isNaN(b.score));
+			}
+			return screen.isDescending() ? Double.compare(b.score, a.score) : Double.compare(a.score, b.score);
+		};
+		return byScore.thenComparing(bySymbol);
+	}
+
+}
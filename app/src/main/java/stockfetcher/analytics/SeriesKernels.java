@@ -0,0 +1,92 @@
+package stockfetcher.analytics;
+
+/**
+ * Bulk kernels over long primitive arrays, such as a series' adjusted
+ * closes. Outputs are the same length as the input so they line up with
+ * the series' dates; positions without enough data are NaN.
+ * <p>
+ * {@link #get()} returns the SIMD implementation when the JVM was started
+ * with {@code --add-modules jdk.incubator.vector}, and the scalar
+ * implementation otherwise. Both give the same results to within
+ * floating point rounding.
+ */
+public interface SeriesKernels {
+
+	/**
+	 * out[i] = ln(prices[i] / prices[i - 1]); out[0] is NaN.
+	 * @param prices
+	 * @param out
+	 */
+	public void logReturns(double[] prices, double[] out);
+
+	/**
+	 * out[i] = sum of values[i - window + 1 .. i]; NaN for i < window - 1.
+	 * @param values
+	 * @param window
+	 * @param out
+	 */
+	public void rollingSum(double[] values, int window, double[] out);
+
+	/**
+	 * Rolling mean over the given window; NaN for i < window - 1.
+	 * @param values
+	 * @param window
+	 * @param out
+	 */
+	public void rollingMean(double[] values, int window, double[] out);
+
+	/**
+	 * Rolling sample variance over the given window; NaN for i < window - 1.
+	 * @param values
+	 * @param window at least 2
+	 * @param out
+	 */
+	public void rollingVariance(double[] values, int window, double[] out);
+
+	/**
+	 * Distance of each value from its rolling mean in rolling standard
+	 * deviations; NaN for i < window - 1 or where the deviation is zero.
+	 * @param values
+	 * @param window at least 2
+	 * @param out
+	 */
+	public void zScores(double[] values, int window, double[] out);
+
+	/**
+	 * out[i] = values[i] * factor + offset, e.g. to rebase a series.
+	 * @param values
+	 * @param factor
+	 * @param offset
+	 * @param out
+	 */
+	public void scale(double[] values, double factor, double offset, double[] out);
+
+	/**
+	 * @param prices
+	 * @return largest peak-to-trough decline as a fraction of the peak (0.25 = 25%)
+	 */
+	public double maxDrawdown(double[] prices);
+
+	/**
+	 * @return the fastest available implementation
+	 */
+	public static SeriesKernels get() {
+		SeriesKernels vector = vector();
+		return vector == null ? scalar() : vector;
+	}
+
+	/**
+	 * @return plain loop implementation, available on every JVM
+	 */
+	public static SeriesKernels scalar() {
+		return ScalarSeriesKernels.INSTANCE;
+	}
+
+	/**
+	 * @return SIMD implementation; null if the vector module isn't available
+	 */
+	public static SeriesKernels vector() {
+		return VectorSeriesKernels.Holder.INSTANCE;
+	}
+
+}
@@ -0,0 +1,70 @@
+package stockfetcher.analytics;
+
+/**
+ * Simple moving average of a price column.
+ */
+public final class Sma implements Indicator {
+
+	private final Column column;
+	private final int period;
+	private final RollingMean mean;
+
+	public Sma(Column column, int period) {
+		this.column = column;
+		this.period = period;
+		this.mean = new RollingMean(period);
+	}
+
+	@Override
+	public String getName() {
+		return column == Column.ADJ_CLOSE
+				? String.format("SMA(%d)", period)
+				: String.format("SMA(%d,%s)", period, column);
+	}
+
+	@Override
+	public int getOutputCount() {
+		return 1;
+	}
+
+	@Override
+	public String getOutputName(int output) {
+		return getName();
+	}
+
+	@Override
+	public boolean isOverlay() {
+		return column != Column.VOLUME;
+	}
+
+	@Override
+	public void update(Bar bar) {
+		mean.update(column.get(bar));
+	}
+
+	@Override
+	public boolean isReady() {
+		return mean.isReady();
+	}
+
+	@Override
+	public double getValue(int output) {
+		return mean.value();
+	}
+
+	@Override
+	public int getStateSize() {
+		return mean.stateSize();
+	}
+
+	@Override
+	public void saveState(double[] state, int offset) {
+		mean.saveState(state, offset);
+	}
+
+	@Override
+	public void restoreState(double[] state, int offset) {
+		mean.restoreState(state, offset);
+	}
+
+}
@@ -0,0 +1,322 @@
+package stockfetcher.analytics;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels using the incubating Vector API.
+ * <p>
+ * Running sums and peaks depend on the previous element, which doesn't
+ * map onto vector lanes directly, and lane shuffles are slow on JDK 17.
+ * Instead, each lane carries its own running value: lane l of the vector
+ * at index i holds the window sum ending at i + l. Moving a whole vector
+ * forward by LANES elements only needs loads at shifted offsets, so the
+ * lanes never have to exchange values.
+ */
+final class VectorSeriesKernels implements SeriesKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	private VectorSeriesKernels() {}
+
+	@Override
+	public void logReturns(double[] prices, double[] out) {
+		int n = prices.length;
+		if(n == 0) {
+			return;
+		}
+		out[0] = Double.NaN;
+
+		int i = 1;
+		int bound = 1 + SPECIES.loopBound(n - 1);
+		for(; i < bound; i += LANES) {
+			DoubleVector current = DoubleVector.fromArray(SPECIES, prices, i);
+			DoubleVector previous = DoubleVector.fromArray(SPECIES, prices, i - 1);
+			current.div(previous).lanewise(VectorOperators.LOG).intoArray(out, i);
+		}
+		for(; i < n; i++) {
+			out[i] = Math.log(prices[i] / prices[i - 1]);
+		}
+	}
+
+	@Override
+	public void rollingSum(double[] values, int window, double[] out) {
+		rollingSums(values, window, out, 1);
+	}
+
+	@Override
+	public void rollingMean(double[] values, int window, double[] out) {
+		rollingSums(values, window, out, 1.0 / window);
+	}
+
+	@Override
+	public void rollingVariance(double[] values, int window, double[] out) {
+		rolling(values, window, null, 1, out);
+	}
+
+	@Override
+	public void zScores(double[] values, int window, double[] out) {
+		int n = values.length;
+		double[] mean = new double[n];
+		rolling(values, window, mean, 1.0 / window, out);
+
+		int start = Math.min(n, window - 1);
+		int i = start;
+		int bound = start + SPECIES.loopBound(n - start);
+		DoubleVector zero = DoubleVector.zero(SPECIES);
+		for(; i < bound; i += LANES) {
+			DoubleVector std = DoubleVector.fromArray(SPECIES, out, i).sqrt();
+			DoubleVector z = DoubleVector.fromArray(SPECIES, values, i)
+					.sub(DoubleVector.fromArray(SPECIES, mean, i))
+					.div(std);
+			z.blend(Double.NaN, std.compare(VectorOperators.LE, zero)).intoArray(out, i);
+		}
+		for(; i < n; i++) {
+			double std = Math.sqrt(out[i]);
+			out[i] = std > 0 ? (values[i] - mean[i]) / std : Double.NaN;
+		}
+	}
+
+	@Override
+	public void scale(double[] values, double factor, double offset, double[] out) {
+		int n = values.length;
+		int i = 0;
+		int bound = SPECIES.loopBound(n);
+		DoubleVector factorLanes = DoubleVector.broadcast(SPECIES, factor);
+		DoubleVector offsetLanes = DoubleVector.broadcast(SPECIES, offset);
+		for(; i < bound; i += LANES) {
+			DoubleVector.fromArray(SPECIES, values, i).mul(factorLanes).add(offsetLanes).intoArray(out, i);
+		}
+		for(; i < n; i++) {
+			out[i] = values[i] * factor + offset;
+		}
+	}
+
+	@Override
+	public double maxDrawdown(double[] prices) {
+		int n = prices.length;
+		if(n < 2 * LANES) {
+			return ScalarSeriesKernels.INSTANCE.maxDrawdown(prices);
+		}
+
+		// Peaks and drawdowns for the first LANES prices
+		double[] head = new double[LANES];
+		double peak = Double.NEGATIVE_INFINITY;
+		double worst = 0;
+		for(int l = 0; l < LANES; l++) {
+			peak = Math.max(peak, prices[l]);
+			worst = Math.max(worst, 1 - prices[l] / peak);
+			head[l] = peak;
+		}
+
+		// Lane l of peaks is the max of prices[0 .. i + l]
+		DoubleVector peaks = DoubleVector.fromArray(SPECIES, head, 0);
+		DoubleVector worstLanes = DoubleVector.broadcast(SPECIES, worst);
+		int i = LANES;
+		for(; i + LANES <= n; i += LANES) {
+			DoubleVector price = DoubleVector.fromArray(SPECIES, prices, i);
+
+			// Max of the LANES prices ending at each lane, in two chains
+			DoubleVector even = price;
+			DoubleVector odd = DoubleVector.fromArray(SPECIES, prices, i - 1);
+			for(int j = 2; j < LANES; j += 2) {
+				even = even.max(DoubleVector.fromArray(SPECIES, prices, i - j));
+				odd = odd.max(DoubleVector.fromArray(SPECIES, prices, i - j - 1));
+			}
+			peaks = peaks.max(even.max(odd));
+			worstLanes = worstLanes.max(price.div(peaks).neg().add(1));
+		}
+
+		worst = worstLanes.reduceLanes(VectorOperators.MAX);
+		peak = peaks.lane(LANES - 1);
+		for(; i < n; i++) {
+			peak = Math.max(peak, prices[i]);
+			worst = Math.max(worst, 1 - prices[i] / peak);
+		}
+		return worst;
+	}
+
+	/**
+	 * Scaled window sums. Same as rolling() without the sums of squares,
+	 * which are kept out of this loop entirely so it stays as tight as
+	 * possible.
+	 */
+	private static void rollingSums(double[] values, int window, double[] out, double scale) {
+		int n = values.length;
+		int first = window - 1;
+		Arrays.fill(out, 0, Math.min(n, first), Double.NaN);
+
+		DoubleVector zero = DoubleVector.zero(SPECIES);
+		for(int start = first; start < n; start += ScalarSeriesKernels.SEGMENT) {
+			int end = Math.min(n, start + ScalarSeriesKernels.SEGMENT);
+
+			int i = start;
+			double sum = 0;
+			if(start + LANES <= end) {
+				DoubleVector sumLanes = zero;
+				for(int k = 0; k < window; k++) {
+					sumLanes = sumLanes.add(DoubleVector.fromArray(SPECIES, values, start - k));
+				}
+				sumLanes.mul(scale).intoArray(out, i);
+
+				for(i += LANES; i + LANES <= end; i += LANES) {
+					DoubleVector delta0 = zero;
+					DoubleVector delta1 = zero;
+					for(int j = 0; j < LANES; j += 2) {
+						delta0 = delta0.add(DoubleVector.fromArray(SPECIES, values, i - j)
+								.sub(DoubleVector.fromArray(SPECIES, values, i - j - window)));
+						delta1 = delta1.add(DoubleVector.fromArray(SPECIES, values, i - j - 1)
+								.sub(DoubleVector.fromArray(SPECIES, values, i - j - 1 - window)));
+					}
+					sumLanes = sumLanes.add(delta0.add(delta1));
+					sumLanes.mul(scale).intoArray(out, i);
+				}
+				sum = sumLanes.lane(LANES - 1);
+			}
+			else {
+				for(int k = start - first; k <= start; k++) {
+					sum += values[k];
+				}
+				out[i++] = sum * scale;
+			}
+
+			for(; i < end; i++) {
+				sum += values[i] - values[i - window];
+				out[i] = sum * scale;
+			}
+		}
+	}
+
+	/**
+	 * Vector version of ScalarSeriesKernels.rolling(), anchored on the same
+	 * segments so results match to within rounding.
+	 */
+	private static void rolling(double[] values, int window, double[] sums, double sumScale, double[] variances) {
+		int n = values.length;
+		int first = window - 1;
+		if(sums != null) {
+			Arrays.fill(sums, 0, Math.min(n, first), Double.NaN);
+		}
+		if(variances != null) {
+			Arrays.fill(variances, 0, Math.min(n, first), Double.NaN);
+		}
+
+		DoubleVector zero = DoubleVector.zero(SPECIES);
+
+		for(int start = first; start < n; start += ScalarSeriesKernels.SEGMENT) {
+			int end = Math.min(n, start + ScalarSeriesKernels.SEGMENT);
+			double shift = variances == null ? 0 : values[start];
+			DoubleVector shiftLanes = DoubleVector.broadcast(SPECIES, shift);
+			DoubleVector twoShift = DoubleVector.broadcast(SPECIES, 2 * shift);
+
+			int i = start;
+			double sum = 0;
+			double sumSq = 0;
+			if(start + LANES <= end) {
+				// Lane l holds the sums for the window ending at i + l
+				DoubleVector sumLanes = zero;
+				DoubleVector sumSqLanes = zero;
+				for(int k = 0; k < window; k++) {
+					DoubleVector x = DoubleVector.fromArray(SPECIES, values, start - k).sub(shiftLanes);
+					sumLanes = sumLanes.add(x);
+					sumSqLanes = sumSqLanes.add(x.mul(x));
+				}
+
+				store(sums, sumScale, variances, i, sumLanes, sumSqLanes, window, shift);
+
+				for(i += LANES; i + LANES <= end; i += LANES) {
+					// Elements entering minus elements leaving, summed in
+					// independent pairs so the adds don't wait on each other
+					DoubleVector delta0 = zero;
+					DoubleVector delta1 = zero;
+					DoubleVector deltaSq0 = zero;
+					DoubleVector deltaSq1 = zero;
+					for(int j = 0; j < LANES; j += 2) {
+						DoubleVector in0 = DoubleVector.fromArray(SPECIES, values, i - j);
+						DoubleVector out0 = DoubleVector.fromArray(SPECIES, values, i - j - window);
+						DoubleVector in1 = DoubleVector.fromArray(SPECIES, values, i - j - 1);
+						DoubleVector out1 = DoubleVector.fromArray(SPECIES, values, i - j - 1 - window);
+						DoubleVector diff0 = in0.sub(out0);
+						DoubleVector diff1 = in1.sub(out1);
+						delta0 = delta0.add(diff0);
+						delta1 = delta1.add(diff1);
+						
+						// (in - s)^2 - (out - s)^2 = (in - out)(in + out - 2s)
+						deltaSq0 = deltaSq0.add(diff0.mul(in0.add(out0).sub(twoShift)));
+						deltaSq1 = deltaSq1.add(diff1.mul(in1.add(out1).sub(twoShift)));
+					}
+					sumLanes = sumLanes.add(delta0.add(delta1));
+					sumSqLanes = sumSqLanes.add(deltaSq0.add(deltaSq1));
+					store(sums, sumScale, variances, i, sumLanes, sumSqLanes, window, shift);
+				}
+
+				// Carry on from the last lane for the rest of the segment
+				sum = sumLanes.lane(LANES - 1);
+				sumSq = sumSqLanes.lane(LANES - 1);
+			}
+			else {
+				for(int k = start - first; k <= start; k++) {
+					double x = values[k] - shift;
+					sum += x;
+					sumSq += x * x;
+				}
+				storeScalar(sums, sumScale, variances, i, sum, sumSq, window, shift);
+				i++;
+			}
+
+			for(; i < end; i++) {
+				double in = values[i] - shift;
+				double out = values[i - window] - shift;
+				sum += in - out;
+				sumSq += (in - out) * (in + out);
+				storeScalar(sums, sumScale, variances, i, sum, sumSq, window, shift);
+			}
+		}
+	}
+
+	private static void store(double[] sums, double sumScale, double[] variances, int i,
+			DoubleVector sumLanes, DoubleVector sumSqLanes, int window, double shift) {
+		if(sums != null) {
+			sumLanes.add(window * shift).mul(sumScale).intoArray(sums, i);
+		}
+		if(variances != null) {
+			sumSqLanes.sub(sumLanes.mul(sumLanes).mul(1.0 / window))
+				.mul(1.0 / (window - 1))
+				.max(0)
+				.intoArray(variances, i);
+		}
+	}
+
+	private static void storeScalar(double[] sums, double sumScale, double[] variances, int i,
+			double sum, double sumSq, int window, double shift) {
+		if(sums != null) {
+			sums[i] = (sum + window * shift) * sumScale;
+		}
+		if(variances != null) {
+			variances[i] = Math.max(0, (sumSq - sum * sum / window) / (window - 1));
+		}
+	}
+
+	/**
+	 * Creates the instance on first use, if the vector module is present.
+	 */
+	static final class Holder {
+		static final SeriesKernels INSTANCE = create();
+
+		private static SeriesKernels create() {
+			if(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+				return null;
+			}
+			try {
+				return new VectorSeriesKernels();
+			} catch (LinkageError e) {
+				return null;
+			}
+		}
+	}
+
+}
@@ -11,9 +11,9 @@ public class PriceData {
 	public double low;
 	public double close;
 	public double adjClose;
-	public int volume;
+	public long volume;
 	
-	public PriceData(String symbol, LocalDate date, double open, double high, double low, double close, double adjClose, int volume) {
+	public PriceData(String symbol, LocalDate date, double open, double high, double low, double close, double adjClose, long volume) {
 		this.symbol = symbol;
 		this.date = date;
 		this.open = open;
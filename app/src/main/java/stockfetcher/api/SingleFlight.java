@@ -0,0 +1,167 @@
+package stockfetcher.api;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import stockfetcher.metrics.Counter;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Shares one download between concurrent requests for the same data.
+ * The first caller for a key downloads it while later callers wait on the
+ * same future; successful results are then kept briefly so a burst of
+ * requests (e.g. a symbol check followed by the overview on the same
+ * page) only downloads once. Failures are shared with the callers already
+ * waiting but aren't kept.
+ */
+final class SingleFlight<V> {
+
+	/**
+	 * Identifies a download.
+	 */
+	static final class Key {
+		final String provider;
+		final String endpoint;
+		final String symbol;
+		final String range;
+
+		Key(String provider, String endpoint, String symbol, String range) {
+			this.provider = provider;
+			this.endpoint = endpoint;
+			this.symbol = symbol;
+			this.range = range;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return provider.equals(other.provider) && endpoint.equals(other.endpoint)
+					&& symbol.equals(other.symbol) && Objects.equals(range, other.range);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(provider, endpoint, symbol, range);
+		}
+
+		@Override
+		public String toString() {
+			return provider + "/" + endpoint + "/" + symbol + (range == null ? "" : "/" + range);
+		}
+	}
+
+	@FunctionalInterface
+	interface Download<V> {
+		V download() throws IOException, InterruptedException;
+	}
+
+	private static final class Cached<V> {
+		final V value;
+		final long expires;
+
+		Cached(V value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+	private final ConcurrentHashMap<Key, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Key, Cached<V>> recent = new ConcurrentHashMap<>();
+	private final long ttlNanos;
+	private final int maxCached;
+
+	private final Counter shared;
+	private final Counter cached;
+
+	/**
+	 * @param name metric name prefix
+	 * @param ttl how long results are kept
+	 * @param maxCached most results kept at once
+	 */
+	SingleFlight(String name, Duration ttl, int maxCached) {
+		this.ttlNanos = ttl.toNanos();
+		this.maxCached = maxCached;
+		this.shared = Metrics.counter(name + ".shared");
+		this.cached = Metrics.counter(name + ".cached");
+	}
+
+	/**
+	 * Gets the data for a key, downloading it unless a recent result or a
+	 * download in progress can be used.
+	 * @param key
+	 * @param download downloads the data; run on the calling thread
+	 * @return
+	 * @throws IOException if the download failed
+	 * @throws InterruptedException
+	 */
+	V get(Key key, Download<V> download) throws IOException, InterruptedException {
+		long now = System.nanoTime();
+		Cached<V> hit = recent.get(key);
+		if(hit != null) {
+			if(hit.expires - now > 0) {
+				cached.increment();
+				return hit.value;
+			}
+			recent.remove(key, hit);
+		}
+
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+		if(existing != null) {
+			shared.increment();
+			return await(key, existing);
+		}
+
+		try {
+			V value = download.download();
+			remember(key, value);
+			flight.complete(value);
+			return value;
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	private V await(Key key, CompletableFuture<V> flight) throws IOException, InterruptedException {
+		try {
+			return flight.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			// The downloading thread was interrupted, not this one
+			throw new IOException("Shared request for " + key + " was interrupted.", cause);
+		} catch (CancellationException e) {
+			throw new IOException("Shared request for " + key + " was cancelled.", e);
+		}
+	}
+
+	private void remember(Key key, V value) {
+		if(value == null || ttlNanos <= 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		if(recent.size() >= maxCached) {
+			recent.values().removeIf(entry -> entry.expires - now <= 0);
+		}
+		if(recent.size() < maxCached) {
+			recent.put(key, new Cached<>(value, now + ttlNanos));
+		}
+	}
+
+}
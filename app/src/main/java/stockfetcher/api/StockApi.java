@@ -1,7 +1,9 @@
 package stockfetcher.api;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
@@ -28,6 +30,13 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 
+import stockfetcher.jfr.PriceParseEvent;
+import stockfetcher.jfr.SymbolFetchEvent;
+import stockfetcher.metrics.Counter;
+import stockfetcher.metrics.Histogram;
+import stockfetcher.metrics.Metrics;
+import stockfetcher.metrics.Timer;
+
 /**
  * API for retrieving company stock data. 
  * Implemented using the AlphaVantage api, 
@@ -52,6 +61,20 @@ public final class StockApi {
 			.connectTimeout(Duration.ofSeconds(20))
 			.build();
 	
+	private static final Timer priceFetches = Metrics.timer("api.fetch.prices");
+	private static final Timer etfFetches = Metrics.timer("api.fetch.etf");
+	private static final Timer companyFetches = Metrics.timer("api.fetch.company");
+	private static final Timer symbolChecks = Metrics.timer("api.fetch.symbol_check");
+	private static final Histogram priceRows = Metrics.histogram("api.fetch.prices.rows");
+	private static final Counter fetchErrors = Metrics.counter("api.fetch.errors");
+	
+	// Concurrent and back to back requests for the same data share one
+	// download. The symbol checks request the same AlphaVantage overview
+	// and MarketWatch page as the overviews that follow them.
+	private static final SingleFlight<byte[]> priceDownloads = new SingleFlight<>("api.fetch.prices", Duration.ofSeconds(30), 16);
+	private static final SingleFlight<String> overviews = new SingleFlight<>("api.fetch.overview", Duration.ofMinutes(1), 256);
+	private static final SingleFlight<Document> holdingsPages = new SingleFlight<>("api.fetch.holdings", Duration.ofMinutes(1), 64);
+	
 	private StockApi() {}
 	
 	/**
@@ -86,39 +109,93 @@ public final class StockApi {
 				period2
 		);
 		
-		// Download csv data
+		// Download csv data (all of it before parsing, so the network
+		// and parse times can be told apart)
+		byte[] csv;
 		try {
-			ArrayList<PriceData> priceData = new ArrayList<>();
-			URL website = new URL(url);
-			BufferedReader reader = new BufferedReader(new InputStreamReader(website.openStream()));
-			reader.readLine(); // Skip header info
-			String line;
-			while((line = reader.readLine()) != null) {
-				String[] data = line.split(",");
-				String date = data[0];
-				
-				try {
-					double open = Double.valueOf(data[1]);
-					double high = Double.valueOf(data[2]);
-					double low = Double.valueOf(data[3]);
-					double close = Double.valueOf(data[4]);
-					double adjClose = Double.valueOf(data[5]);
-					int volume = Integer.valueOf(data[6]);
-				
-					priceData.add(new PriceData(symbol, LocalDate.parse(date), open, high, low, close, adjClose, volume));
-				} catch (NumberFormatException e) {
-					logger.warn("Unable to add {} data for date {}. Data invalid: {}", symbol, date, line);
+			var key = new SingleFlight.Key("yahoo", "download", symbol, full ? "full" : "recent");
+			csv = priceDownloads.get(key, () -> {
+				SymbolFetchEvent fetch = new SymbolFetchEvent();
+				fetch.begin();
+				long start = System.nanoTime();
+				try (
+					InputStream in = new URL(url).openStream();
+				) {
+					byte[] bytes = in.readAllBytes();
+					commit(fetch, symbol, "prices", bytes.length, true);
+					return bytes;
+				} catch (IOException e) {
+					commit(fetch, symbol, "prices", 0, false);
+					throw e;
+				} finally {
+					priceFetches.recordSince(start);
 				}
+			});
+		} catch (IOException | InterruptedException e) {
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			fetchErrors.increment();
+			logger.error("Error retrieving data for {}: {}", symbol, e.getMessage());
+			return null;
+		}
+		
+		PriceParseEvent parse = new PriceParseEvent();
+		parse.begin();
+		try (
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv)));
+		) {
+			PriceData[] priceData = parsePriceData(symbol, reader);
+			priceRows.record(priceData.length);
+			parse.end();
+			if(parse.shouldCommit()) {
+				parse.symbol = symbol;
+				parse.rows = priceData.length;
+				parse.bytes = csv.length;
+				parse.commit();
 			}
-			
 			logger.info("Stock data for {} successfully downloaded.", symbol);
-			return priceData.toArray(new PriceData[priceData.size()]);
+			return priceData;
 		} catch (IOException e) {
+			fetchErrors.increment();
 			logger.error("Error retrieving data for {}: {}", symbol, e.getMessage());
 			return null;
 		}
 	}
 	
+	/**
+	 * Parses daily price history in the CSV format returned by the download
+	 * (Date,Open,High,Low,Close,Adj Close,Volume with a header line). Rows
+	 * with invalid numbers are logged and skipped.
+	 * @param symbol
+	 * @param reader
+	 * @return price data in file order
+	 * @throws IOException
+	 */
+	public static PriceData[] parsePriceData(String symbol, BufferedReader reader) throws IOException {
+		ArrayList<PriceData> priceData = new ArrayList<>();
+		reader.readLine(); // Skip header info
+		String line;
+		while((line = reader.readLine()) != null) {
+			String[] data = line.split(",");
+			String date = data[0];
+			
+			try {
+				double open = Double.valueOf(data[1]);
+				double high = Double.valueOf(data[2]);
+				double low = Double.valueOf(data[3]);
+				double close = Double.valueOf(data[4]);
+				double adjClose = Double.valueOf(data[5]);
+				long volume = Long.valueOf(data[6]);
+			
+				priceData.add(new PriceData(symbol, LocalDate.parse(date), open, high, low, close, adjClose, volume));
+			} catch (NumberFormatException e) {
+				logger.warn("Unable to add {} data for date {}. Data invalid: {}", symbol, date, line);
+			}
+		}
+		return priceData.toArray(new PriceData[priceData.size()]);
+	}
+	
 	/**
 	 * Returns an overview for the ETF of the given symbol
 	 * @param symbol
@@ -127,12 +204,15 @@ public final class StockApi {
 	public static EtfData getEtfOverview(String symbol) {
 		logger.info("Requesting ETF overview for {}", symbol);
 		// Make a request to marketwatch holdings page
-		String url = String.format("https://www.marketwatch.com/investing/fund/%s/holdings", symbol.toLowerCase());
+		String url = holdingsUrl(symbol);
 		Document doc;
 		try {
-			Connection conn = Jsoup.connect(url);
-			doc = conn.get();
-		} catch (IOException e) {
+			doc = getHoldingsPage(symbol, etfFetches, "etf");
+		} catch (IOException | InterruptedException e) {
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			fetchErrors.increment();
 			logger.error("Error fetching {} ETF data: {}", symbol, e.getMessage());
 			return null;
 		}
@@ -188,24 +268,21 @@ public final class StockApi {
 	public static CompanyData getCompanyOverview(String symbol) {
 		logger.info("Requesting {} company info.", symbol);
 		
-		// Setup request parameters
-		HashMap<String, String> params = new HashMap<>();
-		params.put("function", "OVERVIEW");
-		params.put("symbol", symbol);
-		params.put("apikey", API_KEY);
-
 		// Make the request
-		HttpRequest request = getRequest(params);
-		HttpResponse<String> response;
+		String body;
 		try {
-			response = client.send(request, BodyHandlers.ofString());
+			body = getOverview(symbol, companyFetches, "company");
 		} catch (IOException | InterruptedException e) {
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			fetchErrors.increment();
 			logger.error("Retrieving company data for {} failed: {}", symbol, e.getMessage());
 			return null;
 		}
 		
 		// Parse to json object
-		JsonObject data = gson.fromJson(response.body(), JsonObject.class);
+		JsonObject data = gson.fromJson(body, JsonObject.class);
 		
 		// Check for error (this call returns empty object on error)
 		if(data.entrySet().size() == 0) {
@@ -213,9 +290,9 @@ public final class StockApi {
 			return null;
 		}
 		
-		// If it doesn't have a name/desc field, API calls exceeded
+		// Rate limits fail in getOverview(), so this is a partial overview
 		else if(!data.has("Name") || !data.has("Description")) {
-			logger.error("Retrieving company data for {} failed: {}", symbol, data.has("Note") ? data.get("Note") : "Returned data is incomplete.");
+			logger.error("Retrieving company data for {} failed: Returned data is incomplete.", symbol);
 			return null;
 		}
 		
@@ -257,18 +334,11 @@ public final class StockApi {
 		if(symbol.startsWith("^"))
 			return false;
 		
-		// Setup request parameters
-		HashMap<String, String> params = new HashMap<>();
-		params.put("function", "OVERVIEW");
-		params.put("symbol", symbol);
-		params.put("apikey", API_KEY);
-		
 		// Make request
-		HttpRequest request = getRequest(params);
-		HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+		String body = getOverview(symbol, symbolChecks, "check");
 		
 		// Parse json
-		JsonObject data = gson.fromJson(response.body(), JsonObject.class);
+		JsonObject data = gson.fromJson(body, JsonObject.class);
 		
 		// If the object is not empty, then it is a company
 		return data.entrySet().size() != 0;
@@ -286,8 +356,14 @@ public final class StockApi {
 			return false;
 		
 		// Make a request to marketwatch holdings page
-		String url = String.format("https://www.marketwatch.com/investing/fund/%s/holdings", symbol.toLowerCase());
-		Document doc = Jsoup.connect(url).get();
+		String url = holdingsUrl(symbol);
+		Document doc;
+		try {
+			doc = getHoldingsPage(symbol, symbolChecks, "check");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while checking " + symbol + ".", e);
+		}
 		
 		// Check that the document url is equal to the url we requested
 		// If they aren't equal, we got redirected because the symbol
@@ -295,6 +371,101 @@ public final class StockApi {
 		return url.equals(doc.baseUri());
 	}
 	
+	/**
+	 * Downloads the AlphaVantage overview of a symbol, which is empty if
+	 * the symbol isn't a company.
+	 * @param symbol
+	 * @param timer times the download
+	 * @param kind fetch event kind
+	 * @return response body
+	 * @throws IOException if the request failed or was rate limited
+	 * @throws InterruptedException
+	 */
+	private static String getOverview(String symbol, Timer timer, String kind) throws IOException, InterruptedException {
+		return overviews.get(new SingleFlight.Key("alphavantage", "OVERVIEW", symbol, null), () -> {
+			// Setup request parameters
+			HashMap<String, String> params = new HashMap<>();
+			params.put("function", "OVERVIEW");
+			params.put("symbol", symbol);
+			params.put("apikey", API_KEY);
+			
+			HttpRequest request = getRequest(params);
+			SymbolFetchEvent fetch = new SymbolFetchEvent();
+			fetch.begin();
+			long start = System.nanoTime();
+			try {
+				HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+				String body = response.body();
+				if(response.statusCode() != 200) {
+					throw new IOException("AlphaVantage returned status " + response.statusCode() + ".");
+				}
+				
+				// Rate limit messages come back with status 200; they must
+				// fail rather than be shared as the symbol's overview
+				JsonObject data = gson.fromJson(body, JsonObject.class);
+				if(data != null && data.has("Note")) {
+					throw new IOException(data.get("Note").getAsString());
+				}
+				if(data != null && data.has("Information")) {
+					throw new IOException(data.get("Information").getAsString());
+				}
+				
+				commit(fetch, symbol, kind, body.length(), true);
+				return body;
+			} catch (IOException | InterruptedException e) {
+				commit(fetch, symbol, kind, 0, false);
+				throw e;
+			} finally {
+				timer.recordSince(start);
+			}
+		});
+	}
+	
+	private static String holdingsUrl(String symbol) {
+		return String.format("https://www.marketwatch.com/investing/fund/%s/holdings", symbol.toLowerCase());
+	}
+	
+	/**
+	 * Downloads the MarketWatch holdings page of a symbol. The page may be
+	 * shared with other callers, so it must only be read.
+	 * @param symbol
+	 * @param timer times the download
+	 * @param kind fetch event kind
+	 * @return page; redirected elsewhere if the symbol isn't an ETF
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static Document getHoldingsPage(String symbol, Timer timer, String kind) throws IOException, InterruptedException {
+		return holdingsPages.get(new SingleFlight.Key("marketwatch", "holdings", symbol, null), () -> {
+			SymbolFetchEvent fetch = new SymbolFetchEvent();
+			fetch.begin();
+			long start = System.nanoTime();
+			try {
+				Connection.Response response = Jsoup.connect(holdingsUrl(symbol)).execute();
+				int bytes = response.bodyAsBytes().length;
+				Document doc = response.parse();
+				commit(fetch, symbol, kind, bytes, true);
+				return doc;
+			} catch (IOException e) {
+				commit(fetch, symbol, kind, 0, false);
+				throw e;
+			} finally {
+				timer.recordSince(start);
+			}
+		});
+	}
+	
+	private static void commit(SymbolFetchEvent event, String symbol, String kind, long bytes, boolean succeeded) {
+		event.end();
+		if(event.shouldCommit()) {
+			event.symbol = symbol;
+			event.kind = kind;
+			event.bytes = bytes;
+			event.succeeded = succeeded;
+			event.commit();
+		}
+	}
+	
 	/**
 	 * Helper method for converting a GET parameters map into
 	 * a URI that can be used to make an api call
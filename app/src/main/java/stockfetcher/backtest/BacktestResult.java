@@ -0,0 +1,67 @@
+package stockfetcher.backtest;
+
+/**
+ * Equity curve and summary statistics of one backtest run.
+ */
+public final class BacktestResult {
+
+	public final String strategy;
+
+	/**
+	 * Parameters the strategy was created with, for sweeps; may be empty.
+	 */
+	public final double[] parameters;
+
+	/**
+	 * Calendar of the equity curve as epoch days, shared with other
+	 * results from the same replay.
+	 */
+	public final int[] epochDays;
+
+	/**
+	 * Account value at each day's close.
+	 */
+	public final double[] equity;
+
+	public final double totalReturn;
+
+	/**
+	 * Compound annual growth rate; NaN for runs shorter than a day.
+	 */
+	public final double annualReturn;
+
+	/**
+	 * Annualized standard deviation of daily returns.
+	 */
+	public final double volatility;
+
+	/**
+	 * Annualized mean over standard deviation of daily returns, with no
+	 * risk-free rate.
+	 */
+	public final double sharpe;
+
+	/**
+	 * Largest peak-to-trough decline of equity, as a fraction.
+	 */
+	public final double maxDrawdown;
+
+	public final int trades;
+	public final double commissions;
+
+	BacktestResult(String strategy, double[] parameters, int[] epochDays, double[] equity, double totalReturn,
+			double annualReturn, double volatility, double sharpe, double maxDrawdown, int trades, double commissions) {
+		this.strategy = strategy;
+		this.parameters = parameters;
+		this.epochDays = epochDays;
+		this.equity = equity;
+		this.totalReturn = totalReturn;
+		this.annualReturn = annualReturn;
+		this.volatility = volatility;
+		this.sharpe = sharpe;
+		this.maxDrawdown = maxDrawdown;
+		this.trades = trades;
+		this.commissions = commissions;
+	}
+
+}
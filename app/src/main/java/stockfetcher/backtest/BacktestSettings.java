@@ -0,0 +1,39 @@
+package stockfetcher.backtest;
+
+/**
+ * Account and cost settings for a backtest.
+ */
+public final class BacktestSettings {
+
+	public final double initialCash;
+
+	/**
+	 * Flat commission charged on every fill.
+	 */
+	public final double commissionPerTrade;
+
+	/**
+	 * Commission charged as a fraction of each fill's value (0.001 = 0.1%).
+	 */
+	public final double commissionRate;
+
+	/**
+	 * Fraction of the price lost on each fill: buys fill this much above
+	 * the open and sells this much below it.
+	 */
+	public final double slippage;
+
+	public BacktestSettings(double initialCash, double commissionPerTrade, double commissionRate, double slippage) {
+		if(!(initialCash > 0)) {
+			throw new IllegalArgumentException("Initial cash must be positive.");
+		}
+		if(commissionPerTrade < 0 || commissionRate < 0 || slippage < 0) {
+			throw new IllegalArgumentException("Costs cannot be negative.");
+		}
+		this.initialCash = initialCash;
+		this.commissionPerTrade = commissionPerTrade;
+		this.commissionRate = commissionRate;
+		this.slippage = slippage;
+	}
+
+}
@@ -0,0 +1,148 @@
+package stockfetcher.backtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import stockfetcher.analytics.Bar;
+import stockfetcher.analytics.RunningStats;
+import stockfetcher.analytics.SeriesKernels;
+import stockfetcher.db.PriceSeries;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Runs strategies over a replay of stored price history.
+ * <p>
+ * Each day of the replay, every symbol that traded that day first fills
+ * its pending order at the open, is then marked to its close, and is
+ * finally passed to the strategy. The portfolio is revalued after the
+ * last symbol. Opens are adjusted by the same factor as the close, so
+ * fills and valuations are on the same split and dividend adjusted
+ * scale. Nothing is allocated inside the replay loop, and sweeps run
+ * their parameter sets in parallel on the common fork/join pool.
+ */
+public final class Backtester {
+
+	private static final double TRADING_DAYS_PER_YEAR = 252;
+	private static final double DAYS_PER_YEAR = 365.25;
+
+	private Backtester() {}
+
+	/**
+	 * Loads the given symbols from the series cache. Symbols whose prices
+	 * cannot be loaded are left out.
+	 * @param symbols
+	 * @return price series, in order
+	 */
+	public static List<PriceSeries> loadSeries(List<String> symbols) {
+		ArrayList<PriceSeries> series = new ArrayList<>(symbols.size());
+		for(String symbol : symbols) {
+			PriceSeries prices = StockDatabase.getPriceSeries(symbol);
+			if(prices != null && !prices.isEmpty()) {
+				series.add(prices);
+			}
+		}
+		return series;
+	}
+
+	/**
+	 * Runs a single backtest.
+	 * @param replay
+	 * @param strategy fresh strategy instance
+	 * @param settings
+	 * @return result of the run
+	 */
+	public static BacktestResult run(Replay replay, Strategy strategy, BacktestSettings settings) {
+		long start = System.nanoTime();
+		try {
+			return run(replay, strategy, settings, new double[0]);
+		} finally {
+			Metrics.timer("backtest.run").recordSince(start);
+		}
+	}
+
+	/**
+	 * Runs a strategy once for each parameter set, in parallel.
+	 * @param replay
+	 * @param parameterSets
+	 * @param factory creates a fresh strategy from a parameter set
+	 * @param settings
+	 * @return results in the same order as the parameter sets
+	 */
+	public static List<BacktestResult> sweep(Replay replay, List<double[]> parameterSets,
+			Function<double[], Strategy> factory, BacktestSettings settings) {
+		long start = System.nanoTime();
+		try {
+			return parameterSets.parallelStream()
+				.map(parameters -> run(replay, factory.apply(parameters), settings, parameters))
+				.collect(Collectors.toList());
+		} finally {
+			Metrics.timer("backtest.sweep").recordSince(start);
+		}
+	}
+
+	private static BacktestResult run(Replay replay, Strategy strategy, BacktestSettings settings, double[] parameters) {
+		int symbols = replay.getSymbolCount();
+		int days = replay.getDayCount();
+		PriceSeries[] series = replay.series;
+		int[] epochDays = replay.epochDays;
+		int[] end = replay.endIndex;
+
+		Portfolio portfolio = new Portfolio(symbols, settings);
+		int[] cursor = replay.firstIndex.clone();
+		double[] equity = new double[days];
+		Bar bar = new Bar();
+
+		strategy.start(portfolio);
+		for(int d = 0; d < days; d++) {
+			int day = epochDays[d];
+			for(int s = 0; s < symbols; s++) {
+				int i = cursor[s];
+				PriceSeries prices = series[s];
+				if(i >= end[s] || prices.getEpochDay(i) != day) {
+					continue;
+				}
+				cursor[s] = i + 1;
+
+				bar.set(prices, i);
+				double adjustment = bar.close > 0 ? bar.adjClose / bar.close : 1;
+				portfolio.fill(s, bar.open * adjustment);
+				portfolio.mark(s, bar.adjClose);
+				strategy.onBar(s, bar, portfolio);
+			}
+			equity[d] = portfolio.updateEquity();
+		}
+
+		return summarize(strategy.getName(), parameters, epochDays, equity, settings.initialCash, portfolio);
+	}
+
+	private static BacktestResult summarize(String name, double[] parameters, int[] epochDays, double[] equity,
+			double initialCash, Portfolio portfolio) {
+		int days = equity.length;
+		double finalEquity = days == 0 ? initialCash : equity[days - 1];
+		double totalReturn = finalEquity / initialCash - 1;
+
+		double years = days < 2 ? 0 : (epochDays[days - 1] - epochDays[0]) / DAYS_PER_YEAR;
+		double annualReturn = years > 0 ? Math.pow(Math.max(0, 1 + totalReturn), 1 / years) - 1 : Double.NaN;
+
+		// Daily simple returns
+		RunningStats returns = new RunningStats();
+		double previous = initialCash;
+		for(double value : equity) {
+			returns.add(previous > 0 ? value / previous - 1 : 0);
+			previous = value;
+		}
+		double mean = days > 0 ? returns.getMeanY() : 0;
+		double std = days > 1 ? Math.sqrt(returns.getSampleVarianceY()) : 0;
+		double volatility = std * Math.sqrt(TRADING_DAYS_PER_YEAR);
+		double sharpe = std > 0 ? mean / std * Math.sqrt(TRADING_DAYS_PER_YEAR) : Double.NaN;
+
+		double maxDrawdown = SeriesKernels.get().maxDrawdown(equity);
+
+		return new BacktestResult(name, parameters, epochDays, equity, totalReturn, annualReturn, volatility, sharpe,
+				maxDrawdown, portfolio.getTrades(), portfolio.getCommissions());
+	}
+
+}
@@ -0,0 +1,31 @@
+package stockfetcher.backtest;
+
+import stockfetcher.analytics.Bar;
+
+/**
+ * Splits the account equally between all symbols on their first bar and
+ * holds. Useful as a benchmark for other strategies.
+ */
+public final class BuyAndHold implements Strategy {
+
+	private boolean[] bought;
+
+	@Override
+	public String getName() {
+		return "Buy and Hold";
+	}
+
+	@Override
+	public void start(Portfolio portfolio) {
+		bought = new boolean[portfolio.getSymbolCount()];
+	}
+
+	@Override
+	public void onBar(int symbol, Bar bar, Portfolio portfolio) {
+		if(!bought[symbol]) {
+			portfolio.orderTargetWeight(symbol, 1.0 / bought.length);
+			bought[symbol] = true;
+		}
+	}
+
+}
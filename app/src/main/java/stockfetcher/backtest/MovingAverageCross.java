@@ -0,0 +1,60 @@
+package stockfetcher.backtest;
+
+import stockfetcher.analytics.Bar;
+import stockfetcher.analytics.RollingMean;
+
+/**
+ * Holds an equal share of equity in each symbol while its fast moving
+ * average of adjusted closes is above the slow one, and is out of it
+ * otherwise. Orders are only placed when the signal changes.
+ */
+public final class MovingAverageCross implements Strategy {
+
+	private final int fastPeriod;
+	private final int slowPeriod;
+
+	private RollingMean[] fast;
+	private RollingMean[] slow;
+	private boolean[] holding;
+
+	public MovingAverageCross(int fastPeriod, int slowPeriod) {
+		if(fastPeriod < 1 || slowPeriod <= fastPeriod) {
+			throw new IllegalArgumentException("Slow period must be longer than the fast period.");
+		}
+		this.fastPeriod = fastPeriod;
+		this.slowPeriod = slowPeriod;
+	}
+
+	@Override
+	public String getName() {
+		return "SMA Cross(" + fastPeriod + "/" + slowPeriod + ")";
+	}
+
+	@Override
+	public void start(Portfolio portfolio) {
+		int symbols = portfolio.getSymbolCount();
+		fast = new RollingMean[symbols];
+		slow = new RollingMean[symbols];
+		holding = new boolean[symbols];
+		for(int s = 0; s < symbols; s++) {
+			fast[s] = new RollingMean(fastPeriod);
+			slow[s] = new RollingMean(slowPeriod);
+		}
+	}
+
+	@Override
+	public void onBar(int symbol, Bar bar, Portfolio portfolio) {
+		double fastValue = fast[symbol].update(bar.adjClose);
+		double slowValue = slow[symbol].update(bar.adjClose);
+		if(!slow[symbol].isReady()) {
+			return;
+		}
+
+		boolean signal = fastValue > slowValue;
+		if(signal != holding[symbol]) {
+			portfolio.orderTargetWeight(symbol, signal ? 1.0 / holding.length : 0);
+			holding[symbol] = signal;
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package stockfetcher.backtest;
+
+/**
+ * Cash, positions and pending orders of a running backtest. Positions are
+ * whole shares and may be negative (short); margin and borrowing costs
+ * are not modeled. Prices are adjusted for splits and dividends.
+ */
+public final class Portfolio {
+
+	private final BacktestSettings settings;
+	private final double[] positions;
+	private final double[] prices;
+	private final double[] pending;
+
+	private double cash;
+	private double equity;
+	private int trades = 0;
+	private double commissions = 0;
+
+	Portfolio(int symbols, BacktestSettings settings) {
+		this.settings = settings;
+		positions = new double[symbols];
+		prices = new double[symbols];
+		pending = new double[symbols];
+		cash = settings.initialCash;
+		equity = settings.initialCash;
+	}
+
+	public int getSymbolCount() {
+		return positions.length;
+	}
+
+	public double getCash() {
+		return cash;
+	}
+
+	/**
+	 * @return cash plus the value of all positions at the previous day's close
+	 */
+	public double getEquity() {
+		return equity;
+	}
+
+	/**
+	 * @param symbol
+	 * @return shares held; negative when short
+	 */
+	public double getPosition(int symbol) {
+		return positions[symbol];
+	}
+
+	/**
+	 * @param symbol
+	 * @return latest adjusted close seen for the symbol; 0 before its first bar
+	 */
+	public double getPrice(int symbol) {
+		return prices[symbol];
+	}
+
+	/**
+	 * @return number of fills so far
+	 */
+	public int getTrades() {
+		return trades;
+	}
+
+	/**
+	 * @return total commissions paid so far
+	 */
+	public double getCommissions() {
+		return commissions;
+	}
+
+	/**
+	 * Buys (positive) or sells (negative) shares at the symbol's next open,
+	 * in addition to any order already pending. Buys are reduced to what
+	 * the cash at the time of the fill can cover.
+	 * @param symbol
+	 * @param shares
+	 */
+	public void order(int symbol, double shares) {
+		pending[symbol] += Math.rint(shares);
+	}
+
+	/**
+	 * Replaces any pending order for the symbol with one that brings the
+	 * position to the given fraction of equity at the latest price.
+	 * @param symbol
+	 * @param weight fraction of equity; negative for a short position
+	 */
+	public void orderTargetWeight(int symbol, double weight) {
+		if(prices[symbol] <= 0) {
+			return;
+		}
+		double target = weight * equity / prices[symbol];
+		target = target < 0 ? Math.ceil(target) : Math.floor(target);
+		pending[symbol] = target - positions[symbol];
+	}
+
+	public void cancelOrder(int symbol) {
+		pending[symbol] = 0;
+	}
+
+	/**
+	 * Fills the symbol's pending order at the given open price, with
+	 * slippage and commissions.
+	 */
+	void fill(int symbol, double open) {
+		double shares = pending[symbol];
+		if(shares == 0 || !(open > 0)) {
+			return;
+		}
+		pending[symbol] = 0;
+
+		double price = open * (shares > 0 ? 1 + settings.slippage : 1 - settings.slippage);
+		if(shares > 0) {
+			double affordable = Math.floor((cash - settings.commissionPerTrade) / (price * (1 + settings.commissionRate)));
+			shares = Math.min(shares, affordable);
+			if(shares <= 0) {
+				return;
+			}
+		}
+
+		double value = shares * price;
+		double commission = settings.commissionPerTrade + settings.commissionRate * Math.abs(value);
+		cash -= value + commission;
+		positions[symbol] += shares;
+		commissions += commission;
+		trades++;
+	}
+
+	void mark(int symbol, double price) {
+		prices[symbol] = price;
+	}
+
+	/**
+	 * Revalues the portfolio at the latest prices.
+	 * @return new equity
+	 */
+	double updateEquity() {
+		double value = cash;
+		for(int s = 0; s < positions.length; s++) {
+			value += positions[s] * prices[s];
+		}
+		equity = value;
+		return value;
+	}
+
+}
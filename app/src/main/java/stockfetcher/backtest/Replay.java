@@ -0,0 +1,88 @@
+package stockfetcher.backtest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Price series lined up on a shared calendar for replaying. A replay is
+ * immutable and can be shared by any number of concurrent backtests, so
+ * a parameter sweep only lines up the data once.
+ */
+public final class Replay {
+
+	final PriceSeries[] series;
+	final int[] epochDays;
+
+	// Range of each series' bars inside the window
+	final int[] firstIndex;
+	final int[] endIndex;
+
+	private Replay(PriceSeries[] series, int[] epochDays, int[] firstIndex, int[] endIndex) {
+		this.series = series;
+		this.epochDays = epochDays;
+		this.firstIndex = firstIndex;
+		this.endIndex = endIndex;
+	}
+
+	/**
+	 * Lines up the given series over a date window. The calendar contains
+	 * every day on which any of the symbols traded.
+	 * @param series
+	 * @param start first day of the window (inclusive)
+	 * @param end last day of the window (inclusive)
+	 * @return new replay
+	 */
+	public static Replay of(List<PriceSeries> series, LocalDate start, LocalDate end) {
+		long first = start.toEpochDay();
+		long last = end.toEpochDay();
+		int span = (int) Math.max(0, last - first + 1);
+
+		int[] firstIndex = new int[series.size()];
+		int[] endIndex = new int[series.size()];
+		boolean[] traded = new boolean[span];
+		for(int s = 0; s < series.size(); s++) {
+			PriceSeries prices = series.get(s);
+			firstIndex[s] = prices.indexOf(first);
+			endIndex[s] = prices.indexOf(last + 1);
+			for(int i = firstIndex[s]; i < endIndex[s]; i++) {
+				traded[(int) (prices.getEpochDay(i) - first)] = true;
+			}
+		}
+
+		ArrayList<Integer> days = new ArrayList<>();
+		for(int d = 0; d < span; d++) {
+			if(traded[d]) {
+				days.add((int) (first + d));
+			}
+		}
+		int[] epochDays = new int[days.size()];
+		for(int d = 0; d < epochDays.length; d++) {
+			epochDays[d] = days.get(d);
+		}
+
+		return new Replay(series.toArray(new PriceSeries[0]), epochDays, firstIndex, endIndex);
+	}
+
+	public int getSymbolCount() {
+		return series.length;
+	}
+
+	public String getSymbol(int symbol) {
+		return series[symbol].getSymbol();
+	}
+
+	/**
+	 * @return number of days in the calendar
+	 */
+	public int getDayCount() {
+		return epochDays.length;
+	}
+
+	public long getEpochDay(int day) {
+		return epochDays[day];
+	}
+
+}
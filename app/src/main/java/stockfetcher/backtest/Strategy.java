@@ -0,0 +1,35 @@
+package stockfetcher.backtest;
+
+import stockfetcher.analytics.Bar;
+
+/**
+ * Trading strategy driven bar by bar by the {@link Backtester}.
+ * <p>
+ * Strategies are called for every bar of every symbol in date order, and
+ * trade through the portfolio. Orders fill at the symbol's next open, so
+ * a strategy can never trade on a price it hasn't seen yet. onBar is
+ * called in the hot loop of parameter sweeps and should not allocate;
+ * set up any per-symbol state in {@link #start(Portfolio)}.
+ */
+public interface Strategy {
+
+	/**
+	 * @return short description of the strategy and its parameters, e.g. "SMA Cross(20/100)"
+	 */
+	public String getName();
+
+	/**
+	 * Called once before the first bar.
+	 * @param portfolio
+	 */
+	public default void start(Portfolio portfolio) {}
+
+	/**
+	 * Called for each bar, after the portfolio has been marked to its close.
+	 * @param symbol index of the symbol in the replay
+	 * @param bar the symbol's bar; only valid during this call
+	 * @param portfolio
+	 */
+	public void onBar(int symbol, Bar bar, Portfolio portfolio);
+
+}
@@ -0,0 +1,352 @@
+package stockfetcher.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.gson.JsonObject;
+
+import stockfetcher.db.StockDatabase;
+import stockfetcher.ingest.ImportListener;
+import stockfetcher.ingest.ImportResult;
+import stockfetcher.ingest.ImportStep;
+import stockfetcher.ingest.SymbolImporter;
+import stockfetcher.ingest.SymbolImporter.Prices;
+
+/**
+ * Command line entry point for bulk imports without the user interface,
+ * e.g. from cron on a server without a display:
+ * <pre>
+ * stockfetcher-cli import -f symbols.txt --threads 8 --json
+ * stockfetcher-cli sync
+ * stockfetcher-cli classify SPY QQQ AAPL
+ * </pre>
+ * Exits with 0 when every symbol succeeded, 1 when any failed, 2 on
+ * invalid usage and 3 when the database is unavailable.
+ */
+public final class StockfetcherCli {
+
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_FAILED = 1;
+	public static final int EXIT_USAGE = 2;
+	public static final int EXIT_DATABASE = 3;
+
+	private static final int DEFAULT_THREADS = 4;
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: stockfetcher-cli <command> [options] [symbols...]",
+			"",
+			"Commands:",
+			"  import     download full price history and company/ETF info",
+			"  sync       download the last 100 days of prices (tracked symbols by default)",
+			"  classify   download company/ETF info only (tracked symbols by default)",
+			"",
+			"Options:",
+			"  -f, --file <path>    read symbols from a file, one per line ('-' for stdin);",
+			"                       blank lines and text after '#' are ignored",
+			"  -t, --threads <n>    symbols downloaded concurrently (default " + DEFAULT_THREADS + ")",
+			"      --full           sync: download the full price history",
+			"      --json           print progress as JSON lines",
+			"  -h, --help           show this help",
+			"",
+			"Exit codes: 0 all succeeded, 1 some symbols failed, 2 invalid usage,",
+			"3 database unavailable.");
+
+	private enum Command {
+		IMPORT("import", Prices.FULL, true),
+		SYNC("sync", Prices.RECENT, false),
+		CLASSIFY("classify", Prices.NONE, true);
+
+		private final String label;
+		private final Prices prices;
+		private final boolean info;
+
+		private Command(String label, Prices prices, boolean info) {
+			this.label = label;
+			this.prices = prices;
+			this.info = info;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	private static final class Options {
+		Command command = null;
+		final LinkedHashSet<String> symbols = new LinkedHashSet<>();
+		int threads = DEFAULT_THREADS;
+		boolean full = false;
+		boolean json = false;
+		boolean help = false;
+	}
+
+	private StockfetcherCli() {}
+
+	public static void main(String[] args) {
+		// Keep stdout for results; must be set before the first logger is created
+		if(System.getProperty("log4j.configuration") == null) {
+			System.setProperty("log4j.configuration", "cli-log4j.properties");
+		}
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Runs a command.
+	 * @param args command line arguments
+	 * @param out receives progress and results
+	 * @param err receives usage and fatal errors
+	 * @return exit code
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		Options options;
+		try {
+			options = parse(args);
+		} catch (IllegalArgumentException e) {
+			err.println("stockfetcher-cli: " + e.getMessage());
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+		if(options.help) {
+			out.println(USAGE);
+			return EXIT_OK;
+		}
+
+		try {
+			StockDatabase.initialize(Runnable::run);
+		} catch (SQLException e) {
+			err.println("stockfetcher-cli: unable to connect to the database: " + e.getMessage());
+			return EXIT_DATABASE;
+		}
+
+		if(options.symbols.isEmpty()) {
+			options.symbols.addAll(StockDatabase.trackedSymbolsProperty());
+		}
+
+		Prices prices = options.full && options.command == Command.SYNC ? Prices.FULL : options.command.prices;
+		return importAll(new ArrayList<>(options.symbols), prices, options.command.info, options.threads,
+				new Reporter(out, options.json));
+	}
+
+	private static Options parse(String[] args) {
+		Options options = new Options();
+		for(int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			switch(arg) {
+			case "-h":
+			case "--help":
+				options.help = true;
+				return options;
+			case "-f":
+			case "--file":
+				options.symbols.addAll(readSymbols(value(args, ++i, arg)));
+				break;
+			case "-t":
+			case "--threads":
+				String threads = value(args, ++i, arg);
+				try {
+					options.threads = Integer.parseInt(threads);
+				} catch (NumberFormatException e) {
+					options.threads = 0;
+				}
+				if(options.threads < 1) {
+					throw new IllegalArgumentException("invalid thread count: " + threads);
+				}
+				break;
+			case "--full":
+				options.full = true;
+				break;
+			case "--json":
+				options.json = true;
+				break;
+			default:
+				if(arg.startsWith("-")) {
+					throw new IllegalArgumentException("unknown option: " + arg);
+				}
+				else if(options.command == null) {
+					for(Command command : Command.values()) {
+						if(command.label.equals(arg)) {
+							options.command = command;
+						}
+					}
+					if(options.command == null) {
+						throw new IllegalArgumentException("unknown command: " + arg);
+					}
+				}
+				else {
+					options.symbols.add(arg.trim().toUpperCase());
+				}
+			}
+		}
+
+		if(options.command == null) {
+			throw new IllegalArgumentException("no command given");
+		}
+		if(options.symbols.isEmpty() && options.command == Command.IMPORT) {
+			throw new IllegalArgumentException("no symbols to import");
+		}
+		if(options.full && options.command != Command.SYNC) {
+			throw new IllegalArgumentException("--full only applies to sync");
+		}
+		return options;
+	}
+
+	private static String value(String[] args, int i, String option) {
+		if(i >= args.length) {
+			throw new IllegalArgumentException("missing value for " + option);
+		}
+		return args[i];
+	}
+
+	private static List<String> readSymbols(String path) {
+		try (
+			BufferedReader reader = path.equals("-")
+					? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+					: Files.newBufferedReader(Paths.get(path));
+		) {
+			var symbols = new ArrayList<String>();
+			String line;
+			while((line = reader.readLine()) != null) {
+				int comment = line.indexOf('#');
+				if(comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				line = line.trim();
+				if(!line.isEmpty()) {
+					symbols.add(line.toUpperCase());
+				}
+			}
+			return symbols;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("unable to read symbols from " + path + ": " + e.getMessage());
+		}
+	}
+
+	private static int importAll(List<String> symbols, Prices prices, boolean info, int threads, Reporter reporter) {
+		long start = System.nanoTime();
+		SymbolImporter importer = new SymbolImporter(reporter);
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, symbols.size())));
+		var completion = new ExecutorCompletionService<ImportResult>(pool);
+		for(String symbol : symbols) {
+			completion.submit(() -> importer.importSymbol(symbol, prices, info));
+		}
+
+		int failed = 0;
+		try {
+			for(int done = 1; done <= symbols.size(); done++) {
+				ImportResult result = completion.take().get();
+				if(result.status != ImportResult.Status.OK) {
+					failed++;
+				}
+				reporter.result(result, done, symbols.size());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pool.shutdownNow();
+			return EXIT_FAILED;
+		} catch (ExecutionException e) {
+			pool.shutdownNow();
+			throw new IllegalStateException("Import failed unexpectedly", e.getCause());
+		}
+		pool.shutdown();
+
+		reporter.summary(symbols.size(), failed, (System.nanoTime() - start) / 1e9);
+		return failed == 0 ? EXIT_OK : EXIT_FAILED;
+	}
+
+	/**
+	 * Prints progress as plain text (results only) or as JSON lines (every
+	 * step, failure and result).
+	 */
+	private static final class Reporter implements ImportListener {
+
+		private final PrintStream out;
+		private final boolean json;
+
+		Reporter(PrintStream out, boolean json) {
+			this.out = out;
+			this.json = json;
+		}
+
+		@Override
+		public synchronized void stepStarted(String symbol, ImportStep step, String message) {
+			if(json) {
+				JsonObject line = event("step", symbol);
+				line.addProperty("step", step.name().toLowerCase());
+				line.addProperty("message", message);
+				out.println(line);
+			}
+		}
+
+		@Override
+		public synchronized void stepFailed(String symbol, ImportStep step, String reason) {
+			if(json) {
+				JsonObject line = event("failure", symbol);
+				line.addProperty("step", step.name().toLowerCase());
+				line.addProperty("reason", reason);
+				out.println(line);
+			}
+		}
+
+		synchronized void result(ImportResult result, int done, int total) {
+			if(json) {
+				JsonObject line = event("result", result.symbol);
+				line.addProperty("status", result.status.name().toLowerCase());
+				line.addProperty("kind", result.kind.name().toLowerCase());
+				line.addProperty("rows", result.rows);
+				if(result.error != null) {
+					line.addProperty("error", result.error);
+				}
+				line.addProperty("done", done);
+				line.addProperty("total", total);
+				out.println(line);
+			}
+			else {
+				String detail = result.rows + " rows";
+				if(result.kind != ImportResult.Kind.UNKNOWN) {
+					detail += ", " + result.kind.name().toLowerCase();
+				}
+				if(result.error != null) {
+					detail += ", " + result.error;
+				}
+				out.printf("[%d/%d] %-8s %-7s (%s)%n", done, total, result.symbol, result.status, detail);
+			}
+		}
+
+		synchronized void summary(int total, int failed, double seconds) {
+			if(json) {
+				JsonObject line = new JsonObject();
+				line.addProperty("event", "summary");
+				line.addProperty("total", total);
+				line.addProperty("succeeded", total - failed);
+				line.addProperty("failed", failed);
+				line.addProperty("seconds", seconds);
+				out.println(line);
+			}
+			else {
+				out.printf("%d symbols, %d failed in %.1f s%n", total, failed, seconds);
+			}
+		}
+
+		private static JsonObject event(String event, String symbol) {
+			JsonObject line = new JsonObject();
+			line.addProperty("event", event);
+			line.addProperty("symbol", symbol);
+			return line;
+		}
+	}
+
+}
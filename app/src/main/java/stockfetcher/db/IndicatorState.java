@@ -0,0 +1,30 @@
+package stockfetcher.db;
+
+import java.time.LocalDate;
+
+/**
+ * Saved rolling state of an indicator, along with the bar it was saved
+ * at so it can be checked against the current prices before resuming.
+ */
+public class IndicatorState {
+
+	/**
+	 * Date of the last bar included in the state.
+	 */
+	public final LocalDate lastDate;
+
+	/**
+	 * Adjusted close of that bar. A split or dividend since rewrites it,
+	 * and with it every adjusted price the state was built from.
+	 */
+	public final double lastAdjClose;
+
+	public final double[] state;
+
+	public IndicatorState(LocalDate lastDate, double lastAdjClose, double[] state) {
+		this.lastDate = lastDate;
+		this.lastAdjClose = lastAdjClose;
+		this.state = state;
+	}
+
+}
@@ -0,0 +1,336 @@
+package stockfetcher.db;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import stockfetcher.api.PriceData;
+
+/**
+ * Immutable, column-oriented price history for a single symbol, ordered
+ * by date. Instances are shared between every chart and analytics user
+ * through the series cache, so the column arrays are never exposed for
+ * modification.
+ */
+public final class PriceSeries {
+
+	private final String symbol;
+	private final long version;
+	private final int[] epochDays;
+	private final double[] open;
+	private final double[] high;
+	private final double[] low;
+	private final double[] close;
+	private final double[] adjClose;
+	private final long[] volume;
+
+	PriceSeries(String symbol, long version, int[] epochDays, double[] open, double[] high, double[] low,
+			double[] close, double[] adjClose, long[] volume) {
+		this.symbol = symbol;
+		this.version = version;
+		this.epochDays = epochDays;
+		this.open = open;
+		this.high = high;
+		this.low = low;
+		this.close = close;
+		this.adjClose = adjClose;
+		this.volume = volume;
+	}
+
+	/**
+	 * Creates a series from the given columns, which must all be the same
+	 * length and ordered by date. The arrays are copied.
+	 * @return new series
+	 */
+	public static PriceSeries of(String symbol, int[] epochDays, double[] open, double[] high, double[] low,
+			double[] close, double[] adjClose, long[] volume) {
+		return new PriceSeries(
+			symbol,
+			0,
+			epochDays.clone(),
+			open.clone(),
+			high.clone(),
+			low.clone(),
+			close.clone(),
+			adjClose.clone(),
+			volume.clone()
+		);
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return version of the symbol's price data this series was loaded from
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return number of bars in this series
+	 */
+	public int size() {
+		return epochDays.length;
+	}
+
+	public boolean isEmpty() {
+		return epochDays.length == 0;
+	}
+
+	public long getEpochDay(int index) {
+		return epochDays[index];
+	}
+
+	public LocalDate getDate(int index) {
+		return LocalDate.ofEpochDay(epochDays[index]);
+	}
+
+	public double getOpen(int index) {
+		return open[index];
+	}
+
+	public double getHigh(int index) {
+		return high[index];
+	}
+
+	public double getLow(int index) {
+		return low[index];
+	}
+
+	public double getClose(int index) {
+		return close[index];
+	}
+
+	public double getAdjClose(int index) {
+		return adjClose[index];
+	}
+
+	public long getVolume(int index) {
+		return volume[index];
+	}
+
+	/**
+	 * Compares prices at the four decimals the database stores them with,
+	 * so a downloaded price matches the same price read back.
+	 * @param a
+	 * @param b
+	 * @return true if the prices are stored as the same value
+	 */
+	public static boolean samePrice(double a, double b) {
+		return Math.round(a * 10_000) == Math.round(b * 10_000);
+	}
+
+	/**
+	 * @return copy of the adjusted close column, for bulk calculations
+	 */
+	public double[] getAdjCloses() {
+		return adjClose.clone();
+	}
+
+	/**
+	 * Writes newly stored bars over this series: bars on days already in
+	 * the series replace them, and the rest are inserted in date order.
+	 * Lets holders of a series apply a price update without reloading it.
+	 * @param bars bars of this symbol in date order
+	 * @return updated series
+	 */
+	public PriceSeries merge(List<PriceData> bars) {
+		int n = size() + bars.size();
+		int[] days = new int[n];
+		double[] o = new double[n];
+		double[] h = new double[n];
+		double[] l = new double[n];
+		double[] c = new double[n];
+		double[] a = new double[n];
+		long[] v = new long[n];
+
+		int size = 0;
+		int i = 0;
+		for(PriceData bar : bars) {
+			int day = (int) bar.date.toEpochDay();
+			while(i < size() && epochDays[i] < day) {
+				days[size] = epochDays[i];
+				o[size] = open[i];
+				h[size] = high[i];
+				l[size] = low[i];
+				c[size] = close[i];
+				a[size] = adjClose[i];
+				v[size] = volume[i];
+				size++;
+				i++;
+			}
+			if(i < size() && epochDays[i] == day) {
+				i++;
+			}
+			days[size] = day;
+			o[size] = bar.open;
+			h[size] = bar.high;
+			l[size] = bar.low;
+			c[size] = bar.close;
+			a[size] = bar.adjClose;
+			v[size] = bar.volume;
+			size++;
+		}
+		int rest = size() - i;
+		System.arraycopy(epochDays, i, days, size, rest);
+		System.arraycopy(open, i, o, size, rest);
+		System.arraycopy(high, i, h, size, rest);
+		System.arraycopy(low, i, l, size, rest);
+		System.arraycopy(close, i, c, size, rest);
+		System.arraycopy(adjClose, i, a, size, rest);
+		System.arraycopy(volume, i, v, size, rest);
+		size += rest;
+
+		return new PriceSeries(
+			symbol,
+			version,
+			Arrays.copyOf(days, size),
+			Arrays.copyOf(o, size),
+			Arrays.copyOf(h, size),
+			Arrays.copyOf(l, size),
+			Arrays.copyOf(c, size),
+			Arrays.copyOf(a, size),
+			Arrays.copyOf(v, size)
+		);
+	}
+
+	/**
+	 * @param from index of the first bar kept
+	 * @return the bars from the given index on
+	 */
+	public PriceSeries tail(int from) {
+		int n = size();
+		return new PriceSeries(
+			symbol,
+			version,
+			Arrays.copyOfRange(epochDays, from, n),
+			Arrays.copyOfRange(open, from, n),
+			Arrays.copyOfRange(high, from, n),
+			Arrays.copyOfRange(low, from, n),
+			Arrays.copyOfRange(close, from, n),
+			Arrays.copyOfRange(adjClose, from, n),
+			Arrays.copyOfRange(volume, from, n)
+		);
+	}
+
+	/**
+	 * Replaces the bars from an index on, e.g. the rolled up bars of the
+	 * periods a price update touched.
+	 * @param from index of the first bar replaced; size() to append
+	 * @param bars replacement bars, after the bars before the index
+	 * @return updated series
+	 */
+	public PriceSeries replaceTail(int from, PriceSeries bars) {
+		int n = from + bars.size();
+		int[] days = Arrays.copyOf(epochDays, n);
+		double[] o = Arrays.copyOf(open, n);
+		double[] h = Arrays.copyOf(high, n);
+		double[] l = Arrays.copyOf(low, n);
+		double[] c = Arrays.copyOf(close, n);
+		double[] a = Arrays.copyOf(adjClose, n);
+		long[] v = Arrays.copyOf(volume, n);
+		System.arraycopy(bars.epochDays, 0, days, from, bars.size());
+		System.arraycopy(bars.open, 0, o, from, bars.size());
+		System.arraycopy(bars.high, 0, h, from, bars.size());
+		System.arraycopy(bars.low, 0, l, from, bars.size());
+		System.arraycopy(bars.close, 0, c, from, bars.size());
+		System.arraycopy(bars.adjClose, 0, a, from, bars.size());
+		System.arraycopy(bars.volume, 0, v, from, bars.size());
+		return new PriceSeries(symbol, version, days, o, h, l, c, a, v);
+	}
+
+	/**
+	 * Combines the bars of each period into one: the first open, highest
+	 * high, lowest low, last closes and total volume. Each combined bar is
+	 * dated on the last trading day of its period.
+	 * <p>
+	 * A split or dividend within a period changes the scale of the raw
+	 * prices, so each day's open, high and low are first put on the scale
+	 * of the period's last close (by the ratio of the days' adjustment
+	 * factors, adjusted close over close). Adjusting a combined bar by its
+	 * own factor then adjusts every day in it correctly.
+	 * @param resolution
+	 * @return rolled up series; this series if the resolution is daily
+	 */
+	public PriceSeries rollUp(Resolution resolution) {
+		if(resolution == Resolution.DAILY) {
+			return this;
+		}
+
+		int n = size();
+		int[] days = new int[n];
+		double[] o = new double[n];
+		double[] h = new double[n];
+		double[] l = new double[n];
+		double[] c = new double[n];
+		double[] a = new double[n];
+		long[] v = new long[n];
+
+		// Adjusted open, high and low, scaled back by the last day's factor
+		// once each period is complete
+		int bars = 0;
+		long period = Long.MIN_VALUE;
+		for(int i = 0; i < n; i++) {
+			long start = resolution.periodStart(LocalDate.ofEpochDay(epochDays[i])).toEpochDay();
+			double factor = adjustment(i);
+			if(start != period) {
+				if(bars > 0) {
+					unadjust(bars - 1, o, h, l, adjustment(i - 1));
+				}
+				period = start;
+				o[bars] = open[i] * factor;
+				h[bars] = high[i] * factor;
+				l[bars] = low[i] * factor;
+				bars++;
+			}
+			int bar = bars - 1;
+			days[bar] = epochDays[i];
+			h[bar] = Math.max(h[bar], high[i] * factor);
+			l[bar] = Math.min(l[bar], low[i] * factor);
+			c[bar] = close[i];
+			a[bar] = adjClose[i];
+			v[bar] += volume[i];
+		}
+		if(bars > 0) {
+			unadjust(bars - 1, o, h, l, adjustment(n - 1));
+		}
+
+		return new PriceSeries(
+			symbol,
+			version,
+			Arrays.copyOf(days, bars),
+			Arrays.copyOf(o, bars),
+			Arrays.copyOf(h, bars),
+			Arrays.copyOf(l, bars),
+			Arrays.copyOf(c, bars),
+			Arrays.copyOf(a, bars),
+			Arrays.copyOf(v, bars)
+		);
+	}
+
+	/**
+	 * @return split and dividend adjustment factor of a bar
+	 */
+	private double adjustment(int index) {
+		return close[index] > 0 && adjClose[index] > 0 ? adjClose[index] / close[index] : 1;
+	}
+
+	private static void unadjust(int bar, double[] o, double[] h, double[] l, double factor) {
+		o[bar] /= factor;
+		h[bar] /= factor;
+		l[bar] /= factor;
+	}
+
+	/**
+	 * Finds the index of the first bar on or after the given day.
+	 * @param epochDay
+	 * @return index of the first bar on or after epochDay; size() if there is none
+	 */
+	public int indexOf(long epochDay) {
+		int index = Arrays.binarySearch(epochDays, (int) epochDay);
+		return index >= 0 ? index : -(index + 1);
+	}
+
+}
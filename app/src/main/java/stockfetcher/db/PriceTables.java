@@ -0,0 +1,121 @@
+package stockfetcher.db;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Which table holds a symbol's prices while the prices table is rebuilt
+ * (see SchemaMigrations). Symbols are copied to prices_new in order of id,
+ * so those up to the checkpoint are read and written there and the rest
+ * stay on prices until their turn.
+ * <p>
+ * Price reads and writes hold the shared lock while they use a table. The
+ * migration takes the exclusive lock to copy a symbol and move the
+ * checkpoint, and again to swap the tables, so a write never lands on a
+ * symbol's old table after it's been copied.
+ */
+final class PriceTables {
+
+	private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+	// Highest symbol id copied to prices_new; -1 while no rebuild is running
+	private static volatile int copiedThrough = -1;
+
+	// Set when a rebuild stops before finishing, so nothing waits for it
+	private static volatile boolean stalled = false;
+
+	private PriceTables() {}
+
+	static Lock shared() {
+		return lock.readLock();
+	}
+
+	static Lock exclusive() {
+		return lock.writeLock();
+	}
+
+	/**
+	 * @return true while a rebuild is running (or stalled)
+	 */
+	static boolean isRebuilding() {
+		return copiedThrough >= 0;
+	}
+
+	/**
+	 * @param symbolId
+	 * @return true if the symbol's prices are on prices_new
+	 */
+	static boolean isCopied(int symbolId) {
+		return symbolId <= copiedThrough;
+	}
+
+	/**
+	 * @param symbolId
+	 * @return table holding the symbol's prices; the caller must hold the
+	 * shared lock while using it
+	 */
+	static String forSymbol(int symbolId) {
+		return isCopied(symbolId) ? "prices_new" : "prices";
+	}
+
+	/**
+	 * @param symbolId
+	 * @return true if the symbol's prices are on the table being replaced,
+	 * whose volumes only hold the INT range
+	 */
+	static boolean isOnOldTable(int symbolId) {
+		int copied = copiedThrough;
+		return copied >= 0 && symbolId > copied;
+	}
+
+	/**
+	 * Waits until a symbol's prices are on the rebuilt table.
+	 * @param symbolId
+	 * @return false if the rebuild stopped before getting to the symbol
+	 * @throws InterruptedException
+	 */
+	static synchronized boolean awaitCopied(int symbolId) throws InterruptedException {
+		while(isOnOldTable(symbolId) && !stalled) {
+			PriceTables.class.wait();
+		}
+		return !isOnOldTable(symbolId);
+	}
+
+	/**
+	 * Starts routing by the checkpoint of a rebuild.
+	 * @param checkpoint highest symbol id already copied; 0 if none
+	 */
+	static synchronized void copying(int checkpoint) {
+		copiedThrough = checkpoint;
+		stalled = false;
+	}
+
+	/**
+	 * Moves the checkpoint; the caller must hold the exclusive lock.
+	 * @param symbolId symbol just copied
+	 */
+	static synchronized void copied(int symbolId) {
+		copiedThrough = symbolId;
+		PriceTables.class.notifyAll();
+	}
+
+	/**
+	 * Ends routing once prices_new has replaced prices; the caller must hold
+	 * the exclusive lock.
+	 */
+	static synchronized void finished() {
+		copiedThrough = -1;
+		PriceTables.class.notifyAll();
+	}
+
+	/**
+	 * Keeps routing by the last checkpoint after a rebuild failed, since
+	 * the copied symbols' latest prices are only on prices_new. It resumes
+	 * from there the next time the migrations run.
+	 */
+	static synchronized void stalled() {
+		stalled = true;
+		PriceTables.class.notifyAll();
+	}
+
+}
@@ -0,0 +1,31 @@
+package stockfetcher.db;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import stockfetcher.api.PriceData;
+
+/**
+ * Notification that price rows were written for a symbol. Carries the
+ * written bars so listeners can apply them without reloading the full
+ * history from the database.
+ */
+public class PriceUpdate {
+
+	public final String symbol;
+	public final LocalDate start;
+	public final LocalDate end;
+
+	/**
+	 * Bars written in this update, ordered by date.
+	 */
+	public final List<PriceData> bars;
+
+	public PriceUpdate(String symbol, List<PriceData> bars) {
+		this.symbol = symbol;
+		this.bars = List.copyOf(bars);
+		this.start = this.bars.get(0).date;
+		this.end = this.bars.get(this.bars.size() - 1).date;
+	}
+
+}
@@ -0,0 +1,36 @@
+package stockfetcher.db;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * How current a symbol's prices are, and when it was last refreshed by the
+ * scheduler and viewed by the user.
+ */
+public class RefreshState {
+
+	public final String symbol;
+
+	/**
+	 * Date of the latest stored price.
+	 */
+	public final LocalDate lastPrice;
+
+	/**
+	 * Market session the scheduler last refreshed the symbol for; null if never.
+	 */
+	public final LocalDate lastSync;
+
+	/**
+	 * When the symbol was last viewed; null if never.
+	 */
+	public final Instant lastViewed;
+
+	public RefreshState(String symbol, LocalDate lastPrice, LocalDate lastSync, Instant lastViewed) {
+		this.symbol = symbol;
+		this.lastPrice = lastPrice;
+		this.lastSync = lastSync;
+		this.lastViewed = lastViewed;
+	}
+
+}
@@ -0,0 +1,64 @@
+package stockfetcher.db;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bar sizes price history can be read at. Anything coarser than daily is
+ * rolled up from the daily bars and stored in the price_rollups table.
+ */
+public enum Resolution {
+
+	DAILY('D', 7.0 / 5),
+	WEEKLY('W', 7),
+	MONTHLY('M', 365.25 / 12),
+	QUARTERLY('Q', 365.25 / 4);
+
+	/**
+	 * Code stored in the resolution column of price_rollups.
+	 */
+	final char code;
+
+	private final double calendarDaysPerBar;
+
+	private Resolution(char code, double calendarDaysPerBar) {
+		this.code = code;
+		this.calendarDaysPerBar = calendarDaysPerBar;
+	}
+
+	/**
+	 * @param date
+	 * @return first day of the period containing the date (Monday for weeks)
+	 */
+	public LocalDate periodStart(LocalDate date) {
+		switch(this) {
+		case WEEKLY:
+			return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+		case MONTHLY:
+			return date.withDayOfMonth(1);
+		case QUARTERLY:
+			return LocalDate.of(date.getYear(), date.getMonth().firstMonthOfQuarter(), 1);
+		case DAILY:
+		default:
+			return date;
+		}
+	}
+
+	/**
+	 * Picks the finest resolution that shows a date range in at most the
+	 * given number of bars.
+	 * @param calendarDays length of the date range
+	 * @param maxBars
+	 * @return resolution to use; QUARTERLY if none fit
+	 */
+	public static Resolution forSpan(long calendarDays, int maxBars) {
+		for(Resolution resolution : values()) {
+			if(calendarDays / resolution.calendarDaysPerBar <= maxBars) {
+				return resolution;
+			}
+		}
+		return QUARTERLY;
+	}
+
+}
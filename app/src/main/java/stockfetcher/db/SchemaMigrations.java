@@ -0,0 +1,498 @@
+package stockfetcher.db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import stockfetcher.metrics.Counter;
+import stockfetcher.metrics.Metrics;
+import stockfetcher.metrics.Timer;
+
+/**
+ * Versioned changes to the schema made after the tables are created
+ * (version 1). Each migration is recorded in the schema_migrations table
+ * when it's finished, so it runs once per database.
+ * <p>
+ * Migrations run on their own connection and may take a long time on a
+ * large database, so table rebuilds copy rows in small transactions (one
+ * symbol at a time) while the old table stays readable. Progress is saved
+ * with each chunk, so a migration interrupted by exiting the application
+ * resumes where it left off. Prices are read and written as usual while
+ * the prices table is rebuilt, on whichever table holds each symbol at the
+ * time (see {@link PriceTables}). On MySQL, a named lock keeps other
+ * processes from migrating at the same time.
+ */
+final class SchemaMigrations {
+
+	private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+
+	private static final String LOCK_NAME = "stockfetcher.schema";
+
+	// Prices before this year share one partition; later years get one
+	// each, created this many years ahead (later rows go to the last
+	// partition until it's split)
+	private static final int FIRST_PARTITION_YEAR = 2000;
+	private static final int PARTITION_YEARS_AHEAD = 5;
+
+	private static final Timer chunks = Metrics.timer("db.migration.chunk");
+	private static final Counter copiedRows = Metrics.counter("db.migration.rows");
+
+	@FunctionalInterface
+	private interface Step {
+		void apply(SchemaMigrations migrations, Migration migration) throws SQLException;
+	}
+
+	private static final class Migration {
+		final int version;
+		final String description;
+		final Step step;
+
+		Migration(int version, String description, Step step) {
+			this.version = version;
+			this.description = description;
+			this.step = step;
+		}
+	}
+
+	private static final int REBUILD_PRICES = 2;
+
+	private static final List<Migration> MIGRATIONS = List.of(
+		new Migration(REBUILD_PRICES, "Rebuild prices with BIGINT volume, partitioned by year", SchemaMigrations::rebuildPrices),
+		new Migration(3, "Covering index for closing prices", SchemaMigrations::addCloseIndex)
+	);
+
+	/**
+	 * Schema version once every migration is applied.
+	 */
+	static final int LATEST = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+	private final Connection conn;
+	private final boolean mysql;
+
+	private SchemaMigrations(Connection conn) throws SQLException {
+		this.conn = conn;
+		this.mysql = conn.getMetaData().getDatabaseProductName().equals("MySQL");
+	}
+
+	/**
+	 * Checks whether any migration hasn't been applied to a database.
+	 * @param conn
+	 * @return
+	 * @throws SQLException
+	 */
+	static boolean isPending(Connection conn) throws SQLException {
+		return !new SchemaMigrations(conn).pending().isEmpty();
+	}
+
+	/**
+	 * Routes price reads and writes by the checkpoint of a pending rebuild
+	 * of the prices table, if any. Called before the migrations start, so
+	 * prices of symbols copied before the last exit are only written to the
+	 * rebuilt table.
+	 * @param conn
+	 * @throws SQLException
+	 */
+	static void routePrices(Connection conn) throws SQLException {
+		SchemaMigrations migrations = new SchemaMigrations(conn);
+		for(Migration migration : migrations.pending()) {
+			if(migration.version == REBUILD_PRICES && migrations.columnType("prices", "volume") != Types.BIGINT) {
+				PriceTables.copying(migrations.checkpoint(migration));
+			}
+		}
+	}
+
+	/**
+	 * Applies every pending migration on a new connection, waiting first
+	 * for any other process migrating the same database.
+	 * @param dataSource
+	 * @throws SQLException
+	 */
+	static void run(DataSource dataSource) throws SQLException {
+		try (
+			Connection conn = dataSource.getConnection();
+		) {
+			SchemaMigrations migrations = new SchemaMigrations(conn);
+			migrations.lock();
+			try {
+				for(Migration migration : migrations.pending()) {
+					migrations.apply(migration);
+				}
+				migrations.addPartitions();
+			} finally {
+				migrations.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Adds partitions for the coming years on a new connection (see
+	 * addPartitions()). Running the migrations does this too, but an
+	 * already migrated database only gets new years from here, so it's
+	 * called on every start.
+	 * @param dataSource
+	 * @throws SQLException
+	 */
+	static void extendPartitions(DataSource dataSource) throws SQLException {
+		try (
+			Connection conn = dataSource.getConnection();
+		) {
+			SchemaMigrations migrations = new SchemaMigrations(conn);
+			if(!migrations.mysql) {
+				return;
+			}
+			migrations.lock();
+			try {
+				migrations.addPartitions();
+			} finally {
+				migrations.unlock();
+			}
+		}
+	}
+
+	private List<Migration> pending() throws SQLException {
+		try (
+			Statement stmt = conn.createStatement();
+		) {
+			stmt.execute(
+				"CREATE TABLE IF NOT EXISTS schema_migrations("
+				+ "		version INT NOT NULL,"
+				+ "		description VARCHAR(100) NOT NULL,"
+				+ "		applied_at TIMESTAMP NULL,"
+				+ "		checkpoint INT NULL,"
+				+ "		PRIMARY KEY (version)"
+				+ ")"
+			);
+
+			Set<Integer> applied = new HashSet<>();
+			ResultSet rs = stmt.executeQuery("SELECT version FROM schema_migrations WHERE applied_at IS NOT NULL");
+			while(rs.next()) {
+				applied.add(rs.getInt(1));
+			}
+
+			var pending = new ArrayList<Migration>();
+			for(Migration migration : MIGRATIONS) {
+				if(!applied.contains(migration.version)) {
+					pending.add(migration);
+				}
+			}
+			return pending;
+		}
+	}
+
+	private void apply(Migration migration) throws SQLException {
+		logger.info("Migrating database to version {}: {}", migration.version, migration.description);
+		long startNanos = System.nanoTime();
+		try (
+			PreparedStatement start = conn.prepareStatement(
+					"INSERT INTO schema_migrations (version, description) VALUES (?, ?) "
+					+ "ON DUPLICATE KEY UPDATE description = VALUES(description)");
+			PreparedStatement finish = conn.prepareStatement(
+					"UPDATE schema_migrations SET applied_at = CURRENT_TIMESTAMP, checkpoint = NULL WHERE version = ?");
+		) {
+			start.setInt(1, migration.version);
+			start.setString(2, migration.description);
+			start.executeUpdate();
+
+			migration.step.apply(this, migration);
+
+			finish.setInt(1, migration.version);
+			finish.executeUpdate();
+		} finally {
+			Metrics.timer("db.migration").recordSince(startNanos);
+		}
+		logger.info("Database migrated to version {}.", migration.version);
+	}
+
+	/**
+	 * Version 2: copies prices into a new table with a BIGINT volume (the
+	 * INT column overflows for the most traded symbols) and, on MySQL,
+	 * range partitions by date. Partitioning keeps each partition's index
+	 * small, so inserts of recent days only touch the current year's
+	 * partition and reads from a start date skip older ones.
+	 * <p>
+	 * MySQL doesn't allow foreign keys on partitioned tables, so there the
+	 * new table no longer references symbols (prices are only inserted
+	 * for existing symbol ids).
+	 */
+	private void rebuildPrices(Migration migration) throws SQLException {
+		try (
+			Statement stmt = conn.createStatement();
+		) {
+			// Finished apart from being recorded
+			if(columnType("prices", "volume") == Types.BIGINT) {
+				stmt.execute("DROP TABLE IF EXISTS prices_old");
+				return;
+			}
+
+			int checkpoint = checkpoint(migration);
+			if(checkpoint == 0) {
+				stmt.execute("DROP TABLE IF EXISTS prices_new");
+				stmt.execute(
+					"CREATE TABLE prices_new("
+					+ "		symbol_id INT NOT NULL,"
+					+ "		date DATE NOT NULL,"
+					+ "		open DECIMAL(13, 4) NOT NULL,"
+					+ "		high DECIMAL(13, 4) NOT NULL,"
+					+ "		low DECIMAL(13, 4) NOT NULL,"
+					+ "		close DECIMAL(13, 4) NOT NULL,"
+					+ "		adjusted_close DECIMAL(13, 4) NOT NULL,"
+					+ "		volume BIGINT NOT NULL,"
+					+ "		PRIMARY KEY (symbol_id, date)"
+					+ (mysql ? ")" + partitions(LocalDate.now().getYear() + PARTITION_YEARS_AHEAD)
+							: ",	FOREIGN KEY (symbol_id) REFERENCES symbols(symbol_id))")
+				);
+			}
+			else {
+				logger.info("Resuming after symbol id {}.", checkpoint);
+			}
+
+			PriceTables.copying(checkpoint);
+			checkpoint = copyPrices(migration, checkpoint);
+
+			// Symbols added while copying are copied before the swap, with
+			// writes held off so none land on the old table in between
+			PriceTables.exclusive().lock();
+			try {
+				copyPrices(migration, checkpoint);
+				if(mysql) {
+					stmt.execute("RENAME TABLE prices TO prices_old, prices_new TO prices");
+				}
+				else {
+					stmt.execute("ALTER TABLE prices RENAME TO prices_old");
+					stmt.execute("ALTER TABLE prices_new RENAME TO prices");
+				}
+				PriceTables.finished();
+			} finally {
+				PriceTables.exclusive().unlock();
+			}
+			stmt.execute("DROP TABLE prices_old");
+		}
+	}
+
+	/**
+	 * Copies prices_new from prices one symbol at a time, after the given
+	 * symbol id. Each symbol is copied under the exclusive lock of
+	 * PriceTables and committed with the checkpoint, after which its prices
+	 * are read and written on prices_new.
+	 * @return new checkpoint
+	 */
+	private int copyPrices(Migration migration, int checkpoint) throws SQLException {
+		var symbolIds = new ArrayList<Integer>();
+		try (
+			PreparedStatement prep = conn.prepareStatement(
+					"SELECT symbol_id FROM symbols WHERE symbol_id > ? ORDER BY symbol_id");
+		) {
+			prep.setInt(1, checkpoint);
+			ResultSet rs = prep.executeQuery();
+			while(rs.next()) {
+				symbolIds.add(rs.getInt(1));
+			}
+		}
+
+		int isolation = conn.getTransactionIsolation();
+		// Read committed so copying doesn't lock the rows being read
+		conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		conn.setAutoCommit(false);
+		try (
+			PreparedStatement copy = conn.prepareStatement(
+					"INSERT INTO prices_new (symbol_id, date, open, high, low, close, adjusted_close, volume) "
+					+ "SELECT symbol_id, date, open, high, low, close, adjusted_close, volume "
+					+ "FROM prices WHERE symbol_id = ?");
+			PreparedStatement save = conn.prepareStatement(
+					"UPDATE schema_migrations SET checkpoint = ? WHERE version = ?");
+		) {
+			long rows = 0;
+			for(int i = 0; i < symbolIds.size(); i++) {
+				int symbolId = symbolIds.get(i);
+				long start = System.nanoTime();
+				PriceTables.exclusive().lock();
+				try {
+					copy.setInt(1, symbolId);
+					int copied = copy.executeUpdate();
+					save.setInt(1, symbolId);
+					save.setInt(2, migration.version);
+					save.executeUpdate();
+					conn.commit();
+					PriceTables.copied(symbolId);
+
+					copiedRows.add(copied);
+					rows += copied;
+				} finally {
+					PriceTables.exclusive().unlock();
+					chunks.recordSince(start);
+				}
+				if((i + 1) % 500 == 0) {
+					logger.info("Copied {} of {} symbols ({} rows).", i + 1, symbolIds.size(), rows);
+				}
+			}
+			if(!symbolIds.isEmpty()) {
+				logger.info("Copied {} symbols ({} rows).", symbolIds.size(), rows);
+			}
+			return symbolIds.isEmpty() ? checkpoint : symbolIds.get(symbolIds.size() - 1);
+		} catch (SQLException e) {
+			// The copied symbols keep being written to prices_new, so the
+			// checkpoint stays for the next run to resume from
+			conn.rollback();
+			PriceTables.stalled();
+			throw e;
+		} finally {
+			conn.setAutoCommit(true);
+			conn.setTransactionIsolation(isolation);
+		}
+	}
+
+	/**
+	 * Version 3: adds a covering index for reads of closing prices over a
+	 * date range, which can then be answered from the index instead of the
+	 * full rows. Built online on MySQL.
+	 */
+	private void addCloseIndex(Migration migration) throws SQLException {
+		if(hasIndex("prices", "ix_prices_close")) {
+			return;
+		}
+		try (
+			Statement stmt = conn.createStatement();
+		) {
+			stmt.execute("CREATE INDEX ix_prices_close ON prices (symbol_id, date, adjusted_close)"
+					+ (mysql ? " ALGORITHM=INPLACE LOCK=NONE" : ""));
+		}
+	}
+
+	/**
+	 * Splits yearly partitions off the last one (MAXVALUE) so there are
+	 * always some for the coming years. Empty partitions are split
+	 * without copying.
+	 */
+	private void addPartitions() throws SQLException {
+		if(!mysql) {
+			return;
+		}
+
+		int lastYear = 0;
+		try (
+			PreparedStatement prep = conn.prepareStatement(
+					"SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+					+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'prices' AND PARTITION_NAME LIKE 'p____'");
+		) {
+			ResultSet rs = prep.executeQuery();
+			while(rs.next()) {
+				lastYear = Math.max(lastYear, Integer.parseInt(rs.getString(1).substring(1)));
+			}
+		}
+		int wanted = LocalDate.now().getYear() + PARTITION_YEARS_AHEAD;
+		if(lastYear == 0 || lastYear >= wanted) {
+			return;
+		}
+
+		StringBuilder ddl = new StringBuilder("ALTER TABLE prices REORGANIZE PARTITION pmax INTO (");
+		for(int year = lastYear + 1; year <= wanted; year++) {
+			ddl.append(partition(year)).append(", ");
+		}
+		ddl.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+		try (
+			Statement stmt = conn.createStatement();
+		) {
+			stmt.execute(ddl.toString());
+		}
+		logger.info("Added price partitions through {}.", wanted);
+	}
+
+	private static String partitions(int lastYear) {
+		StringBuilder ddl = new StringBuilder(" PARTITION BY RANGE COLUMNS(date) (");
+		ddl.append("PARTITION p").append(FIRST_PARTITION_YEAR - 1)
+				.append(" VALUES LESS THAN ('").append(FIRST_PARTITION_YEAR).append("-01-01'), ");
+		for(int year = FIRST_PARTITION_YEAR; year <= lastYear; year++) {
+			ddl.append(partition(year)).append(", ");
+		}
+		ddl.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+		return ddl.toString();
+	}
+
+	private static String partition(int year) {
+		return "PARTITION p" + year + " VALUES LESS THAN ('" + (year + 1) + "-01-01')";
+	}
+
+	private int checkpoint(Migration migration) throws SQLException {
+		try (
+			PreparedStatement prep = conn.prepareStatement("SELECT checkpoint FROM schema_migrations WHERE version = ?");
+		) {
+			prep.setInt(1, migration.version);
+			ResultSet rs = prep.executeQuery();
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	private int columnType(String table, String column) throws SQLException {
+		try (
+			ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column);
+		) {
+			return rs.next() ? rs.getInt("DATA_TYPE") : Types.NULL;
+		}
+	}
+
+	private boolean hasIndex(String table, String index) throws SQLException {
+		DatabaseMetaData meta = conn.getMetaData();
+		try (
+			ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, false);
+		) {
+			while(rs.next()) {
+				if(index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private void lock() throws SQLException {
+		if(!mysql) {
+			return;
+		}
+		if(getLock(0)) {
+			return;
+		}
+		logger.info("Waiting for another process migrating the database...");
+		getLock(-1);
+	}
+
+	/**
+	 * @param timeout seconds; negative to wait indefinitely
+	 */
+	private boolean getLock(int timeout) throws SQLException {
+		try (
+			PreparedStatement prep = conn.prepareStatement("SELECT GET_LOCK(?, ?)");
+		) {
+			prep.setString(1, LOCK_NAME);
+			prep.setInt(2, timeout);
+			ResultSet rs = prep.executeQuery();
+			return rs.next() && rs.getInt(1) == 1;
+		}
+	}
+
+	private void unlock() throws SQLException {
+		if(!mysql) {
+			return;
+		}
+		try (
+			PreparedStatement prep = conn.prepareStatement("SELECT RELEASE_LOCK(?)");
+		) {
+			prep.setString(1, LOCK_NAME);
+			prep.executeQuery();
+		}
+	}
+
+}
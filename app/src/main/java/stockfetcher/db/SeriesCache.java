@@ -0,0 +1,127 @@
+package stockfetcher.db;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import stockfetcher.metrics.Counter;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Application-wide LRU cache of price series. The cache is bounded by
+ * the total number of bars held rather than the number of series, since
+ * a single index can hold decades of history. Each symbol carries a
+ * version which is bumped whenever its price data is written; series
+ * loaded against an older version are never stored.
+ */
+final class SeriesCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(SeriesCache.class);
+
+	private final long maxBars;
+	private final BiFunction<String, Long, PriceSeries> loader;
+	private final Counter hits;
+	private final Counter misses;
+
+	private final LinkedHashMap<String, PriceSeries> series = new LinkedHashMap<>(16, 0.75f, true);
+	private final HashMap<String, Long> versions = new HashMap<>();
+	private long cachedBars = 0;
+
+	/**
+	 * @param name name of the cache in metrics
+	 * @param maxBars maximum number of bars held across all cached series
+	 * @param loader loads the series for a (symbol, version) pair on a cache miss
+	 */
+	SeriesCache(String name, long maxBars, BiFunction<String, Long, PriceSeries> loader) {
+		this.maxBars = maxBars;
+		this.loader = loader;
+		this.hits = Metrics.counter("db.cache." + name + ".hits");
+		this.misses = Metrics.counter("db.cache." + name + ".misses");
+	}
+
+	/**
+	 * Returns the current series for the given symbol, loading it if it is
+	 * not cached or if it has been invalidated.
+	 * @param symbol
+	 * @return price series for the symbol; null if it could not be loaded
+	 */
+	PriceSeries get(String symbol) {
+		long version;
+		synchronized(this) {
+			PriceSeries cached = series.get(symbol);
+			if(cached != null) {
+				hits.increment();
+				return cached;
+			}
+			version = getVersion(symbol);
+		}
+		misses.increment();
+
+		// Load outside the lock so hits for other symbols aren't blocked
+		PriceSeries loaded = loader.apply(symbol, version);
+		if(loaded == null) {
+			return null;
+		}
+
+		synchronized(this) {
+			// Only store the series if nothing was written while loading
+			if(getVersion(symbol) == version) {
+				PriceSeries previous = series.put(symbol, loaded);
+				if(previous != null) {
+					cachedBars -= previous.size();
+				}
+				cachedBars += loaded.size();
+				evict(symbol);
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Returns the series for the given symbol only if it's cached.
+	 * @param symbol
+	 * @return cached price series; null if not cached
+	 */
+	synchronized PriceSeries peek(String symbol) {
+		return series.get(symbol);
+	}
+
+	/**
+	 * Drops the cached series for the given symbol and bumps its version.
+	 * @param symbol
+	 */
+	synchronized void invalidate(String symbol) {
+		versions.put(symbol, getVersion(symbol) + 1);
+		PriceSeries removed = series.remove(symbol);
+		if(removed != null) {
+			cachedBars -= removed.size();
+		}
+	}
+
+	synchronized long getVersion(String symbol) {
+		return versions.getOrDefault(symbol, 0L);
+	}
+
+	/**
+	 * Evicts least recently used series until the cache is within its
+	 * bound. The series just inserted is always kept.
+	 */
+	private void evict(String keep) {
+		Iterator<Map.Entry<String, PriceSeries>> iter = series.entrySet().iterator();
+		while(cachedBars > maxBars && iter.hasNext()) {
+			Map.Entry<String, PriceSeries> eldest = iter.next();
+			if(eldest.getKey().equals(keep)) {
+				continue;
+			}
+			logger.debug("Evicting cached price series for {} ({} bars).", eldest.getKey(), eldest.getValue().size());
+			cachedBars -= eldest.getValue().size();
+			iter.remove();
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package stockfetcher.db;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Small local files that let startup skip or get ahead of database work:
+ * the schema version last confirmed for each database, and a snapshot of
+ * the tracked symbols to show before the database is connected. Kept in
+ * {@code ~/.stockfetcher} (or the directory given by
+ * {@code -Dstockfetcher.home}). Nothing here is required; missing or
+ * unreadable files only mean the work isn't skipped.
+ */
+public final class StartupCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(StartupCache.class);
+
+	private static final String SCHEMA_FILE = "schema";
+	private static final String SYMBOLS_FILE = "symbols";
+
+	private StartupCache() {}
+
+	/**
+	 * Checks whether the schema of a database was confirmed at a version.
+	 * @param url database url
+	 * @param version
+	 * @return
+	 */
+	public static boolean isSchemaCurrent(String url, int version) {
+		return readLines(SCHEMA_FILE).contains(version + " " + url);
+	}
+
+	/**
+	 * Records that the schema of a database is at a version.
+	 * @param url database url
+	 * @param version
+	 */
+	public static void markSchemaCurrent(String url, int version) {
+		var lines = new ArrayList<String>();
+		for(String line : readLines(SCHEMA_FILE)) {
+			if(!line.endsWith(" " + url)) {
+				lines.add(line);
+			}
+		}
+		lines.add(version + " " + url);
+		writeLines(SCHEMA_FILE, lines);
+	}
+
+	/**
+	 * Reads the tracked symbols saved by the last run.
+	 * @return symbols in sorted order; empty if none were saved
+	 */
+	public static List<String> readSymbols() {
+		return readLines(SYMBOLS_FILE);
+	}
+
+	/**
+	 * Saves the tracked symbols for the next startup.
+	 * @param symbols
+	 */
+	public static void writeSymbols(Collection<String> symbols) {
+		writeLines(SYMBOLS_FILE, new ArrayList<>(new TreeSet<>(symbols)));
+	}
+
+	private static Path directory() {
+		String home = System.getProperty("stockfetcher.home");
+		if(home != null) {
+			return Paths.get(home);
+		}
+		return Paths.get(System.getProperty("user.home"), ".stockfetcher");
+	}
+
+	private static List<String> readLines(String name) {
+		Path file = directory().resolve(name);
+		if(!Files.isRegularFile(file)) {
+			return List.of();
+		}
+		try {
+			return Files.readAllLines(file, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			logger.warn("Unable to read {}: {}", file, e.getMessage());
+			return List.of();
+		}
+	}
+
+	private static void writeLines(String name, List<String> lines) {
+		Path directory = directory();
+		try {
+			Files.createDirectories(directory);
+
+			// Written aside and moved into place, so a crash mid-write
+			// doesn't leave a truncated file
+			Path temp = Files.createTempFile(directory, name, ".tmp");
+			Files.write(temp, lines, StandardCharsets.UTF_8);
+			Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn("Unable to write {}: {}", directory.resolve(name), e.getMessage());
+		}
+	}
+
+}
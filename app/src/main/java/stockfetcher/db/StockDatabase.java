@@ -1,15 +1,30 @@
 package stockfetcher.db;
 
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +38,10 @@ import javafx.util.Pair;
 import stockfetcher.api.CompanyData;
 import stockfetcher.api.EtfData;
 import stockfetcher.api.PriceData;
+import stockfetcher.jfr.PriceBatchPersistEvent;
+import stockfetcher.jfr.SeriesLoadEvent;
+import stockfetcher.metrics.Counter;
+import stockfetcher.metrics.Metrics;
 
 public final class StockDatabase {
 
@@ -35,20 +54,62 @@ public final class StockDatabase {
 	private static final int DB_PORT = 3306;
 	private static final String DB_NAME = "stock_data";
 	
+	// Version after createSchema() and every migration; existing databases
+	// are checked again (and migrated) whenever it changes
+	private static final int SCHEMA_VERSION = SchemaMigrations.LATEST;
+	
+	// Upper bound on the number of price bars held by the series cache
+	private static final long MAX_CACHED_BARS = 1_000_000;
+	
+	// Memory held by one bar of a price series (day, five prices, volume)
+	private static final int SERIES_BAR_BYTES = Integer.BYTES + 5 * Double.BYTES + Long.BYTES;
+	
+	// Reads share one connection. Writes get their own and take turns on
+	// the write lock, so a transaction (e.g. replacing ETF holdings) never
+	// takes in statements from other threads, and no read runs inside one.
 	private static Connection conn = null;
+	private static Connection writeConn = null;
+	private static final Object writeLock = new Object();
 	
-	private static final HashMap<String, Integer> symbolIdMap = new HashMap<>();
-	private static final HashMap<String, Integer> companyIdMap = new HashMap<>();
-	private static final HashMap<String, Integer> etfIdMap = new HashMap<>();
+	// Runs change notifications (tracked symbols, listeners)
+	private static Executor notifier = Platform::runLater;
+	
+	private static final Counter errors = Metrics.counter("db.errors");
+	
+	// Looked up from the FX thread, loaders, and the refresh scheduler
+	private static final ConcurrentHashMap<String, Integer> symbolIdMap = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, Integer> companyIdMap = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, Integer> etfIdMap = new ConcurrentHashMap<>();
 	
 	private static ObservableSet<String> trackedSymbols = FXCollections.observableSet();
 	
+	private static final SeriesCache seriesCache = new SeriesCache("daily", MAX_CACHED_BARS, StockDatabase::loadPriceSeries);
+	private static final SeriesCache closeCache = new SeriesCache("close", MAX_CACHED_BARS, StockDatabase::loadCloseSeries);
+	private static final EnumMap<Resolution, SeriesCache> rollupCaches = new EnumMap<>(Resolution.class);
+	static {
+		for(Resolution resolution : Resolution.values()) {
+			if(resolution != Resolution.DAILY) {
+				rollupCaches.put(resolution, new SeriesCache(resolution.name().toLowerCase(), MAX_CACHED_BARS / 4,
+						(symbol, version) -> loadRollupSeries(symbol, resolution, version)));
+			}
+		}
+	}
+	
+	private static final CopyOnWriteArrayList<Consumer<PriceUpdate>> priceUpdateListeners = new CopyOnWriteArrayList<>();
+	private static final CopyOnWriteArrayList<Consumer<String>> symbolInfoListeners = new CopyOnWriteArrayList<>();
+	
 	private StockDatabase() {}
 	
 	public static void initialize() throws SQLException {
-		logger.info("Connecting to stock data database...");
-		
-		// Establish the database connection.
+		initialize(Platform::runLater);
+	}
+	
+	/**
+	 * Connects to the MySQL database and creates any missing tables.
+	 * @param notifier runs tracked symbol updates and listener calls
+	 * @throws SQLException
+	 */
+	public static void initialize(Executor notifier) throws SQLException {
 		MysqlDataSource dataSource = new MysqlDataSource();
 		dataSource.setUser(DB_USERNAME);
 		dataSource.setPassword(DB_PASSWORD);
@@ -56,11 +117,94 @@ public final class StockDatabase {
 		dataSource.setDatabaseName(DB_NAME);
 		dataSource.setPort(DB_PORT);
 		dataSource.setCreateDatabaseIfNotExist(true);
+		initialize(dataSource, notifier);
+	}
+	
+	/**
+	 * Connects to the given database and creates any missing tables.
+	 * Change notifications are run through the notifier, so the database
+	 * can be used without the JavaFX toolkit (e.g. from benchmarks with an
+	 * embedded database in MySQL mode).
+	 * @param dataSource
+	 * @param notifier runs tracked symbol updates and listener calls
+	 * @throws SQLException
+	 */
+	public static void initialize(DataSource dataSource, Executor notifier) throws SQLException {
+		logger.info("Connecting to stock data database...");
+		
+		// Establish the database connection.
+		StockDatabase.notifier = notifier;
 		conn = dataSource.getConnection();
+		writeConn = dataSource.getConnection();
 		
 		logger.info("Connection successful!");
 		
-		// Create database tables if they are not present		
+		// The schema is only checked the first time this database is seen
+		// at the current version. Loading the tracked symbols reads the
+		// tables anyway, so a database recreated since is still caught.
+		String url = conn.getMetaData().getURL();
+		if(StartupCache.isSchemaCurrent(url, SCHEMA_VERSION)) {
+			try {
+				updateTrackedSymbolsList();
+				extendPartitions(dataSource);
+				return;
+			} catch (SQLException e) {
+				logger.warn("Unable to read tables, checking schema: {}", e.getMessage());
+			}
+		}
+		
+		createSchema();
+		backfillPriceSummary();
+		updateTrackedSymbolsList();
+		
+		if(!SchemaMigrations.isPending(conn)) {
+			StartupCache.markSchemaCurrent(url, SCHEMA_VERSION);
+			extendPartitions(dataSource);
+			return;
+		}
+		
+		// Migrations can take a long time on a large database, so they run
+		// in the background while prices are read and written as usual
+		SchemaMigrations.routePrices(conn);
+		Thread migration = new Thread(()->{
+			try {
+				SchemaMigrations.run(dataSource);
+				StartupCache.markSchemaCurrent(url, SCHEMA_VERSION);
+			} catch (SQLException e) {
+				PriceTables.stalled();
+				errors.increment();
+				logger.error("Error while migrating the database: {}", e.getMessage());
+			}
+		}, "schema-migration");
+		migration.setDaemon(true);
+		migration.start();
+	}
+	
+	/**
+	 * Adds price partitions for the coming years in the background (see
+	 * SchemaMigrations.extendPartitions()). Pending migrations do it when
+	 * they finish instead.
+	 * @param dataSource
+	 */
+	private static void extendPartitions(DataSource dataSource) {
+		Thread partitions = new Thread(()->{
+			try {
+				SchemaMigrations.extendPartitions(dataSource);
+			} catch (SQLException e) {
+				errors.increment();
+				logger.error("Error while adding price partitions: {}", e.getMessage());
+			}
+		}, "price-partitions");
+		partitions.setDaemon(true);
+		partitions.start();
+	}
+	
+	/**
+	 * Creates any missing tables.
+	 * @throws SQLException
+	 */
+	private static void createSchema() throws SQLException {
+		logger.info("Checking database schema...");
 		Statement stmt = conn.createStatement();
 		
 		stmt.execute(
@@ -107,6 +251,16 @@ public final class StockDatabase {
 			+ ")"
 		);
 		
+		stmt.execute(
+			"CREATE TABLE IF NOT EXISTS etf_sectors("
+			+ "		etf_id INT NOT NULL,"
+			+ "		sector VARCHAR(100) NOT NULL,"
+			+ "		percent DECIMAL(5, 2),"
+			+ "		CONSTRAINT pk_sector PRIMARY KEY (etf_id, sector),"
+			+ "		FOREIGN KEY (etf_id) REFERENCES etfs(etf_id)"
+			+ ")"
+		);
+		
 		stmt.execute(
 			"CREATE TABLE IF NOT EXISTS prices("
 			+ "		symbol_id INT NOT NULL,"
@@ -122,13 +276,103 @@ public final class StockDatabase {
 			+ ")"
 		);
 		
-		updateTrackedSymbolsList();
+		// One row per symbol with price data, maintained as prices are
+		// inserted so the tracked list never has to scan the prices table
+		stmt.execute(
+			"CREATE TABLE IF NOT EXISTS price_summary("
+			+ "		symbol_id INT NOT NULL,"
+			+ "		first_date DATE NOT NULL,"
+			+ "		last_date DATE NOT NULL,"
+			+ "		PRIMARY KEY (symbol_id),"
+			+ "		FOREIGN KEY (symbol_id) REFERENCES symbols(symbol_id)"
+			+ ")"
+		);
+		
+		// Weekly, monthly, and quarterly bars rolled up from prices, so long
+		// date ranges can be charted without reading every daily row
+		stmt.execute(
+			"CREATE TABLE IF NOT EXISTS price_rollups("
+			+ "		symbol_id INT NOT NULL,"
+			+ "		resolution CHAR(1) NOT NULL,"
+			+ "		period_start DATE NOT NULL,"
+			+ "		last_date DATE NOT NULL,"
+			+ "		open DECIMAL(13, 4) NOT NULL,"
+			+ "		high DECIMAL(13, 4) NOT NULL,"
+			+ "		low DECIMAL(13, 4) NOT NULL,"
+			+ "		close DECIMAL(13, 4) NOT NULL,"
+			+ "		adjusted_close DECIMAL(13, 4) NOT NULL,"
+			+ "		volume BIGINT NOT NULL,"
+			+ "		CONSTRAINT pk_price_rollup PRIMARY KEY (symbol_id, resolution, period_start),"
+			+ "		FOREIGN KEY (symbol_id) REFERENCES symbols(symbol_id)"
+			+ ")"
+		);
+		
+		// Saved rolling state for indicators, so they can be resumed
+		stmt.execute(
+			"CREATE TABLE IF NOT EXISTS indicator_state("
+			+ "		symbol_id INT NOT NULL,"
+			+ "		indicator VARCHAR(50) NOT NULL,"
+			+ "		last_date DATE NOT NULL,"
+			+ "		last_adjusted_close DOUBLE NOT NULL,"
+			+ "		state MEDIUMBLOB NOT NULL,"
+			+ "		CONSTRAINT pk_indicator_state PRIMARY KEY (symbol_id, indicator),"
+			+ "		FOREIGN KEY (symbol_id) REFERENCES symbols(symbol_id)"
+			+ ")"
+		);
+		
+		// When each symbol was last viewed and last refreshed by the
+		// scheduler, so missed refreshes can be caught up at startup
+		stmt.execute(
+			"CREATE TABLE IF NOT EXISTS refresh_state("
+			+ "		symbol_id INT NOT NULL,"
+			+ "		last_viewed TIMESTAMP NULL,"
+			+ "		last_sync DATE NULL,"
+			+ "		PRIMARY KEY (symbol_id),"
+			+ "		FOREIGN KEY (symbol_id) REFERENCES symbols(symbol_id)"
+			+ ")"
+		);
 	}
 	
 	public static ObservableSet<String> trackedSymbolsProperty() {
 		return trackedSymbols;
 	}
 	
+	/**
+	 * Registers a listener to be notified (on the FX thread) whenever price
+	 * rows are written for a symbol.
+	 * @param listener
+	 */
+	public static void addPriceUpdateListener(Consumer<PriceUpdate> listener) {
+		priceUpdateListeners.add(listener);
+	}
+	
+	public static void removePriceUpdateListener(Consumer<PriceUpdate> listener) {
+		priceUpdateListeners.remove(listener);
+	}
+	
+	/**
+	 * Registers a listener to be notified (on the FX thread) with the symbol
+	 * whenever company or ETF data is written for it.
+	 * @param listener
+	 */
+	public static void addSymbolInfoListener(Consumer<String> listener) {
+		symbolInfoListeners.add(listener);
+	}
+	
+	public static void removeSymbolInfoListener(Consumer<String> listener) {
+		symbolInfoListeners.remove(listener);
+	}
+	
+	private static void fireSymbolInfoChanged(String symbol) {
+		if(!symbolInfoListeners.isEmpty()) {
+			notifier.execute(()->{
+				for(var listener : symbolInfoListeners) {
+					listener.accept(symbol);
+				}
+			});
+		}
+	}
+	
 	public static Connection getConnection() {
 		return conn;
 	}
@@ -140,13 +384,15 @@ public final class StockDatabase {
 	 * @return symbol id; -1 if error
 	 */
 	public static int getSymbolId(String symbol) {
-		if(symbolIdMap.containsKey(symbol)) {
-			return symbolIdMap.get(symbol);
+		Integer cached = symbolIdMap.get(symbol);
+		if(cached != null) {
+			return cached;
 		}
 		
 		String sql = String.format("SELECT symbol_id FROM symbols WHERE symbol = '%s'", symbol);
 		int symbolId = -1;
 		
+		long start = System.nanoTime();
 		try {
 			Statement stmt = conn.createStatement();
 			ResultSet rs = stmt.executeQuery(sql);
@@ -156,7 +402,10 @@ public final class StockDatabase {
 				symbolIdMap.put(symbol, symbolId);
 			}
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Unable to get symbol id for symbol {}: {}.", symbol, e.getMessage());
+		} finally {
+			Metrics.timer("db.query.symbol_id").recordSince(start);
 		}
 		
 		return symbolId;
@@ -170,13 +419,17 @@ public final class StockDatabase {
 	public static boolean isSymbolPresent(String symbol) {
 		String sql = String.format("SELECT * FROM symbols WHERE symbol = '%s'", symbol);
 		Statement stmt;
+		long start = System.nanoTime();
 		try {
 			stmt = conn.createStatement();
 			ResultSet rs = stmt.executeQuery(sql);
 			return rs.isBeforeFirst();
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error checking symbol present in db: {}", e.getMessage());
 			return false;
+		} finally {
+			Metrics.timer("db.query.symbol_present").recordSince(start);
 		}
 	}
 	
@@ -187,8 +440,9 @@ public final class StockDatabase {
 	 * @return company id; -1 if error
 	 */
 	public static int getCompanyId(String symbol) {
-		if(companyIdMap.containsKey(symbol)) {
-			return companyIdMap.get(symbol);
+		Integer cached = companyIdMap.get(symbol);
+		if(cached != null) {
+			return cached;
 		}
 		
 		int symbolId = getSymbolId(symbol);
@@ -198,6 +452,7 @@ public final class StockDatabase {
 		
 		String sql = String.format("SELECT company_id FROM companies WHERE symbol_id = %d", symbolId);
 		int companyId = -1;
+		long start = System.nanoTime();
 		try (
 			Statement stmt = conn.createStatement();
 			ResultSet rs = stmt.executeQuery(sql);
@@ -211,7 +466,10 @@ public final class StockDatabase {
 				logger.error("Unable to get company id for symbol {}: no company found for that symbol.", symbol);
 			}
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Unable to get company id for symbol {}: {}.", symbol, e.getMessage());
+		} finally {
+			Metrics.timer("db.query.company_id").recordSince(start);
 		}
 		
 		return companyId;
@@ -224,14 +482,18 @@ public final class StockDatabase {
 	 */
 	public static boolean isCompanyPresent(String symbol) {
 		String sql = String.format("SELECT * FROM companies WHERE symbol_id = %d", getSymbolId(symbol));
+		long start = System.nanoTime();
 		try (
 			Statement stmt = conn.createStatement();
 			ResultSet rs = stmt.executeQuery(sql);
 		) {
 			return rs.isBeforeFirst();
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error checking company present in db: {}", e.getMessage());
 			return false;
+		} finally {
+			Metrics.timer("db.query.company_present").recordSince(start);
 		}
 	}
 	
@@ -250,25 +512,34 @@ public final class StockDatabase {
 				+ "	shares_float = VALUES(shares_float),"
 				+ "	shares_short = VALUES(shares_short)";
 		
-		try (
-			PreparedStatement prep = conn.prepareStatement(sql);
-		) {
-			prep.setInt(1, getSymbolId(company.symbol));
-			prep.setString(2, company.name);
-			prep.setString(3, company.desc);
-			prep.setDouble(4, company.peRatio);
-			prep.setLong(5, company.sharesOutstanding);
-			prep.setLong(6, company.sharesFloat);
-			prep.setLong(7, company.sharesShort);
-			prep.execute();
-		} catch (SQLException e) {
-			logger.error("Error while attempting to insert price data: {}", e.getMessage());
+		synchronized(writeLock) {
+			long start = System.nanoTime();
+			try (
+				PreparedStatement prep = writeConn.prepareStatement(sql);
+			) {
+				prep.setInt(1, getSymbolId(company.symbol));
+				prep.setString(2, company.name);
+				prep.setString(3, company.desc);
+				prep.setDouble(4, company.peRatio);
+				prep.setLong(5, company.sharesOutstanding);
+				prep.setLong(6, company.sharesFloat);
+				prep.setLong(7, company.sharesShort);
+				prep.execute();
+			} catch (SQLException e) {
+				errors.increment();
+				logger.error("Error while attempting to insert price data: {}", e.getMessage());
+			} finally {
+				Metrics.timer("db.write.company").recordSince(start);
+			}
 		}
+		
+		fireSymbolInfoChanged(company.symbol);
 	}
 	
 	public static int getEtfId(String symbol) {
-		if(etfIdMap.containsKey(symbol)) {
-			return etfIdMap.get(symbol);
+		Integer cached = etfIdMap.get(symbol);
+		if(cached != null) {
+			return cached;
 		}
 		
 		int symbolId = getSymbolId(symbol);
@@ -278,6 +549,7 @@ public final class StockDatabase {
 		
 		String sql = String.format("SELECT etf_id FROM etfs WHERE symbol_id = %d", symbolId);
 		int etfId = -1;
+		long start = System.nanoTime();
 		try {
 			Statement stmt = conn.createStatement();
 			ResultSet rs = stmt.executeQuery(sql);
@@ -290,7 +562,10 @@ public final class StockDatabase {
 				logger.error("Unable to get etf id for symbol {}: no etf found for that symbol.", symbol);
 			}
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Unable to get etf id for symbol {}: {}", symbol, e.getMessage());
+		} finally {
+			Metrics.timer("db.query.etf_id").recordSince(start);
 		}
 		
 		return etfId;
@@ -298,79 +573,131 @@ public final class StockDatabase {
 	
 	public static boolean isEtfPresent(String symbol) {
 		String sql = String.format("SELECT * FROM etfs WHERE symbol_id = %d", getSymbolId(symbol));
+		long start = System.nanoTime();
 		try (
 			Statement stmt = conn.createStatement();
 			ResultSet rs = stmt.executeQuery(sql);
 		) {
 			return rs.isBeforeFirst();
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error checking etf present in db: {}", e.getMessage());
 			return false;
+		} finally {
+			Metrics.timer("db.query.etf_present").recordSince(start);
 		}
 	}
 	
 	public static void addEtfData(EtfData etf) {
 		logger.info("Adding etf data for {} ({})", etf.name, etf.symbol);
-		// Add to etfs table first
-		String sql = "INSERT INTO"
-				+ "	etfs (symbol_id, etf_name)"
-				+ "VALUES"
-				+ "	(?, ?)"
-				+ "ON DUPLICATE KEY UPDATE"
-				+ "	symbol_id = VALUES(symbol_id),"
-				+ "	etf_name = VALUES(etf_name)";
-		
-		try (
-			PreparedStatement prep = conn.prepareStatement(sql);
-		) {
-			prep.setInt(1, getSymbolId(etf.symbol));
-			prep.setString(2, etf.name);
-			prep.execute();
-		} catch (SQLException e) {
-			logger.error("Error while attempting to insert etf data: {}", e.getMessage());
-		}
-		
-		// Now, add holding info
-		int etfId = getEtfId(etf.symbol);
-		sql = "INSERT INTO"
-				+ "	etf_holdings (etf_id, symbol_id, percent)"
-				+ "VALUES"
-				+ "	(?, ?, ?)";
-	
-		String addSymbol = "INSERT INTO symbols(symbol) VALUES (?)";
-	
-		try (
-			PreparedStatement prep = conn.prepareStatement(sql);
-			PreparedStatement addSymbolPrep = conn.prepareStatement(addSymbol);
-		) {
+		synchronized(writeLock) {
+			long start = System.nanoTime();
+			try {
+				// Add to etfs table first
+				String sql = "INSERT INTO"
+						+ "	etfs (symbol_id, etf_name)"
+						+ "VALUES"
+						+ "	(?, ?)"
+						+ "ON DUPLICATE KEY UPDATE"
+						+ "	symbol_id = VALUES(symbol_id),"
+						+ "	etf_name = VALUES(etf_name)";
 			
-			for(String holdingSymbol : etf.topHoldings.keySet()) {
-				int symbolId = getSymbolId(holdingSymbol);
-				
-				if(symbolId == -1) {
-					addSymbolPrep.setString(1, holdingSymbol);
-					addSymbolPrep.execute();
-					symbolId = getSymbolId(holdingSymbol);
+				try (
+					PreparedStatement prep = writeConn.prepareStatement(sql);
+				) {
+					prep.setInt(1, getSymbolId(etf.symbol));
+					prep.setString(2, etf.name);
+					prep.execute();
+				} catch (SQLException e) {
+					errors.increment();
+					logger.error("Error while attempting to insert etf data: {}", e.getMessage());
 				}
+			
+				// Holdings may be of symbols not seen yet
+				String addSymbol = "INSERT INTO symbols(symbol) VALUES (?)";
+				HashMap<String, Integer> holdingIds = new HashMap<>();
+				try (
+					PreparedStatement addSymbolPrep = writeConn.prepareStatement(addSymbol);
+				) {
+					for(String holdingSymbol : etf.topHoldings.keySet()) {
+						int symbolId = getSymbolId(holdingSymbol);
 				
-				prep.setInt(1, etfId);
-				prep.setInt(2, symbolId);
-				prep.setDouble(3, etf.topHoldings.get(holdingSymbol));
-				prep.addBatch();
-			}
+						if(symbolId == -1) {
+							addSymbolPrep.setString(1, holdingSymbol);
+							addSymbolPrep.execute();
+							symbolId = getSymbolId(holdingSymbol);
+						}
+						holdingIds.put(holdingSymbol, symbolId);
+					}
+				} catch (SQLException e) {
+					errors.increment();
+					logger.error("Error while adding holding symbols for {}: {}", etf.name, e.getMessage());
+					return;
+				}
 			
-			prep.executeBatch();
+				// Now, replace the holding and sector info from a previous download,
+				// in one transaction so a failure keeps the old info
+				int etfId = getEtfId(etf.symbol);
+				String holdingsSql = "INSERT INTO"
+						+ "	etf_holdings (etf_id, symbol_id, percent)"
+						+ "VALUES"
+						+ "	(?, ?, ?)";
+				String sectorsSql = "INSERT INTO etf_sectors (etf_id, sector, percent) VALUES (?, ?, ?)";
 			
-		} catch (SQLException e) {
-			logger.error("Error while updating etf holdings for {}: {}", etf.name, e.getMessage());
+				try (
+					Statement stmt = writeConn.createStatement();
+					PreparedStatement holdings = writeConn.prepareStatement(holdingsSql);
+					PreparedStatement sectors = writeConn.prepareStatement(sectorsSql);
+				) {
+					writeConn.setAutoCommit(false);
+					try {
+						stmt.execute("DELETE FROM etf_holdings WHERE etf_id = " + etfId);
+						stmt.execute("DELETE FROM etf_sectors WHERE etf_id = " + etfId);
+				
+						for(var holding : holdingIds.entrySet()) {
+							holdings.setInt(1, etfId);
+							holdings.setInt(2, holding.getValue());
+							holdings.setDouble(3, etf.topHoldings.get(holding.getKey()));
+							holdings.addBatch();
+						}
+						holdings.executeBatch();
+				
+						for(var sector : etf.sectorWeightings.entrySet()) {
+							sectors.setInt(1, etfId);
+							sectors.setString(2, sector.getKey());
+							sectors.setDouble(3, sector.getValue());
+							sectors.addBatch();
+						}
+						sectors.executeBatch();
+				
+						writeConn.commit();
+					} catch (SQLException e) {
+						writeConn.rollback();
+						throw e;
+					} finally {
+						writeConn.setAutoCommit(true);
+					}
+				} catch (SQLException e) {
+					errors.increment();
+					logger.error("Error while updating etf holdings for {}: {}", etf.name, e.getMessage());
+				}
+			} finally {
+				Metrics.timer("db.write.etf").recordSince(start);
+			}
 		}
+		
+		fireSymbolInfoChanged(etf.symbol);
 	}
 	
 	public static void addPriceData(PriceData[] data) {
 		logger.info("Inserting new price data ({} entries)", data.length);
-		// Setup the prepared statement for insertion
+		Metrics.histogram("db.write.prices.rows").record(data.length);
+		PriceBatchPersistEvent persist = new PriceBatchPersistEvent();
+		persist.begin();
+		// Setup the prepared statement for insertion, on the table holding
+		// each symbol's prices (see PriceTables)
 		String sql = "INSERT INTO\n"
-					+ "	prices (symbol_id, date, open, high, low, close, adjusted_close, volume)\n"
+					+ "	%s (symbol_id, date, open, high, low, close, adjusted_close, volume)\n"
 					+ "VALUES\n"
 					+ "	(?, ?, ?, ?, ?, ?, ?, ?)\n"
 					+ "ON DUPLICATE KEY UPDATE\n"
@@ -383,45 +710,164 @@ public final class StockDatabase {
 					+ "	adjusted_close = VALUES(adjusted_close),"
 					+ "	volume = VALUES(volume)";
 		
-		try (
-			PreparedStatement prep = conn.prepareStatement(sql);
-			Statement stmt = conn.createStatement();
-		) {		
-			// Look at each daily entry for this stock and add the price
+		long start = System.nanoTime();
+		try {
+			HashMap<String, ArrayList<PriceData>> updatedSymbols = new HashMap<>();
 			for (PriceData singleDay : data) {
+				updatedSymbols.computeIfAbsent(singleDay.symbol, s -> new ArrayList<>()).add(singleDay);
+			}
+			
+			// Check that each symbol is present in db
+			addSymbols(updatedSymbols.keySet());
+			
+			if(!awaitRebuiltTable(updatedSymbols)) {
+				return;
+			}
+			
+			synchronized(writeLock) {
+				PriceTables.shared().lock();
+				try {
+					boolean anyCopied = false;
+					for(String symbol : updatedSymbols.keySet()) {
+						anyCopied |= PriceTables.isCopied(getSymbolId(symbol));
+					}
 				
-				// Get symbol id
-				int symbolId = getSymbolId(singleDay.symbol);
+					try (
+						PreparedStatement prep = writeConn.prepareStatement(String.format(sql, "prices"));
+						PreparedStatement copiedPrep = anyCopied ? writeConn.prepareStatement(String.format(sql, "prices_new")) : null;
+					) {
+						// Look at each daily entry for this stock and add the price
+						for (PriceData singleDay : data) {
+							int symbolId = getSymbolId(singleDay.symbol);
+							PreparedStatement insert = PriceTables.isCopied(symbolId) ? copiedPrep : prep;
+						
+							// Add price data
+							insert.setInt(1, symbolId);
+							insert.setDate(2, Date.valueOf(singleDay.date));
+							insert.setDouble(3, singleDay.open);
+							insert.setDouble(4, singleDay.high);
+							insert.setDouble(5, singleDay.low);
+							insert.setDouble(6, singleDay.close);
+							insert.setDouble(7, singleDay.adjClose);
+							insert.setLong(8, singleDay.volume);
+						
+							insert.addBatch();
+						}
+					
+						prep.executeBatch();
+						if(copiedPrep != null) {
+							copiedPrep.executeBatch();
+						}
+					}
 				
-				// Check that symbol is present in db
-				if(symbolId == -1) {
-					sql = String.format("INSERT INTO symbols(symbol) VALUES ('%s')", singleDay.symbol);
-					stmt.execute(sql);
-					symbolId = getSymbolId(singleDay.symbol);
+					updatePriceSummary(updatedSymbols);
+					updateRollups(updatedSymbols);
+				} finally {
+					PriceTables.shared().unlock();
+				}
+			}
+			
+			// Cached series for these symbols are now out of date
+			ArrayList<PriceUpdate> updates = new ArrayList<>();
+			for(var entry : updatedSymbols.entrySet()) {
+				seriesCache.invalidate(entry.getKey());
+				closeCache.invalidate(entry.getKey());
+				for(SeriesCache rollups : rollupCaches.values()) {
+					rollups.invalidate(entry.getKey());
 				}
 				
-				// Add price data
-				prep.setInt(1, getSymbolId(singleDay.symbol));
-				prep.setDate(2, Date.valueOf(singleDay.date));
-				prep.setDouble(3, singleDay.open);
-				prep.setDouble(4, singleDay.high);
-				prep.setDouble(5, singleDay.low);
-				prep.setDouble(6, singleDay.close);
-				prep.setDouble(7, singleDay.adjClose);
-				prep.setInt(8, singleDay.volume);
-				
-				prep.addBatch();
-				
+				ArrayList<PriceData> bars = entry.getValue();
+				bars.sort(Comparator.comparing(bar -> bar.date));
+				updates.add(new PriceUpdate(entry.getKey(), bars));
 			}
 			
-			prep.executeBatch();
-			prep.close();
-			stmt.close();
+			// Publish only the symbols in this batch (adding an already
+			// tracked symbol is a no-op for the observable set)
+			notifier.execute(()->{
+				trackedSymbols.addAll(updatedSymbols.keySet());
+			});
 			
-			updateTrackedSymbolsList();
+			// Let listeners apply the new rows
+			if(!priceUpdateListeners.isEmpty()) {
+				notifier.execute(()->{
+					for(PriceUpdate update : updates) {
+						for(var listener : priceUpdateListeners) {
+							listener.accept(update);
+						}
+					}
+				});
+			}
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error while attempting to insert price data: {}", e.getMessage());
+		} finally {
+			Metrics.timer("db.write.prices").recordSince(start);
+		}
+		
+		persist.end();
+		if(persist.shouldCommit()) {
+			LinkedHashSet<String> symbols = new LinkedHashSet<>();
+			for(PriceData bar : data) {
+				symbols.add(bar.symbol);
+			}
+			persist.symbols = String.join(",", symbols);
+			persist.symbolCount = symbols.size();
+			persist.rows = data.length;
+			persist.commit();
+		}
+	}
+	
+	/**
+	 * Adds the symbols that aren't in the db yet.
+	 * @param symbols
+	 * @throws SQLException
+	 */
+	private static void addSymbols(Collection<String> symbols) throws SQLException {
+		synchronized(writeLock) {
+			try (
+				Statement stmt = writeConn.createStatement();
+			) {
+				for(String symbol : symbols) {
+					if(getSymbolId(symbol) == -1) {
+						stmt.execute(String.format("INSERT INTO symbols(symbol) VALUES ('%s')", symbol));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * While a migration rebuilds the prices table, the table being replaced
+	 * only holds volumes in the INT range. Waits for symbols with larger
+	 * volumes to be copied to the rebuilt table first; others are written
+	 * to whichever table holds them without waiting.
+	 * @param updatedSymbols price data to insert, grouped by symbol
+	 * @return false if the rebuild stopped before copying one of them, or
+	 * the wait was interrupted
+	 */
+	private static boolean awaitRebuiltTable(HashMap<String, ArrayList<PriceData>> updatedSymbols) {
+		for(var entry : updatedSymbols.entrySet()) {
+			int symbolId = getSymbolId(entry.getKey());
+			if(!PriceTables.isOnOldTable(symbolId)
+					|| entry.getValue().stream().allMatch(bar -> bar.volume <= Integer.MAX_VALUE)) {
+				continue;
+			}
+			
+			logger.info("Waiting for the database migration to copy {}...", entry.getKey());
+			try {
+				if(!PriceTables.awaitCopied(symbolId)) {
+					errors.increment();
+					logger.error("Unable to insert price data for {}: its volumes need the migrated prices table.", entry.getKey());
+					return false;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				errors.increment();
+				logger.error("Interrupted before inserting price data for {}.", entry.getKey());
+				return false;
+			}
 		}
+		return true;
 	}
 	
 	public static ArrayList<PriceData> getSymbolPriceData(String symbol) {
@@ -429,8 +875,10 @@ public final class StockDatabase {
 		logger.info("Loading price data for {} from database.", symbol);
 		
 		int symbolId = getSymbolId(symbol);
-		String sql = String.format("SELECT * FROM prices WHERE symbol_id=%d", symbolId);
 		
+		long start = System.nanoTime();
+		PriceTables.shared().lock();
+		String sql = String.format("SELECT * FROM %s WHERE symbol_id=%d", PriceTables.forSymbol(symbolId), symbolId);
 		try (
 			Statement stmt = conn.createStatement();
 			ResultSet rs = stmt.executeQuery(sql);
@@ -444,16 +892,208 @@ public final class StockDatabase {
 						rs.getDouble("low"), 
 						rs.getDouble("close"), 
 						rs.getDouble("adjusted_close"), 
-						rs.getInt("volume")
+						rs.getLong("volume")
 				));
 			}
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error loading price data for {} from database: {}", symbol, e.getMessage());
+		} finally {
+			PriceTables.shared().unlock();
+			Metrics.timer("db.query.price_data").recordSince(start);
 		}
 		
 		return data;
 	}
 	
+	/**
+	 * Returns the price history for a symbol. Series are shared through an
+	 * application-wide cache, so repeated requests (from multiple charts,
+	 * predictions, etc.) only hit the database once per data update.
+	 * @param symbol
+	 * @return price series ordered by date; null if it could not be loaded
+	 */
+	public static PriceSeries getPriceSeries(String symbol) {
+		return seriesCache.get(symbol);
+	}
+	
+	/**
+	 * Returns the price history for a symbol at the given resolution.
+	 * Rolled up series are read from the rollup table and cached the same
+	 * way as daily series.
+	 * @param symbol
+	 * @param resolution
+	 * @return price series ordered by date; null if it could not be loaded
+	 */
+	public static PriceSeries getPriceSeries(String symbol, Resolution resolution) {
+		if(resolution == Resolution.DAILY) {
+			return getPriceSeries(symbol);
+		}
+		return rollupCaches.get(resolution).get(symbol);
+	}
+	
+	/**
+	 * Returns the adjusted closes of a symbol, for line charts that don't
+	 * need the other columns. Taken from the full daily series if that's
+	 * cached; otherwise read from the covering index on (symbol_id, date,
+	 * adjusted_close) without touching the rows, and cached separately.
+	 * @param symbol
+	 * @return daily series whose prices are all the adjusted close and
+	 * whose volumes are 0; null if it could not be loaded
+	 */
+	public static PriceSeries getCloseSeries(String symbol) {
+		PriceSeries daily = seriesCache.peek(symbol);
+		if(daily != null) {
+			return daily;
+		}
+		return closeCache.get(symbol);
+	}
+	
+	/**
+	 * Reads the full daily history of a symbol without going through the
+	 * series cache, for callers that only need it briefly (e.g. the
+	 * screener catching up its indicators over thousands of symbols), so
+	 * they don't push out the series charts are using.
+	 * @param symbol
+	 * @return price series ordered by date; null if it could not be loaded
+	 */
+	public static PriceSeries loadPriceHistory(String symbol) {
+		return loadPriceSeries(symbol, 0, null);
+	}
+	
+	/**
+	 * Reads a symbol's daily bars from a date on, without going through
+	 * the series cache.
+	 * @param symbol
+	 * @param from first date to read
+	 * @return price series ordered by date; null if it could not be loaded
+	 */
+	public static PriceSeries loadPriceHistory(String symbol, LocalDate from) {
+		return loadPriceSeries(symbol, 0, from);
+	}
+	
+	private static PriceSeries loadPriceSeries(String symbol, long version) {
+		logger.info("Loading price series for {} from database.", symbol);
+		return loadPriceSeries(symbol, version, null);
+	}
+	
+	/**
+	 * @param from first date to load; null to load the full history
+	 */
+	private static PriceSeries loadPriceSeries(String symbol, long version, LocalDate from) {
+		SeriesLoadEvent load = new SeriesLoadEvent();
+		load.begin();
+		String sql = "SELECT date, open, high, low, close, adjusted_close, volume "
+				+ "FROM %s "
+				+ "WHERE symbol_id = ? "
+				+ (from == null ? "" : "AND date >= ? ")
+				+ "ORDER BY date";
+		
+		int size = 0;
+		int[] dates = new int[1024];
+		double[] open = new double[1024];
+		double[] high = new double[1024];
+		double[] low = new double[1024];
+		double[] close = new double[1024];
+		double[] adjClose = new double[1024];
+		long[] volume = new long[1024];
+		
+		int symbolId = getSymbolId(symbol);
+		long start = System.nanoTime();
+		PriceTables.shared().lock();
+		try (
+			PreparedStatement prep = conn.prepareStatement(String.format(sql, PriceTables.forSymbol(symbolId)));
+		) {
+			prep.setInt(1, symbolId);
+			if(from != null) {
+				prep.setDate(2, Date.valueOf(from));
+			}
+			ResultSet rs = prep.executeQuery();
+			while(rs.next()) {
+				if(size == dates.length) {
+					int capacity = size * 2;
+					dates = Arrays.copyOf(dates, capacity);
+					open = Arrays.copyOf(open, capacity);
+					high = Arrays.copyOf(high, capacity);
+					low = Arrays.copyOf(low, capacity);
+					close = Arrays.copyOf(close, capacity);
+					adjClose = Arrays.copyOf(adjClose, capacity);
+					volume = Arrays.copyOf(volume, capacity);
+				}
+				
+				dates[size] = (int) rs.getDate(1).toLocalDate().toEpochDay();
+				open[size] = rs.getDouble(2);
+				high[size] = rs.getDouble(3);
+				low[size] = rs.getDouble(4);
+				close[size] = rs.getDouble(5);
+				adjClose[size] = rs.getDouble(6);
+				volume[size] = rs.getLong(7);
+				size++;
+			}
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading price series for {} from database: {}", symbol, e.getMessage());
+			return null;
+		} finally {
+			PriceTables.shared().unlock();
+			Metrics.timer("db.query.price_series").recordSince(start);
+		}
+		
+		commit(load, symbol, Resolution.DAILY, size);
+		return new PriceSeries(
+			symbol,
+			version,
+			Arrays.copyOf(dates, size),
+			Arrays.copyOf(open, size),
+			Arrays.copyOf(high, size),
+			Arrays.copyOf(low, size),
+			Arrays.copyOf(close, size),
+			Arrays.copyOf(adjClose, size),
+			Arrays.copyOf(volume, size)
+		);
+	}
+	
+	private static PriceSeries loadCloseSeries(String symbol, long version) {
+		logger.info("Loading closing prices for {} from database.", symbol);
+		SeriesLoadEvent load = new SeriesLoadEvent();
+		load.begin();
+		String sql = "SELECT date, adjusted_close FROM %s WHERE symbol_id = ? ORDER BY date";
+		
+		int size = 0;
+		int[] dates = new int[1024];
+		double[] adjClose = new double[1024];
+		
+		int symbolId = getSymbolId(symbol);
+		long start = System.nanoTime();
+		PriceTables.shared().lock();
+		try (
+			PreparedStatement prep = conn.prepareStatement(String.format(sql, PriceTables.forSymbol(symbolId)));
+		) {
+			prep.setInt(1, symbolId);
+			ResultSet rs = prep.executeQuery();
+			while(rs.next()) {
+				if(size == dates.length) {
+					dates = Arrays.copyOf(dates, size * 2);
+					adjClose = Arrays.copyOf(adjClose, size * 2);
+				}
+				dates[size] = (int) rs.getDate(1).toLocalDate().toEpochDay();
+				adjClose[size] = rs.getDouble(2);
+				size++;
+			}
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading closing prices for {} from database: {}", symbol, e.getMessage());
+			return null;
+		} finally {
+			PriceTables.shared().unlock();
+			Metrics.timer("db.query.close_series").recordSince(start);
+		}
+		
+		commit(load, symbol, Resolution.DAILY, size);
+		double[] closes = Arrays.copyOf(adjClose, size);
+		return new PriceSeries(symbol, version, Arrays.copyOf(dates, size), closes, closes, closes, closes, closes, new long[size]);
+	}
+	
 	public static ArrayList<Pair<String, Double>> getEtfHoldings(String symbol) {
 		ArrayList<Pair<String, Double>> holdings = new ArrayList<>();
 		logger.info("Loading holding data for ETF {}.", symbol);
@@ -468,6 +1108,7 @@ public final class StockDatabase {
 				+ "JOIN symbols AS etf_symbol ON etfs.symbol_id = etf_symbol.symbol_id "
 				+ "WHERE etf_symbol.symbol = ? "
 				+ "ORDER BY percent DESC";
+		long start = System.nanoTime();
 		try (
 			PreparedStatement prep = conn.prepareStatement(sql);
 		) {
@@ -479,12 +1120,81 @@ public final class StockDatabase {
 				holdings.add(new Pair<>(heldSymbol, percent));
 			}
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error loading ETF holding data for {} from database: {}", symbol, e.getMessage());
-		} 
+		} finally {
+			Metrics.timer("db.query.etf_holdings").recordSince(start);
+		}
 		
 		return holdings;
 	}
 	
+	/**
+	 * Loads the holdings of every stored ETF.
+	 * @return map of ETF symbol to its holdings as (symbol, percent)
+	 */
+	public static HashMap<String, ArrayList<Pair<String, Double>>> getAllEtfHoldings() {
+		HashMap<String, ArrayList<Pair<String, Double>>> holdings = new HashMap<>();
+		
+		String sql = "SELECT "
+				+ "    etf_symbol.symbol AS etf_symbol, "
+				+ "    held_symbol.symbol AS held_symbol, "
+				+ "    percent "
+				+ "FROM etf_holdings "
+				+ "JOIN symbols AS held_symbol ON held_symbol.symbol_id = etf_holdings.symbol_id "
+				+ "JOIN etfs ON etfs.etf_id = etf_holdings.etf_id "
+				+ "JOIN symbols AS etf_symbol ON etfs.symbol_id = etf_symbol.symbol_id";
+		
+		long start = System.nanoTime();
+		try (
+			Statement stmt = conn.createStatement();
+			ResultSet rs = stmt.executeQuery(sql);
+		) {
+			while(rs.next()) {
+				holdings.computeIfAbsent(rs.getString("etf_symbol"), etf -> new ArrayList<>())
+					.add(new Pair<>(rs.getString("held_symbol"), rs.getDouble("percent")));
+			}
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading ETF holdings: {}", e.getMessage());
+		} finally {
+			Metrics.timer("db.query.all_etf_holdings").recordSince(start);
+		}
+		
+		return holdings;
+	}
+	
+	/**
+	 * Loads the sector weightings of every stored ETF.
+	 * @return map of ETF symbol to its sectors as (sector, percent)
+	 */
+	public static HashMap<String, ArrayList<Pair<String, Double>>> getAllEtfSectors() {
+		HashMap<String, ArrayList<Pair<String, Double>>> sectors = new HashMap<>();
+		
+		String sql = "SELECT symbols.symbol, etf_sectors.sector, etf_sectors.percent "
+				+ "FROM etf_sectors "
+				+ "JOIN etfs ON etfs.etf_id = etf_sectors.etf_id "
+				+ "JOIN symbols ON symbols.symbol_id = etfs.symbol_id";
+		
+		long start = System.nanoTime();
+		try (
+			Statement stmt = conn.createStatement();
+			ResultSet rs = stmt.executeQuery(sql);
+		) {
+			while(rs.next()) {
+				sectors.computeIfAbsent(rs.getString("symbol"), etf -> new ArrayList<>())
+					.add(new Pair<>(rs.getString("sector"), rs.getDouble("percent")));
+			}
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading ETF sectors: {}", e.getMessage());
+		} finally {
+			Metrics.timer("db.query.all_etf_sectors").recordSince(start);
+		}
+		
+		return sectors;
+	}
+	
 	/**
 	 * Checks whether or not price data for a symbol is present in the
 	 * database. 
@@ -494,15 +1204,19 @@ public final class StockDatabase {
 	public static boolean hasPriceData(String symbol) {
 		logger.info("Checking if price data for {} is present.", symbol);
 		int symbolId = getSymbolId(symbol);
-		String sql = "SELECT * FROM prices WHERE symbol_id = " + symbolId;
+		String sql = "SELECT * FROM price_summary WHERE symbol_id = " + symbolId;
 		
+		long start = System.nanoTime();
 		try (
 			Statement stmt = conn.createStatement();
 		) {
 			ResultSet rs = stmt.executeQuery(sql);
 			return rs.isBeforeFirst();
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error checking for price data for {}: {}", symbol, e.getMessage());
+		} finally {
+			Metrics.timer("db.query.has_price_data").recordSince(start);
 		}
 		
 		return false;
@@ -517,6 +1231,7 @@ public final class StockDatabase {
 		
 		String sql = "SELECT * FROM companies WHERE company_id = " + companyId;
 		
+		long start = System.nanoTime();
 		try (
 			Statement stmt = conn.createStatement();
 		) {
@@ -532,16 +1247,548 @@ public final class StockDatabase {
 				rs.getLong("shares_short")
 			);
 		} catch (SQLException e) {
+			errors.increment();
 			logger.error("Error loading company data for {}: {}", symbol, e.getMessage());
 			return null;
+		} finally {
+			Metrics.timer("db.query.company_data").recordSince(start);
 		}
 	}
 	
-	private static void updateTrackedSymbolsList() {
-		String sql = "SELECT symbols.symbol as symbol FROM prices\n"
-				+ "JOIN symbols ON symbols.symbol_id = prices.symbol_id\n"
-				+ "GROUP BY symbols.symbol_id";
+	/**
+	 * Loads the company data, ETF name, and ETF holdings for a symbol using
+	 * a single query.
+	 * @param symbol
+	 * @return details for the symbol; null if an error occurred
+	 */
+	public static SymbolDetails getSymbolDetails(String symbol) {
+		logger.info("Loading symbol details for {} from database.", symbol);
 		
+		String sql = "SELECT "
+				+ "    companies.name, "
+				+ "    companies.description, "
+				+ "    companies.pe_ratio, "
+				+ "    companies.shares_outstanding, "
+				+ "    companies.shares_float, "
+				+ "    companies.shares_short, "
+				+ "    etfs.etf_id, "
+				+ "    etfs.etf_name, "
+				+ "    held_symbol.symbol AS held_symbol, "
+				+ "    etf_holdings.percent "
+				+ "FROM symbols "
+				+ "LEFT JOIN companies ON companies.symbol_id = symbols.symbol_id "
+				+ "LEFT JOIN etfs ON etfs.symbol_id = symbols.symbol_id "
+				+ "LEFT JOIN etf_holdings ON etf_holdings.etf_id = etfs.etf_id "
+				+ "LEFT JOIN symbols AS held_symbol ON held_symbol.symbol_id = etf_holdings.symbol_id "
+				+ "WHERE symbols.symbol = ? "
+				+ "ORDER BY etf_holdings.percent DESC";
+		
+		long start = System.nanoTime();
+		try (
+			PreparedStatement prep = conn.prepareStatement(sql);
+		) {
+			prep.setString(1, symbol);
+			ResultSet rs = prep.executeQuery();
+			
+			CompanyData company = null;
+			boolean isEtf = false;
+			String etfName = null;
+			ArrayList<Pair<String, Double>> holdings = new ArrayList<>();
+			
+			while(rs.next()) {
+				// Company and etf columns are repeated on every holding row
+				if(company == null && rs.getString("name") != null) {
+					company = new CompanyData(
+						symbol, 
+						rs.getString("name"), 
+						rs.getString("description"), 
+						rs.getDouble("pe_ratio"), 
+						rs.getLong("shares_outstanding"), 
+						rs.getLong("shares_float"), 
+						rs.getLong("shares_short")
+					);
+				}
+				
+				rs.getInt("etf_id");
+				if(!rs.wasNull()) {
+					isEtf = true;
+					etfName = rs.getString("etf_name");
+				}
+				
+				String heldSymbol = rs.getString("held_symbol");
+				if(heldSymbol != null) {
+					holdings.add(new Pair<>(heldSymbol, rs.getDouble("percent")));
+				}
+			}
+			
+			return new SymbolDetails(symbol, company, isEtf, etfName, holdings);
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading symbol details for {}: {}", symbol, e.getMessage());
+			return null;
+		} finally {
+			Metrics.timer("db.query.symbol_details").recordSince(start);
+		}
+	}
+	
+	/**
+	 * Loads every stored symbol along with its company or ETF name.
+	 * @return map of symbol to name (null if no name is stored)
+	 */
+	public static HashMap<String, String> getSymbolNames() {
+		HashMap<String, String> names = new HashMap<>();
+		
+		String sql = "SELECT symbols.symbol, COALESCE(companies.name, etfs.etf_name) AS name "
+				+ "FROM symbols "
+				+ "LEFT JOIN companies ON companies.symbol_id = symbols.symbol_id "
+				+ "LEFT JOIN etfs ON etfs.symbol_id = symbols.symbol_id";
+		
+		long start = System.nanoTime();
+		try (
+			Statement stmt = conn.createStatement();
+			ResultSet rs = stmt.executeQuery(sql);
+		) {
+			while(rs.next()) {
+				names.put(rs.getString("symbol"), rs.getString("name"));
+			}
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading symbol names: {}", e.getMessage());
+		} finally {
+			Metrics.timer("db.query.symbol_names").recordSince(start);
+		}
+		
+		return names;
+	}
+	
+	/**
+	 * Saves the rolling state of an indicator computed over a symbol's prices.
+	 * @param symbol
+	 * @param indicator indicator name
+	 * @param lastDate date of the last bar included in the state
+	 * @param lastAdjClose adjusted close of that bar
+	 * @param state
+	 */
+	public static void saveIndicatorState(String symbol, String indicator, LocalDate lastDate, double lastAdjClose, double[] state) {
+		String sql = "INSERT INTO indicator_state (symbol_id, indicator, last_date, last_adjusted_close, state) "
+				+ "VALUES (?, ?, ?, ?, ?) "
+				+ "ON DUPLICATE KEY UPDATE "
+				+ "	last_date = VALUES(last_date),"
+				+ "	last_adjusted_close = VALUES(last_adjusted_close),"
+				+ "	state = VALUES(state)";
+		
+		ByteBuffer buffer = ByteBuffer.allocate(state.length * Double.BYTES);
+		buffer.asDoubleBuffer().put(state);
+		
+		synchronized(writeLock) {
+			long start = System.nanoTime();
+			try (
+				PreparedStatement prep = writeConn.prepareStatement(sql);
+			) {
+				prep.setInt(1, getSymbolId(symbol));
+				prep.setString(2, indicator);
+				prep.setDate(3, Date.valueOf(lastDate));
+				prep.setDouble(4, lastAdjClose);
+				prep.setBytes(5, buffer.array());
+				prep.execute();
+			} catch (SQLException e) {
+				errors.increment();
+				logger.error("Error saving {} state for {}: {}", indicator, symbol, e.getMessage());
+			} finally {
+				Metrics.timer("db.write.indicator_state").recordSince(start);
+			}
+		}
+	}
+	
+	/**
+	 * Loads the saved rolling state of an indicator.
+	 * @param symbol
+	 * @param indicator indicator name
+	 * @return saved state; null if none saved or an error occurred
+	 */
+	public static IndicatorState loadIndicatorState(String symbol, String indicator) {
+		String sql = "SELECT last_date, last_adjusted_close, state FROM indicator_state WHERE symbol_id = ? AND indicator = ?";
+		
+		long start = System.nanoTime();
+		try (
+			PreparedStatement prep = conn.prepareStatement(sql);
+		) {
+			prep.setInt(1, getSymbolId(symbol));
+			prep.setString(2, indicator);
+			ResultSet rs = prep.executeQuery();
+			if(!rs.next()) {
+				return null;
+			}
+			
+			byte[] bytes = rs.getBytes("state");
+			double[] state = new double[bytes.length / Double.BYTES];
+			ByteBuffer.wrap(bytes).asDoubleBuffer().get(state);
+			return new IndicatorState(rs.getDate("last_date").toLocalDate(), rs.getDouble("last_adjusted_close"), state);
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading {} state for {}: {}", indicator, symbol, e.getMessage());
+			return null;
+		} finally {
+			Metrics.timer("db.query.indicator_state").recordSince(start);
+		}
+	}
+	
+	/**
+	 * Gets the refresh state of every symbol with price data.
+	 * @return refresh states; empty if an error occurred
+	 */
+	public static ArrayList<RefreshState> getRefreshStates() {
+		String sql = "SELECT symbols.symbol AS symbol, price_summary.last_date AS last_price, "
+				+ "refresh_state.last_sync AS last_sync, refresh_state.last_viewed AS last_viewed "
+				+ "FROM price_summary "
+				+ "JOIN symbols ON symbols.symbol_id = price_summary.symbol_id "
+				+ "LEFT JOIN refresh_state ON refresh_state.symbol_id = price_summary.symbol_id";
+		
+		var states = new ArrayList<RefreshState>();
+		long start = System.nanoTime();
+		try (
+			Statement stmt = conn.createStatement();
+		) {
+			ResultSet rs = stmt.executeQuery(sql);
+			while(rs.next()) {
+				Date lastSync = rs.getDate("last_sync");
+				Timestamp lastViewed = rs.getTimestamp("last_viewed");
+				states.add(new RefreshState(
+						rs.getString("symbol"),
+						rs.getDate("last_price").toLocalDate(),
+						lastSync == null ? null : lastSync.toLocalDate(),
+						lastViewed == null ? null : lastViewed.toInstant()));
+			}
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading refresh state: {}", e.getMessage());
+		} finally {
+			Metrics.timer("db.query.refresh_state").recordSince(start);
+		}
+		return states;
+	}
+	
+	/**
+	 * Records when symbols were last viewed.
+	 * @param views time each symbol was last viewed
+	 */
+	public static void markSymbolsViewed(Map<String, Instant> views) {
+		String sql = "INSERT INTO refresh_state (symbol_id, last_viewed) "
+				+ "VALUES (?, ?) "
+				+ "ON DUPLICATE KEY UPDATE "
+				+ "	last_viewed = VALUES(last_viewed)";
+		
+		synchronized(writeLock) {
+			long start = System.nanoTime();
+			try (
+				PreparedStatement prep = writeConn.prepareStatement(sql);
+			) {
+				for(var view : views.entrySet()) {
+					int symbolId = getSymbolId(view.getKey());
+					if(symbolId == -1) {
+						continue;
+					}
+					prep.setInt(1, symbolId);
+					prep.setTimestamp(2, Timestamp.from(view.getValue()));
+					prep.addBatch();
+				}
+				prep.executeBatch();
+			} catch (SQLException e) {
+				errors.increment();
+				logger.error("Error saving symbol views: {}", e.getMessage());
+			} finally {
+				Metrics.timer("db.write.refresh_state").recordSince(start);
+			}
+		}
+	}
+	
+	/**
+	 * Records that a symbol's prices were refreshed for a market session.
+	 * @param symbol
+	 * @param session date of the session
+	 */
+	public static void markSymbolSynced(String symbol, LocalDate session) {
+		String sql = "INSERT INTO refresh_state (symbol_id, last_sync) "
+				+ "VALUES (?, ?) "
+				+ "ON DUPLICATE KEY UPDATE "
+				+ "	last_sync = VALUES(last_sync)";
+		
+		synchronized(writeLock) {
+			long start = System.nanoTime();
+			try (
+				PreparedStatement prep = writeConn.prepareStatement(sql);
+			) {
+				prep.setInt(1, getSymbolId(symbol));
+				prep.setDate(2, Date.valueOf(session));
+				prep.execute();
+			} catch (SQLException e) {
+				errors.increment();
+				logger.error("Error saving refresh state for {}: {}", symbol, e.getMessage());
+			} finally {
+				Metrics.timer("db.write.refresh_state").recordSince(start);
+			}
+		}
+	}
+	
+	/**
+	 * Extends the summary rows for the given symbols to cover the newly
+	 * inserted dates.
+	 * @param updatedSymbols inserted price data, grouped by symbol
+	 */
+	private static void updatePriceSummary(HashMap<String, ArrayList<PriceData>> updatedSymbols) throws SQLException {
+		String sql = "INSERT INTO price_summary (symbol_id, first_date, last_date) "
+				+ "VALUES (?, ?, ?) "
+				+ "ON DUPLICATE KEY UPDATE "
+				+ "	first_date = LEAST(first_date, VALUES(first_date)),"
+				+ "	last_date = GREATEST(last_date, VALUES(last_date))";
+		
+		long start = System.nanoTime();
+		try (
+			PreparedStatement prep = writeConn.prepareStatement(sql);
+		) {
+			for(var entry : updatedSymbols.entrySet()) {
+				LocalDate first = LocalDate.MAX;
+				LocalDate last = LocalDate.MIN;
+				for(PriceData bar : entry.getValue()) {
+					if(bar.date.isBefore(first)) {
+						first = bar.date;
+					}
+					if(bar.date.isAfter(last)) {
+						last = bar.date;
+					}
+				}
+				
+				prep.setInt(1, getSymbolId(entry.getKey()));
+				prep.setDate(2, Date.valueOf(first));
+				prep.setDate(3, Date.valueOf(last));
+				prep.addBatch();
+			}
+			prep.executeBatch();
+		} finally {
+			Metrics.timer("db.write.price_summary").recordSince(start);
+		}
+	}
+	
+	/**
+	 * Fills the price summary table from existing price data. Only runs if
+	 * the summary is empty (i.e. the first start after it was introduced).
+	 */
+	private static void backfillPriceSummary() throws SQLException {
+		try (
+			Statement stmt = conn.createStatement();
+		) {
+			ResultSet rs = stmt.executeQuery("SELECT EXISTS(SELECT 1 FROM price_summary) AS present");
+			rs.next();
+			if(rs.getBoolean("present")) {
+				return;
+			}
+			
+			logger.info("Building price summary from existing price data...");
+			stmt.executeUpdate(
+				"INSERT INTO price_summary (symbol_id, first_date, last_date) "
+				+ "SELECT symbol_id, MIN(date), MAX(date) FROM prices GROUP BY symbol_id"
+			);
+		}
+	}
+	
+	/**
+	 * Recomputes the rollup periods touched by newly inserted prices. Each
+	 * symbol's daily rows are read back from the start of the earliest
+	 * affected period, which for a daily update is usually just the
+	 * current quarter. Symbols with no rollups before that are rolled up
+	 * in full, since loadRollupSeries() only builds missing rollups for
+	 * symbols that have none at all.
+	 * @param updatedSymbols inserted price data, grouped by symbol
+	 */
+	private static void updateRollups(HashMap<String, ArrayList<PriceData>> updatedSymbols) throws SQLException {
+		for(var entry : updatedSymbols.entrySet()) {
+			LocalDate first = LocalDate.MAX;
+			for(PriceData bar : entry.getValue()) {
+				if(bar.date.isBefore(first)) {
+					first = bar.date;
+				}
+			}
+			
+			LocalDate from = first;
+			for(Resolution resolution : rollupCaches.keySet()) {
+				LocalDate start = resolution.periodStart(first);
+				if(start.isBefore(from)) {
+					from = start;
+				}
+			}
+			
+			if(!hasRollupsBefore(entry.getKey(), from)) {
+				from = null;
+			}
+			
+			PriceSeries daily = loadPriceSeries(entry.getKey(), 0, from);
+			if(daily != null) {
+				saveRollups(daily);
+			}
+		}
+	}
+	
+	private static boolean hasRollupsBefore(String symbol, LocalDate date) throws SQLException {
+		String sql = "SELECT 1 FROM price_rollups WHERE symbol_id = ? AND period_start < ? LIMIT 1";
+		try (
+			PreparedStatement prep = conn.prepareStatement(sql);
+		) {
+			prep.setInt(1, getSymbolId(symbol));
+			prep.setDate(2, Date.valueOf(date));
+			ResultSet rs = prep.executeQuery();
+			return rs.next();
+		}
+	}
+	
+	/**
+	 * Writes the rollups of a daily series, replacing existing rows for the
+	 * same periods. The series must start at the beginning of a period for
+	 * every resolution, or the first rollups will be partial.
+	 * @param daily
+	 */
+	private static void saveRollups(PriceSeries daily) throws SQLException {
+		String sql = "INSERT INTO price_rollups "
+				+ "(symbol_id, resolution, period_start, last_date, open, high, low, close, adjusted_close, volume) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+				+ "ON DUPLICATE KEY UPDATE "
+				+ "	last_date = VALUES(last_date),"
+				+ "	open = VALUES(open),"
+				+ "	high = VALUES(high),"
+				+ "	low = VALUES(low),"
+				+ "	close = VALUES(close),"
+				+ "	adjusted_close = VALUES(adjusted_close),"
+				+ "	volume = VALUES(volume)";
+		
+		int symbolId = getSymbolId(daily.getSymbol());
+		long start = System.nanoTime();
+		try (
+			PreparedStatement prep = writeConn.prepareStatement(sql);
+		) {
+			for(Resolution resolution : rollupCaches.keySet()) {
+				PriceSeries rollup = daily.rollUp(resolution);
+				for(int i = 0; i < rollup.size(); i++) {
+					LocalDate date = rollup.getDate(i);
+					prep.setInt(1, symbolId);
+					prep.setString(2, String.valueOf(resolution.code));
+					prep.setDate(3, Date.valueOf(resolution.periodStart(date)));
+					prep.setDate(4, Date.valueOf(date));
+					prep.setDouble(5, rollup.getOpen(i));
+					prep.setDouble(6, rollup.getHigh(i));
+					prep.setDouble(7, rollup.getLow(i));
+					prep.setDouble(8, rollup.getClose(i));
+					prep.setDouble(9, rollup.getAdjClose(i));
+					prep.setLong(10, rollup.getVolume(i));
+					prep.addBatch();
+				}
+			}
+			prep.executeBatch();
+		} finally {
+			Metrics.timer("db.write.rollups").recordSince(start);
+		}
+	}
+	
+	/**
+	 * Loads a rolled up series. Symbols whose prices were stored before
+	 * rollups existed have no rows yet; their rollups are built from the
+	 * daily series on first use.
+	 */
+	private static PriceSeries loadRollupSeries(String symbol, Resolution resolution, long version) {
+		logger.info("Loading {} price series for {} from database.", resolution.name().toLowerCase(), symbol);
+		SeriesLoadEvent load = new SeriesLoadEvent();
+		load.begin();
+		
+		String sql = "SELECT last_date, open, high, low, close, adjusted_close, volume "
+				+ "FROM price_rollups "
+				+ "WHERE symbol_id = ? AND resolution = ? "
+				+ "ORDER BY period_start";
+		
+		int size = 0;
+		int[] days = new int[256];
+		double[] open = new double[256];
+		double[] high = new double[256];
+		double[] low = new double[256];
+		double[] close = new double[256];
+		double[] adjClose = new double[256];
+		long[] volume = new long[256];
+		
+		long start = System.nanoTime();
+		try (
+			PreparedStatement prep = conn.prepareStatement(sql);
+		) {
+			prep.setInt(1, getSymbolId(symbol));
+			prep.setString(2, String.valueOf(resolution.code));
+			ResultSet rs = prep.executeQuery();
+			while(rs.next()) {
+				if(size == days.length) {
+					int capacity = size * 2;
+					days = Arrays.copyOf(days, capacity);
+					open = Arrays.copyOf(open, capacity);
+					high = Arrays.copyOf(high, capacity);
+					low = Arrays.copyOf(low, capacity);
+					close = Arrays.copyOf(close, capacity);
+					adjClose = Arrays.copyOf(adjClose, capacity);
+					volume = Arrays.copyOf(volume, capacity);
+				}
+				
+				days[size] = (int) rs.getDate(1).toLocalDate().toEpochDay();
+				open[size] = rs.getDouble(2);
+				high[size] = rs.getDouble(3);
+				low[size] = rs.getDouble(4);
+				close[size] = rs.getDouble(5);
+				adjClose[size] = rs.getDouble(6);
+				volume[size] = rs.getLong(7);
+				size++;
+			}
+			
+			if(size == 0) {
+				PriceSeries daily = getPriceSeries(symbol);
+				if(daily == null || daily.isEmpty()) {
+					return daily;
+				}
+				logger.info("Building price rollups for {}.", symbol);
+				synchronized(writeLock) {
+					saveRollups(daily);
+				}
+				return daily.rollUp(resolution);
+			}
+		} catch (SQLException e) {
+			errors.increment();
+			logger.error("Error loading {} price series for {} from database: {}", resolution.name().toLowerCase(), symbol, e.getMessage());
+			return null;
+		} finally {
+			Metrics.timer("db.query.rollup_series").recordSince(start);
+		}
+		
+		commit(load, symbol, resolution, size);
+		return new PriceSeries(
+			symbol,
+			version,
+			Arrays.copyOf(days, size),
+			Arrays.copyOf(open, size),
+			Arrays.copyOf(high, size),
+			Arrays.copyOf(low, size),
+			Arrays.copyOf(close, size),
+			Arrays.copyOf(adjClose, size),
+			Arrays.copyOf(volume, size)
+		);
+	}
+	
+	private static void commit(SeriesLoadEvent event, String symbol, Resolution resolution, int rows) {
+		event.end();
+		if(event.shouldCommit()) {
+			event.symbol = symbol;
+			event.resolution = resolution.name();
+			event.rows = rows;
+			event.bytes = (long) rows * SERIES_BAR_BYTES;
+			event.commit();
+		}
+	}
+	
+	private static void updateTrackedSymbolsList() throws SQLException {
+		String sql = "SELECT symbols.symbol as symbol FROM price_summary\n"
+				+ "JOIN symbols ON symbols.symbol_id = price_summary.symbol_id";
+		
+		long start = System.nanoTime();
 		try (
 			Statement stmt = conn.createStatement();
 		) {
@@ -550,13 +1797,11 @@ public final class StockDatabase {
 			while(rs.next()) {
 				data.add(rs.getString("symbol"));
 			}
-			Platform.runLater(()->{
-				for(String s : data) {
-					trackedSymbols.add(s);
-				}
+			notifier.execute(()->{
+				trackedSymbols.addAll(data);
 			});
-		} catch (SQLException e) {
-			logger.error("Error updating priced symbols list: {}", e.getMessage());
+		} finally {
+			Metrics.timer("db.query.tracked_symbols").recordSince(start);
 		}
 	}
 	
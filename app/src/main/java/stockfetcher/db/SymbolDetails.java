@@ -0,0 +1,46 @@
+package stockfetcher.db;
+
+import java.util.List;
+
+import javafx.util.Pair;
+import stockfetcher.api.CompanyData;
+
+/**
+ * Everything the info panel shows for a symbol, loaded in one query.
+ */
+public class SymbolDetails {
+
+	public final String symbol;
+
+	/**
+	 * Company data for the symbol; null if no company data is stored.
+	 */
+	public final CompanyData company;
+
+	/**
+	 * ETF name for the symbol; null if the symbol is not a stored ETF or
+	 * the name is unknown.
+	 */
+	public final String etfName;
+
+	/**
+	 * ETF holdings as (symbol, percent), largest first. Empty if the
+	 * symbol is not an ETF or no holdings are stored.
+	 */
+	public final List<Pair<String, Double>> holdings;
+
+	private final boolean etf;
+
+	public SymbolDetails(String symbol, CompanyData company, boolean etf, String etfName, List<Pair<String, Double>> holdings) {
+		this.symbol = symbol;
+		this.company = company;
+		this.etf = etf;
+		this.etfName = etfName;
+		this.holdings = List.copyOf(holdings);
+	}
+
+	public boolean isEtf() {
+		return etf;
+	}
+
+}
@@ -0,0 +1,27 @@
+package stockfetcher.ingest;
+
+/**
+ * Receives the progress of symbol imports. Methods are called on the
+ * importing thread, and from several threads at once if imports run
+ * concurrently.
+ */
+public interface ImportListener {
+
+	/**
+	 * Called when a step of a symbol's import starts.
+	 * @param symbol
+	 * @param step
+	 * @param message description of the step for display
+	 */
+	public default void stepStarted(String symbol, ImportStep step, String message) {}
+
+	/**
+	 * Called when a step fails. A failed price download ends the import
+	 * of the symbol; other failures only skip the remaining information.
+	 * @param symbol
+	 * @param step
+	 * @param reason
+	 */
+	public default void stepFailed(String symbol, ImportStep step, String reason) {}
+
+}
@@ -0,0 +1,56 @@
+package stockfetcher.ingest;
+
+/**
+ * Outcome of importing one symbol.
+ */
+public class ImportResult {
+
+	public enum Status {
+		/**
+		 * Everything requested was downloaded and stored.
+		 */
+		OK,
+		/**
+		 * Prices were stored but the company/ETF information was not.
+		 */
+		PARTIAL,
+		FAILED
+	}
+
+	public enum Kind {
+		COMPANY,
+		ETF,
+		/**
+		 * Neither a company nor an ETF (e.g. an index).
+		 */
+		OTHER,
+		/**
+		 * Not classified, either because it wasn't requested or because
+		 * the import failed first.
+		 */
+		UNKNOWN
+	}
+
+	public final String symbol;
+	public final Status status;
+	public final Kind kind;
+
+	/**
+	 * Number of price rows stored.
+	 */
+	public final int rows;
+
+	/**
+	 * Reason of the first failure; null if the import succeeded.
+	 */
+	public final String error;
+
+	public ImportResult(String symbol, Status status, Kind kind, int rows, String error) {
+		this.symbol = symbol;
+		this.status = status;
+		this.kind = kind;
+		this.rows = rows;
+		this.error = error;
+	}
+
+}
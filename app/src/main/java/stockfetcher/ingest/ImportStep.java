@@ -0,0 +1,14 @@
+package stockfetcher.ingest;
+
+/**
+ * Steps of a symbol import, in the order they run.
+ */
+public enum ImportStep {
+	FETCH_PRICES,
+	STORE_PRICES,
+	CLASSIFY,
+	FETCH_COMPANY,
+	STORE_COMPANY,
+	FETCH_ETF,
+	STORE_ETF
+}
@@ -0,0 +1,151 @@
+package stockfetcher.ingest;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import stockfetcher.api.CompanyData;
+import stockfetcher.api.EtfData;
+import stockfetcher.api.PriceData;
+import stockfetcher.api.StockApi;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.jfr.SymbolImportEvent;
+
+/**
+ * Downloads a symbol's prices and company/ETF information and stores them
+ * in the database. Used by both the application and the command line, so
+ * progress is only reported through an {@link ImportListener}.
+ * <p>
+ * Imports may run on several threads at once: downloads run concurrently,
+ * while database writes are serialized since the database shares a single
+ * connection and its id caches aren't thread safe.
+ */
+public class SymbolImporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(SymbolImporter.class);
+
+	public enum Prices {
+		NONE,
+		/**
+		 * The last 100 days.
+		 */
+		RECENT,
+		FULL
+	}
+
+	private static final Object databaseLock = new Object();
+
+	private final ImportListener listener;
+
+	public SymbolImporter(ImportListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Imports a symbol.
+	 * @param symbol
+	 * @param prices how much price history to download
+	 * @param info true to also download company or ETF information
+	 * @return outcome of the import
+	 */
+	public ImportResult importSymbol(String symbol, Prices prices, boolean info) {
+		SymbolImportEvent event = new SymbolImportEvent();
+		event.begin();
+
+		ImportResult result = run(symbol, prices, info);
+
+		event.end();
+		if(event.shouldCommit()) {
+			event.symbol = symbol;
+			event.full = prices == Prices.FULL;
+			event.rows = result.rows;
+			event.succeeded = result.status == ImportResult.Status.OK;
+			event.commit();
+		}
+		return result;
+	}
+
+	private ImportResult run(String symbol, Prices prices, boolean info) {
+		int rows = 0;
+		if(prices != Prices.NONE) {
+			listener.stepStarted(symbol, ImportStep.FETCH_PRICES, "Downloading price data for " + symbol + "...");
+			PriceData[] data = StockApi.getStockPriceData(symbol, prices == Prices.FULL);
+			if(data == null) {
+				String reason = "Unable to download price data.";
+				listener.stepFailed(symbol, ImportStep.FETCH_PRICES, reason);
+				return new ImportResult(symbol, ImportResult.Status.FAILED, ImportResult.Kind.UNKNOWN, 0, reason);
+			}
+
+			listener.stepStarted(symbol, ImportStep.STORE_PRICES,
+					String.format("Adding price data for %s to database (%d entries)...", symbol, data.length));
+			synchronized(databaseLock) {
+				StockDatabase.addPriceData(data);
+			}
+			rows = data.length;
+		}
+
+		if(!info) {
+			return new ImportResult(symbol, ImportResult.Status.OK, ImportResult.Kind.UNKNOWN, rows, null);
+		}
+
+		// Check whether it was an etf or company, and add data as appropriate
+		ImportResult.Kind kind = ImportResult.Kind.UNKNOWN;
+		String error = null;
+		try {
+			listener.stepStarted(symbol, ImportStep.CLASSIFY, "Checking if " + symbol + " is a stock or ETF...");
+			if(StockApi.isSymbolCompany(symbol)) {
+				kind = ImportResult.Kind.COMPANY;
+				listener.stepStarted(symbol, ImportStep.FETCH_COMPANY, String.format("Downloading company data for %s...", symbol));
+				CompanyData company = StockApi.getCompanyOverview(symbol);
+				if(company == null) {
+					error = "Unable to download company info. The API used for this data is rate limited (5 requests/min).";
+					listener.stepFailed(symbol, ImportStep.FETCH_COMPANY, error);
+				}
+				else {
+					listener.stepStarted(symbol, ImportStep.STORE_COMPANY,
+							String.format("Adding company data for %s (%s) to database...", company.name, symbol));
+					synchronized(databaseLock) {
+						StockDatabase.addCompanyData(company);
+					}
+				}
+			}
+			else if(StockApi.isSymbolETF(symbol)) {
+				kind = ImportResult.Kind.ETF;
+				listener.stepStarted(symbol, ImportStep.FETCH_ETF, String.format("Downloading ETF data for %s...", symbol));
+				EtfData etf = StockApi.getEtfOverview(symbol);
+				if(etf == null) {
+					error = "Unable to download ETF info.";
+					listener.stepFailed(symbol, ImportStep.FETCH_ETF, error);
+				}
+				else {
+					listener.stepStarted(symbol, ImportStep.STORE_ETF,
+							String.format("Adding ETF data for %s (%s) to database...", etf.name, symbol));
+					synchronized(databaseLock) {
+						StockDatabase.addEtfData(etf);
+					}
+				}
+			}
+			else {
+				kind = ImportResult.Kind.OTHER;
+			}
+		} catch (IOException | InterruptedException e) {
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			logger.error("Unable to check whether {} is a stock or ETF: {}", symbol, e.toString());
+			error = "Unable to check whether the symbol is a stock or ETF: " + e;
+			listener.stepFailed(symbol, ImportStep.CLASSIFY, error);
+		}
+
+		ImportResult.Status status;
+		if(error == null) {
+			status = ImportResult.Status.OK;
+		}
+		else {
+			status = prices == Prices.NONE ? ImportResult.Status.FAILED : ImportResult.Status.PARTIAL;
+		}
+		return new ImportResult(symbol, status, kind, rows, error);
+	}
+
+}
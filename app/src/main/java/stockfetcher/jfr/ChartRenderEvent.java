@@ -0,0 +1,28 @@
+package stockfetcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Chart work done on the FX thread.
+ */
+@Name("stockfetcher.ChartRender")
+@Label("Chart Render")
+@Category({"Stockfetcher", "UI"})
+@Description("Chart work done on the FX application thread")
+public final class ChartRenderEvent extends Event {
+
+	@Label("Phase")
+	@Description("apply, normalize or layout")
+	public String phase;
+
+	@Label("Series")
+	public int series;
+
+	@Label("Points")
+	public int points;
+
+}
@@ -0,0 +1,101 @@
+package stockfetcher.jfr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * In-app flight recording. The JDK's default settings are combined with
+ * the bundled stockfetcher.jfc, which enables the application's own
+ * events and lowers the thresholds of the JDK socket, file and lock
+ * events enough to see individual fetches and queries.
+ * <p>
+ * The same profile can be used outside the application, e.g.
+ * {@code jcmd <pid> JFR.start settings=default,/path/to/stockfetcher.jfc}.
+ */
+public final class FlightRecording {
+
+	private static final Logger logger = LoggerFactory.getLogger(FlightRecording.class);
+
+	public static final String SETTINGS_RESOURCE = "stockfetcher.jfc";
+
+	private static Recording recording = null;
+
+	private FlightRecording() {}
+
+	public static synchronized boolean isRunning() {
+		return recording != null;
+	}
+
+	/**
+	 * Starts recording if not already recording.
+	 * @throws IOException if the settings can't be read
+	 */
+	public static synchronized void start() throws IOException {
+		if(recording != null) {
+			return;
+		}
+
+		Recording started = new Recording(settings());
+		started.setName("Stockfetcher");
+		started.setToDisk(true);
+		started.start();
+		recording = started;
+		logger.info("Flight recording started.");
+	}
+
+	/**
+	 * Stops recording and writes everything recorded to a file.
+	 * @param file
+	 * @throws IOException if the recording could not be written; the recording is discarded either way
+	 */
+	public static synchronized void stop(Path file) throws IOException {
+		if(recording == null) {
+			return;
+		}
+
+		try {
+			recording.stop();
+			recording.dump(file);
+			logger.info("Flight recording written to {}.", file);
+		} finally {
+			recording.close();
+			recording = null;
+		}
+	}
+
+	private static Map<String, String> settings() throws IOException {
+		HashMap<String, String> settings = new HashMap<>();
+		try {
+			settings.putAll(Configuration.getConfiguration("default").getSettings());
+		} catch (ParseException e) {
+			logger.warn("Unable to read default JFR settings: {}", e.getMessage());
+		}
+
+		InputStream in = ClassLoader.getSystemResourceAsStream(SETTINGS_RESOURCE);
+		if(in == null) {
+			throw new IOException(SETTINGS_RESOURCE + " is missing.");
+		}
+		try (
+			Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+		) {
+			settings.putAll(Configuration.create(reader).getSettings());
+		} catch (ParseException e) {
+			throw new IOException("Invalid " + SETTINGS_RESOURCE + ": " + e.getMessage(), e);
+		}
+		return settings;
+	}
+
+}
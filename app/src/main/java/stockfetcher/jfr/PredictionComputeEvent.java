@@ -0,0 +1,36 @@
+package stockfetcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Fit or simulation of a price prediction.
+ */
+@Name("stockfetcher.PredictionCompute")
+@Label("Prediction Compute")
+@Category({"Stockfetcher", "Analytics"})
+@Description("Fit or simulation of a price prediction")
+public final class PredictionComputeEvent extends Event {
+
+	@Label("Symbol")
+	public String symbol;
+
+	@Label("Method")
+	public String method;
+
+	@Label("Rows")
+	@Description("Prices the prediction is based on")
+	public int rows;
+
+	@Label("Days")
+	@Description("Days predicted past the last price")
+	public int days;
+
+	@Label("Paths")
+	@Description("Simulated paths; 0 for fitted predictions")
+	public int paths;
+
+}
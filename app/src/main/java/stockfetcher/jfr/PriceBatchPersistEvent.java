@@ -0,0 +1,29 @@
+package stockfetcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Insert of a batch of price rows, including the summary and rollup
+ * updates it causes.
+ */
+@Name("stockfetcher.PriceBatchPersist")
+@Label("Price Batch Persist")
+@Category({"Stockfetcher", "Database"})
+@Description("Insert of a batch of price rows with its summary and rollup updates")
+public final class PriceBatchPersistEvent extends Event {
+
+	@Label("Symbols")
+	@Description("Comma separated symbols in the batch")
+	public String symbols;
+
+	@Label("Symbol Count")
+	public int symbolCount;
+
+	@Label("Rows")
+	public int rows;
+
+}
@@ -0,0 +1,29 @@
+package stockfetcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Parsing of a downloaded price history CSV.
+ */
+@Name("stockfetcher.PriceParse")
+@Label("Price Parse")
+@Category({"Stockfetcher", "Parsing"})
+@Description("Parsing of a downloaded price history")
+public final class PriceParseEvent extends Event {
+
+	@Label("Symbol")
+	public String symbol;
+
+	@Label("Rows")
+	public int rows;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+}
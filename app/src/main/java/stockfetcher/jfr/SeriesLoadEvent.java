@@ -0,0 +1,33 @@
+package stockfetcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Load of a price series from the database on a series cache miss.
+ */
+@Name("stockfetcher.SeriesLoad")
+@Label("Series Load")
+@Category({"Stockfetcher", "Database"})
+@Description("Load of a price series from the database on a cache miss")
+public final class SeriesLoadEvent extends Event {
+
+	@Label("Symbol")
+	public String symbol;
+
+	@Label("Resolution")
+	public String resolution;
+
+	@Label("Rows")
+	public int rows;
+
+	@Label("Bytes")
+	@Description("Memory held by the loaded series")
+	@DataAmount
+	public long bytes;
+
+}
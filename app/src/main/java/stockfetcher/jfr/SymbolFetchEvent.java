@@ -0,0 +1,34 @@
+package stockfetcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Download of price history or company/ETF information for a symbol.
+ * Covers only the network transfer; parsing is a separate event.
+ */
+@Name("stockfetcher.SymbolFetch")
+@Label("Symbol Fetch")
+@Category({"Stockfetcher", "Network"})
+@Description("Download of price history or company/ETF information for a symbol")
+public final class SymbolFetchEvent extends Event {
+
+	@Label("Symbol")
+	public String symbol;
+
+	@Label("Kind")
+	@Description("prices, company, etf or check")
+	public String kind;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+	@Label("Succeeded")
+	public boolean succeeded;
+
+}
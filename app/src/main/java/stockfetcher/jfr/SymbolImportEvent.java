@@ -0,0 +1,32 @@
+package stockfetcher.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Download and storage of everything for one symbol: prices, then
+ * company or ETF information. Nested fetch, parse and persist events
+ * show where the time went.
+ */
+@Name("stockfetcher.SymbolImport")
+@Label("Symbol Import")
+@Category({"Stockfetcher", "Import"})
+@Description("Download and storage of prices and company/ETF information for a symbol")
+public final class SymbolImportEvent extends Event {
+
+	@Label("Symbol")
+	public String symbol;
+
+	@Label("Full History")
+	public boolean full;
+
+	@Label("Rows")
+	public int rows;
+
+	@Label("Succeeded")
+	public boolean succeeded;
+
+}
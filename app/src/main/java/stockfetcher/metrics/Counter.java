@@ -0,0 +1,39 @@
+package stockfetcher.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of events, such as cache hits or failed requests.
+ */
+public final class Counter extends Metric {
+
+	private final LongAdder count = new LongAdder();
+
+	Counter(String name) {
+		super(name, Type.COUNTER);
+	}
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long n) {
+		count.add(n);
+	}
+
+	public long get() {
+		return count.sum();
+	}
+
+	@Override
+	public MetricSnapshot snapshot() {
+		long value = count.sum();
+		return new MetricSnapshot(name, type, value, value, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+	}
+
+	@Override
+	void reset() {
+		count.reset();
+	}
+
+}
@@ -0,0 +1,116 @@
+package stockfetcher.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values, such as batch sizes. Values are
+ * counted in log-linear buckets (16 per power of two), so quantiles are
+ * within about 3% of the true value while recording stays lock free and
+ * the footprint is fixed no matter how many values are recorded.
+ */
+public final class Histogram extends Metric {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	Histogram(String name) {
+		super(name, Type.HISTOGRAM);
+	}
+
+	/**
+	 * Records a value. Negative values are counted as 0.
+	 * @param value
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(bucket(value));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	@Override
+	public MetricSnapshot snapshot() {
+		return snapshot(1);
+	}
+
+	/**
+	 * @param scale multiplier applied to every reported value
+	 */
+	MetricSnapshot snapshot(double scale) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+
+		double total = sum.sum() * scale;
+		double largest = max.get() * scale;
+		if(count == 0) {
+			return new MetricSnapshot(name, type, 0, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+		}
+		return new MetricSnapshot(name, type, count, total, total / count,
+				Math.min(largest, quantile(counts, count, 0.5) * scale),
+				Math.min(largest, quantile(counts, count, 0.9) * scale),
+				Math.min(largest, quantile(counts, count, 0.99) * scale),
+				largest);
+	}
+
+	@Override
+	void reset() {
+		for(int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		sum.reset();
+		max.reset();
+	}
+
+	/**
+	 * @return midpoint of the bucket holding the q-th quantile
+	 */
+	private static double quantile(long[] counts, long count, double q) {
+		long rank = Math.max(1, (long) Math.ceil(q * count));
+		long seen = 0;
+		for(int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				long width = bucketWidth(i);
+				return bucketStart(i) + (width - 1) / 2.0;
+			}
+		}
+		return bucketStart(counts.length - 1);
+	}
+
+	static int bucket(long value) {
+		if(value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	static long bucketStart(int bucket) {
+		if(bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+		return (long) (SUB_COUNT + bucket % SUB_COUNT) << (exponent - SUB_BITS);
+	}
+
+	static long bucketWidth(int bucket) {
+		if(bucket < SUB_COUNT) {
+			return 1;
+		}
+		int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+		return 1L << (exponent - SUB_BITS);
+	}
+
+}
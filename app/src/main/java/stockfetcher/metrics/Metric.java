@@ -0,0 +1,43 @@
+package stockfetcher.metrics;
+
+/**
+ * A named measurement held by the {@link Metrics} registry.
+ */
+public abstract class Metric {
+
+	public enum Type {
+		COUNTER("Counter"),
+		HISTOGRAM("Histogram"),
+		TIMER("Timer");
+
+		private final String label;
+
+		private Type(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	public final String name;
+	public final Type type;
+
+	Metric(String name, Type type) {
+		this.name = name;
+		this.type = type;
+	}
+
+	/**
+	 * @return current values of this metric
+	 */
+	public abstract MetricSnapshot snapshot();
+
+	/**
+	 * Clears everything recorded so far.
+	 */
+	abstract void reset();
+
+}
@@ -0,0 +1,24 @@
+package stockfetcher.metrics;
+
+/**
+ * JMX view of a single metric. Timer values are in milliseconds.
+ */
+public interface MetricMXBean {
+
+	public long getCount();
+
+	public double getSum();
+
+	public double getMean();
+
+	public double getP50();
+
+	public double getP90();
+
+	public double getP99();
+
+	public double getMax();
+
+	public void reset();
+
+}
@@ -0,0 +1,33 @@
+package stockfetcher.metrics;
+
+/**
+ * Values of a metric at one point in time. Timer values are in
+ * milliseconds; counters only have a count (equal to their sum).
+ * Quantiles, mean and max are NaN when nothing has been recorded.
+ */
+public class MetricSnapshot {
+
+	public final String name;
+	public final Metric.Type type;
+	public final long count;
+	public final double sum;
+	public final double mean;
+	public final double p50;
+	public final double p90;
+	public final double p99;
+	public final double max;
+
+	public MetricSnapshot(String name, Metric.Type type, long count, double sum, double mean,
+			double p50, double p90, double p99, double max) {
+		this.name = name;
+		this.type = type;
+		this.count = count;
+		this.sum = sum;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+}
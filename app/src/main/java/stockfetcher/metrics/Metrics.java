@@ -0,0 +1,145 @@
+package stockfetcher.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Application-wide registry of timers, counters and histograms. Metrics
+ * are created on first use and live for the rest of the run; callers
+ * normally keep them in static fields. Every metric is also published as
+ * an MXBean named {@code stockfetcher:type=<Type>,name=<name>}.
+ * <p>
+ * Names are dot separated, lowercase and most general part first, e.g.
+ * {@code db.write.prices}.
+ */
+public final class Metrics {
+
+	private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+	private static final ConcurrentHashMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+	private Metrics() {}
+
+	public static Timer timer(String name) {
+		return register(name, Timer.class, Timer::new);
+	}
+
+	public static Counter counter(String name) {
+		return register(name, Counter.class, Counter::new);
+	}
+
+	public static Histogram histogram(String name) {
+		return register(name, Histogram.class, Histogram::new);
+	}
+
+	/**
+	 * @return snapshots of every registered metric, ordered by name
+	 */
+	public static List<MetricSnapshot> snapshot() {
+		ArrayList<MetricSnapshot> snapshots = new ArrayList<>();
+		for(Metric metric : metrics.values()) {
+			snapshots.add(metric.snapshot());
+		}
+		snapshots.sort(Comparator.comparing(snapshot -> snapshot.name));
+		return snapshots;
+	}
+
+	/**
+	 * Clears every metric. Values recorded while resetting may be partly
+	 * kept.
+	 */
+	public static void reset() {
+		for(Metric metric : metrics.values()) {
+			metric.reset();
+		}
+	}
+
+	private static <M extends Metric> M register(String name, Class<M> type, Function<String, M> factory) {
+		Metric metric = metrics.get(name);
+		if(metric == null) {
+			M created = factory.apply(name);
+			metric = metrics.putIfAbsent(name, created);
+			if(metric == null) {
+				metric = created;
+				publish(created);
+			}
+		}
+
+		if(!type.isInstance(metric)) {
+			throw new IllegalArgumentException(String.format("Metric %s is already registered as a %s.", name, metric.type));
+		}
+		return type.cast(metric);
+	}
+
+	private static void publish(Metric metric) {
+		try {
+			ObjectName objectName = new ObjectName("stockfetcher:type=" + metric.type + ",name=" + metric.name);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new StandardMBean(new MetricBean(metric), MetricMXBean.class, true), objectName);
+		} catch (JMException e) {
+			logger.warn("Unable to publish metric {} over JMX: {}", metric.name, e.getMessage());
+		}
+	}
+
+	private static final class MetricBean implements MetricMXBean {
+
+		private final Metric metric;
+
+		MetricBean(Metric metric) {
+			this.metric = metric;
+		}
+
+		@Override
+		public long getCount() {
+			return metric.snapshot().count;
+		}
+
+		@Override
+		public double getSum() {
+			return metric.snapshot().sum;
+		}
+
+		@Override
+		public double getMean() {
+			return metric.snapshot().mean;
+		}
+
+		@Override
+		public double getP50() {
+			return metric.snapshot().p50;
+		}
+
+		@Override
+		public double getP90() {
+			return metric.snapshot().p90;
+		}
+
+		@Override
+		public double getP99() {
+			return metric.snapshot().p99;
+		}
+
+		@Override
+		public double getMax() {
+			return metric.snapshot().max;
+		}
+
+		@Override
+		public void reset() {
+			metric.reset();
+		}
+
+	}
+
+}
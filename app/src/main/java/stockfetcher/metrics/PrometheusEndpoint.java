@@ -0,0 +1,119 @@
+package stockfetcher.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves every metric in the Prometheus text format at
+ * {@code http://localhost:<port>/metrics}. Timers and histograms are
+ * exported as summaries (timers in seconds), counters as counters. The
+ * server only listens on the loopback address and is off unless a port
+ * is given with {@code -Dstockfetcher.metrics.port=<port>}.
+ */
+public final class PrometheusEndpoint {
+
+	private static final Logger logger = LoggerFactory.getLogger(PrometheusEndpoint.class);
+
+	public static final String PORT_PROPERTY = "stockfetcher.metrics.port";
+
+	private static final String PREFIX = "stockfetcher_";
+
+	private static HttpServer server = null;
+
+	private PrometheusEndpoint() {}
+
+	/**
+	 * Starts the endpoint if a port is configured. Failures are logged.
+	 */
+	public static void startIfConfigured() {
+		Integer port = Integer.getInteger(PORT_PROPERTY);
+		if(port == null) {
+			return;
+		}
+
+		try {
+			start(port);
+		} catch (IOException e) {
+			logger.error("Unable to start metrics endpoint on port {}: {}", port, e.getMessage());
+		}
+	}
+
+	public static synchronized void start(int port) throws IOException {
+		if(server != null) {
+			return;
+		}
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", PrometheusEndpoint::handle);
+		server.start();
+		logger.info("Serving metrics at http://localhost:{}/metrics", server.getAddress().getPort());
+	}
+
+	public static synchronized void stop() {
+		if(server != null) {
+			server.stop(0);
+			server = null;
+		}
+	}
+
+	private static void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if(!exchange.getRequestMethod().equals("GET")) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			byte[] body = format(Metrics.snapshot()).getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+
+	/**
+	 * @param snapshots
+	 * @return the snapshots in the Prometheus text exposition format
+	 */
+	public static String format(List<MetricSnapshot> snapshots) {
+		StringBuilder text = new StringBuilder();
+		for(MetricSnapshot snapshot : snapshots) {
+			String name = PREFIX + snapshot.name.replaceAll("[^a-zA-Z0-9_]", "_");
+			if(snapshot.type == Metric.Type.COUNTER) {
+				name += "_total";
+				text.append("# TYPE ").append(name).append(" counter\n");
+				text.append(name).append(' ').append(snapshot.count).append('\n');
+				continue;
+			}
+
+			double scale = 1;
+			if(snapshot.type == Metric.Type.TIMER) {
+				name += "_seconds";
+				scale = 0.001;
+			}
+			text.append("# TYPE ").append(name).append(" summary\n");
+			appendQuantile(text, name, "0.5", snapshot.p50 * scale);
+			appendQuantile(text, name, "0.9", snapshot.p90 * scale);
+			appendQuantile(text, name, "0.99", snapshot.p99 * scale);
+			text.append(name).append("_sum ").append(snapshot.sum * scale).append('\n');
+			text.append(name).append("_count ").append(snapshot.count).append('\n');
+		}
+		return text.toString();
+	}
+
+	private static void appendQuantile(StringBuilder text, String name, String quantile, double value) {
+		text.append(name).append("{quantile=\"").append(quantile).append("\"} ").append(value).append('\n');
+	}
+
+}
@@ -0,0 +1,50 @@
+package stockfetcher.metrics;
+
+/**
+ * Distribution of operation durations. Durations are recorded in
+ * nanoseconds and reported in milliseconds.
+ * <pre>
+ * long start = System.nanoTime();
+ * try {
+ *     ...
+ * } finally {
+ *     timer.recordSince(start);
+ * }
+ * </pre>
+ */
+public final class Timer extends Metric {
+
+	private static final double NANOS_PER_MILLI = 1_000_000;
+
+	private final Histogram durations;
+
+	Timer(String name) {
+		super(name, Type.TIMER);
+		durations = new Histogram(name);
+	}
+
+	/**
+	 * Records an operation that started at the given {@link System#nanoTime()}.
+	 * @param startNanos
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public void record(long nanos) {
+		durations.record(nanos);
+	}
+
+	@Override
+	public MetricSnapshot snapshot() {
+		MetricSnapshot snapshot = durations.snapshot(1 / NANOS_PER_MILLI);
+		return new MetricSnapshot(name, type, snapshot.count, snapshot.sum, snapshot.mean,
+				snapshot.p50, snapshot.p90, snapshot.p99, snapshot.max);
+	}
+
+	@Override
+	void reset() {
+		durations.reset();
+	}
+
+}
@@ -0,0 +1,154 @@
+package stockfetcher.schedule;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Trading days of the NYSE/Nasdaq: weekdays other than exchange holidays.
+ * Holidays follow the exchange's standing rules (Saturday holidays are
+ * observed on Friday and Sunday holidays on Monday, except New Year's Day
+ * falling on a Saturday). One-off closures and early closes aren't known.
+ */
+public final class MarketCalendar {
+
+	public static final ZoneId ZONE = ZoneId.of("America/New_York");
+	public static final LocalTime CLOSE = LocalTime.of(16, 0);
+
+	private MarketCalendar() {}
+
+	/**
+	 * Checks whether the exchange is open on a date.
+	 * @param date
+	 * @return
+	 */
+	public static boolean isTradingDay(LocalDate date) {
+		DayOfWeek day = date.getDayOfWeek();
+		return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY && !isHoliday(date);
+	}
+
+	/**
+	 * Checks whether a weekday is an exchange holiday.
+	 * @param date
+	 * @return
+	 */
+	public static boolean isHoliday(LocalDate date) {
+		int year = date.getYear();
+
+		// New Year's Day isn't moved back into the previous year
+		LocalDate newYear = LocalDate.of(year, Month.JANUARY, 1);
+		if(date.equals(newYear) || (newYear.getDayOfWeek() == DayOfWeek.SUNDAY && date.equals(newYear.plusDays(1)))) {
+			return true;
+		}
+
+		return date.equals(nthWeekday(year, Month.JANUARY, DayOfWeek.MONDAY, 3))	// Martin Luther King Jr. Day
+				|| date.equals(nthWeekday(year, Month.FEBRUARY, DayOfWeek.MONDAY, 3))	// Washington's Birthday
+				|| date.equals(easter(year).minusDays(2))	// Good Friday
+				|| date.equals(LocalDate.of(year, Month.MAY, 31).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)))	// Memorial Day
+				|| (year >= 2022 && date.equals(observed(LocalDate.of(year, Month.JUNE, 19))))	// Juneteenth
+				|| date.equals(observed(LocalDate.of(year, Month.JULY, 4)))
+				|| date.equals(nthWeekday(year, Month.SEPTEMBER, DayOfWeek.MONDAY, 1))	// Labor Day
+				|| date.equals(nthWeekday(year, Month.NOVEMBER, DayOfWeek.THURSDAY, 4))	// Thanksgiving
+				|| date.equals(observed(LocalDate.of(year, Month.DECEMBER, 25)));
+	}
+
+	/**
+	 * Gets the latest trading day before a date.
+	 * @param date
+	 * @return
+	 */
+	public static LocalDate previousTradingDay(LocalDate date) {
+		do {
+			date = date.minusDays(1);
+		} while(!isTradingDay(date));
+		return date;
+	}
+
+	/**
+	 * Gets the first trading day after a date.
+	 * @param date
+	 * @return
+	 */
+	public static LocalDate nextTradingDay(LocalDate date) {
+		do {
+			date = date.plusDays(1);
+		} while(!isTradingDay(date));
+		return date;
+	}
+
+	/**
+	 * Gets the latest session whose prices should be available.
+	 * @param now
+	 * @param delay time after the close before prices are published
+	 * @return date of the session
+	 */
+	public static LocalDate lastClosedSession(ZonedDateTime now, Duration delay) {
+		ZonedDateTime local = now.withZoneSameInstant(ZONE);
+		LocalDate today = local.toLocalDate();
+		if(isTradingDay(today) && !local.isBefore(publishTime(today, delay))) {
+			return today;
+		}
+		return previousTradingDay(today);
+	}
+
+	/**
+	 * Gets the next time a session's prices become available.
+	 * @param now
+	 * @param delay time after the close before prices are published
+	 * @return
+	 */
+	public static ZonedDateTime nextPublishTime(ZonedDateTime now, Duration delay) {
+		ZonedDateTime local = now.withZoneSameInstant(ZONE);
+		LocalDate today = local.toLocalDate();
+		if(isTradingDay(today) && local.isBefore(publishTime(today, delay))) {
+			return publishTime(today, delay);
+		}
+		return publishTime(nextTradingDay(today), delay);
+	}
+
+	private static ZonedDateTime publishTime(LocalDate session, Duration delay) {
+		return ZonedDateTime.of(session, CLOSE, ZONE).plus(delay);
+	}
+
+	private static LocalDate nthWeekday(int year, Month month, DayOfWeek day, int n) {
+		return LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(n, day));
+	}
+
+	private static LocalDate observed(LocalDate holiday) {
+		switch(holiday.getDayOfWeek()) {
+		case SATURDAY:
+			return holiday.minusDays(1);
+		case SUNDAY:
+			return holiday.plusDays(1);
+		default:
+			return holiday;
+		}
+	}
+
+	/**
+	 * Computes the date of Easter Sunday (anonymous Gregorian algorithm).
+	 */
+	private static LocalDate easter(int year) {
+		int a = year % 19;
+		int b = year / 100;
+		int c = year % 100;
+		int d = b / 4;
+		int e = b % 4;
+		int f = (b + 8) / 25;
+		int g = (b - f + 1) / 3;
+		int h = (19 * a + b - d - g + 15) % 30;
+		int i = c / 4;
+		int k = c % 4;
+		int l = (32 + 2 * e + 2 * i - h - k) % 7;
+		int m = (a + 11 * h + 22 * l) / 451;
+		int month = (h + l - 7 * m + 114) / 31;
+		int day = (h + l - 7 * m + 114) % 31 + 1;
+		return LocalDate.of(year, month, day);
+	}
+
+}
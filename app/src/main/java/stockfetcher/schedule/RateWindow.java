@@ -0,0 +1,36 @@
+package stockfetcher.schedule;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads requests to a provider evenly over its rate window instead of
+ * sending them in a burst at the start of each window.
+ */
+public class RateWindow {
+
+	private final long spacingNanos;
+	private long next = Long.MIN_VALUE;
+
+	/**
+	 * @param requests requests allowed per window
+	 * @param window
+	 */
+	public RateWindow(int requests, Duration window) {
+		this.spacingNanos = window.toNanos() / requests;
+	}
+
+	/**
+	 * Waits until the next request may be sent.
+	 * @throws InterruptedException
+	 */
+	public synchronized void acquire() throws InterruptedException {
+		long now = System.nanoTime();
+		if(next != Long.MIN_VALUE && next - now > 0) {
+			TimeUnit.NANOSECONDS.sleep(next - now);
+			now = next;
+		}
+		next = now + spacingNanos;
+	}
+
+}
@@ -0,0 +1,219 @@
+package stockfetcher.schedule;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import stockfetcher.db.RefreshState;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.ingest.ImportListener;
+import stockfetcher.ingest.ImportResult;
+import stockfetcher.ingest.SymbolImporter;
+import stockfetcher.ingest.SymbolImporter.Prices;
+import stockfetcher.metrics.Counter;
+import stockfetcher.metrics.Metrics;
+import stockfetcher.metrics.Timer;
+
+/**
+ * Refreshes the prices of every tracked symbol in the background once each
+ * market session's prices are published. Weekends and exchange holidays
+ * are skipped (see {@link MarketCalendar}).
+ * <p>
+ * Symbols open in charts are refreshed first, then the most recently
+ * viewed ones. The session each symbol was last refreshed for is stored in
+ * the database, so a refresh missed while the application was closed is
+ * caught up shortly after startup.
+ */
+public final class RefreshScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(RefreshScheduler.class);
+
+	// Time after the close before the session's prices are published
+	private static final Duration PUBLISH_DELAY = Duration.ofMinutes(30);
+
+	// Delay before catching up at startup, so loading the UI isn't slowed
+	private static final Duration STARTUP_DELAY = Duration.ofMinutes(1);
+
+	// Recent downloads cover 100 calendar days; symbols further behind
+	// need their full history to avoid a gap
+	private static final int RECENT_DAYS = 100;
+
+	// Yahoo price history requests, spread out to stay well under its
+	// (unpublished) rate limit
+	private static final RateWindow priceRequests = new RateWindow(60, Duration.ofMinutes(1));
+
+	private static final Timer runs = Metrics.timer("scheduler.run");
+	private static final Counter refreshed = Metrics.counter("scheduler.symbols.refreshed");
+	private static final Counter failures = Metrics.counter("scheduler.symbols.failed");
+
+	private static final ConcurrentHashMap<String, Instant> views = new ConcurrentHashMap<>();
+	private static volatile Callable<Collection<String>> openSymbols = List::of;
+
+	private static ScheduledExecutorService executor = null;
+
+	private RefreshScheduler() {}
+
+	/**
+	 * Starts refreshing in the background, unless disabled with
+	 * {@code -Dstockfetcher.refresh=false}.
+	 */
+	public static synchronized void startIfEnabled() {
+		if(!Boolean.parseBoolean(System.getProperty("stockfetcher.refresh", "true"))) {
+			logger.info("Scheduled refreshes are disabled.");
+			return;
+		}
+		start();
+	}
+
+	/**
+	 * Starts refreshing in the background. Any missed refresh is caught up
+	 * shortly after.
+	 */
+	public static synchronized void start() {
+		if(executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "refresh-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.schedule(RefreshScheduler::runScheduled, STARTUP_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops refreshing, interrupting a refresh in progress, and saves the
+	 * recently viewed symbols.
+	 */
+	public static synchronized void stop() {
+		if(executor == null) {
+			return;
+		}
+		executor.shutdownNow();
+		executor = null;
+		saveViews();
+	}
+
+	/**
+	 * Sets the source of the symbols open in charts, which are refreshed
+	 * first. Called on the scheduler thread.
+	 * @param symbols
+	 */
+	public static void setOpenSymbols(Callable<Collection<String>> symbols) {
+		openSymbols = symbols;
+	}
+
+	/**
+	 * Records that the user viewed a symbol, so it's refreshed before
+	 * symbols that haven't been looked at recently.
+	 * @param symbol
+	 */
+	public static void symbolViewed(String symbol) {
+		views.put(symbol, Instant.now());
+	}
+
+	private static void runScheduled() {
+		ZonedDateTime now = ZonedDateTime.now(MarketCalendar.ZONE);
+		long start = System.nanoTime();
+		try {
+			refresh(MarketCalendar.lastClosedSession(now, PUBLISH_DELAY));
+		} catch (InterruptedException e) {
+			return;
+		} catch (RuntimeException e) {
+			logger.error("Scheduled refresh failed: {}", e.toString());
+		} finally {
+			runs.recordSince(start);
+		}
+
+		ZonedDateTime next = MarketCalendar.nextPublishTime(ZonedDateTime.now(MarketCalendar.ZONE), PUBLISH_DELAY);
+		logger.info("Next scheduled refresh at {}.", next);
+		synchronized(RefreshScheduler.class) {
+			if(executor != null) {
+				long delay = Duration.between(ZonedDateTime.now(), next).toMillis();
+				executor.schedule(RefreshScheduler::runScheduled, Math.max(0, delay), TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private static void refresh(LocalDate session) throws InterruptedException {
+		saveViews();
+
+		var due = new ArrayList<RefreshState>();
+		for(RefreshState state : StockDatabase.getRefreshStates()) {
+			if(state.lastPrice.isBefore(session) && (state.lastSync == null || state.lastSync.isBefore(session))) {
+				due.add(state);
+			}
+		}
+		if(due.isEmpty()) {
+			return;
+		}
+		due.sort(priority());
+		logger.info("Refreshing {} symbols for the {} session.", due.size(), session);
+
+		SymbolImporter importer = new SymbolImporter(new ImportListener() {});
+		int failed = 0;
+		for(RefreshState state : due) {
+			if(Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException();
+			}
+			priceRequests.acquire();
+
+			Prices prices = state.lastPrice.isBefore(session.minusDays(RECENT_DAYS)) ? Prices.FULL : Prices.RECENT;
+			ImportResult result = importer.importSymbol(state.symbol, prices, false);
+			if(result.status == ImportResult.Status.OK) {
+				StockDatabase.markSymbolSynced(state.symbol, session);
+				refreshed.increment();
+			}
+			else {
+				failures.increment();
+				failed++;
+			}
+		}
+		logger.info("Refreshed {} symbols for the {} session ({} failed).", due.size() - failed, session, failed);
+	}
+
+	/**
+	 * Orders symbols open in charts first, then by most recent view.
+	 */
+	private static Comparator<RefreshState> priority() {
+		Set<String> open = new HashSet<>();
+		try {
+			open.addAll(openSymbols.call());
+		} catch (Exception e) {
+			logger.warn("Unable to get the charted symbols: {}", e.toString());
+		}
+
+		var lastViewed = new HashMap<String, Instant>(views);
+		return Comparator
+				.comparing((RefreshState state) -> !open.contains(state.symbol))
+				.thenComparing(state -> lastViewed.getOrDefault(state.symbol, state.lastViewed),
+						Comparator.nullsLast(Comparator.reverseOrder()))
+				.thenComparing(state -> state.symbol);
+	}
+
+	private static void saveViews() {
+		if(views.isEmpty()) {
+			return;
+		}
+		var saved = new HashMap<String, Instant>(views);
+		StockDatabase.markSymbolsViewed(saved);
+		views.entrySet().removeIf(view -> view.getValue().equals(saved.get(view.getKey())));
+	}
+
+}
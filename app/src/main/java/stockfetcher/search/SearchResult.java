@@ -0,0 +1,23 @@
+package stockfetcher.search;
+
+public class SearchResult {
+
+	public final String symbol;
+
+	/**
+	 * Company or ETF name for the symbol; null if unknown.
+	 */
+	public final String name;
+
+	/**
+	 * Ranking score; higher is a better match.
+	 */
+	public final double score;
+
+	public SearchResult(String symbol, String name, double score) {
+		this.symbol = symbol;
+		this.name = name;
+		this.score = score;
+	}
+
+}
@@ -0,0 +1,345 @@
+package stockfetcher.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory search index over symbols and their company/ETF names.
+ * <p>
+ * Symbols and each word of their names are stored in a prefix trie, which
+ * handles the common case of typing the start of a symbol or name. Every
+ * entry is also indexed by its character trigrams, which catches typos and
+ * mid-word matches. Candidates from both are ranked together and the top
+ * results returned.
+ * <p>
+ * Entries can be added or renamed individually, so the index is kept up to
+ * date as symbols are downloaded instead of being rebuilt.
+ */
+public final class SymbolSearchIndex {
+
+	// Max candidates pulled from the trie for a single prefix
+	private static final int MAX_PREFIX_CANDIDATES = 512;
+
+	// Minimum fraction of query trigrams matched for a fuzzy match to be returned
+	private static final double MIN_FUZZY_SIMILARITY = 0.5;
+
+	private static final double EXACT_SCORE = 1000;
+	private static final double SYMBOL_PREFIX_SCORE = 800;
+	private static final double NAME_PREFIX_SCORE = 600;
+	private static final double FUZZY_SCORE = 400;
+
+	private final ArrayList<Entry> entries = new ArrayList<>();
+	private final HashMap<String, Entry> symbolEntries = new HashMap<>();
+	private final TrieNode trie = new TrieNode();
+	private final HashMap<String, IdList> trigrams = new HashMap<>();
+
+	/**
+	 * Adds the symbol to the index if it is not already present. The name
+	 * of an existing entry is left as is.
+	 * @param symbol
+	 */
+	public synchronized void add(String symbol) {
+		if(!symbolEntries.containsKey(symbol)) {
+			put(symbol, null);
+		}
+	}
+
+	/**
+	 * Adds or updates the entry for a symbol.
+	 * @param symbol
+	 * @param name company or ETF name; null if unknown
+	 */
+	public synchronized void put(String symbol, String name) {
+		Entry existing = symbolEntries.get(symbol);
+		if(existing != null) {
+			if(name == null || name.equals(existing.name)) {
+				return;
+			}
+			unindex(existing);
+
+			// Renamed entries keep their id and slot
+			Entry entry = new Entry(existing.id, symbol, name);
+			entries.set(existing.id, entry);
+			symbolEntries.put(symbol, entry);
+			index(entry);
+			return;
+		}
+
+		Entry entry = new Entry(entries.size(), symbol, name);
+		entries.add(entry);
+		symbolEntries.put(symbol, entry);
+		index(entry);
+	}
+
+	/**
+	 * Adds or updates entries for every symbol in the map.
+	 * @param names map of symbol to company/ETF name (null if unknown)
+	 */
+	public synchronized void putAll(Map<String, String> names) {
+		for(var entry : names.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	public synchronized int size() {
+		return symbolEntries.size();
+	}
+
+	/**
+	 * Finds the best matching symbols for the given query.
+	 * @param query symbol or name text, in any case
+	 * @param limit max number of results
+	 * @return results ordered from best to worst match
+	 */
+	public synchronized List<SearchResult> search(String query, int limit) {
+		String normalized = normalize(query);
+		if(normalized.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		String[] words = normalized.split(" ");
+
+		// Gather candidates from the trie using the longest word, then from trigrams
+		String longest = words[0];
+		for(String word : words) {
+			if(word.length() > longest.length()) {
+				longest = word;
+			}
+		}
+
+		HashSet<Entry> candidates = new HashSet<>();
+		collectPrefix(longest, candidates);
+
+		// Only fall back to the (much wider) trigram lookup if prefixes didn't
+		// turn up enough candidates
+		HashMap<Entry, Integer> trigramHits = new HashMap<>();
+		String[] queryTrigrams = trigramsOf(normalized);
+		if(candidates.size() < limit && normalized.length() >= 3) {
+			for(String trigram : queryTrigrams) {
+				IdList ids = trigrams.get(trigram);
+				if(ids == null) {
+					continue;
+				}
+				for(int i = 0; i < ids.size; i++) {
+					trigramHits.merge(entries.get(ids.ids[i]), 1, Integer::sum);
+				}
+			}
+			candidates.addAll(trigramHits.keySet());
+		}
+
+		// Rank candidates, keeping only the best results
+		PriorityQueue<SearchResult> best = new PriorityQueue<>(limit + 1, SymbolSearchIndex::compareResults);
+		for(Entry entry : candidates) {
+			if(entry.removed) {
+				continue;
+			}
+
+			double score = score(entry, normalized, words, trigramHits.getOrDefault(entry, 0), queryTrigrams.length);
+			if(score <= 0) {
+				continue;
+			}
+
+			best.add(new SearchResult(entry.symbol, entry.name, score));
+			if(best.size() > limit) {
+				best.poll();
+			}
+		}
+
+		SearchResult[] results = best.toArray(new SearchResult[0]);
+		Arrays.sort(results, (a, b) -> compareResults(b, a));
+		return List.of(results);
+	}
+
+	/**
+	 * Orders results from worst to best.
+	 */
+	private static int compareResults(SearchResult a, SearchResult b) {
+		int cmp = Double.compare(a.score, b.score);
+		if(cmp != 0) {
+			return cmp;
+		}
+		// Shorter symbols first, then alphabetical
+		cmp = Integer.compare(b.symbol.length(), a.symbol.length());
+		if(cmp != 0) {
+			return cmp;
+		}
+		return b.symbol.compareTo(a.symbol);
+	}
+
+	private static double score(Entry entry, String query, String[] words, int trigramHits, int queryTrigrams) {
+		if(entry.symbol.equals(query)) {
+			return EXACT_SCORE;
+		}
+		if(entry.symbol.startsWith(query)) {
+			return SYMBOL_PREFIX_SCORE - (entry.symbol.length() - query.length());
+		}
+
+		// Every query word must start one of the name words
+		if(entry.tokens.length > 0) {
+			boolean allMatch = true;
+			int unmatched = 0;
+			for(String word : words) {
+				boolean matched = false;
+				for(String token : entry.tokens) {
+					if(token.startsWith(word)) {
+						matched = true;
+						unmatched += token.length() - word.length();
+						break;
+					}
+				}
+				if(!matched) {
+					allMatch = false;
+					break;
+				}
+			}
+			if(allMatch) {
+				return NAME_PREFIX_SCORE - Math.min(unmatched, 100);
+			}
+		}
+
+		// Fraction of the query's trigrams found in the entry (names are much
+		// longer than queries, so this is fairer than full set similarity)
+		double similarity = trigramHits / (double) queryTrigrams;
+		if(similarity >= MIN_FUZZY_SIMILARITY) {
+			return FUZZY_SCORE * similarity;
+		}
+		return 0;
+	}
+
+	private void index(Entry entry) {
+		trie.insert(entry.symbol, 0, entry.id);
+		for(String token : entry.tokens) {
+			trie.insert(token, 0, entry.id);
+		}
+		for(String trigram : entry.trigrams) {
+			trigrams.computeIfAbsent(trigram, t -> new IdList()).add(entry.id);
+		}
+	}
+
+	private void unindex(Entry entry) {
+		entry.removed = true;
+		trie.remove(entry.symbol, 0, entry.id);
+		for(String token : entry.tokens) {
+			trie.remove(token, 0, entry.id);
+		}
+		for(String trigram : entry.trigrams) {
+			IdList ids = trigrams.get(trigram);
+			if(ids != null) {
+				ids.remove(entry.id);
+			}
+		}
+	}
+
+	/**
+	 * Collects entries with a key starting with the given prefix, shortest
+	 * keys first, up to the candidate limit.
+	 */
+	private void collectPrefix(String prefix, HashSet<Entry> candidates) {
+		TrieNode node = trie;
+		for(int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.children.get(prefix.charAt(i));
+		}
+		if(node == null) {
+			return;
+		}
+
+		ArrayDeque<TrieNode> queue = new ArrayDeque<>();
+		queue.add(node);
+		while(!queue.isEmpty() && candidates.size() < MAX_PREFIX_CANDIDATES) {
+			TrieNode next = queue.poll();
+			for(int i = 0; i < next.ids.size; i++) {
+				candidates.add(entries.get(next.ids.ids[i]));
+			}
+			queue.addAll(next.children.values());
+		}
+	}
+
+	private static String normalize(String text) {
+		return text.trim().toUpperCase().replaceAll("[^A-Z0-9.^\\-]+", " ").trim();
+	}
+
+	private static String[] trigramsOf(String text) {
+		String padded = " " + text + " ";
+		HashSet<String> grams = new HashSet<>();
+		for(int i = 0; i + 3 <= padded.length(); i++) {
+			grams.add(padded.substring(i, i + 3));
+		}
+		return grams.toArray(new String[0]);
+	}
+
+	private static final class Entry {
+		final int id;
+		final String symbol;
+		final String name;
+		final String[] tokens;
+		final String[] trigrams;
+		boolean removed = false;
+
+		Entry(int id, String symbol, String name) {
+			this.id = id;
+			this.symbol = symbol.toUpperCase();
+			this.name = name;
+
+			String normalizedName = name == null ? "" : normalize(name);
+			this.tokens = normalizedName.isEmpty() ? new String[0] : normalizedName.split(" ");
+			this.trigrams = trigramsOf(normalizedName.isEmpty() ? this.symbol : this.symbol + " " + normalizedName);
+		}
+	}
+
+	private static final class TrieNode {
+		final HashMap<Character, TrieNode> children = new HashMap<>(4);
+		final IdList ids = new IdList();
+
+		void insert(String key, int depth, int id) {
+			if(depth == key.length()) {
+				ids.add(id);
+				return;
+			}
+			children.computeIfAbsent(key.charAt(depth), c -> new TrieNode()).insert(key, depth + 1, id);
+		}
+
+		void remove(String key, int depth, int id) {
+			if(depth == key.length()) {
+				ids.remove(id);
+				return;
+			}
+			TrieNode child = children.get(key.charAt(depth));
+			if(child != null) {
+				child.remove(key, depth + 1, id);
+				if(child.ids.size == 0 && child.children.isEmpty()) {
+					children.remove(key.charAt(depth));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable list of primitive entry ids.
+	 */
+	private static final class IdList {
+		int[] ids = new int[2];
+		int size = 0;
+
+		void add(int id) {
+			if(size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+
+		void remove(int id) {
+			for(int i = 0; i < size; i++) {
+				if(ids[i] == id) {
+					ids[i] = ids[--size];
+					return;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,250 @@
+package stockfetcher.ui;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import stockfetcher.backtest.BacktestSettings;
+import stockfetcher.backtest.BuyAndHold;
+import stockfetcher.backtest.MovingAverageCross;
+import stockfetcher.backtest.Strategy;
+
+/**
+ * Dialog for choosing the symbols, strategy, parameter ranges and costs
+ * of a backtest.
+ */
+public class BacktestDialog extends Dialog<BacktestDialog.BacktestOptions> {
+
+	public enum StrategyType {
+		SMA_CROSS("SMA Cross"),
+		BUY_AND_HOLD("Buy and Hold");
+
+		private final String label;
+
+		private StrategyType(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	public BacktestDialog(String symbols) {
+		setTitle("Backtest");
+		setHeaderText("Test a Strategy on Price History");
+
+		getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+		TextField symbolsField = new TextField(symbols == null ? "" : symbols);
+		symbolsField.setPromptText("e.g. SPY, QQQ, IWM");
+		DatePicker begin = new DatePicker(LocalDate.of(2000, 1, 1));
+		DatePicker end = new DatePicker(LocalDate.now());
+
+		ChoiceBox<StrategyType> strategyChoice = new ChoiceBox<>();
+		strategyChoice.getItems().addAll(StrategyType.values());
+		strategyChoice.setValue(StrategyType.SMA_CROSS);
+
+		TextField fastField = new TextField("10:50:10");
+		TextField slowField = new TextField("100:250:50");
+		fastField.disableProperty().bind(strategyChoice.valueProperty().isNotEqualTo(StrategyType.SMA_CROSS));
+		slowField.disableProperty().bind(strategyChoice.valueProperty().isNotEqualTo(StrategyType.SMA_CROSS));
+
+		TextField cashField = new TextField("100000");
+		TextField commissionField = new TextField("1");
+		TextField commissionRateField = new TextField("0");
+		TextField slippageField = new TextField("0.05");
+
+		GridPane grid = new GridPane();
+		grid.setHgap(5);
+		grid.setVgap(5);
+
+		Label helpLabel = new Label("Periods may be a list (10, 20, 50) or a range (from:to:step). "
+				+ "Every combination with a fast period shorter than the slow period is tested.");
+		helpLabel.setWrapText(true);
+		helpLabel.setMaxWidth(350);
+		grid.add(helpLabel, 0, 0, 2, 1);
+
+		grid.add(new Label("Symbols:"), 0, 1);
+		grid.add(symbolsField, 1, 1);
+		grid.add(new Label("From:"), 0, 2);
+		grid.add(begin, 1, 2);
+		grid.add(new Label("To:"), 0, 3);
+		grid.add(end, 1, 3);
+		grid.add(new Label("Strategy:"), 0, 4);
+		grid.add(strategyChoice, 1, 4);
+		grid.add(new Label("Fast Periods:"), 0, 5);
+		grid.add(fastField, 1, 5);
+		grid.add(new Label("Slow Periods:"), 0, 6);
+		grid.add(slowField, 1, 6);
+		grid.add(new Label("Initial Cash:"), 0, 7);
+		grid.add(cashField, 1, 7);
+		grid.add(new Label("Commission per Trade:"), 0, 8);
+		grid.add(commissionField, 1, 8);
+		grid.add(new Label("Commission (%):"), 0, 9);
+		grid.add(commissionRateField, 1, 9);
+		grid.add(new Label("Slippage (%):"), 0, 10);
+		grid.add(slippageField, 1, 10);
+
+		ColumnConstraints left = new ColumnConstraints();
+		ColumnConstraints right = new ColumnConstraints();
+
+		right.setFillWidth(true);
+		right.setHgrow(Priority.ALWAYS);
+
+		grid.getColumnConstraints().addAll(left, right);
+
+		getDialogPane().setContent(grid);
+
+		setResultConverter((buttonType) -> {
+			if(buttonType == ButtonType.OK) {
+				ArrayList<String> symbolList = new ArrayList<>();
+				for(String symbol : symbolsField.getText().split("[\\s,]+")) {
+					if(!symbol.isEmpty()) {
+						symbolList.add(symbol.toUpperCase(Locale.ROOT));
+					}
+				}
+				return new BacktestOptions(symbolList, begin.getValue(), end.getValue(), strategyChoice.getValue(),
+						fastField.getText(), slowField.getText(), cashField.getText(), commissionField.getText(),
+						commissionRateField.getText(), slippageField.getText());
+			}
+			else {
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Values entered in the dialog. Numbers are kept as entered and parsed
+	 * by the getters, which throw IllegalArgumentException if they are
+	 * invalid.
+	 */
+	public static class BacktestOptions {
+
+		public final List<String> symbols;
+		public final LocalDate start;
+		public final LocalDate end;
+		public final StrategyType strategy;
+
+		private final String fastPeriods;
+		private final String slowPeriods;
+		private final String initialCash;
+		private final String commission;
+		private final String commissionPercent;
+		private final String slippagePercent;
+
+		public BacktestOptions(List<String> symbols, LocalDate start, LocalDate end, StrategyType strategy,
+				String fastPeriods, String slowPeriods, String initialCash, String commission,
+				String commissionPercent, String slippagePercent) {
+			this.symbols = symbols;
+			this.start = start;
+			this.end = end;
+			this.strategy = strategy;
+			this.fastPeriods = fastPeriods;
+			this.slowPeriods = slowPeriods;
+			this.initialCash = initialCash;
+			this.commission = commission;
+			this.commissionPercent = commissionPercent;
+			this.slippagePercent = slippagePercent;
+		}
+
+		public BacktestSettings getSettings() {
+			return new BacktestSettings(
+				parseNumber(initialCash, "initial cash"),
+				parseNumber(commission, "commission"),
+				parseNumber(commissionPercent, "commission") / 100,
+				parseNumber(slippagePercent, "slippage") / 100
+			);
+		}
+
+		/**
+		 * @return every parameter set to test
+		 */
+		public List<double[]> getParameterSets() {
+			ArrayList<double[]> sets = new ArrayList<>();
+			if(strategy == StrategyType.SMA_CROSS) {
+				for(int fast : parsePeriods(fastPeriods)) {
+					for(int slow : parsePeriods(slowPeriods)) {
+						if(fast < slow) {
+							sets.add(new double[] {fast, slow});
+						}
+					}
+				}
+				if(sets.isEmpty()) {
+					throw new IllegalArgumentException("No fast period is shorter than a slow period.");
+				}
+			}
+			else {
+				sets.add(new double[0]);
+			}
+			return sets;
+		}
+
+		/**
+		 * @return creates the chosen strategy from a parameter set
+		 */
+		public Function<double[], Strategy> getStrategyFactory() {
+			if(strategy == StrategyType.SMA_CROSS) {
+				return parameters -> new MovingAverageCross((int) parameters[0], (int) parameters[1]);
+			}
+			return parameters -> new BuyAndHold();
+		}
+
+		private static double parseNumber(String text, String name) {
+			try {
+				return Double.parseDouble(text.trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid " + name + ": " + text);
+			}
+		}
+
+		private static List<Integer> parsePeriods(String text) {
+			ArrayList<Integer> periods = new ArrayList<>();
+			try {
+				for(String part : text.split(",")) {
+					String[] range = part.trim().split(":");
+					if(range.length == 1) {
+						periods.add(Integer.parseInt(range[0].trim()));
+					}
+					else if(range.length == 3) {
+						int from = Integer.parseInt(range[0].trim());
+						int to = Integer.parseInt(range[1].trim());
+						int step = Integer.parseInt(range[2].trim());
+						if(step < 1) {
+							throw new IllegalArgumentException("Invalid period step: " + part.trim());
+						}
+						for(int period = from; period <= to; period += step) {
+							periods.add(period);
+						}
+					}
+					else {
+						throw new IllegalArgumentException("Invalid period range: " + part.trim());
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid periods: " + text);
+			}
+
+			for(int period : periods) {
+				if(period < 1) {
+					throw new IllegalArgumentException("Periods must be at least 1.");
+				}
+			}
+			return periods;
+		}
+
+	}
+
+}
@@ -0,0 +1,181 @@
+package stockfetcher.ui;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.control.SplitPane;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.BorderPane;
+import javafx.util.StringConverter;
+import stockfetcher.backtest.BacktestResult;
+
+/**
+ * Equity curves and summary statistics of backtest runs. Runs are listed
+ * best Sharpe ratio first; the selected run is charted against the buy
+ * and hold benchmark.
+ */
+public class BacktestView extends BorderPane {
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd LLL YY");
+
+	// Equity curves are thinned to about this many points for drawing
+	private static final int MAX_CHART_POINTS = 1000;
+
+	private final NumberAxis xAxis = new NumberAxis();
+	private final NumberAxis yAxis = new NumberAxis();
+	private final LineChart<Number, Number> chart = new LineChart<>(xAxis, yAxis);
+	private final TableView<BacktestResult> table = new TableView<>();
+	private final Label info = new Label("Running backtest...");
+
+	private BacktestResult benchmark = null;
+
+	public BacktestView() {
+		xAxis.setForceZeroInRange(false);
+		yAxis.setForceZeroInRange(false);
+		xAxis.setTickLabelFormatter(new StringConverter<Number>() {
+			@Override
+			public String toString(Number epochDay) {
+				return LocalDate.ofEpochDay(Math.round(epochDay.doubleValue())).format(DATE_FORMAT);
+			}
+
+			@Override
+			public Number fromString(String stringDate) {
+				return LocalDate.parse(stringDate, DATE_FORMAT).toEpochDay();
+			}
+		});
+		yAxis.setTickLabelFormatter(new StringConverter<Number>() {
+			@Override
+			public String toString(Number object) {
+				return String.format("$%,.0f", object.doubleValue());
+			}
+
+			@Override
+			public Number fromString(String string) {
+				return Double.valueOf(string);
+			}
+		});
+		chart.setCreateSymbols(false);
+		chart.setAnimated(false);
+
+		TableColumn<BacktestResult, String> name = new TableColumn<>("Strategy");
+		name.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().strategy));
+		name.setPrefWidth(160);
+		table.getColumns().add(name);
+		table.getColumns().add(numberColumn("Total Return", r -> r.totalReturn, "%.1f%%", 100));
+		table.getColumns().add(numberColumn("Annual Return", r -> r.annualReturn, "%.2f%%", 100));
+		table.getColumns().add(numberColumn("Volatility", r -> r.volatility, "%.2f%%", 100));
+		table.getColumns().add(numberColumn("Sharpe", r -> r.sharpe, "%.2f", 1));
+		table.getColumns().add(numberColumn("Max Drawdown", r -> r.maxDrawdown, "%.1f%%", 100));
+		table.getColumns().add(numberColumn("Trades", r -> r.trades, "%.0f", 1));
+		table.getColumns().add(numberColumn("Commissions", r -> r.commissions, "$%,.0f", 1));
+		table.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> showResult(newVal));
+
+		SplitPane split = new SplitPane(chart, table);
+		split.setOrientation(Orientation.VERTICAL);
+		split.setDividerPositions(0.6);
+		setCenter(split);
+
+		info.setPadding(new Insets(5, 10, 5, 10));
+		setBottom(info);
+	}
+
+	/**
+	 * Shows the results of a backtest or parameter sweep.
+	 * @param results
+	 * @param benchmark buy and hold run over the same replay; may be null
+	 */
+	public void setResults(List<BacktestResult> results, BacktestResult benchmark) {
+		this.benchmark = benchmark;
+		table.getItems().setAll(results);
+		table.getItems().sort(Comparator.comparingDouble((BacktestResult r) -> Double.isNaN(r.sharpe) ? Double.NEGATIVE_INFINITY : r.sharpe).reversed());
+
+		if(results.isEmpty() || results.get(0).epochDays.length == 0) {
+			info.setText("No price data in the selected interval.");
+			return;
+		}
+
+		int[] days = results.get(0).epochDays;
+		info.setText(String.format("%d runs over %d trading days, %s to %s.", results.size(), days.length,
+				LocalDate.ofEpochDay(days[0]), LocalDate.ofEpochDay(days[days.length - 1])));
+		table.getSelectionModel().selectFirst();
+	}
+
+	/**
+	 * Shows an error message instead of results.
+	 * @param message
+	 */
+	public void setError(String message) {
+		info.setText(message);
+	}
+
+	private void showResult(BacktestResult result) {
+		chart.getData().clear();
+		if(result == null) {
+			return;
+		}
+
+		chart.getData().add(equitySeries(result));
+		if(benchmark != null && !benchmark.strategy.equals(result.strategy)) {
+			chart.getData().add(equitySeries(benchmark));
+		}
+
+		int[] days = result.epochDays;
+		if(days.length > 0) {
+			xAxis.setAutoRanging(false);
+			xAxis.setLowerBound(days[0]);
+			xAxis.setUpperBound(days[days.length - 1]);
+			xAxis.setTickUnit(Math.max(1, (days[days.length - 1] - days[0]) / 10.0));
+		}
+	}
+
+	private static XYChart.Series<Number, Number> equitySeries(BacktestResult result) {
+		XYChart.Series<Number, Number> series = new XYChart.Series<>();
+		series.setName(result.strategy);
+
+		int days = result.equity.length;
+		int step = Math.max(1, days / MAX_CHART_POINTS);
+		for(int d = 0; d < days; d += step) {
+			series.getData().add(new XYChart.Data<>(result.epochDays[d], result.equity[d]));
+		}
+		if(days > 0 && (days - 1) % step != 0) {
+			series.getData().add(new XYChart.Data<>(result.epochDays[days - 1], result.equity[days - 1]));
+		}
+		return series;
+	}
+
+	private static TableColumn<BacktestResult, Double> numberColumn(String title, ToDoubleFunction<BacktestResult> value,
+			String format, double scale) {
+		TableColumn<BacktestResult, Double> column = new TableColumn<>(title);
+		column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.applyAsDouble(cell.getValue())));
+		column.setCellFactory(col -> new TableCell<>() {
+			@Override
+			protected void updateItem(Double item, boolean empty) {
+				super.updateItem(item, empty);
+				if(empty || item == null) {
+					setText(null);
+				}
+				else if(Double.isNaN(item)) {
+					setText("-");
+				}
+				else {
+					setText(String.format(format, item * scale));
+				}
+			}
+		});
+		return column;
+	}
+
+}
@@ -1,12 +1,18 @@
 package stockfetcher.ui;
 
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
 
 import javafx.application.Platform;
 import javafx.beans.property.StringProperty;
@@ -19,23 +25,61 @@ import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.chart.XYChart.Data;
 import javafx.scene.chart.XYChart.Series;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.DatePicker;
-import javafx.scene.control.Dialog;
 import javafx.scene.control.Tooltip;
-import javafx.util.Pair;
 import javafx.util.StringConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import stockfetcher.analytics.Indicator;
+import stockfetcher.analytics.Indicators;
+import stockfetcher.analytics.LinearForecast;
+import stockfetcher.analytics.MonteCarlo;
+import stockfetcher.analytics.MonteCarloForecast;
 import stockfetcher.api.PriceData;
+import stockfetcher.db.PriceSeries;
+import stockfetcher.db.PriceUpdate;
+import stockfetcher.db.Resolution;
 import stockfetcher.db.StockDatabase;
+import stockfetcher.jfr.ChartRenderEvent;
+import stockfetcher.jfr.PredictionComputeEvent;
+import stockfetcher.metrics.Metrics;
+import stockfetcher.schedule.RefreshScheduler;
 
 public class ChartController {
 	
+	private static final Logger logger = LoggerFactory.getLogger(ChartController.class);
+	
 	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd LLL YY");
 	
-	@FXML private LineChart<Number, Double> dataChart;
+	// Price lines switch to weekly, monthly or quarterly bars above this
+	// many points; candles and volume bars switch when narrower than
+	// PriceChart.MIN_BAR_WIDTH
+	private static final int MAX_CHART_POINTS = 800;
+	
+	private static final String[] LINEAR_NAMES = {
+		"Prediction", "Prediction + σ", "Prediction - σ", "Prediction + 2σ", "Prediction - 2σ"
+	};
+	
+	// Calendar days of daily bars kept behind rolled up lines, which covers
+	// the last 100 days a compact refresh writes again
+	private static final int RECENT_DAYS = 120;
+	
+	private static final int SIMULATED_PATHS = 50_000;
+	private static final double[] FORECAST_PERCENTILES = {0.025, 0.16, 0.5, 0.84, 0.975};
+	private static final String[] FORECAST_NAMES = {
+			"2.5th Percentile", "16th Percentile", "Prediction", "84th Percentile", "97.5th Percentile" };
+	
+	@FXML private PriceChart dataChart;
 	@FXML private NumberAxis xAxis;
 	@FXML private NumberAxis yAxis;
 	
+	@FXML private LineChart<Number, Double> indicatorChart;
+	@FXML private NumberAxis indicatorXAxis;
+	
 	@FXML private DatePicker startDatePicker;
 	@FXML private DatePicker endDatePicker;
 	
@@ -43,12 +87,31 @@ public class ChartController {
 	@FXML private Button editChartButton;
 	
 	private boolean isLocked = false;
+	private Resolution resolution = Resolution.DAILY;
 	
 	private HashSet<String> symbolsTracked = new HashSet<>();
 	
+	private String indicators = "";
+	private final ArrayList<IndicatorOverlay> overlays = new ArrayList<>();
+	
+	// Bumped when every overlay is replaced, so a recompute of one symbol's
+	// overlays started before then is dropped
+	private int overlayGeneration = 0;
+	
+	// Prices behind each charted symbol's line, which updates are applied to
+	private final HashMap<String, ChartedPrices> chartedPrices = new HashMap<>();
+	
+	private final Consumer<PriceUpdate> priceUpdateListener = this::pricesUpdated;
+	
+	private PriceChart.Scale scale = PriceChart.Scale.PRICE;
+	private final SeriesNormalizer normalizer = new SeriesNormalizer();
+	
 	public void initialize() {		
+		// Apply newly written price rows to the charted series
+		StockDatabase.addPriceUpdateListener(priceUpdateListener);
+		
 		// Formatter for converting x axis date to numbers/strings and vice versa
-		xAxis.setTickLabelFormatter(new StringConverter<Number>() {
+		StringConverter<Number> dateFormatter = new StringConverter<Number>() {
 			@Override
 			public String toString(Number epochDay) {
 				Long day = Math.round((Double) epochDay);
@@ -61,12 +124,20 @@ public class ChartController {
 				LocalDate date = LocalDate.parse(stringDate, DATE_FORMAT);
 				return date.toEpochDay();
 			}
-		});
+		};
+		xAxis.setTickLabelFormatter(dateFormatter);
+		
+		// Indicator chart (for indicators not on the price scale) follows the price chart's dates
+		indicatorChart.managedProperty().bind(indicatorChart.visibleProperty());
+		indicatorXAxis.setTickLabelFormatter(dateFormatter);
+		indicatorXAxis.lowerBoundProperty().bind(xAxis.lowerBoundProperty());
+		indicatorXAxis.upperBoundProperty().bind(xAxis.upperBoundProperty());
+		indicatorXAxis.tickUnitProperty().bind(xAxis.tickUnitProperty());
 		
 		yAxis.setTickLabelFormatter(new StringConverter<Number>() {
 			@Override
 			public String toString(Number object) {
-				return String.format("$%.0f", object.doubleValue());
+				return formatValue(object.doubleValue(), 0);
 			}
 
 			@Override
@@ -76,7 +147,16 @@ public class ChartController {
 		});
 	}
 	
-	public void predict(String symbol, LocalDate begin, LocalDate end) {
+	public void predict(String symbol, LocalDate begin, LocalDate end, PredictionDialog.Method method) {
+		// Fits and simulations need every trading day; the daily line is
+		// loaded below if a rolled up one was charted
+		if(resolution != Resolution.DAILY) {
+			resolution = Resolution.DAILY;
+			dataChart.getData().removeIf(series -> symbolsTracked.contains(series.getName()));
+		}
+		setScale(PriceChart.Scale.PRICE);
+		indicators = "";
+		removeOverlays();
 		dataChart.getData().removeIf(series -> !series.getName().equals(symbol));	
 		
 		XYChart.Series<Number, Double> symbolData = null;
@@ -91,13 +171,11 @@ public class ChartController {
 			// Add the data, then call this method again when we're done
 			symbolsTracked.add(symbol);
 			refreshTrackedSymbols().setOnSucceeded((e)->{
-				predict(symbol, begin, end);
+				predict(symbol, begin, end, method);
 			});
 			return;
 		}
 		
-		
-		
 		setChartName(symbol + " Prediction");
 		ArrayList<Data<Number, Double>> data = new ArrayList<>(symbolData.getData());
 		data.removeIf(point -> {
@@ -105,6 +183,26 @@ public class ChartController {
 			return date.compareTo(begin) < 0 || date.compareTo(end) > 0;
 		});
 		
+		if(method.model == null) {
+			predictLinear(symbol, data);
+		}
+		else {
+			predictMonteCarlo(symbol, data, method.model);
+		}
+		
+		startDatePicker.setDisable(true);
+		endDatePicker.setDisable(true);
+		resetDateButton.setDisable(true);
+		editChartButton.setDisable(true);
+	
+		isLocked = true;
+	}
+	
+	/**
+	 * Draws a least squares line through the data with +/- 1 and 2
+	 * standard deviation bands, extended 100 days past today.
+	 */
+	private void predictLinear(String symbol, List<Data<Number, Double>> data) {
 		// Linear least squares
 		double[] xpts = new double[data.size()];
 		double[] ypts = new double[data.size()];
@@ -118,179 +216,460 @@ public class ChartController {
 			}
 		}
 		
-		double m = data.size();
-		double sumXCubed = 0;
-		double sumXY = 0;
-		double sumY = 0;
-		double sumX = 0;
-		for(int i = 0; i < data.size(); i++) {
-			sumXCubed += xpts[i] * xpts[i];
-			sumXY += xpts[i] * ypts[i];
-			sumY += ypts[i];
-			sumX += xpts[i];
+		long endPrediction = LocalDate.now().plusDays(100).toEpochDay();
+		PredictionComputeEvent event = new PredictionComputeEvent();
+		event.begin();
+		LinearForecast forecast = LinearForecast.fit(xpts, ypts, endPrediction);
+		event.end();
+		if(event.shouldCommit()) {
+			event.symbol = symbol;
+			event.method = "LINEAR";
+			event.rows = xpts.length;
+			event.days = forecast.days.length - xpts.length;
+			event.commit();
 		}
-
-		double mean = sumY / m;
-		double std = 0;
-		for(int i = 0; i < data.size(); i++) {
-			std += Math.pow(ypts[i] - mean, 2);
-		}
-		std = Math.sqrt(std / m);
-		
-		double a0 = ((sumXCubed * sumY) - (sumXY * sumX)) / ((m * sumXCubed) - (sumX * sumX));
-		double a1 = ((m * sumXY) - (sumX * sumY)) / ((m * sumXCubed) - (sumX * sumX));
-		
-		// Build prediction data
-		XYChart.Series<Number, Double> prediction = new XYChart.Series<>();
-		XYChart.Series<Number, Double> predPlusStd = new XYChart.Series<>();
-		XYChart.Series<Number, Double> predLessStd = new XYChart.Series<>();
-		XYChart.Series<Number, Double> predPlus2Std = new XYChart.Series<>();
-		XYChart.Series<Number, Double> predLess2Std = new XYChart.Series<>();
-		
-		prediction.setName("Prediction");
-		predPlusStd.setName("Prediction + σ");
-		predLessStd.setName("Prediction - σ");
-		predPlus2Std.setName("Prediction + 2σ");
-		predLess2Std.setName("Prediction - 2σ");
-		
-		double minPrice = Double.POSITIVE_INFINITY;
-		double maxPrice = Double.NEGATIVE_INFINITY;
-		
-		for(int i = 0; i < m; i++) {
-			var dataPoint = new XYChart.Data<Number, Double>(xpts[i], a0 + a1 * (xpts[i]));
-			var dataPlusStd = new XYChart.Data<Number, Double>(xpts[i], a0 + a1 * (xpts[i]) + std);
-			var dataLessStd = new XYChart.Data<Number, Double>(xpts[i], a0 + a1 * (xpts[i]) - std);
-			var dataPlus2Std = new XYChart.Data<Number, Double>(xpts[i], a0 + a1 * (xpts[i]) + 2 * std);
-			var dataLess2Std = new XYChart.Data<Number, Double>(xpts[i], a0 + a1 * (xpts[i]) - 2 * std);
-			prediction.getData().add(dataPoint);
-			predPlusStd.getData().add(dataPlusStd);
-			predLessStd.getData().add(dataLessStd);
-			predPlus2Std.getData().add(dataPlus2Std);
-			predLess2Std.getData().add(dataLess2Std);
+		double minPrice = forecast.min;
+		double maxPrice = forecast.max;
+		
+		// Build prediction data, one series per line of the forecast
+		for(int k = 0; k < LinearForecast.DEVIATIONS.length; k++) {
+			XYChart.Series<Number, Double> line = ChartSeries.toLine(LINEAR_NAMES[k], forecast.days, forecast.lines[k]);
+			dataChart.getData().add(line);
 			
-			if(dataPoint.getYValue().doubleValue() < minPrice) {
-				minPrice = dataPoint.getYValue().doubleValue();
-			}
-			if(dataPoint.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataPoint.getYValue().doubleValue();
+			int deviations = Math.abs(LinearForecast.DEVIATIONS[k]);
+			if(deviations == 1) {
+				line.getNode().getStyleClass().add("std-line-inner");
 			}
-			
-			if(dataPlusStd.getYValue().doubleValue() < minPrice) {
-				minPrice = dataPlusStd.getYValue().doubleValue();
+			else if(deviations == 2) {
+				line.getNode().getStyleClass().add("std-line-outer");
 			}
-			if(dataPlusStd.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataPlusStd.getYValue().doubleValue();
+		}
+		
+		cleanDataLines();
+		
+		startDatePicker.setValue(LocalDate.ofEpochDay(earliest));
+		endDatePicker.setValue(LocalDate.now().plusDays(100));
+		updateDateRange(null);
+		
+		double priceRange = maxPrice - minPrice;
+		double padding = priceRange * 0.1;
+		yAxis.setAutoRanging(false);
+		yAxis.setLowerBound(Math.round(minPrice - padding));
+		yAxis.setUpperBound(Math.round(maxPrice + padding));
+		yAxis.setTickUnit(priceRange / 10);
+	}
+	
+	/**
+	 * Simulates future prices from the data's daily returns in the
+	 * background, then draws the median and percentile bands up to 100
+	 * days past today.
+	 */
+	private void predictMonteCarlo(String symbol, List<Data<Number, Double>> data, MonteCarlo.Model model) {
+		if(data.size() < 2) {
+			Alert alert = new Alert(AlertType.ERROR, "Not enough price data in the selected interval.", ButtonType.OK);
+			alert.show();
+			return;
+		}
+		
+		double[] prices = new double[data.size()];
+		for(int i = 0; i < prices.length; i++) {
+			prices[i] = data.get(i).getYValue();
+		}
+		long firstDay = data.get(0).getXValue().longValue();
+		long lastDay = data.get(data.size() - 1).getXValue().longValue();
+		
+		// Each simulated step is a trading day, so skip weekends
+		ArrayList<Long> days = new ArrayList<>();
+		long endPrediction = LocalDate.now().plusDays(100).toEpochDay();
+		for(long day = lastDay + 1; day < endPrediction; day++) {
+			DayOfWeek weekday = LocalDate.ofEpochDay(day).getDayOfWeek();
+			if(weekday != DayOfWeek.SATURDAY && weekday != DayOfWeek.SUNDAY) {
+				days.add(day);
 			}
-			
-			if(dataLessStd.getYValue().doubleValue() < minPrice) {
-				minPrice = dataLessStd.getYValue().doubleValue();
+		}
+		
+		var task = new Task<MonteCarloForecast>() {
+			@Override
+			protected MonteCarloForecast call() {
+				PredictionComputeEvent event = new PredictionComputeEvent();
+				event.begin();
+				long start = System.nanoTime();
+				try {
+					return MonteCarlo.forecast(prices, model, days.size(), SIMULATED_PATHS, FORECAST_PERCENTILES, new SplittableRandom());
+				} finally {
+					Metrics.timer("analytics.monte_carlo").recordSince(start);
+					event.end();
+					if(event.shouldCommit()) {
+						event.symbol = symbol;
+						event.method = model.name();
+						event.rows = prices.length;
+						event.days = days.size();
+						event.paths = SIMULATED_PATHS;
+						event.commit();
+					}
+				}
 			}
-			if(dataLessStd.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataLessStd.getYValue().doubleValue();
+		};
+		
+		task.setOnSucceeded(e -> {
+			MonteCarloForecast forecast = task.getValue();
+			double lastPrice = prices[prices.length - 1];
+			double minPrice = Double.POSITIVE_INFINITY;
+			double maxPrice = Double.NEGATIVE_INFINITY;
+			for(double price : prices) {
+				minPrice = Math.min(minPrice, price);
+				maxPrice = Math.max(maxPrice, price);
 			}
 			
-			if(dataPlus2Std.getYValue().doubleValue() < minPrice) {
-				minPrice = dataPlus2Std.getYValue().doubleValue();
-			}
-			if(dataPlus2Std.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataPlus2Std.getYValue().doubleValue();
+			// One line per percentile, starting from the last known price
+			ArrayList<XYChart.Series<Number, Double>> bands = new ArrayList<>();
+			for(int k = 0; k < forecast.percentiles.length; k++) {
+				XYChart.Series<Number, Double> band = new XYChart.Series<>();
+				band.setName(FORECAST_NAMES[k]);
+				band.getData().add(new XYChart.Data<Number, Double>(lastDay, lastPrice));
+				for(int t = 0; t < forecast.getHorizon(); t++) {
+					double price = forecast.bands[k][t];
+					band.getData().add(new XYChart.Data<Number, Double>(days.get(t), price));
+					minPrice = Math.min(minPrice, price);
+					maxPrice = Math.max(maxPrice, price);
+				}
+				bands.add(band);
 			}
 			
-			if(dataLess2Std.getYValue().doubleValue() < minPrice) {
-				minPrice = dataLess2Std.getYValue().doubleValue();
-			}
-			if(dataLess2Std.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataLess2Std.getYValue().doubleValue();
-			}
+			dataChart.getData().addAll(bands);
+			bands.get(0).getNode().getStyleClass().add("std-line-outer");
+			bands.get(1).getNode().getStyleClass().add("std-line-inner");
+			bands.get(3).getNode().getStyleClass().add("std-line-inner");
+			bands.get(4).getNode().getStyleClass().add("std-line-outer");
+			
+			cleanDataLines();
+			
+			startDatePicker.setValue(LocalDate.ofEpochDay(firstDay));
+			endDatePicker.setValue(LocalDate.now().plusDays(100));
+			updateDateRange(null);
+			
+			double priceRange = maxPrice - minPrice;
+			double padding = priceRange * 0.1;
+			yAxis.setAutoRanging(false);
+			yAxis.setLowerBound(Math.round(minPrice - padding));
+			yAxis.setUpperBound(Math.round(maxPrice + padding));
+			yAxis.setTickUnit(priceRange / 10);
+		});
+		
+		task.setOnFailed(e -> {
+			logger.error("Unable to simulate prices for {}.", symbol, task.getException());
+			Alert alert = new Alert(AlertType.ERROR, "Unable to simulate prices: " + task.getException().getMessage(), ButtonType.OK);
+			alert.show();
+		});
+		
+		new Thread(task).start();
+	}
+	
+	public boolean isLocked() {
+		return isLocked;
+	}
+	
+	/**
+	 * Releases this chart's database listeners. Should be called once the
+	 * chart's tab has been closed.
+	 */
+	public void dispose() {
+		StockDatabase.removePriceUpdateListener(priceUpdateListener);
+	}
+	
+	/**
+	 * Applies newly written price rows to the charted prices of that
+	 * symbol, in every scale, style and resolution, without reloading its
+	 * history. Only the bars an update adds or changes are touched (a
+	 * compact refresh writes the last 100 days again): daily points and
+	 * bars are replaced or appended, the rolled up bars of the periods
+	 * from the first changed day are rolled up again from the symbol's
+	 * recent daily bars, and the symbol's indicators are extended. Its
+	 * indicators are only recomputed, on their own, if a bar before the
+	 * latest one changed (e.g. after a split or dividend).
+	 * @param update
+	 */
+	private void pricesUpdated(PriceUpdate update) {
+		// Prediction charts are a snapshot of the data used for the fit
+		if(isLocked) {
+			return;
 		}
 		
-		long endPrediction = LocalDate.now().plusDays(100).toEpochDay();
-		for(int i = (int) xpts[(int) m - 1] + 1; i < endPrediction; i++) {
-			var dataPoint = new XYChart.Data<Number, Double>(i, a0 + a1 * i);
-			var dataPlusStd = new XYChart.Data<Number, Double>(i, a0 + a1 * i + std);
-			var dataLessStd = new XYChart.Data<Number, Double>(i, a0 + a1 * i - std);
-			var dataPlus2Std = new XYChart.Data<Number, Double>(i, a0 + a1 * i + 2 * std);
-			var dataLess2Std = new XYChart.Data<Number, Double>(i, a0 + a1 * i - 2 * std);
-			prediction.getData().add(dataPoint);
-			predPlusStd.getData().add(dataPlusStd);
-			predLessStd.getData().add(dataLessStd);
-			predPlus2Std.getData().add(dataPlus2Std);
-			predLess2Std.getData().add(dataLess2Std);
-			
-			if(dataPoint.getYValue().doubleValue() < minPrice) {
-				minPrice = dataPoint.getYValue().doubleValue();
-			}
-			if(dataPoint.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataPoint.getYValue().doubleValue();
+		Series<Number, Double> line = null;
+		for(var s : dataChart.getData()) {
+			if(s.getName().equals(update.symbol)) {
+				line = s;
+				break;
 			}
+		}
+		
+		// Symbols still loading read the new rows from the database
+		ChartedPrices prices = chartedPrices.get(update.symbol);
+		if(line == null || prices == null) {
+			return;
+		}
+		
+		long start = System.nanoTime();
+		boolean closesOnly = resolution == Resolution.DAILY && !dataChart.isDrawingBars();
+		PriceSeries daily = resolution == Resolution.DAILY ? prices.series : prices.recent;
+		int first = firstChange(daily, update.bars, closesOnly);
+		if(first == update.bars.size()) {
+			return;
+		}
+		List<PriceData> changed = update.bars.subList(first, update.bars.size());
+		LocalDate firstDate = changed.get(0).date;
+		
+		if(resolution == Resolution.DAILY) {
+			prices.series = prices.series.merge(changed);
+			updateLine(line, prices.series, prices.series.indexOf(firstDate.toEpochDay()));
+		}
+		else if(firstDate.toEpochDay() >= prices.recentFrom) {
+			// Roll up the periods from the first changed day again
+			PriceSeries days = prices.recent.merge(changed);
+			long period = resolution.periodStart(firstDate).toEpochDay();
+			int from = prices.series.indexOf(period);
+			prices.series = prices.series.replaceTail(from, days.tail(days.indexOf(period)).rollUp(resolution));
+			updateLine(line, prices.series, from);
 			
-			if(dataPlusStd.getYValue().doubleValue() < minPrice) {
-				minPrice = dataPlusStd.getYValue().doubleValue();
+			// Only keep the daily bars a refresh may still write again
+			prices.recentFrom = Math.max(prices.recentFrom,
+					recentStart(days.getDate(days.size() - 1), resolution).toEpochDay());
+			prices.recent = days.tail(days.indexOf(prices.recentFrom));
+		}
+		else {
+			// Older than the daily bars kept behind the line
+			reloadSymbol(line);
+		}
+		
+		// Extend this symbol's indicators
+		boolean recompute = false;
+		for(IndicatorOverlay overlay : overlays) {
+			if(!overlay.getSymbol().equals(update.symbol)) {
+				continue;
 			}
-			if(dataPlusStd.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataPlusStd.getYValue().doubleValue();
+			int from = overlay.apply(changed);
+			if(from < 0) {
+				recompute = true;
+				break;
 			}
-			
-			if(dataLessStd.getYValue().doubleValue() < minPrice) {
-				minPrice = dataLessStd.getYValue().doubleValue();
+			if(overlay.isOverlay()) {
+				for(var overlayLine : overlay.getSeries()) {
+					normalizer.rescale(overlayLine, from);
+					var points = overlayLine.getData();
+					for(int i = from; i < points.size(); i++) {
+						decoratePoint(points.get(i));
+					}
+				}
 			}
-			if(dataLessStd.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataLessStd.getYValue().doubleValue();
+		}
+		
+		// Rebases the symbol's lines if its base bar changed
+		normalize();
+		Metrics.timer("ui.chart.price_update").recordSince(start);
+		if(recompute) {
+			recomputeOverlays(update.symbol);
+		}
+	}
+	
+	/**
+	 * @param series charted daily bars
+	 * @param bars written bars in date order
+	 * @param closesOnly true if the series only has adjusted closes; the
+	 * latest charted day then always counts as changed, since its other
+	 * prices may have been revised
+	 * @return index of the first bar that is new or differs from the
+	 * series; bars.size() if none do
+	 */
+	private static int firstChange(PriceSeries series, List<PriceData> bars, boolean closesOnly) {
+		for(int k = 0; k < bars.size(); k++) {
+			PriceData bar = bars.get(k);
+			long day = bar.date.toEpochDay();
+			int index = series.indexOf(day);
+			if(index == series.size() || series.getEpochDay(index) != day) {
+				return k;
 			}
 			
-			if(dataPlus2Std.getYValue().doubleValue() < minPrice) {
-				minPrice = dataPlus2Std.getYValue().doubleValue();
-			}
-			if(dataPlus2Std.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataPlus2Std.getYValue().doubleValue();
+			boolean same;
+			if(closesOnly) {
+				same = index < series.size() - 1 && PriceSeries.samePrice(series.getAdjClose(index), bar.adjClose);
 			}
-			
-			if(dataLess2Std.getYValue().doubleValue() < minPrice) {
-				minPrice = dataLess2Std.getYValue().doubleValue();
+			else {
+				same = PriceSeries.samePrice(series.getOpen(index), bar.open)
+						&& PriceSeries.samePrice(series.getHigh(index), bar.high)
+						&& PriceSeries.samePrice(series.getLow(index), bar.low)
+						&& PriceSeries.samePrice(series.getClose(index), bar.close)
+						&& PriceSeries.samePrice(series.getAdjClose(index), bar.adjClose)
+						&& series.getVolume(index) == bar.volume;
 			}
-			if(dataLess2Std.getYValue().doubleValue() > maxPrice) {
-				maxPrice = dataLess2Std.getYValue().doubleValue();
+			if(!same) {
+				return k;
 			}
 		}
+		return bars.size();
+	}
+	
+	/**
+	 * Charts a symbol's updated prices: its bars and base are replaced and
+	 * its line is rewritten from the first changed bar, so only the new
+	 * points are scaled and decorated.
+	 * @param line
+	 * @param updated
+	 * @param from index of the first changed bar
+	 */
+	private void updateLine(Series<Number, Double> line, PriceSeries updated, int from) {
+		String symbol = line.getName();
+		dataChart.setBars(symbol, updated);
+		normalizer.setBase(symbol, updated);
 		
-		dataChart.getData().add(prediction);
-		dataChart.getData().add(predPlusStd);
-		dataChart.getData().add(predLessStd);
-		dataChart.getData().add(predPlus2Std);
-		dataChart.getData().add(predLess2Std);
-
-		predPlusStd.getNode().getStyleClass().add("std-line-inner");
-		predLessStd.getNode().getStyleClass().add("std-line-inner");
-		
-		predPlus2Std.getNode().getStyleClass().add("std-line-outer");
-		predLess2Std.getNode().getStyleClass().add("std-line-outer");
-		
-		cleanDataLines();
+		var points = line.getData();
+		if(points.size() > updated.size()) {
+			points.remove(updated.size(), points.size());
+		}
+		for(int i = from; i < points.size(); i++) {
+			var point = points.get(i);
+			if(point.getXValue().longValue() != updated.getEpochDay(i)) {
+				point.setXValue(updated.getEpochDay(i));
+			}
+			point.setYValue(updated.getAdjClose(i));
+		}
+		points.addAll(ChartSeries.toPoints(updated, points.size()));
 		
-		startDatePicker.setValue(LocalDate.ofEpochDay(earliest));
-		endDatePicker.setValue(LocalDate.now().plusDays(100));
-		updateDateRange(null);
+		normalizer.rescale(line, from);
+		for(int i = from; i < points.size(); i++) {
+			decoratePoint(points.get(i));
+		}
+	}
+	
+	/**
+	 * Reloads one charted symbol's prices at the chart's resolution,
+	 * keeping its indicators and the other symbols as they are.
+	 * @param line
+	 */
+	private void reloadSymbol(Series<Number, Double> line) {
+		final String symbol = line.getName();
+		final Resolution chartResolution = resolution;
+		final boolean closesOnly = resolution == Resolution.DAILY && !dataChart.isDrawingBars();
 		
-		double priceRange = maxPrice - minPrice;
-		double padding = priceRange * 0.1;
-		yAxis.setAutoRanging(false);
-		yAxis.setLowerBound(Math.round(minPrice - padding));
-		yAxis.setUpperBound(Math.round(maxPrice + padding));
-		yAxis.setTickUnit(priceRange / 10);
+		// Updates until then are read with the reload
+		chartedPrices.remove(symbol);
+		var task = new Task<ChartedPrices>() {
+			@Override
+			protected ChartedPrices call() {
+				return loadPrices(symbol, chartResolution, closesOnly);
+			}
+		};
+		task.setOnSucceeded(e -> {
+			ChartedPrices prices = task.getValue();
+			if(prices == null || resolution != chartResolution || !dataChart.getData().contains(line)) {
+				return;
+			}
+			chartedPrices.put(symbol, prices);
+			updateLine(line, prices.series, 0);
+			normalize();
+		});
+		new Thread(task).start();
+	}
+	
+	/**
+	 * Recomputes one symbol's indicators from its full history in the
+	 * background, leaving the other symbols' indicators as they are.
+	 * @param symbol
+	 */
+	private void recomputeOverlays(String symbol) {
+		ArrayList<IndicatorOverlay> stale = new ArrayList<>();
+		for(IndicatorOverlay overlay : overlays) {
+			if(overlay.getSymbol().equals(symbol)) {
+				dataChart.getData().removeAll(overlay.getSeries());
+				indicatorChart.getData().removeAll(overlay.getSeries());
+				stale.add(overlay);
+			}
+		}
+		overlays.removeAll(stale);
 		
-		startDatePicker.setDisable(true);
-		endDatePicker.setDisable(true);
-		resetDateButton.setDisable(true);
-		editChartButton.setDisable(true);
+		final String indicatorSpecs = indicators;
+		final int generation = overlayGeneration;
+		var task = new Task<List<IndicatorOverlay>>() {
+			@Override
+			protected List<IndicatorOverlay> call() {
+				ArrayList<IndicatorOverlay> computed = new ArrayList<>();
+				PriceSeries priceData = StockDatabase.getPriceSeries(symbol);
+				if(priceData != null && !priceData.isEmpty()) {
+					for(Indicator indicator : Indicators.parseList(indicatorSpecs)) {
+						computed.add(new IndicatorOverlay(priceData, indicator));
+					}
+				}
+				return computed;
+			}
+		};
+		task.setOnSucceeded(e -> {
+			if(generation != overlayGeneration || !symbolsTracked.contains(symbol)) {
+				return;
+			}
+			addOverlays(task.getValue());
+			normalize();
+			for(IndicatorOverlay overlay : task.getValue()) {
+				if(overlay.isOverlay()) {
+					for(var overlayLine : overlay.getSeries()) {
+						for(var point : overlayLine.getData()) {
+							decoratePoint(point);
+						}
+					}
+				}
+			}
+		});
+		new Thread(task).start();
+	}
 	
-		isLocked = true;
+	/**
+	 * Reads the prices a symbol is charted from. Called off the FX thread.
+	 * @param symbol
+	 * @param resolution
+	 * @param closesOnly true to only read the adjusted closes of daily bars
+	 * @return charted prices; null if the symbol has none
+	 */
+	private static ChartedPrices loadPrices(String symbol, Resolution resolution, boolean closesOnly) {
+		// Rolled up lines keep their recent daily bars to roll updates up
+		// from. Read first, so a write in between is newer than them and
+		// is applied as a change.
+		LocalDate recentFrom = recentStart(LocalDate.now(), resolution);
+		PriceSeries recent = null;
+		if(resolution != Resolution.DAILY) {
+			recent = StockDatabase.loadPriceHistory(symbol, recentFrom);
+			if(recent == null) {
+				return null;
+			}
+		}
+		
+		// Shared with other charts through the series cache. Daily lines
+		// only read the adjusted closes; a new style reloads the symbols,
+		// so bars are read when drawn.
+		PriceSeries series = closesOnly
+				? StockDatabase.getCloseSeries(symbol)
+				: StockDatabase.getPriceSeries(symbol, resolution);
+		if(series == null || series.isEmpty()) {
+			return null;
+		}
+		return new ChartedPrices(series, recent, recentFrom.toEpochDay());
 	}
 	
-	public boolean isLocked() {
-		return isLocked;
+	/**
+	 * @param last latest day
+	 * @param resolution
+	 * @return first day of the daily bars kept behind a rolled up line: the
+	 * start of the period RECENT_DAYS before the latest day
+	 */
+	private static LocalDate recentStart(LocalDate last, Resolution resolution) {
+		return resolution.periodStart(last.minusDays(RECENT_DAYS));
 	}
 	
 	private Task<Void> refreshTrackedSymbols() {
+		// Indicators are recomputed below
+		removeOverlays();
+		chartedPrices.keySet().retainAll(symbolsTracked);
+		final String indicatorSpecs = indicators;
+		final Resolution chartResolution = resolution;
+		final boolean closesOnly = resolution == Resolution.DAILY && !dataChart.isDrawingBars();
+		
 		// Remove untracked symbols from the data chart
 		var iter = dataChart.getData().iterator();
 		while(iter.hasNext()) {
@@ -299,11 +678,13 @@ public class ChartController {
 				continue;
 			}
 		}
+		dataChart.retainBars(symbolsTracked);
 		
 		// Task for pulling data from database
 		var task = new Task<Void>() {
 			@Override
 			protected Void call() {
+				long start = System.nanoTime();
 				Platform.runLater(()->{
 					dataChart.getScene().setCursor(Cursor.WAIT);
 				});
@@ -326,31 +707,49 @@ public class ChartController {
 					}
 					
 					// Pull the data
-					ArrayList<PriceData> priceData = StockDatabase.getSymbolPriceData(symbol);
-					
-					if(priceData.size() == 0) {
+					ChartedPrices prices = loadPrices(symbol, chartResolution, closesOnly);
+					if(prices == null) {
 						// TODO: warn no data
 						continue;
 					}
 					
 					// Add data to the chart
 					Platform.runLater(()->{
-						XYChart.Series<Number, Double> pricePoints = new XYChart.Series<>();
-						pricePoints.setName(symbol);
-						for(PriceData point : priceData) {
-							long date = point.date.toEpochDay();
-							var dataPoint = new XYChart.Data<Number, Double>(date, point.adjClose);
-							pricePoints.getData().add(dataPoint);
-						}
-						
+						XYChart.Series<Number, Double> pricePoints = ChartSeries.toLine(prices.series);
 						dataChart.getData().add(pricePoints);
+						chartedPrices.put(symbol, prices);
+						dataChart.setBars(symbol, prices.series);
+						normalizer.setBase(symbol, prices.series);
+						normalizer.addLine(symbol, pricePoints);
 					});					
 				}
 				
+				// Compute indicators for every charted symbol
+				ArrayList<IndicatorOverlay> computed = new ArrayList<>();
+				long indicatorStart = System.nanoTime();
+				if(!indicatorSpecs.isBlank()) {
+					for(String symbol : symbolsTracked) {
+						PriceSeries priceData = StockDatabase.getPriceSeries(symbol);
+						if(priceData == null || priceData.isEmpty()) {
+							continue;
+						}
+						for(Indicator indicator : Indicators.parseList(indicatorSpecs)) {
+							computed.add(new IndicatorOverlay(priceData, indicator));
+						}
+					}
+				}
+				Metrics.timer("ui.chart.indicators").recordSince(indicatorStart);
+				
 				// Re-add tooltips to all the points
 				Platform.runLater(()->{
+					ChartRenderEvent event = new ChartRenderEvent();
+					event.begin();
+					addOverlays(computed);
+					normalize();
 					cleanDataLines();					
 					dataChart.getScene().setCursor(Cursor.DEFAULT);
+					dataChart.commit(event, "apply");
+					Metrics.timer("ui.chart.refresh").recordSince(start);
 				});
 				return null;
 			}
@@ -359,32 +758,187 @@ public class ChartController {
 		return task;
 	}
 	
+	private void addOverlays(List<IndicatorOverlay> computed) {
+		for(IndicatorOverlay overlay : computed) {
+			var chart = overlay.isOverlay() ? dataChart : indicatorChart;
+			for(var line : overlay.getSeries()) {
+				chart.getData().add(line);
+				line.getNode().getStyleClass().add("indicator-line");
+				if(overlay.isOverlay()) {
+					normalizer.addLine(overlay.getSymbol(), line);
+				}
+			}
+			overlays.add(overlay);
+		}
+		indicatorChart.setVisible(!indicatorChart.getData().isEmpty());
+	}
+	
+	private void removeOverlays() {
+		overlayGeneration++;
+		for(IndicatorOverlay overlay : overlays) {
+			dataChart.getData().removeAll(overlay.getSeries());
+		}
+		overlays.clear();
+		indicatorChart.getData().clear();
+		indicatorChart.setVisible(false);
+	}
+	
 	private void cleanDataLines() {
 		var iter = dataChart.getData().iterator();
 		while(iter.hasNext()) {
 			Series<Number, Double> series = iter.next();
 			
 			for(var point : series.getData()) {
-				
-				// Update style class (for visibility)
-				point.getNode().getStyleClass().add("line-node");
-				
-				// Add tooltip
-				LocalDate date = LocalDate.ofEpochDay(point.getXValue().longValue());
-				Tooltip t = new Tooltip(String.format("%s: $%.2f", date.format(DATE_FORMAT), point.getYValue()));
-				t.setShowDelay(javafx.util.Duration.millis(200));
-				point.getNode().getProperties().put("pricedata-tooltip", t);
-				Tooltip.install(point.getNode(), t);
-				
+				decoratePoint(point);
 			}
 		}
 	}
 	
+	private void decoratePoint(Data<Number, Double> point) {
+		if(point.getNode() == null) {
+			return;
+		}
+		
+		// Update style class (for visibility)
+		if(!point.getNode().getStyleClass().contains("line-node")) {
+			point.getNode().getStyleClass().add("line-node");
+		}
+		
+		// Add tooltip; the text is filled in when shown, so it follows
+		// price updates and rescaling without reinstalling
+		if(point.getNode().getProperties().containsKey("pricedata-tooltip")) {
+			return;
+		}
+		Tooltip t = new Tooltip();
+		t.setShowDelay(javafx.util.Duration.millis(200));
+		t.setOnShowing(e -> {
+			LocalDate date = LocalDate.ofEpochDay(point.getXValue().longValue());
+			t.setText(String.format("%s: %s", date.format(DATE_FORMAT), formatValue(point.getYValue(), 2)));
+		});
+		point.getNode().getProperties().put("pricedata-tooltip", t);
+		Tooltip.install(point.getNode(), t);
+	}
+	
+	/**
+	 * Formats a value on the price axis for the current scale.
+	 * @param value
+	 * @param decimals
+	 * @return value with the unit of the scale
+	 */
+	private String formatValue(double value, int decimals) {
+		switch(scale) {
+		case REBASED:
+			return String.format("%." + decimals + "f", value);
+		case PERCENT:
+			return String.format("%+." + decimals + "f%%", value);
+		case PRICE:
+		default:
+			return String.format("$%." + decimals + "f", value);
+		}
+	}
+	
+	/**
+	 * Changes how price lines are scaled and relabels the price axis.
+	 * @param newScale
+	 */
+	private void setScale(PriceChart.Scale newScale) {
+		if(newScale == scale) {
+			return;
+		}
+		scale = newScale;
+		switch(scale) {
+		case REBASED:
+			yAxis.setLabel("Rebased (100)");
+			break;
+		case PERCENT:
+			yAxis.setLabel("Change (%)");
+			break;
+		case PRICE:
+		default:
+			yAxis.setLabel("Price ($)");
+			break;
+		}
+		normalize();
+	}
+	
+	/**
+	 * Rebases the charted price lines on the first visible day.
+	 */
+	private void normalize() {
+		ChartRenderEvent event = new ChartRenderEvent();
+		event.begin();
+		long start = System.nanoTime();
+		try {
+			// Rescaled points would otherwise each start an animation
+			boolean animated = dataChart.getAnimated();
+			dataChart.setAnimated(false);
+			normalizer.retain(dataChart.getData());
+			normalizer.apply(scale, xAxis.isAutoRanging() ? Double.NEGATIVE_INFINITY : xAxis.getLowerBound(), dataChart);
+			dataChart.setAnimated(animated);
+		} finally {
+			Metrics.timer("ui.chart.normalize").recordSince(start);
+		}
+		dataChart.commit(event, "normalize");
+	}
+	
 	@FXML
 	private void resetDateRange(Event e) {
 		xAxis.setAutoRanging(true);
 		startDatePicker.setValue(null);
 		endDatePicker.setValue(null);
+		
+		if(pickResolution()) {
+			refreshTrackedSymbols();
+		}
+		else {
+			normalize();
+		}
+	}
+	
+	/**
+	 * Picks the finest resolution that fits the visible date range (or the
+	 * full history of the charted symbols if the axis is auto ranging). If
+	 * it changed, the charted symbols are removed so the next refresh loads
+	 * them at the new resolution. Indicators are always computed on daily
+	 * bars.
+	 * @return true if the resolution changed
+	 */
+	private boolean pickResolution() {
+		if(isLocked) {
+			return false;
+		}
+		
+		double first = Double.MAX_VALUE;
+		double last = -Double.MAX_VALUE;
+		if(xAxis.isAutoRanging()) {
+			for(var series : dataChart.getData()) {
+				var points = series.getData();
+				if(symbolsTracked.contains(series.getName()) && !points.isEmpty()) {
+					first = Math.min(first, points.get(0).getXValue().doubleValue());
+					last = Math.max(last, points.get(points.size() - 1).getXValue().doubleValue());
+				}
+			}
+		}
+		else {
+			first = xAxis.getLowerBound();
+			last = xAxis.getUpperBound();
+		}
+		if(first > last) {
+			return false;
+		}
+		
+		int maxBars = MAX_CHART_POINTS;
+		if(dataChart.isDrawingBars() && dataChart.getPlotWidth() > 0) {
+			maxBars = Math.max(1, (int) (dataChart.getPlotWidth() / PriceChart.MIN_BAR_WIDTH));
+		}
+		
+		Resolution newResolution = Resolution.forSpan((long) (last - first), maxBars);
+		if(newResolution == resolution) {
+			return false;
+		}
+		resolution = newResolution;
+		dataChart.getData().removeIf(series -> symbolsTracked.contains(series.getName()));
+		return true;
 	}
 	
 	@FXML
@@ -411,6 +965,13 @@ public class ChartController {
 		xAxis.setLowerBound(startEpoch.doubleValue());
 		xAxis.setUpperBound(endEpoch.doubleValue());
 		xAxis.setTickUnit(daysBetween / 15);
+		
+		if(pickResolution()) {
+			refreshTrackedSymbols();
+		}
+		else {
+			normalize();
+		}
 	}
 	
 	@FXML
@@ -420,7 +981,8 @@ public class ChartController {
 		String symbolsString = String.join(",", symbols);
 		
 		// Create the dialog box
-		Dialog<Pair<String, String>> dialog = new ChartEditDialog(dataChart.titleProperty().get(), symbolsString);
+		ChartEditDialog dialog = new ChartEditDialog(dataChart.titleProperty().get(), symbolsString, indicators,
+				dataChart.getMode(), dataChart.isVolumeVisible(), scale);
 		
 		// Get dialog result
 		dialog.resultProperty().addListener((obs, oldValue, newValue) -> {
@@ -429,12 +991,33 @@ public class ChartController {
 			}
 			
 			// Get the values from the UI elements
-			String newChartName = newValue.getKey();
-			String newSymbols = newValue.getValue();
+			String newChartName = newValue.name;
+			String newSymbols = newValue.symbols;
+			
+			// Check the indicators before changing anything
+			try {
+				Indicators.parseList(newValue.indicators);
+			} catch (IllegalArgumentException ex) {
+				Alert alert = new Alert(AlertType.ERROR, ex.getMessage(), ButtonType.OK);
+				alert.setHeaderText("Invalid Indicator");
+				alert.show();
+				return;
+			}
+			indicators = newValue.indicators;
 			
 			// Update the chart name
 			dataChart.setTitle(newChartName);
 			
+			// Bars drawn from the previous load may be out of date, so a new
+			// style reloads the charted symbols
+			if(newValue.mode != dataChart.getMode() || newValue.showVolume != dataChart.isVolumeVisible()) {
+				dataChart.setMode(newValue.mode);
+				dataChart.setVolumeVisible(newValue.showVolume);
+				dataChart.getData().removeIf(series -> symbolsTracked.contains(series.getName()));
+				pickResolution();
+			}
+			setScale(newValue.scale);
+			
 			// Update the tracked symbols
 			String[] newSymbolsArray = newSymbols.split(",");
 			for(int i = 0; i < newSymbolsArray.length; i++) {
@@ -454,10 +1037,15 @@ public class ChartController {
 	}
 	
 	public void addChartSymbol(String symbol) {
+		RefreshScheduler.symbolViewed(symbol);
 		symbolsTracked.add(symbol);
 		refreshTrackedSymbols();
 	}
 	
+	public Set<String> getChartSymbols() {
+		return Set.copyOf(symbolsTracked);
+	}
+	
 	public String getChartName() {
 		return dataChart.titleProperty().get();
 	}
@@ -470,4 +1058,21 @@ public class ChartController {
 		return dataChart.titleProperty();
 	}
 	
+	/**
+	 * Prices a symbol is charted from: its series at the chart's resolution
+	 * and, for rolled up resolutions, its daily bars from recentFrom on,
+	 * which price updates are merged into and rolled up again from.
+	 */
+	private static final class ChartedPrices {
+		PriceSeries series;
+		PriceSeries recent;
+		long recentFrom;
+		
+		ChartedPrices(PriceSeries series, PriceSeries recent, long recentFrom) {
+			this.series = series;
+			this.recent = recent;
+			this.recentFrom = recentFrom;
+		}
+	}
+	
 }
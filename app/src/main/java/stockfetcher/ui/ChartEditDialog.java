@@ -2,17 +2,19 @@ package stockfetcher.ui;
 
 import javafx.application.Platform;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
-import javafx.util.Pair;
 
-public class ChartEditDialog extends Dialog<Pair<String, String>> {
+public class ChartEditDialog extends Dialog<ChartEditDialog.ChartSettings> {
 
-	public ChartEditDialog(String chartName, String symbols) {
+	public ChartEditDialog(String chartName, String symbols, String indicators, PriceChart.Mode mode, boolean showVolume,
+			PriceChart.Scale scale) {
 		setTitle("Update Chart");
 		setHeaderText("Enter new chart name and symbols tracked.");
 		
@@ -20,6 +22,17 @@ public class ChartEditDialog extends Dialog<Pair<String, String>> {
 		
 		TextField nameField = new TextField(chartName);
 		TextField symbolsField = new TextField(symbols);
+		TextField indicatorsField = new TextField(indicators);
+		indicatorsField.setPromptText("e.g. SMA(50), BB(20,2), RSI(14)");
+		
+		ChoiceBox<PriceChart.Mode> modeChoice = new ChoiceBox<>();
+		modeChoice.getItems().addAll(PriceChart.Mode.values());
+		modeChoice.setValue(mode);
+		CheckBox volumeCheck = new CheckBox("Show Volume");
+		volumeCheck.setSelected(showVolume);
+		ChoiceBox<PriceChart.Scale> scaleChoice = new ChoiceBox<>();
+		scaleChoice.getItems().addAll(PriceChart.Scale.values());
+		scaleChoice.setValue(scale);
 		
 		GridPane grid = new GridPane();
 		grid.setHgap(5);
@@ -29,6 +42,13 @@ public class ChartEditDialog extends Dialog<Pair<String, String>> {
 		grid.add(nameField, 1, 0);
 		grid.add(new Label("Symbols:"), 0, 1);
 		grid.add(symbolsField, 1, 1);
+		grid.add(new Label("Indicators:"), 0, 2);
+		grid.add(indicatorsField, 1, 2);
+		grid.add(new Label("Style:"), 0, 3);
+		grid.add(modeChoice, 1, 3);
+		grid.add(volumeCheck, 1, 4);
+		grid.add(new Label("Scale:"), 0, 5);
+		grid.add(scaleChoice, 1, 5);
 		
 		ColumnConstraints left = new ColumnConstraints();
 		ColumnConstraints right = new ColumnConstraints();
@@ -42,7 +62,8 @@ public class ChartEditDialog extends Dialog<Pair<String, String>> {
 		
 		setResultConverter((buttonType) -> {
 			if(buttonType == ButtonType.OK) {	
-				return new Pair<String, String>(nameField.getText(), symbolsField.getText());
+				return new ChartSettings(nameField.getText(), symbolsField.getText(), indicatorsField.getText(),
+						modeChoice.getValue(), volumeCheck.isSelected(), scaleChoice.getValue());
 			}
 			else {
 				return null;
@@ -53,4 +74,25 @@ public class ChartEditDialog extends Dialog<Pair<String, String>> {
 		Platform.runLater(nameField::requestFocus);
 	}
 	
+	public static class ChartSettings {
+		
+		public final String name;
+		public final String symbols;
+		public final String indicators;
+		public final PriceChart.Mode mode;
+		public final boolean showVolume;
+		public final PriceChart.Scale scale;
+		
+		public ChartSettings(String name, String symbols, String indicators, PriceChart.Mode mode, boolean showVolume,
+				PriceChart.Scale scale) {
+			this.name = name;
+			this.symbols = symbols;
+			this.indicators = indicators;
+			this.mode = mode;
+			this.showVolume = showVolume;
+			this.scale = scale;
+		}
+		
+	}
+	
 }
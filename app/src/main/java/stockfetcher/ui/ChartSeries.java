@@ -0,0 +1,60 @@
+package stockfetcher.ui;
+
+import java.util.ArrayList;
+
+import javafx.scene.chart.XYChart;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Conversions from price data to chart series. Points are added to a new
+ * series in one change, so the list only notifies once.
+ */
+public final class ChartSeries {
+
+	private ChartSeries() {}
+
+	/**
+	 * Converts a price series into a line of adjusted closes.
+	 * @param series
+	 * @return chart series named after the symbol
+	 */
+	public static XYChart.Series<Number, Double> toLine(PriceSeries series) {
+		XYChart.Series<Number, Double> line = new XYChart.Series<>();
+		line.setName(series.getSymbol());
+		line.getData().setAll(toPoints(series, 0));
+		return line;
+	}
+
+	/**
+	 * Converts part of a price series into points of adjusted closes.
+	 * @param series
+	 * @param from index of the first bar converted
+	 * @return points in date order
+	 */
+	public static ArrayList<XYChart.Data<Number, Double>> toPoints(PriceSeries series, int from) {
+		ArrayList<XYChart.Data<Number, Double>> points = new ArrayList<>(Math.max(0, series.size() - from));
+		for(int i = from; i < series.size(); i++) {
+			points.add(new XYChart.Data<>(series.getEpochDay(i), series.getAdjClose(i)));
+		}
+		return points;
+	}
+
+	/**
+	 * Converts values on epoch days into a line.
+	 * @param name
+	 * @param days
+	 * @param values same length as days
+	 * @return chart series
+	 */
+	public static XYChart.Series<Number, Double> toLine(String name, double[] days, double[] values) {
+		XYChart.Series<Number, Double> line = new XYChart.Series<>();
+		line.setName(name);
+		ArrayList<XYChart.Data<Number, Double>> points = new ArrayList<>(days.length);
+		for(int i = 0; i < days.length; i++) {
+			points.add(new XYChart.Data<>(days[i], values[i]));
+		}
+		line.getData().setAll(points);
+		return line;
+	}
+
+}
@@ -0,0 +1,99 @@
+package stockfetcher.ui;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.application.Platform;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+
+public class CorrelationDialog extends Dialog<CorrelationDialog.CorrelationSettings> {
+
+	public CorrelationDialog(List<String> allSymbols) {
+		// Setup dialog
+		setTitle("Correlation Matrix");
+		setHeaderText("Choose Symbols and Dates");
+
+		getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+		// Setup content
+		GridPane grid = new GridPane();
+		grid.setHgap(5);
+		grid.setVgap(5);
+
+		Label helpLabel = new Label("Enter the symbols to compare, separated by commas. "
+				+ "Leave blank to compare every tracked symbol.");
+		helpLabel.setWrapText(true);
+		helpLabel.setMaxWidth(300);
+		grid.add(helpLabel, 0, 0, 2, 1);
+
+		TextArea symbolsField = new TextArea();
+		symbolsField.setWrapText(true);
+		symbolsField.setPrefRowCount(3);
+		symbolsField.setPromptText(allSymbols.size() + " tracked symbols");
+		grid.add(new Label("Symbols:"), 0, 1);
+		grid.add(symbolsField, 1, 1);
+
+		final DatePicker begin = new DatePicker(LocalDate.now().minusYears(5));
+		final DatePicker end = new DatePicker(LocalDate.now());
+
+		grid.add(new Label("From:"), 0, 2);
+		grid.add(begin, 1, 2);
+
+		grid.add(new Label("To:"), 0, 3);
+		grid.add(end, 1, 3);
+
+		ColumnConstraints left = new ColumnConstraints();
+		ColumnConstraints right = new ColumnConstraints();
+
+		right.setFillWidth(true);
+		right.setHgrow(Priority.ALWAYS);
+
+		grid.getColumnConstraints().addAll(left, right);
+
+		getDialogPane().setContent(grid);
+
+		setResultConverter((buttonType) -> {
+			if(buttonType == ButtonType.OK) {
+				List<String> symbols = new ArrayList<>();
+				for(String symbol : symbolsField.getText().split(",")) {
+					symbol = symbol.trim().toUpperCase();
+					if(!symbol.isEmpty() && !symbols.contains(symbol)) {
+						symbols.add(symbol);
+					}
+				}
+				if(symbols.isEmpty()) {
+					symbols.addAll(allSymbols);
+				}
+				return new CorrelationSettings(symbols, begin.getValue(), end.getValue());
+			}
+			else {
+				return null;
+			}
+		});
+
+		Platform.runLater(symbolsField::requestFocus);
+	}
+
+	public static class CorrelationSettings {
+
+		public final List<String> symbols;
+		public final LocalDate start;
+		public final LocalDate end;
+
+		public CorrelationSettings(List<String> symbols, LocalDate start, LocalDate end) {
+			this.symbols = symbols;
+			this.start = start;
+			this.end = end;
+		}
+
+	}
+
+}
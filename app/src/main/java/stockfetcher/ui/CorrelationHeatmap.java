@@ -0,0 +1,158 @@
+package stockfetcher.ui;
+
+import javafx.geometry.Insets;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import stockfetcher.analytics.CorrelationMatrix;
+
+/**
+ * Heatmap of a correlation matrix. Each cell is one pixel of an image
+ * that is scaled to fit, so even matrices of a thousand symbols redraw
+ * quickly. Hovering a cell shows its pair and value.
+ */
+public class CorrelationHeatmap extends BorderPane {
+
+	private static final String CORRELATION = "Correlation";
+	private static final String COVARIANCE = "Covariance";
+
+	private static final Color MISSING_COLOR = Color.GRAY;
+
+	private final Canvas canvas = new Canvas();
+	private final Label info = new Label("Computing...");
+	private final ChoiceBox<String> valueChoice = new ChoiceBox<>();
+
+	private CorrelationMatrix matrix = null;
+	private WritableImage image = null;
+
+	public CorrelationHeatmap() {
+		valueChoice.getItems().addAll(CORRELATION, COVARIANCE);
+		valueChoice.setValue(CORRELATION);
+		valueChoice.setOnAction(e -> {
+			renderImage();
+			draw();
+		});
+
+		HBox controls = new HBox(5, new Label("Show:"), valueChoice);
+		controls.setPadding(new Insets(5, 10, 5, 10));
+		setTop(controls);
+
+		// Canvas follows the size of its container
+		Pane canvasPane = new Pane(canvas);
+		canvas.widthProperty().bind(canvasPane.widthProperty());
+		canvas.heightProperty().bind(canvasPane.heightProperty());
+		canvas.widthProperty().addListener(obs -> draw());
+		canvas.heightProperty().addListener(obs -> draw());
+		canvas.addEventHandler(MouseEvent.MOUSE_MOVED, this::showCellInfo);
+		setCenter(canvasPane);
+
+		info.setPadding(new Insets(5, 10, 5, 10));
+		setBottom(info);
+	}
+
+	public void setMatrix(CorrelationMatrix matrix) {
+		this.matrix = matrix;
+		info.setText(String.format("%d symbols, %s to %s", matrix.size(), matrix.getStart(), matrix.getEnd()));
+		renderImage();
+		draw();
+	}
+
+	/**
+	 * Shows an error message instead of the matrix.
+	 * @param message
+	 */
+	public void setError(String message) {
+		info.setText(message);
+	}
+
+	private void renderImage() {
+		if(matrix == null || matrix.size() == 0) {
+			image = null;
+			return;
+		}
+
+		int n = matrix.size();
+		boolean covariance = COVARIANCE.equals(valueChoice.getValue());
+
+		// Scale covariance colors by the largest value so the map isn't washed out
+		double scale = 1;
+		if(covariance) {
+			scale = 0;
+			for(int i = 0; i < n; i++) {
+				for(int j = 0; j < n; j++) {
+					double value = Math.abs(matrix.getCovariance(i, j));
+					if(value > scale) {
+						scale = value;
+					}
+				}
+			}
+		}
+
+		image = new WritableImage(n, n);
+		PixelWriter writer = image.getPixelWriter();
+		for(int i = 0; i < n; i++) {
+			for(int j = 0; j < n; j++) {
+				double value = covariance ? matrix.getCovariance(i, j) : matrix.getCorrelation(i, j);
+				writer.setColor(j, i, color(scale == 0 ? Double.NaN : value / scale));
+			}
+		}
+	}
+
+	private void draw() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		if(image == null) {
+			return;
+		}
+
+		double size = cellSize() * matrix.size();
+		gc.setImageSmoothing(false);
+		gc.drawImage(image, 0, 0, size, size);
+	}
+
+	private void showCellInfo(MouseEvent e) {
+		if(matrix == null || matrix.size() == 0) {
+			return;
+		}
+
+		int i = (int) (e.getY() / cellSize());
+		int j = (int) (e.getX() / cellSize());
+		if(i < 0 || j < 0 || i >= matrix.size() || j >= matrix.size()) {
+			return;
+		}
+
+		info.setText(String.format("%s / %s: correlation %.3f, covariance %.3g (%d days)",
+				matrix.getSymbols().get(i),
+				matrix.getSymbols().get(j),
+				matrix.getCorrelation(i, j),
+				matrix.getCovariance(i, j),
+				matrix.getObservations(i, j)));
+	}
+
+	private double cellSize() {
+		return Math.min(canvas.getWidth(), canvas.getHeight()) / matrix.size();
+	}
+
+	/**
+	 * Maps -1 to red, 0 to white and 1 to blue.
+	 */
+	private static Color color(double value) {
+		if(Double.isNaN(value)) {
+			return MISSING_COLOR;
+		}
+		value = Math.max(-1, Math.min(1, value));
+		if(value >= 0) {
+			return Color.color(1 - value, 1 - value, 1);
+		}
+		return Color.color(1, 1 + value, 1 + value);
+	}
+
+}
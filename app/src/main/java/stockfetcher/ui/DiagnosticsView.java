@@ -0,0 +1,108 @@
+package stockfetcher.ui;
+
+import java.util.function.ToDoubleFunction;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.util.Duration;
+import stockfetcher.metrics.Metric;
+import stockfetcher.metrics.MetricSnapshot;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Live table of every metric: call counts and latency percentiles of
+ * fetches, database queries, analytics and chart refreshes. Timer values
+ * are in milliseconds. The table refreshes every second while shown.
+ */
+public class DiagnosticsView extends BorderPane {
+
+	private final TableView<MetricSnapshot> table = new TableView<>();
+	private final Timeline refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+
+	public DiagnosticsView() {
+		TableColumn<MetricSnapshot, String> name = new TableColumn<>("Metric");
+		name.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().name));
+		name.setPrefWidth(220);
+		TableColumn<MetricSnapshot, String> type = new TableColumn<>("Type");
+		type.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().type.toString()));
+
+		table.getColumns().add(name);
+		table.getColumns().add(type);
+		table.getColumns().add(numberColumn("Count", s -> s.count, "%,.0f"));
+		table.getColumns().add(numberColumn("Mean", s -> s.mean, "%,.2f"));
+		table.getColumns().add(numberColumn("p50", s -> s.p50, "%,.2f"));
+		table.getColumns().add(numberColumn("p90", s -> s.p90, "%,.2f"));
+		table.getColumns().add(numberColumn("p99", s -> s.p99, "%,.2f"));
+		table.getColumns().add(numberColumn("Max", s -> s.max, "%,.2f"));
+		table.getColumns().add(numberColumn("Total", s -> s.type == Metric.Type.COUNTER ? Double.NaN : s.sum, "%,.1f"));
+		setCenter(table);
+
+		Label info = new Label("Times in milliseconds since startup or the last reset.");
+		Button reset = new Button("Reset");
+		reset.setOnAction(e -> {
+			Metrics.reset();
+			refresh();
+		});
+		HBox bottom = new HBox(10, reset, info);
+		bottom.setPadding(new Insets(5, 10, 5, 10));
+		setBottom(bottom);
+
+		refresher.setCycleCount(Animation.INDEFINITE);
+		refresh();
+	}
+
+	public void start() {
+		refresher.play();
+	}
+
+	public void stop() {
+		refresher.stop();
+	}
+
+	private void refresh() {
+		MetricSnapshot selected = table.getSelectionModel().getSelectedItem();
+		table.getItems().setAll(Metrics.snapshot());
+		if(selected != null) {
+			for(MetricSnapshot snapshot : table.getItems()) {
+				if(snapshot.name.equals(selected.name)) {
+					table.getSelectionModel().select(snapshot);
+					break;
+				}
+			}
+		}
+	}
+
+	private static TableColumn<MetricSnapshot, Double> numberColumn(String title, ToDoubleFunction<MetricSnapshot> value,
+			String format) {
+		TableColumn<MetricSnapshot, Double> column = new TableColumn<>(title);
+		column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.applyAsDouble(cell.getValue())));
+		column.setCellFactory(col -> new TableCell<>() {
+			@Override
+			protected void updateItem(Double item, boolean empty) {
+				super.updateItem(item, empty);
+				if(empty || item == null) {
+					setText(null);
+				}
+				else if(Double.isNaN(item)) {
+					setText("-");
+				}
+				else {
+					setText(String.format(format, item));
+				}
+			}
+		});
+		return column;
+	}
+
+}
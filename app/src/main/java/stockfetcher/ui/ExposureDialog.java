@@ -0,0 +1,117 @@
+package stockfetcher.ui;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.util.Pair;
+import stockfetcher.analytics.Exposure;
+import stockfetcher.analytics.ExposureIndex;
+
+/**
+ * Shows the underlying symbol and sector exposure of a portfolio of
+ * ETFs, updated as the portfolio is edited.
+ */
+public class ExposureDialog extends Dialog<Void> {
+
+	private static final int MAX_LISTED_HOLDINGS = 500;
+
+	private final ExposureIndex index;
+	private final ListView<String> holdingsList = new ListView<>();
+	private final ListView<String> sectorsList = new ListView<>();
+	private final Label info = new Label();
+
+	public ExposureDialog(ExposureIndex index) {
+		this.index = index;
+
+		// Setup dialog
+		setTitle("Portfolio Exposure");
+		setHeaderText("Look-Through Exposure");
+		setResizable(true);
+
+		getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+		// Setup content
+		GridPane grid = new GridPane();
+		grid.setHgap(5);
+		grid.setVgap(5);
+
+		Label helpLabel = new Label("Enter one position per line as a symbol and weight, e.g. \"SPY 60\". "
+				+ "Weights are scaled to add up to 100%.");
+		helpLabel.setWrapText(true);
+		helpLabel.setMaxWidth(600);
+		grid.add(helpLabel, 0, 0, 3, 1);
+
+		TextArea portfolioField = new TextArea();
+		portfolioField.setPrefColumnCount(12);
+		portfolioField.setPrefRowCount(15);
+		portfolioField.textProperty().addListener((obs, oldText, newText) -> update(newText));
+
+		grid.add(new Label("Portfolio"), 0, 1);
+		grid.add(new Label("Holdings"), 1, 1);
+		grid.add(new Label("Sectors"), 2, 1);
+		grid.add(portfolioField, 0, 2);
+		grid.add(holdingsList, 1, 2);
+		grid.add(sectorsList, 2, 2);
+		grid.add(info, 0, 3, 3, 1);
+		GridPane.setVgrow(portfolioField, Priority.ALWAYS);
+		GridPane.setVgrow(holdingsList, Priority.ALWAYS);
+		GridPane.setVgrow(sectorsList, Priority.ALWAYS);
+
+		getDialogPane().setContent(grid);
+	}
+
+	private void update(String text) {
+		// Parse positions, skipping anything that can't be read
+		LinkedHashMap<String, Double> portfolio = new LinkedHashMap<>();
+		double total = 0;
+		for(String line : text.split("\n")) {
+			String[] parts = line.trim().split("[\\s,]+");
+			if(parts.length == 0 || parts[0].isEmpty()) {
+				continue;
+			}
+			double weight = 1;
+			if(parts.length > 1) {
+				try {
+					weight = Double.parseDouble(parts[1].replace("%", ""));
+				} catch (NumberFormatException e) {
+					continue;
+				}
+			}
+			if(weight > 0) {
+				portfolio.merge(parts[0].toUpperCase(), weight, Double::sum);
+				total += weight;
+			}
+		}
+
+		if(total > 0) {
+			for(var position : portfolio.entrySet()) {
+				position.setValue(position.getValue() / total);
+			}
+		}
+
+		Exposure exposure = index.getExposure(portfolio);
+		setItems(holdingsList, exposure.holdings, MAX_LISTED_HOLDINGS);
+		setItems(sectorsList, exposure.sectors, Integer.MAX_VALUE);
+
+		double known = 0;
+		for(var holding : exposure.holdings) {
+			known += holding.getValue();
+		}
+		info.setText(String.format("%d positions, %.1f%% of the portfolio in known holdings.", portfolio.size(), known * 100));
+	}
+
+	private static void setItems(ListView<String> list, List<Pair<String, Double>> weights, int limit) {
+		list.getItems().clear();
+		for(int i = 0; i < weights.size() && i < limit; i++) {
+			list.getItems().add(String.format("%-8s %6.2f%%", weights.get(i).getKey(), weights.get(i).getValue() * 100));
+		}
+	}
+
+}
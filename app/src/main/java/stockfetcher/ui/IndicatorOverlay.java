@@ -0,0 +1,132 @@
+package stockfetcher.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.chart.XYChart;
+import javafx.scene.chart.XYChart.Series;
+import stockfetcher.analytics.Bar;
+import stockfetcher.analytics.Indicator;
+import stockfetcher.api.PriceData;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Chart lines for one indicator over one symbol. The indicator is kept
+ * alive after the initial computation, so new bars can be appended in
+ * O(1) as price updates arrive. Its state from before the latest bar is
+ * kept as well, so a revised latest bar (prices refreshed during the
+ * session) replaces it the same way.
+ */
+public class IndicatorOverlay {
+
+	private final String symbol;
+	private final Indicator indicator;
+	private final ArrayList<Series<Number, Double>> series = new ArrayList<>();
+	private final Bar bar = new Bar();
+	private long lastDay = Long.MIN_VALUE;
+
+	// State from before the latest bar, and whether that bar has points
+	private final double[] previous;
+	private boolean lastPlotted = false;
+
+	/**
+	 * Computes the indicator over the full price history. May be called off
+	 * the FX thread, since the series are not yet attached to a chart.
+	 * @param prices
+	 * @param indicator fresh indicator
+	 */
+	public IndicatorOverlay(PriceSeries prices, Indicator indicator) {
+		this.symbol = prices.getSymbol();
+		this.indicator = indicator;
+		this.previous = new double[indicator.getStateSize()];
+
+		for(int output = 0; output < indicator.getOutputCount(); output++) {
+			Series<Number, Double> line = new Series<>();
+			line.setName(symbol + " " + indicator.getOutputName(output));
+			series.add(line);
+		}
+
+		// Add points directly to the backing lists, then set them all at once
+		ArrayList<ArrayList<XYChart.Data<Number, Double>>> points = new ArrayList<>();
+		for(int output = 0; output < series.size(); output++) {
+			points.add(new ArrayList<>(prices.size()));
+		}
+		for(int i = 0; i < prices.size(); i++) {
+			if(i == prices.size() - 1) {
+				indicator.saveState(previous, 0);
+			}
+			indicator.update(bar.set(prices, i));
+			lastPlotted = indicator.isReady();
+			if(lastPlotted) {
+				for(int output = 0; output < series.size(); output++) {
+					points.get(output).add(new XYChart.Data<>(bar.epochDay, indicator.getValue(output)));
+				}
+			}
+			lastDay = bar.epochDay;
+		}
+		for(int output = 0; output < series.size(); output++) {
+			series.get(output).getData().setAll(points.get(output));
+		}
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return true if these lines share the price axis
+	 */
+	public boolean isOverlay() {
+		return indicator.isOverlay();
+	}
+
+	public List<Series<Number, Double>> getSeries() {
+		return series;
+	}
+
+	/**
+	 * Applies new or revised bars to the indicator lines. Changed points
+	 * hold the indicator's values in price units.
+	 * @param bars bars in date order, none before the latest bar seen
+	 * @return index of the first point changed in each line; -1 if a bar is
+	 * before the latest bar seen, in which case the overlay must be
+	 * recomputed from the full history
+	 */
+	public int apply(List<PriceData> bars) {
+		int from = series.get(0).getData().size();
+		for(PriceData data : bars) {
+			bar.set(data);
+			if(bar.epochDay < lastDay) {
+				return -1;
+			}
+
+			boolean replace = bar.epochDay == lastDay;
+			if(replace) {
+				indicator.restoreState(previous, 0);
+			}
+			else {
+				indicator.saveState(previous, 0);
+				lastPlotted = false;
+			}
+			indicator.update(bar);
+			lastDay = bar.epochDay;
+			if(!indicator.isReady()) {
+				continue;
+			}
+
+			for(int output = 0; output < series.size(); output++) {
+				var points = series.get(output).getData();
+				if(replace && lastPlotted) {
+					points.get(points.size() - 1).setYValue(indicator.getValue(output));
+				}
+				else {
+					points.add(new XYChart.Data<>(bar.epochDay, indicator.getValue(output)));
+				}
+			}
+			from = Math.min(from, series.get(0).getData().size() - 1);
+			lastPlotted = true;
+		}
+		return from;
+	}
+
+}
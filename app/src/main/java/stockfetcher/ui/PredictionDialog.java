@@ -3,19 +3,43 @@ package stockfetcher.ui;
 import java.time.LocalDate;
 
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
-import javafx.util.Pair;
+import stockfetcher.analytics.MonteCarlo;
 
-public class PredictionDialog extends Dialog<Pair<LocalDate, LocalDate>> {
+public class PredictionDialog extends Dialog<PredictionDialog.PredictionSettings> {
+	
+	public enum Method {
+		LINEAR("Linear Trend", null),
+		GBM("Monte Carlo (Brownian Motion)", MonteCarlo.Model.GBM),
+		BOOTSTRAP("Monte Carlo (Historical Returns)", MonteCarlo.Model.BOOTSTRAP);
+		
+		private final String label;
+		
+		/**
+		 * Simulation model, or null for the linear trend.
+		 */
+		public final MonteCarlo.Model model;
+		
+		private Method(String label, MonteCarlo.Model model) {
+			this.label = label;
+			this.model = model;
+		}
+		
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
 
 	public PredictionDialog() {
 		// Setup dialog
-		setTitle("Predcict");
+		setTitle("Predict");
 		setHeaderText("Choose Prediction Date");
 		
 		getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
@@ -32,7 +56,9 @@ public class PredictionDialog extends Dialog<Pair<LocalDate, LocalDate>> {
 		Label helpLabel = new Label("Select the date interval you would like to use for the prediction. "
 				+ "Longer intervals may produce less useful data predictions, but "
 				+ "too short of an interval will produce less accurate predictions. "
-				+ "Interval should be at least 30 days.");
+				+ "Interval should be at least 30 days. Monte Carlo models simulate "
+				+ "many possible paths from the interval's daily returns and show "
+				+ "the range of likely prices.");
 		helpLabel.setWrapText(true);
 		helpLabel.setMaxWidth(300);
 		
@@ -44,9 +70,16 @@ public class PredictionDialog extends Dialog<Pair<LocalDate, LocalDate>> {
 		grid.add(new Label("From:"), 0, 1);
 		grid.add(begin, 1, 1);
 		
-		grid.add(new Label("Fromn"), 0, 2);
+		grid.add(new Label("To:"), 0, 2);
 		grid.add(end, 1, 2);
 		
+		final ChoiceBox<Method> method = new ChoiceBox<>();
+		method.getItems().addAll(Method.values());
+		method.setValue(Method.LINEAR);
+		
+		grid.add(new Label("Model:"), 0, 3);
+		grid.add(method, 1, 3);
+		
 		ColumnConstraints left = new ColumnConstraints();
 		ColumnConstraints right = new ColumnConstraints();
 		
@@ -59,7 +92,7 @@ public class PredictionDialog extends Dialog<Pair<LocalDate, LocalDate>> {
 		
 		setResultConverter((buttonType) -> {
 			if(buttonType == ButtonType.OK) {
-				return new Pair<>(begin.getValue(), end.getValue());
+				return new PredictionSettings(begin.getValue(), end.getValue(), method.getValue());
 			}
 			else {
 				return null;
@@ -67,4 +100,18 @@ public class PredictionDialog extends Dialog<Pair<LocalDate, LocalDate>> {
 		});
 	}
 	
+	public static class PredictionSettings {
+		
+		public final LocalDate begin;
+		public final LocalDate end;
+		public final Method method;
+		
+		public PredictionSettings(LocalDate begin, LocalDate end, Method method) {
+			this.begin = begin;
+			this.end = end;
+			this.method = method;
+		}
+		
+	}
+	
 }
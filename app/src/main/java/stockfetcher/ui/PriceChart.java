@@ -0,0 +1,434 @@
+package stockfetcher.ui;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import javafx.beans.NamedArg;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.chart.Axis;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.ValueAxis;
+import javafx.scene.paint.Color;
+import stockfetcher.db.PriceSeries;
+import stockfetcher.jfr.ChartRenderEvent;
+import stockfetcher.metrics.Metrics;
+
+/**
+ * Line chart that can also draw the full bars of its price series as
+ * candlesticks or OHLC bars, with an optional volume histogram along the
+ * bottom of the plot.
+ * <p>
+ * Bars are painted onto a single canvas behind the chart's lines rather
+ * than as one node per bar, with all wicks of a color stroked as one path,
+ * so thousands of bars cost about the same as redrawing one image. Price
+ * lines for symbols drawn as bars are hidden but stay in the chart, so
+ * axis ranging, indicator overlays and updates work the same in every
+ * style.
+ */
+public class PriceChart extends LineChart<Number, Double> {
+
+	public enum Mode {
+		LINE("Line"),
+		CANDLESTICK("Candlestick"),
+		OHLC("OHLC Bars");
+
+		private final String label;
+
+		private Mode(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	public enum Scale {
+		PRICE("Price"),
+		REBASED("Rebased to 100"),
+		PERCENT("Percent Change");
+
+		private final String label;
+
+		private Scale(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	/**
+	 * Narrowest bar, in pixels, that is still readable. Charts pick a
+	 * coarser resolution rather than draw narrower bars.
+	 */
+	public static final double MIN_BAR_WIDTH = 3;
+
+	private static final Color UP_COLOR = Color.rgb(38, 166, 154);
+	private static final Color DOWN_COLOR = Color.rgb(239, 83, 80);
+	private static final Color UP_VOLUME_COLOR = UP_COLOR.deriveColor(0, 1, 1, 0.35);
+	private static final Color DOWN_VOLUME_COLOR = DOWN_COLOR.deriveColor(0, 1, 1, 0.35);
+
+	// Share of the plot height used by the volume histogram
+	private static final double VOLUME_HEIGHT = 0.2;
+
+	// Share of the space between bars filled by a candle body
+	private static final double BODY_WIDTH = 0.7;
+
+	private static final double[] IDENTITY_SCALE = {1, 0};
+
+	private final Canvas canvas = new Canvas();
+	private final HashMap<String, PriceSeries> bars = new HashMap<>();
+
+	// Factor and offset applied to the prices of each series' bars
+	private final HashMap<String, double[]> barScales = new HashMap<>();
+
+	private Mode mode = Mode.LINE;
+	private boolean volumeVisible = false;
+
+	public PriceChart(@NamedArg("xAxis") Axis<Number> xAxis, @NamedArg("yAxis") Axis<Double> yAxis) {
+		super(xAxis, yAxis);
+		canvas.setManaged(false);
+		canvas.setMouseTransparent(true);
+		getPlotChildren().add(0, canvas);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public void setMode(Mode mode) {
+		this.mode = mode;
+		invalidateBars();
+	}
+
+	public boolean isVolumeVisible() {
+		return volumeVisible;
+	}
+
+	public void setVolumeVisible(boolean volumeVisible) {
+		this.volumeVisible = volumeVisible;
+		invalidateBars();
+	}
+
+	/**
+	 * @return true if the chart draws anything from the full bars
+	 */
+	public boolean isDrawingBars() {
+		return mode != Mode.LINE || volumeVisible;
+	}
+
+	/**
+	 * Sets the bars drawn for the series with the given name. Bars are only
+	 * drawn while a series of that name is in the chart.
+	 * @param name
+	 * @param series
+	 */
+	public void setBars(String name, PriceSeries series) {
+		bars.put(name, series);
+		invalidateBars();
+	}
+
+	/**
+	 * Drops the bars of every series not named in the set.
+	 * @param names
+	 */
+	public void retainBars(Set<String> names) {
+		bars.keySet().retainAll(names);
+		barScales.keySet().retainAll(names);
+		invalidateBars();
+	}
+
+	/**
+	 * Draws the bars of a series at price * factor + offset, to match a
+	 * normalized price line.
+	 * @param name
+	 * @param factor
+	 * @param offset
+	 */
+	public void setBarScale(String name, double factor, double offset) {
+		double[] current = barScales.get(name);
+		if(current != null && current[0] == factor && current[1] == offset) {
+			return;
+		}
+		if(factor == 1 && offset == 0) {
+			barScales.remove(name);
+		}
+		else {
+			barScales.put(name, new double[] {factor, offset});
+		}
+		invalidateBars();
+	}
+
+	/**
+	 * @return width of the plot area in pixels
+	 */
+	public double getPlotWidth() {
+		return getXAxis().getWidth();
+	}
+
+	private void invalidateBars() {
+		// The price axis range depends on the style and bars
+		updateAxisRange();
+		requestLayout();
+	}
+
+	@Override
+	protected void updateAxisRange() {
+		super.updateAxisRange();
+
+		// Candles reach past the closing prices the lines are ranged on
+		Axis<Double> yAxis = getYAxis();
+		if(mode == Mode.LINE || !yAxis.isAutoRanging()) {
+			return;
+		}
+
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		for(var series : getData()) {
+			PriceSeries priceSeries = bars.get(series.getName());
+			if(priceSeries != null) {
+				double[] scale = barScale(series.getName());
+				for(int i = 0; i < priceSeries.size(); i++) {
+					double adjust = adjustment(priceSeries, i) * scale[0];
+					min = Math.min(min, priceSeries.getLow(i) * adjust + scale[1]);
+					max = Math.max(max, priceSeries.getHigh(i) * adjust + scale[1]);
+				}
+			}
+			for(var point : series.getData()) {
+				min = Math.min(min, point.getYValue());
+				max = Math.max(max, point.getYValue());
+			}
+		}
+		if(min <= max) {
+			yAxis.invalidateRange(List.of(min, max));
+		}
+	}
+
+	@Override
+	protected void layoutPlotChildren() {
+		ChartRenderEvent event = new ChartRenderEvent();
+		event.begin();
+		long start = System.nanoTime();
+		try {
+			super.layoutPlotChildren();
+
+			for(var series : getData()) {
+				boolean hidden = mode != Mode.LINE && bars.containsKey(series.getName());
+				if(series.getNode() != null) {
+					series.getNode().setVisible(!hidden);
+				}
+				for(var point : series.getData()) {
+					if(point.getNode() != null) {
+						point.getNode().setVisible(!hidden);
+					}
+				}
+			}
+
+			drawBars();
+		} finally {
+			Metrics.timer("ui.chart.layout").recordSince(start);
+		}
+		commit(event, "layout");
+	}
+
+	/**
+	 * Ends and commits a render event with the size of this chart.
+	 * @param event
+	 * @param phase
+	 */
+	void commit(ChartRenderEvent event, String phase) {
+		event.end();
+		if(event.shouldCommit()) {
+			int points = 0;
+			for(var series : getData()) {
+				points += series.getData().size();
+			}
+			event.phase = phase;
+			event.series = getData().size();
+			event.points = points;
+			event.commit();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void drawBars() {
+		double width = getXAxis().getWidth();
+		double height = getYAxis().getHeight();
+		if(canvas.getWidth() != width || canvas.getHeight() != height) {
+			canvas.setWidth(width);
+			canvas.setHeight(height);
+		}
+
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		if(!isDrawingBars() || !(getXAxis() instanceof ValueAxis)) {
+			return;
+		}
+
+		ValueAxis<Number> xAxis = (ValueAxis<Number>) getXAxis();
+		for(var series : getData()) {
+			PriceSeries priceSeries = bars.get(series.getName());
+			if(priceSeries == null || priceSeries.isEmpty()) {
+				continue;
+			}
+
+			// Only bars in the visible range, plus one either side so
+			// partly visible bars are drawn
+			int from = Math.max(0, priceSeries.indexOf((long) Math.floor(xAxis.getLowerBound())) - 1);
+			int to = Math.min(priceSeries.size(), priceSeries.indexOf((long) Math.ceil(xAxis.getUpperBound())) + 1);
+			if(from >= to) {
+				continue;
+			}
+
+			double spacing = width / Math.max(1, to - from);
+			if(to - from > 1) {
+				spacing = (xAxis.getDisplayPosition(priceSeries.getEpochDay(to - 1))
+						- xAxis.getDisplayPosition(priceSeries.getEpochDay(from))) / (to - from - 1);
+			}
+			double barWidth = Math.max(1, Math.floor(spacing * BODY_WIDTH));
+			double[] scale = barScale(series.getName());
+
+			if(volumeVisible) {
+				drawVolume(gc, xAxis, priceSeries, from, to, barWidth, height);
+			}
+			if(mode == Mode.CANDLESTICK) {
+				drawCandles(gc, xAxis, priceSeries, from, to, barWidth, scale, true);
+				drawCandles(gc, xAxis, priceSeries, from, to, barWidth, scale, false);
+			}
+			else if(mode == Mode.OHLC) {
+				drawOhlc(gc, xAxis, priceSeries, from, to, barWidth, scale, true);
+				drawOhlc(gc, xAxis, priceSeries, from, to, barWidth, scale, false);
+			}
+		}
+	}
+
+	/**
+	 * Draws the rising or falling candles of a range of bars: wicks as a
+	 * single path, then the bodies.
+	 */
+	private void drawCandles(GraphicsContext gc, ValueAxis<Number> xAxis, PriceSeries series, int from, int to,
+			double barWidth, double[] scale, boolean rising) {
+		Axis<Double> yAxis = getYAxis();
+		Color color = rising ? UP_COLOR : DOWN_COLOR;
+		gc.setStroke(color);
+		gc.setFill(color);
+		gc.setLineWidth(1);
+
+		gc.beginPath();
+		for(int i = from; i < to; i++) {
+			double adjust = adjustment(series, i) * scale[0];
+			double open = series.getOpen(i) * adjust + scale[1];
+			double close = series.getAdjClose(i) * scale[0] + scale[1];
+			if((close >= open) != rising) {
+				continue;
+			}
+			double x = snap(xAxis.getDisplayPosition(series.getEpochDay(i)));
+			gc.moveTo(x, yAxis.getDisplayPosition(series.getHigh(i) * adjust + scale[1]));
+			gc.lineTo(x, yAxis.getDisplayPosition(series.getLow(i) * adjust + scale[1]));
+		}
+		gc.stroke();
+
+		for(int i = from; i < to; i++) {
+			double adjust = adjustment(series, i) * scale[0];
+			double open = series.getOpen(i) * adjust + scale[1];
+			double close = series.getAdjClose(i) * scale[0] + scale[1];
+			if((close >= open) != rising) {
+				continue;
+			}
+			double x = snap(xAxis.getDisplayPosition(series.getEpochDay(i)));
+			double top = yAxis.getDisplayPosition(Math.max(open, close));
+			double bottom = yAxis.getDisplayPosition(Math.min(open, close));
+			gc.fillRect(x - barWidth / 2, top, barWidth, Math.max(1, bottom - top));
+		}
+	}
+
+	/**
+	 * Draws the rising or falling OHLC bars of a range of bars as a single
+	 * path: the high-low line with the open tick on the left and the close
+	 * tick on the right.
+	 */
+	private void drawOhlc(GraphicsContext gc, ValueAxis<Number> xAxis, PriceSeries series, int from, int to,
+			double barWidth, double[] scale, boolean rising) {
+		Axis<Double> yAxis = getYAxis();
+		gc.setStroke(rising ? UP_COLOR : DOWN_COLOR);
+		gc.setLineWidth(1);
+		double tick = Math.max(1, Math.floor(barWidth / 2));
+
+		gc.beginPath();
+		for(int i = from; i < to; i++) {
+			double adjust = adjustment(series, i) * scale[0];
+			double open = series.getOpen(i) * adjust + scale[1];
+			double close = series.getAdjClose(i) * scale[0] + scale[1];
+			if((close >= open) != rising) {
+				continue;
+			}
+			double x = snap(xAxis.getDisplayPosition(series.getEpochDay(i)));
+			double openY = snap(yAxis.getDisplayPosition(open));
+			double closeY = snap(yAxis.getDisplayPosition(close));
+			gc.moveTo(x, yAxis.getDisplayPosition(series.getHigh(i) * adjust + scale[1]));
+			gc.lineTo(x, yAxis.getDisplayPosition(series.getLow(i) * adjust + scale[1]));
+			gc.moveTo(x - tick, openY);
+			gc.lineTo(x, openY);
+			gc.moveTo(x, closeY);
+			gc.lineTo(x + tick, closeY);
+		}
+		gc.stroke();
+	}
+
+	/**
+	 * Draws volume bars along the bottom of the plot, scaled to the largest
+	 * volume in the range and colored by the direction of the bar.
+	 */
+	private void drawVolume(GraphicsContext gc, ValueAxis<Number> xAxis, PriceSeries series, int from, int to,
+			double barWidth, double height) {
+		long maxVolume = 0;
+		for(int i = from; i < to; i++) {
+			maxVolume = Math.max(maxVolume, series.getVolume(i));
+		}
+		if(maxVolume == 0) {
+			return;
+		}
+
+		double scale = height * VOLUME_HEIGHT / maxVolume;
+		for(boolean rising : new boolean[] {true, false}) {
+			gc.setFill(rising ? UP_VOLUME_COLOR : DOWN_VOLUME_COLOR);
+			for(int i = from; i < to; i++) {
+				double barHeight = series.getVolume(i) * scale;
+				if(barHeight <= 0 || (series.getAdjClose(i) >= series.getOpen(i) * adjustment(series, i)) != rising) {
+					continue;
+				}
+				double x = snap(xAxis.getDisplayPosition(series.getEpochDay(i)));
+				gc.fillRect(x - barWidth / 2, height - barHeight, barWidth, barHeight);
+			}
+		}
+	}
+
+	private double[] barScale(String name) {
+		return barScales.getOrDefault(name, IDENTITY_SCALE);
+	}
+
+	/**
+	 * @return factor that puts the open, high and low of a bar on the same
+	 * split and dividend adjusted scale as its adjusted close (rolled up
+	 * bars are already on the scale of their last close, see
+	 * {@link PriceSeries#rollUp})
+	 */
+	private static double adjustment(PriceSeries series, int index) {
+		double close = series.getClose(index);
+		return close > 0 ? series.getAdjClose(index) / close : 1;
+	}
+
+	/**
+	 * @return x rounded to the middle of a pixel, so 1px lines stay sharp
+	 */
+	private static double snap(double x) {
+		return Math.floor(x) + 0.5;
+	}
+
+}
@@ -0,0 +1,178 @@
+package stockfetcher.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import javafx.scene.chart.XYChart.Series;
+import stockfetcher.analytics.SeriesKernels;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Rebases charted price lines so symbols with very different prices can
+ * be compared on one axis. Each symbol's lines (its price line and any
+ * indicators drawn on the price scale) are scaled by the same factor,
+ * chosen so the symbol's first bar in the visible range is 100 (or 0%).
+ * <p>
+ * Each line's price values are copied once when it is added. Changing the
+ * visible range only looks up one base price per symbol; lines whose
+ * factor changed are rescaled from the copy in a single kernel pass, and
+ * only points whose value changed are written back to the chart. Price
+ * updates write new prices at the end of a line, which are copied and
+ * scaled on their own (see {@link #rescale}).
+ */
+class SeriesNormalizer {
+
+	private static final class Line {
+		final Series<Number, Double> series;
+		double[] raw = new double[0];
+		double[] scaled = new double[0];
+		double factor = 1;
+		double offset = 0;
+
+		Line(Series<Number, Double> series) {
+			this.series = series;
+		}
+
+		/**
+		 * Copies the current values of the line, which are prices while
+		 * it isn't scaled.
+		 */
+		void capture() {
+			var points = series.getData();
+			if(raw.length != points.size()) {
+				raw = new double[points.size()];
+				scaled = new double[points.size()];
+			}
+			for(int i = 0; i < raw.length; i++) {
+				raw[i] = points.get(i).getYValue();
+			}
+		}
+	}
+
+	private static final class Group {
+		PriceSeries base;
+		final ArrayList<Line> lines = new ArrayList<>();
+	}
+
+	private final HashMap<String, Group> groups = new HashMap<>();
+	private final SeriesKernels kernels = SeriesKernels.get();
+
+	/**
+	 * Sets the price series a symbol's lines are rebased on.
+	 * @param symbol
+	 * @param base
+	 */
+	void setBase(String symbol, PriceSeries base) {
+		groups.computeIfAbsent(symbol, key -> new Group()).base = base;
+	}
+
+	/**
+	 * Adds a line in price units that follows the symbol's scale.
+	 * @param symbol
+	 * @param series
+	 */
+	void addLine(String symbol, Series<Number, Double> series) {
+		groups.computeIfAbsent(symbol, key -> new Group()).lines.add(new Line(series));
+	}
+
+	/**
+	 * Scales the end of a line after it was updated: the points from the
+	 * given index on must hold prices, which are copied and scaled by the
+	 * line's current factor. The rest of the line is left alone.
+	 * @param series
+	 * @param from index of the first updated point
+	 */
+	void rescale(Series<Number, Double> series, int from) {
+		for(Group group : groups.values()) {
+			for(Line line : group.lines) {
+				if(line.series != series) {
+					continue;
+				}
+
+				// Unscaled lines are copied again before they're next scaled
+				if(line.factor == 1 && line.offset == 0) {
+					return;
+				}
+				var points = series.getData();
+				int n = points.size();
+				if(line.raw.length != n) {
+					line.raw = Arrays.copyOf(line.raw, n);
+					line.scaled = Arrays.copyOf(line.scaled, n);
+				}
+				for(int i = from; i < n; i++) {
+					line.raw[i] = points.get(i).getYValue();
+					line.scaled[i] = line.raw[i] * line.factor + line.offset;
+					points.get(i).setYValue(line.scaled[i]);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Forgets lines that are no longer charted.
+	 * @param charted
+	 */
+	void retain(Collection<Series<Number, Double>> charted) {
+		Set<Series<Number, Double>> present = Collections.newSetFromMap(new IdentityHashMap<>());
+		present.addAll(charted);
+		for(Group group : groups.values()) {
+			group.lines.removeIf(line -> !present.contains(line.series));
+		}
+		groups.values().removeIf(group -> group.lines.isEmpty());
+	}
+
+	/**
+	 * Scales every line for the given view.
+	 * @param scale
+	 * @param startDay first visible day; negative infinity to rebase on the first bar
+	 * @param chart chart whose bars are scaled to match the lines
+	 */
+	void apply(PriceChart.Scale scale, double startDay, PriceChart chart) {
+		for(var entry : groups.entrySet()) {
+			Group group = entry.getValue();
+			double factor = 1;
+			double offset = 0;
+			if(scale != PriceChart.Scale.PRICE && group.base != null && !group.base.isEmpty()) {
+				int index = 0;
+				if(startDay != Double.NEGATIVE_INFINITY) {
+					index = Math.min(group.base.size() - 1, group.base.indexOf((long) Math.ceil(startDay)));
+				}
+				double basePrice = group.base.getAdjClose(index);
+				if(basePrice > 0) {
+					factor = 100 / basePrice;
+					offset = scale == PriceChart.Scale.PERCENT ? -100 : 0;
+				}
+			}
+
+			for(Line line : group.lines) {
+				if(line.factor == factor && line.offset == offset) {
+					continue;
+				}
+
+				// Unscaled lines may have been updated in place since they
+				// were added, so take a fresh copy
+				if(line.factor == 1 && line.offset == 0) {
+					line.capture();
+				}
+				kernels.scale(line.raw, factor, offset, line.scaled);
+				var points = line.series.getData();
+				for(int i = 0; i < Math.min(line.scaled.length, points.size()); i++) {
+					var point = points.get(i);
+					if(point.getYValue() != line.scaled[i]) {
+						point.setYValue(line.scaled[i]);
+					}
+				}
+				line.factor = factor;
+				line.offset = offset;
+			}
+			chart.setBarScale(entry.getKey(), factor, offset);
+		}
+	}
+
+}
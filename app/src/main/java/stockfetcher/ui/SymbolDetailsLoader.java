@@ -0,0 +1,80 @@
+package stockfetcher.ui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.application.Platform;
+import stockfetcher.db.StockDatabase;
+import stockfetcher.db.SymbolDetails;
+
+/**
+ * Loads symbol details for the info panel on a background thread and
+ * caches the results, so selecting a symbol never blocks the FX thread
+ * on the database. All methods should be called from the FX thread.
+ */
+public class SymbolDetailsLoader {
+
+	private static final int MAX_CACHED_SYMBOLS = 256;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "symbol-details-loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final LinkedHashMap<String, CompletableFuture<SymbolDetails>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<SymbolDetails>> eldest) {
+			return size() > MAX_CACHED_SYMBOLS;
+		}
+	};
+
+	/**
+	 * Returns the details for the given symbol, starting a background load
+	 * if they are not already cached or loading.
+	 * @param symbol
+	 * @return future completed with the details; completed with null if they could not be loaded
+	 */
+	public CompletableFuture<SymbolDetails> load(String symbol) {
+		CompletableFuture<SymbolDetails> details = cache.get(symbol);
+		if(details == null) {
+			final CompletableFuture<SymbolDetails> loading = CompletableFuture.supplyAsync(
+				() -> StockDatabase.getSymbolDetails(symbol),
+				executor
+			);
+			cache.put(symbol, loading);
+
+			// Don't cache failures so the next selection retries
+			loading.thenAccept(result -> {
+				if(result == null) {
+					Platform.runLater(() -> cache.remove(symbol, loading));
+				}
+			});
+			details = loading;
+		}
+		return details;
+	}
+
+	/**
+	 * Starts loading the details for a symbol the user is likely to select
+	 * next, if they aren't already cached.
+	 * @param symbol
+	 */
+	public void prefetch(String symbol) {
+		if(symbol != null && !cache.containsKey(symbol)) {
+			load(symbol);
+		}
+	}
+
+	/**
+	 * Drops any cached details for the given symbol.
+	 * @param symbol
+	 */
+	public void invalidate(String symbol) {
+		cache.remove(symbol);
+	}
+
+}
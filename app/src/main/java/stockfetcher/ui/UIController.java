@@ -1,6 +1,7 @@
 package stockfetcher.ui;
 
 import java.awt.Desktop;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -9,19 +10,29 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.ListChangeListener;
 import javafx.collections.SetChangeListener.Change;
+import javafx.concurrent.Task;
 import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -45,28 +56,68 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.util.Duration;
 import javafx.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import stockfetcher.analytics.CorrelationMatrix;
+import stockfetcher.analytics.Correlations;
+import stockfetcher.analytics.ExposureIndex;
+import stockfetcher.analytics.Screen;
+import stockfetcher.analytics.ScreenResult;
+import stockfetcher.analytics.Screener;
 import stockfetcher.api.CompanyData;
+import stockfetcher.backtest.BacktestResult;
+import stockfetcher.backtest.BacktestSettings;
+import stockfetcher.backtest.Backtester;
+import stockfetcher.backtest.BuyAndHold;
+import stockfetcher.backtest.Replay;
 import stockfetcher.api.EtfData;
 import stockfetcher.api.StockApi;
+import stockfetcher.db.StartupCache;
 import stockfetcher.db.StockDatabase;
+import stockfetcher.jfr.FlightRecording;
+import stockfetcher.schedule.RefreshScheduler;
+import stockfetcher.search.SearchResult;
+import stockfetcher.search.SymbolSearchIndex;
 
 public class UIController {
 	
+	private static final Logger logger = LoggerFactory.getLogger(UIController.class);
+	
 	private static final NumberFormat SHARES_FORMAT = NumberFormat.getNumberInstance();
 	
+	// Number of symbols on either side of the selection to prefetch details for
+	private static final int PREFETCH_DISTANCE = 3;
+	
+	// Max symbol matches shown in the quick action dropdown
+	private static final int MAX_SEARCH_RESULTS = 5;
+	
 	@FXML private BorderPane root;
 	
 	@FXML private ListView<String> symbolList;
 	private String selectedSymbol = null;
 	private BooleanProperty isEtfSelected = new SimpleBooleanProperty(false);
+	
+	@FXML private TextField screenerQuery;
+	@FXML private ListView<ScreenResult> screenerResults;
+	@FXML private Label screenerInfo;
+	private final Screener screener = new Screener();
+	private Screen activeScreen = null;
+	private boolean screenRunning = false;
+	private boolean screenPending = false;
+	private final PauseTransition screenDebounce = new PauseTransition(Duration.millis(250));
 
 	@FXML private TextField searchBar;
 	@FXML private VBox actionList;
 	private ArrayList<AppAction> availableActions = new ArrayList<>();
 	private int selectedAction = -1;
+	private final ArrayList<TextField> actionDropdown = new ArrayList<>();
+	private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(75));
+	private final SymbolSearchIndex searchIndex = new SymbolSearchIndex();
 	@FXML private TabPane chartTabs;
+	@FXML private MenuItem flightRecordingItem;
 	@FXML private Tab newTabButton;
 	
 	@FXML private VBox companyBox;
@@ -77,6 +128,9 @@ public class UIController {
 	@FXML private Label sharesOutstanding;
 	@FXML private Label companyDescription;
 	private ObjectProperty<CompanyData> companyData = new SimpleObjectProperty<>(null);
+	private final SymbolDetailsLoader detailsLoader = new SymbolDetailsLoader();
+	private ExposureIndex exposureIndex = null;
+	private Tab diagnosticsTab = null;
 	
 	@FXML private VBox holdingsBox;
 	@FXML private ListView<String> holdingsList;
@@ -89,13 +143,35 @@ public class UIController {
 		// Prevent action list from eating mouse events for the chart
 		actionList.setMaxHeight(Region.USE_PREF_SIZE);
 		
-		// Setup relevant lists
-		updateSymbolList();
-		updateHoldingInfo();
+		// Setup relevant lists. Until the database is connected, the
+		// symbols from the last run are shown and the UI is disabled.
+		symbolList.getItems().setAll(StartupCache.readSymbols());
+		updateHoldingInfo(null);
+		root.setDisable(true);
 		
 		// Add a chart tab
 		createNewTab();
 		
+		// Release chart listeners when their tab is closed
+		chartTabs.getTabs().addListener((ListChangeListener.Change<? extends Tab> c) -> {
+			while(c.next()) {
+				for(Tab removed : c.getRemoved()) {
+					Object controller = removed.getProperties().get("chartController");
+					if(controller != null) {
+						((ChartController) controller).dispose();
+					}
+				}
+			}
+		});
+		
+		// Refresh charted symbols first. Tabs are read on the FX thread, and
+		// the wait is bounded since the toolkit may be shutting down
+		RefreshScheduler.setOpenSymbols(()->{
+			FutureTask<Collection<String>> charted = new FutureTask<>(this::getChartedSymbols);
+			Platform.runLater(charted);
+			return charted.get(5, TimeUnit.SECONDS);
+		});
+		
 		// Setup the new tab button
 		chartTabs.getSelectionModel().selectedItemProperty().addListener((observable, oldTab, newTab)->{
 			if(newTab == newTabButton) {
@@ -110,6 +186,12 @@ public class UIController {
 			MenuItem addToChart = new MenuItem("Add to Current Chart");
 			addToChart.setOnAction(e -> {
 				ChartController controller = (ChartController) chartTabs.getSelectionModel().getSelectedItem().getProperties().get("chartController");
+				if(controller == null) {
+					// Current tab isn't a chart
+					createNewTab();
+					controller = (ChartController) chartTabs.getSelectionModel().getSelectedItem().getProperties().get("chartController");
+					controller.setChartName(cell.getItem());
+				}
 				if(!controller.isLocked()) {
 					controller.addChartSymbol(cell.getItem());
 				}
@@ -179,10 +261,19 @@ public class UIController {
 			}
 		});
 		
-		// Setup search bar
+		// Setup search bar (input is debounced so fast typing only searches once)
+		searchDebounce.setOnFinished(e -> {
+			searchInputChanged(searchBar.getText(), actionList.getChildren().isEmpty());
+		});
 		searchBar.textProperty().addListener((obs, oldText, newText) -> {
 			if(!oldText.trim().equals(newText.trim())) {
-				searchInputChanged(newText, oldText.trim().equals(""));
+				if(newText.trim().equals("")) {
+					searchDebounce.stop();
+					searchInputChanged("", false);
+				}
+				else {
+					searchDebounce.playFromStart();
+				}
 			}
 		});
 		
@@ -198,9 +289,12 @@ public class UIController {
 		StockDatabase.trackedSymbolsProperty().addListener((Change<? extends String> c) -> {
 			if(c.wasAdded()) {
 				String added = c.getElementAdded();
-				if(!symbolList.getItems().contains(added)) {
-					symbolList.getItems().add(added);
-					Collections.sort(symbolList.getItems());
+				searchIndex.add(added);
+				
+				// Items are kept sorted, so insert in place
+				int index = Collections.binarySearch(symbolList.getItems(), added);
+				if(index < 0) {
+					symbolList.getItems().add(-(index + 1), added);
 				}
 			}
 			else if(c.wasRemoved()) {
@@ -208,6 +302,69 @@ public class UIController {
 			}
 		});
 		
+		// Screener runs when a query is entered, and again after prices are refreshed
+		screenerQuery.setOnAction(e -> {
+			String query = screenerQuery.getText();
+			screenerResults.getItems().clear();
+			activeScreen = null;
+			if(query.isBlank()) {
+				screenerInfo.setText("");
+				return;
+			}
+			
+			try {
+				activeScreen = Screen.parse(query);
+			} catch (IllegalArgumentException ex) {
+				screenerInfo.setText(ex.getMessage());
+				return;
+			}
+			runScreen();
+		});
+		screenDebounce.setOnFinished(e -> runScreen());
+		StockDatabase.addPriceUpdateListener(update -> {
+			if(activeScreen != null) {
+				screenDebounce.playFromStart();
+			}
+		});
+		
+		screenerResults.setCellFactory(lv -> new ListCell<>() {
+			@Override
+			protected void updateItem(ScreenResult result, boolean empty) {
+				super.updateItem(result, empty);
+				if(empty || result == null) {
+					setText(null);
+				}
+				else if(Double.isNaN(result.score)) {
+					setText(String.format("%-6s $%.2f", result.symbol, result.adjClose));
+				}
+				else {
+					setText(String.format("%-6s %.4g", result.symbol, result.score));
+				}
+			}
+		});
+		screenerResults.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+			if(newVal != null) {
+				symbolList.getSelectionModel().select(newVal.symbol);
+				symbolList.scrollTo(newVal.symbol);
+			}
+		});
+		
+		// Reload details when company/etf data changes
+		StockDatabase.addSymbolInfoListener(symbol -> {
+			detailsLoader.invalidate(symbol);
+			exposureIndex = null;
+			if(symbol.equals(selectedSymbol)) {
+				showSymbolDetails(symbol);
+			}
+			
+			// Pick up new company/etf names for search
+			detailsLoader.load(symbol).thenAccept(details -> {
+				if(details != null) {
+					searchIndex.put(symbol, details.isEtf() ? details.etfName : details.company == null ? null : details.company.name);
+				}
+			});
+		});
+		
 		// Add available actions
 		availableActions.add(new SearchAction());
 		availableActions.add(new AddNewSymbolAction());
@@ -215,15 +372,20 @@ public class UIController {
 		availableActions.add(new ManualUpdateAction());
 		availableActions.add(new AddNewSymbolsAction());
 		availableActions.add(new PredictSymbolAction());
+		availableActions.add(new CorrelationMatrixAction());
+		availableActions.add(new PortfolioExposureAction());
+		availableActions.add(new HeldByAction());
+		availableActions.add(new BacktestAction());
+		availableActions.add(new DiagnosticsAction());
 	}
 	
 	private void startPrediction(String symbol) {
 		PredictionDialog dialog = new PredictionDialog();
-		Optional<Pair<LocalDate, LocalDate>> result = dialog.showAndWait();
+		Optional<PredictionDialog.PredictionSettings> result = dialog.showAndWait();
 		if(result.isPresent() && result.get() != null) {
-			var dates = result.get();
-			var begin = LocalDateTime.of(dates.getKey(), LocalTime.NOON);
-			var end = LocalDateTime.of(dates.getValue(), LocalTime.NOON);
+			var settings = result.get();
+			var begin = LocalDateTime.of(settings.begin, LocalTime.NOON);
+			var end = LocalDateTime.of(settings.end, LocalTime.NOON);
 			
 			if(java.time.Duration.between(begin, end).toDays() < 30) {
 				Alert alert = new Alert(AlertType.ERROR, "Please select an interval of at least 30 days.", ButtonType.OK);
@@ -232,9 +394,235 @@ public class UIController {
 			else {
 				createNewTab();
 				ChartController controller = (ChartController) chartTabs.getSelectionModel().getSelectedItem().getProperties().get("chartController");
-				controller.predict(symbol, dates.getKey(), dates.getValue());
+				controller.predict(symbol, settings.begin, settings.end, settings.method);
+			}
+		}
+	}
+	
+	/**
+	 * Screens all tracked symbols with the active screen in the background.
+	 * If a screen is already running, it is run again once that finishes.
+	 */
+	private void runScreen() {
+		if(activeScreen == null) {
+			return;
+		}
+		if(screenRunning) {
+			screenPending = true;
+			return;
+		}
+		screenRunning = true;
+		
+		final Screen screen = activeScreen;
+		final ArrayList<String> symbols = new ArrayList<>(symbolList.getItems());
+		final long start = System.nanoTime();
+		var task = new Task<List<ScreenResult>>() {
+			@Override
+			protected List<ScreenResult> call() {
+				screener.retainSymbols(symbols);
+				return screener.screenSymbols(screen, symbols);
+			}
+		};
+		task.setOnSucceeded(e -> {
+			// Skip results for a query that has since been replaced
+			if(screen == activeScreen) {
+				screenerResults.getItems().setAll(task.getValue());
+				screenerInfo.setText(String.format("%d of %d symbols matched (%d ms).",
+						task.getValue().size(), symbols.size(), (System.nanoTime() - start) / 1_000_000));
+			}
+			screenFinished();
+		});
+		task.setOnFailed(e -> {
+			logger.error("Unable to run screen.", task.getException());
+			screenerInfo.setText("Unable to run screen: " + task.getException().getMessage());
+			screenFinished();
+		});
+		
+		Thread thread = new Thread(task);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	private void screenFinished() {
+		screenRunning = false;
+		if(screenPending) {
+			screenPending = false;
+			runScreen();
+		}
+	}
+	
+	@FXML
+	private void openBacktest(Event e) {
+		BacktestDialog dialog = new BacktestDialog(selectedSymbol);
+		Optional<BacktestDialog.BacktestOptions> result = dialog.showAndWait();
+		if(result.isEmpty() || result.get() == null) {
+			return;
+		}
+		
+		var options = result.get();
+		if(options.symbols.isEmpty()) {
+			Alert alert = new Alert(AlertType.ERROR, "Please enter at least one symbol.", ButtonType.OK);
+			alert.show();
+			return;
+		}
+		if(options.start == null || options.end == null || !options.start.isBefore(options.end)) {
+			Alert alert = new Alert(AlertType.ERROR, "Please select a valid date interval.", ButtonType.OK);
+			alert.show();
+			return;
+		}
+		
+		final BacktestSettings settings;
+		final List<double[]> parameterSets;
+		try {
+			settings = options.getSettings();
+			parameterSets = options.getParameterSets();
+		} catch (IllegalArgumentException ex) {
+			Alert alert = new Alert(AlertType.ERROR, ex.getMessage(), ButtonType.OK);
+			alert.setHeaderText("Invalid Backtest");
+			alert.show();
+			return;
+		}
+		
+		// Show the results in their own tab while the backtest runs
+		BacktestView view = new BacktestView();
+		Tab tab = new Tab("Backtest", view);
+		chartTabs.getTabs().add(chartTabs.getTabs().size() - 1, tab);
+		chartTabs.getSelectionModel().select(tab);
+		
+		var task = new Task<Pair<List<BacktestResult>, BacktestResult>>() {
+			@Override
+			protected Pair<List<BacktestResult>, BacktestResult> call() {
+				var series = Backtester.loadSeries(options.symbols);
+				if(series.isEmpty()) {
+					throw new IllegalStateException("No price data for the selected symbols.");
+				}
+				Replay replay = Replay.of(series, options.start, options.end);
+				var results = Backtester.sweep(replay, parameterSets, options.getStrategyFactory(), settings);
+				var benchmark = Backtester.run(replay, new BuyAndHold(), settings);
+				return new Pair<>(results, benchmark);
+			}
+		};
+		task.setOnSucceeded(event -> view.setResults(task.getValue().getKey(), task.getValue().getValue()));
+		task.setOnFailed(event -> {
+			logger.error("Unable to run backtest.", task.getException());
+			view.setError("Unable to run backtest: " + task.getException().getMessage());
+		});
+		
+		Thread thread = new Thread(task);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	@FXML
+	private void openDiagnostics(Event e) {
+		if(diagnosticsTab != null) {
+			chartTabs.getSelectionModel().select(diagnosticsTab);
+			return;
+		}
+		
+		DiagnosticsView view = new DiagnosticsView();
+		diagnosticsTab = new Tab("Diagnostics", view);
+		diagnosticsTab.setOnClosed(event -> {
+			view.stop();
+			diagnosticsTab = null;
+		});
+		chartTabs.getTabs().add(chartTabs.getTabs().size() - 1, diagnosticsTab);
+		chartTabs.getSelectionModel().select(diagnosticsTab);
+		view.start();
+	}
+	
+	@FXML
+	private void openCorrelationMatrix(Event e) {
+		CorrelationDialog dialog = new CorrelationDialog(new ArrayList<>(symbolList.getItems()));
+		Optional<CorrelationDialog.CorrelationSettings> result = dialog.showAndWait();
+		if(result.isEmpty() || result.get() == null) {
+			return;
+		}
+		
+		var settings = result.get();
+		if(settings.start == null || settings.end == null || !settings.start.isBefore(settings.end)) {
+			Alert alert = new Alert(AlertType.ERROR, "Please select a valid date interval.", ButtonType.OK);
+			alert.show();
+			return;
+		}
+		
+		// Show the heatmap in its own tab while the matrix is computed
+		CorrelationHeatmap heatmap = new CorrelationHeatmap();
+		Tab tab = new Tab("Correlation", heatmap);
+		chartTabs.getTabs().add(chartTabs.getTabs().size() - 1, tab);
+		chartTabs.getSelectionModel().select(tab);
+		
+		var task = new Task<CorrelationMatrix>() {
+			@Override
+			protected CorrelationMatrix call() {
+				return Correlations.forSymbols(settings.symbols, settings.start, settings.end);
 			}
+		};
+		task.setOnSucceeded(event -> heatmap.setMatrix(task.getValue()));
+		task.setOnFailed(event -> {
+			logger.error("Unable to compute correlation matrix.", task.getException());
+			heatmap.setError("Unable to compute correlation matrix.");
+		});
+		
+		Thread thread = new Thread(task);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Runs the given callback with the ETF exposure index, building it in
+	 * the background first if ETF data changed since it was last used.
+	 */
+	private void withExposureIndex(Consumer<ExposureIndex> callback) {
+		if(exposureIndex != null) {
+			callback.accept(exposureIndex);
+			return;
 		}
+		
+		var task = new Task<ExposureIndex>() {
+			@Override
+			protected ExposureIndex call() {
+				return ExposureIndex.load();
+			}
+		};
+		task.setOnSucceeded(event -> {
+			exposureIndex = task.getValue();
+			callback.accept(exposureIndex);
+		});
+		task.setOnFailed(event -> {
+			logger.error("Unable to load ETF exposure index.", task.getException());
+			Alert alert = new Alert(AlertType.ERROR, "Unable to load ETF holdings: "
+					+ task.getException().getMessage(), ButtonType.OK);
+			alert.show();
+		});
+		
+		Thread thread = new Thread(task);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	@FXML
+	private void openPortfolioExposure(Event e) {
+		withExposureIndex(index -> new ExposureDialog(index).show());
+	}
+	
+	private void showHeldBy(String symbol) {
+		withExposureIndex(index -> {
+			ListView<String> etfs = new ListView<>();
+			for(var holder : index.getHeldBy(symbol)) {
+				etfs.getItems().add(String.format("%-8s %6.2f%%", holder.getKey(), holder.getValue() * 100));
+			}
+			
+			Alert alert = new Alert(AlertType.INFORMATION);
+			alert.setTitle("Held By");
+			alert.setHeaderText(etfs.getItems().isEmpty()
+					? "No stored ETFs hold " + symbol + "."
+					: etfs.getItems().size() + " stored ETFs hold " + symbol + ".");
+			if(!etfs.getItems().isEmpty()) {
+				alert.getDialogPane().setContent(etfs);
+			}
+			alert.show();
+		});
 	}
 	
 	@FXML
@@ -243,8 +631,9 @@ public class UIController {
 			try {
 				Desktop.getDesktop().browse(new URI("https://github.com/caleb98/stockfetcher#stockfetcher"));
 			} catch (IOException | URISyntaxException e1) {
-				// TODO Auto-generated catch block
-				e1.printStackTrace();
+				logger.error("Unable to open the manual.", e1);
+				Alert alert = new Alert(AlertType.ERROR, "Unable to open the manual: " + e1.getMessage(), ButtonType.OK);
+				alert.show();
 			}
 		}
 	}
@@ -255,9 +644,8 @@ public class UIController {
 		symbolList.getItems().setAll(stocks);
 	}
 	
-	private void updateHoldingInfo() {
+	private void updateHoldingInfo(List<Pair<String, Double>> holdings) {
 		if(isEtfSelected.get()) {
-			ArrayList<Pair<String, Double>> holdings = StockDatabase.getEtfHoldings(selectedSymbol);
 			holdingsList.getItems().clear();
 			for(var holding : holdings) {
 				holdingsList.getItems().add(String.format(
@@ -276,9 +664,37 @@ public class UIController {
 		}
 	}
 	
-	private void updateCompanyInfo() {
-		if(selectedSymbol != null) {
-			companyData.set(StockDatabase.getCompanyData(selectedSymbol));
+	/**
+	 * Loads the details for a symbol in the background and shows them once
+	 * available, provided the symbol is still selected.
+	 * @param symbol
+	 */
+	private void showSymbolDetails(String symbol) {
+		detailsLoader.load(symbol).thenAcceptAsync(details -> {
+			if(details == null || !symbol.equals(selectedSymbol)) {
+				return;
+			}
+			
+			isEtfSelected.set(details.isEtf());
+			if(details.isEtf()) {
+				updateHoldingInfo(details.holdings);
+			}
+			else {
+				companyData.set(details.company);
+			}
+		}, Platform::runLater);
+	}
+	
+	private void prefetchNeighbors() {
+		int index = symbolList.getSelectionModel().getSelectedIndex();
+		var items = symbolList.getItems();
+		for(int offset = 1; offset <= PREFETCH_DISTANCE; offset++) {
+			if(index + offset < items.size()) {
+				detailsLoader.prefetch(items.get(index + offset));
+			}
+			if(index - offset >= 0) {
+				detailsLoader.prefetch(items.get(index - offset));
+			}
 		}
 	}
 	
@@ -330,26 +746,50 @@ public class UIController {
 			chartTabs.getSelectionModel().select(chartTabs.getTabs().size() - 2);
 			
 		} catch (IOException e) {
-			e.printStackTrace();
+			logger.error("Unable to open chart tab.", e);
+			Alert alert = new Alert(AlertType.ERROR, "Unable to open chart: " + e.getMessage(), ButtonType.OK);
+			alert.show();
 		}
 	}
 	
+	/**
+	 * Replaces the symbols shown from the last run with the database's and
+	 * enables the UI. Called once the database is connected.
+	 */
+	public void databaseReady() {
+		updateSymbolList();
+		StartupCache.writeSymbols(symbolList.getItems());
+		root.setDisable(false);
+		
+		// Build the search index in the background
+		var indexTask = new Task<Void>() {
+			@Override
+			protected Void call() {
+				searchIndex.putAll(StockDatabase.getSymbolNames());
+				return null;
+			}
+		};
+		new Thread(indexTask).start();
+	}
+	
+	private Collection<String> getChartedSymbols() {
+		var symbols = new HashSet<String>();
+		for(Tab tab : chartTabs.getTabs()) {
+			Object controller = tab.getProperties().get("chartController");
+			if(controller != null) {
+				symbols.addAll(((ChartController) controller).getChartSymbols());
+			}
+		}
+		return symbols;
+	}
+	
 	private void symbolSelected() {
 		String old = selectedSymbol;
 		selectedSymbol = symbolList.getSelectionModel().getSelectedItem();
-		if(old == null || !old.equals(selectedSymbol)) {
-			if(StockDatabase.isEtfPresent(selectedSymbol)) {
-				isEtfSelected.set(true);
-				updateHoldingInfo();
-			}
-			else if(StockDatabase.isCompanyPresent(selectedSymbol)) {
-				isEtfSelected.set(false);
-				updateCompanyInfo();
-			}
-			else {
-				isEtfSelected.set(false);
-				updateCompanyInfo();
-			}
+		if(selectedSymbol != null && !selectedSymbol.equals(old)) {
+			RefreshScheduler.symbolViewed(selectedSymbol);
+			showSymbolDetails(selectedSymbol);
+			prefetchNeighbors();
 		}
 	}
 	
@@ -397,7 +837,7 @@ public class UIController {
 
 	private void searchInputChanged(String newInput, boolean useTransition) {
 		// If input empty, clear
-		if(newInput.equals("")) {
+		if(newInput.trim().equals("")) {
 			actionList.getChildren().clear();
 			selectedAction = -1;
 			return;
@@ -406,22 +846,35 @@ public class UIController {
 		// Filter available actions
 		var filteredActions = availableActions.stream()
 				.filter(a -> a.isApplicable(newInput))
-				.collect(Collectors.toList());
+				.collect(Collectors.toCollection(ArrayList::new));
+		
+		// Add matching symbols (the search action already covers an exact symbol)
+		String symbolInput = newInput.trim().toUpperCase();
+		for(SearchResult result : searchIndex.search(newInput, MAX_SEARCH_RESULTS)) {
+			if(!result.symbol.equals(symbolInput)) {
+				filteredActions.add(new GoToSymbolAction(result));
+			}
+		}
 
-		// Create dropdown menu
-		var dropdown = new ArrayList<TextField>();
-		int pos = 0;
-		for(AppAction a : filteredActions) {
-			var tf = new TextField(a.getDisplayText(newInput));
+		// Fill the dropdown menu, reusing the existing fields
+		while(actionDropdown.size() < filteredActions.size()) {
+			var tf = new TextField();
 			tf.getStyleClass().add("available-action");
+			tf.setEditable(false);
+			actionDropdown.add(tf);
+		}
+		
+		for(int pos = 0; pos < filteredActions.size(); pos++) {
+			AppAction a = filteredActions.get(pos);
+			var tf = actionDropdown.get(pos);
+			tf.setText(a.getDisplayText(newInput));
+			tf.getStyleClass().removeAll("available-action-bottom", "selected-action");
 			if(pos == filteredActions.size() - 1) {
 				tf.getStyleClass().add("available-action-bottom");
 			}
 			tf.getProperties().put("action", a);
-			tf.setEditable(false);
-			dropdown.add(tf);
-			pos++;
 		}
+		var dropdown = actionDropdown.subList(0, filteredActions.size());
 		
 		// Check that there are applicable actions
 		if(dropdown.size() > 0) {
@@ -435,7 +888,9 @@ public class UIController {
 			dropdown.get(selectedAction).getStyleClass().add("selected-action");
 			
 			// Set vbox contents
-			actionList.getChildren().setAll(dropdown);
+			if(!actionList.getChildren().equals(dropdown)) {
+				actionList.getChildren().setAll(dropdown);
+			}
 			if(useTransition) {
 				FadeTransition transition = new FadeTransition(Duration.millis(200), actionList);
 				transition.setFromValue(0);
@@ -445,6 +900,7 @@ public class UIController {
 			}
 		}
 		else {
+			actionList.getChildren().clear();
 			selectedAction = -1;
 		}
 		
@@ -457,10 +913,8 @@ public class UIController {
 			// Just in case, check that the symbol isn't an etf
 			EtfData etfData = StockApi.getEtfOverview(selectedSymbol);
 			if(etfData != null) {
-				// Actually was an etf
+				// Actually was an etf (info listener will refresh the panel)
 				StockDatabase.addEtfData(etfData);
-				selectedSymbol = "";
-				symbolSelected();
 			}
 			else {
 				// Not an etf and company data couldn't be retrieved, so just warn the user
@@ -474,7 +928,6 @@ public class UIController {
 		}
 		
 		StockDatabase.addCompanyData(data);
-		updateCompanyInfo();
 	}
 	
 	@FXML
@@ -486,6 +939,34 @@ public class UIController {
 		}
 	}
 	
+	@FXML
+	private void toggleFlightRecording(Event e) {
+		try {
+			if(!FlightRecording.isRunning()) {
+				FlightRecording.start();
+				flightRecordingItem.setText("Save Flight Recording...");
+				return;
+			}
+			
+			FileChooser chooser = new FileChooser();
+			chooser.setTitle("Save Flight Recording");
+			chooser.setInitialFileName(String.format("stockfetcher-%s.jfr", LocalDate.now()));
+			chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight Recordings", "*.jfr"));
+			File file = chooser.showSaveDialog(root.getScene().getWindow());
+			if(file == null) {
+				// Keep recording
+				return;
+			}
+			
+			flightRecordingItem.setText("Start Flight Recording");
+			FlightRecording.stop(file.toPath());
+		} catch (IOException ex) {
+			logger.error("Unable to record.", ex);
+			Alert alert = new Alert(AlertType.ERROR, "Unable to record: " + ex.getMessage(), ButtonType.OK);
+			alert.show();
+		}
+	}
+	
 	@FXML
 	private void toggleDarkMode(Event e) {
 		if(root.getStylesheets().contains("app_style_dark.css")) {
@@ -552,6 +1033,15 @@ public class UIController {
 				event.consume();
 			}
 			else if(event.getCode() == KeyCode.ENTER) {
+				// Make sure the actions reflect the latest input
+				if(searchDebounce.getStatus() == Animation.Status.RUNNING) {
+					searchDebounce.stop();
+					searchInputChanged(searchBar.getText(), false);
+				}
+				if(selectedAction == -1) {
+					return;
+				}
+				
 				// Get the action and run
 				AppAction action = (AppAction) actionList.getChildren().get(selectedAction).getProperties().get("action");
 				action.execute(searchBar.getText());
@@ -586,6 +1076,7 @@ public class UIController {
 			input = input.trim().toUpperCase();
 			if(symbolList.getItems().contains(input)) {
 				symbolList.getSelectionModel().select(input);
+				symbolList.scrollTo(input);
 				// TODO: show graph?
 			}
 			
@@ -598,6 +1089,39 @@ public class UIController {
 		
 	}
 	
+	private class GoToSymbolAction extends SearchAction {
+		
+		private final SearchResult result;
+		
+		public GoToSymbolAction(SearchResult result) {
+			this.result = result;
+		}
+		
+		@Override
+		public String getActionName() {
+			return "Go To Symbol";
+		}
+		
+		@Override
+		public String getDisplayText(String currentInput) {
+			if(result.name == null) {
+				return "Go To: " + result.symbol;
+			}
+			return String.format("Go To: %s - %s", result.symbol, result.name);
+		}
+		
+		@Override
+		public boolean isApplicable(String currentInput) {
+			return true;
+		}
+		
+		@Override
+		public void execute(String input) {
+			super.execute(result.symbol);
+		}
+		
+	}
+	
 	private class AddNewSymbolAction implements AppAction {
 
 		@Override
@@ -698,6 +1222,127 @@ public class UIController {
 		
 	}
 	
+	private class BacktestAction implements AppAction {
+
+		@Override
+		public String getActionName() {
+			return "Backtest";
+		}
+
+		@Override
+		public String getDisplayText(String currentInput) {
+			return getActionName();
+		}
+
+		@Override
+		public boolean isApplicable(String currentInput) {
+			return getActionName().toLowerCase().contains(currentInput.trim().toLowerCase());
+		}
+
+		@Override
+		public void execute(String input) {
+			openBacktest(null);
+		}
+		
+	}
+	
+	private class DiagnosticsAction implements AppAction {
+
+		@Override
+		public String getActionName() {
+			return "Diagnostics";
+		}
+
+		@Override
+		public String getDisplayText(String currentInput) {
+			return getActionName();
+		}
+
+		@Override
+		public boolean isApplicable(String currentInput) {
+			return getActionName().toLowerCase().contains(currentInput.trim().toLowerCase());
+		}
+
+		@Override
+		public void execute(String input) {
+			openDiagnostics(null);
+		}
+		
+	}
+	
+	private class CorrelationMatrixAction implements AppAction {
+
+		@Override
+		public String getActionName() {
+			return "Correlation Matrix";
+		}
+
+		@Override
+		public String getDisplayText(String currentInput) {
+			return getActionName();
+		}
+
+		@Override
+		public boolean isApplicable(String currentInput) {
+			return getActionName().toLowerCase().contains(currentInput.trim().toLowerCase());
+		}
+
+		@Override
+		public void execute(String input) {
+			openCorrelationMatrix(null);
+		}
+		
+	}
+	
+	private class PortfolioExposureAction implements AppAction {
+
+		@Override
+		public String getActionName() {
+			return "Portfolio Exposure";
+		}
+
+		@Override
+		public String getDisplayText(String currentInput) {
+			return getActionName();
+		}
+
+		@Override
+		public boolean isApplicable(String currentInput) {
+			return getActionName().toLowerCase().contains(currentInput.trim().toLowerCase());
+		}
+
+		@Override
+		public void execute(String input) {
+			openPortfolioExposure(null);
+		}
+		
+	}
+	
+	private class HeldByAction implements AppAction {
+
+		@Override
+		public String getActionName() {
+			return "Held By";
+		}
+
+		@Override
+		public String getDisplayText(String currentInput) {
+			return "Held By: " + currentInput.trim().toUpperCase();
+		}
+
+		@Override
+		public boolean isApplicable(String currentInput) {
+			currentInput = currentInput.trim().toUpperCase();
+			return !currentInput.contains(" ") && StockDatabase.trackedSymbolsProperty().contains(currentInput);
+		}
+
+		@Override
+		public void execute(String input) {
+			showHeldBy(input.trim().toUpperCase());
+		}
+		
+	}
+	
 	private class PredictSymbolAction implements AppAction {
 
 		@Override
@@ -1,6 +1,5 @@
 package stockfetcher.ui;
 
-import java.io.IOException;
 import java.util.ArrayList;
 
 import javafx.application.Platform;
@@ -8,11 +7,10 @@ import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.util.Pair;
-import stockfetcher.api.CompanyData;
-import stockfetcher.api.EtfData;
-import stockfetcher.api.PriceData;
-import stockfetcher.api.StockApi;
-import stockfetcher.db.StockDatabase;
+import stockfetcher.ingest.ImportListener;
+import stockfetcher.ingest.ImportStep;
+import stockfetcher.ingest.SymbolImporter;
+import stockfetcher.ingest.SymbolImporter.Prices;
 
 public class Utils {
 	
@@ -28,110 +26,49 @@ public class Utils {
 		
 		// Loop through all the symbols to add
 		var task = new Task<Void>() {
+			private int processed = 0;
+			
 			public Void call() {
-				int processed = 0;
-				for(var update : updates) {
-					String symbol = update.getKey();
-					
-					// Fetch price data
-					Platform.runLater(()->{
-						progress.setInfo("Downloading price data for " + symbol + "...");
-					});
-					PriceData[] data = StockApi.getStockPriceData(symbol, update.getValue());
-					updateProgress(processed + 1.0 / 3.0, updates.size());
-					
-					// Check symbol was valid
-					if(data == null) {
+				SymbolImporter importer = new SymbolImporter(new ImportListener() {
+					@Override
+					public void stepStarted(String symbol, ImportStep step, String message) {
 						Platform.runLater(()->{
-							Alert alert = new Alert(
-									AlertType.ERROR, 
-									"There was an error downloading price data for " + symbol + ".\nPlease try again later.");
-							alert.show();
+							progress.setInfo(message);
 						});
-						updateProgress(++processed, updates.size());
-						continue;
+						if(step == ImportStep.STORE_PRICES) {
+							updateProgress(processed + 1.0 / 3.0, updates.size());
+						}
+						else if(step == ImportStep.CLASSIFY) {
+							updateProgress(processed + 2.0 / 3.0, updates.size());
+						}
 					}
 					
-					// Add the price data
-					Platform.runLater(()->{
-						progress.setInfo(String.format(
-							"Adding price data for %s to database (%d entries)...", 
-							symbol,
-							data.length
-						));
-					});
-					StockDatabase.addPriceData(data);
-					updateProgress(processed + 2.0 / 3.0, updates.size());
-					
-					// Check whether it was an etf or company, and add
-					// data as appropriate
-					try {
-						Platform.runLater(()->{
-							progress.setInfo("Checking if " + symbol + " is a stock or ETF...");
-						});
-						if(StockApi.isSymbolCompany(symbol)) {
+					@Override
+					public void stepFailed(String symbol, ImportStep step, String reason) {
+						if(step == ImportStep.FETCH_PRICES) {
 							Platform.runLater(()->{
-								progress.setInfo(String.format(
-									"Downloading company data for %s...",
-									symbol
-								));
+								Alert alert = new Alert(
+										AlertType.ERROR, 
+										"There was an error downloading price data for " + symbol + ".\nPlease try again later.");
+								alert.show();
 							});
-							CompanyData cData = StockApi.getCompanyOverview(symbol);
-							
-							// Check that company data was retrieved successfully
-							if(cData == null) {
-								Platform.runLater(() -> {
-									Alert alert = new Alert(
-										AlertType.WARNING,
-										"Unable to retrieve company info for " + symbol + ".\n"
-												+ "The API used for this data is rate limited (5 requests/min), so you may\n"
-												+ "need to try again later if you have requested many symbols recently."
-									);
-									alert.show();
-								});
-								updateProgress(++processed, updates.size());
-								continue;
-							}
-							
-							// Insert the data in the database
-							Platform.runLater(()->{
-								progress.setInfo(String.format(
-									"Adding company data for %s (%s) to database...",
-									cData.name,
-									symbol
-								));
-							});
-							StockDatabase.addCompanyData(cData);
 						}
-						else if(StockApi.isSymbolETF(symbol)) {
-							Platform.runLater(()->{
-								progress.setInfo(String.format(
-									"Downloading ETF data for %s...",
-									symbol
-								));
-							});
-							EtfData eData = StockApi.getEtfOverview(symbol);
-							
-							// Check that etf data was retrieved successfully
-							if(eData == null) {
-								//TODO: warn user 
-								continue;
-							}
-							
-							// Add data to the database
-							Platform.runLater(()->{
-								progress.setInfo(String.format(
-									"Adding ETF data for %s (%s) to database...",
-									eData.name,
-									symbol
-								));
+						else if(step == ImportStep.FETCH_COMPANY) {
+							Platform.runLater(() -> {
+								Alert alert = new Alert(
+									AlertType.WARNING,
+									"Unable to retrieve company info for " + symbol + ".\n"
+											+ "The API used for this data is rate limited (5 requests/min), so you may\n"
+											+ "need to try again later if you have requested many symbols recently."
+								);
+								alert.show();
 							});
-							StockDatabase.addEtfData(eData);
 						}
-					} catch (IOException | InterruptedException e1) {
-						// TODO: log this error/handle appropriately
-						e1.printStackTrace();
 					}
+				});
+				
+				for(var update : updates) {
+					importer.importSymbol(update.getKey(), update.getValue() ? Prices.FULL : Prices.RECENT, true);
 					updateProgress(++processed, updates.size());
 				}
 				
@@ -0,0 +1,177 @@
+package stockfetcher.analytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Checks the screener query parser: operator precedence, percentages,
+ * indicator outputs, lookbacks and where errors are reported. Queries are
+ * evaluated against a short series of 30 bars whose adjusted close climbs
+ * from 100 to 129 by 1 a day.
+ */
+public class ScreenTest {
+
+	private static final int BARS = 30;
+
+	@Test
+	public void arithmeticPrecedence() {
+		assertMatches("1 + 2 * 3 = 7");
+		assertMatches("(1 + 2) * 3 = 9");
+		assertMatches("10 - 4 - 3 = 3");
+		assertMatches("8 / 4 / 2 = 1");
+		assertMatches("-2 * 3 = -6");
+		assertMatches("2 - -1 = 3");
+	}
+
+	@Test
+	public void logicalPrecedence() {
+		// AND binds tighter than OR
+		assertMatches("1 > 2 AND 1 > 2 OR 1 < 2");
+		assertMatches("1 < 2 OR 1 > 2 AND 1 > 2");
+		assertNotMatches("(1 < 2 OR 1 > 2) AND 1 > 2");
+
+		// NOT binds tighter than AND, looser than comparisons
+		assertMatches("NOT 1 > 2 AND 2 > 1");
+		assertNotMatches("NOT (1 < 2 AND 2 > 1)");
+		assertMatches("NOT NOT 1 < 2");
+
+		// Keywords in any case
+		assertMatches("close > 0 and not volume < 0");
+	}
+
+	@Test
+	public void percentages() {
+		assertMatches("50% = 0.5");
+		assertMatches("PRICE = 200% * 64.5");
+		assertEquals(1.5 * 129, rank("1 = 1 SORT BY 150% * CLOSE"), 1e-9);
+	}
+
+	@Test
+	public void columns() {
+		assertMatches("PRICE = 129 AND ADJ_CLOSE = 129 AND CLOSE = 129");
+		assertMatches("VOLUME = 30000");
+		assertMatches("HIGH > LOW");
+	}
+
+	@Test
+	public void indicatorOutputs() {
+		assertMatches("BB(20,2).UPPER > BB(20,2) AND BB(20,2) > BB(20,2).LOWER");
+		assertMatches("BB(20,2).upper = BB(20,2).1 AND BB(20,2).LOWER = BB(20,2).2");
+		assertMatches("BB(20,2).0 = SMA(20)");
+		assertMatches("SMA(5) = 127");
+
+		// Outputs and references share one indicator per canonical name
+		Screen screen = Screen.parse("BB(20,2).UPPER > BB(20, 2).LOWER AND BB > SMA(5)");
+		assertEquals(Set.of("BB(20,2)", "SMA(5)"), screen.getIndicators());
+
+		assertInvalid("BB(20,2).MIDDLE > 0", "BB(20,2) has no output MIDDLE");
+		assertInvalid("BB(20,2).3 > 0", "BB(20,2) has no output 3");
+	}
+
+	@Test
+	public void lags() {
+		assertMatches("CLOSE[1] = 128");
+		assertMatches("CLOSE [ 20 ] = 109");
+		assertMatches("SMA(5)[2] = 125");
+		assertMatches("BB(20,2).UPPER[1] > CLOSE[1]");
+		assertEquals(124, rank("1 = 1 SORT BY PRICE[5]"), 0);
+
+		assertInvalid("CLOSE[21] > 0", "Cannot look back more than 20 bars");
+		assertInvalid("CLOSE[] > 0", "Expected a number of bars");
+	}
+
+	@Test
+	public void missingValues() {
+		// Longer than the history, so never ready
+		assertNotMatches("SMA(50) > 0");
+		assertNotMatches("SMA(50) <= 0");
+		assertNotMatches("SMA(50) != 0");
+		assertMatches("NOT SMA(50) > 0");
+		assertTrue(Double.isNaN(rank("1 = 1 SORT BY SMA(50)")));
+	}
+
+	@Test
+	public void sortOrder() {
+		Screen screen = Screen.parse("CLOSE > 0");
+		assertFalse(screen.isRanked());
+
+		screen = Screen.parse("CLOSE > 0 SORT BY RSI");
+		assertTrue(screen.isRanked());
+		assertTrue(screen.isDescending());
+
+		screen = Screen.parse("CLOSE > 0 sort by RSI asc");
+		assertTrue(screen.isRanked());
+		assertFalse(screen.isDescending());
+	}
+
+	@Test
+	public void errorPositions() {
+		assertInvalid("   ", "Empty screener query.");
+		assertInvalid("CLOSE >", "Unexpected end of query at position 8.");
+		assertInvalid("CLOSE > 5 )", "Unexpected ')' at position 11.");
+		assertInvalid("(CLOSE > 5", "Expected ')' at position 11.");
+		assertInvalid("CLOSE > $5", "Unexpected '$' at position 9.");
+		assertInvalid("FOO>1", "Unknown indicator: FOO at position 4.");
+		assertInvalid("SMA(50 > 1", "Missing ')' after SMA at position 4.");
+		assertInvalid("CLOSE > 0 SORT RSI", "Expected BY at position 16.");
+		assertInvalid("CLOSE > 1..5", "Invalid number '1..5' at position 13.");
+	}
+
+	private static ScreenContext context(Screen screen) {
+		int[] days = new int[BARS];
+		double[] open = new double[BARS];
+		double[] high = new double[BARS];
+		double[] low = new double[BARS];
+		double[] close = new double[BARS];
+		long[] volume = new long[BARS];
+		for(int i = 0; i < BARS; i++) {
+			days[i] = 19000 + i;
+			close[i] = 100 + i;
+			open[i] = close[i] - 0.5;
+			high[i] = close[i] + 1;
+			low[i] = close[i] - 1;
+			volume[i] = 1000L * (i + 1);
+		}
+		PriceSeries series = PriceSeries.of("TEST", days, open, high, low, close, close, volume);
+
+		ScreenContext context = new ScreenContext();
+		context.load(series, screen.getIndicators());
+		return context;
+	}
+
+	private static boolean matches(String query) {
+		Screen screen = Screen.parse(query);
+		return screen.matches(context(screen));
+	}
+
+	private static double rank(String query) {
+		Screen screen = Screen.parse(query);
+		return screen.rank(context(screen));
+	}
+
+	private static void assertMatches(String query) {
+		assertTrue(query, matches(query));
+	}
+
+	private static void assertNotMatches(String query) {
+		assertFalse(query, matches(query));
+	}
+
+	private static void assertInvalid(String query, String message) {
+		try {
+			Screen.parse(query);
+			fail("Parsed invalid query: " + query);
+		} catch (IllegalArgumentException e) {
+			assertTrue(query + ": " + e.getMessage(), e.getMessage().startsWith(message));
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+package stockfetcher.analytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the vector kernels against the scalar ones, including lengths
+ * that leave a partial vector (or no full vector at all) and the
+ * smallest windows.
+ */
+public class SeriesKernelsTest {
+
+	// Allowed difference relative to the value (and to at least 1, so
+	// near-zero results of cancelling sums don't fail on rounding alone).
+	// Same as the check in KernelBenchmark.
+	private static final double TOLERANCE = 1e-6;
+
+	// Rounding error of the running sums of squares, relative to the
+	// squared mean. Z-scores divide by the window's deviation, so when
+	// neighbouring prices are nearly equal the two kernels' different
+	// summation orders show up magnified by mean^2 / variance.
+	private static final double SUM_SQ_ERROR = 1e-12;
+
+	private static final int[] LENGTHS = {0, 1, 2, 3, 5, 7, 8, 9, 15, 16, 17, 31, 33, 1030, 2051, 6303};
+
+	private static SeriesKernels scalar;
+	private static SeriesKernels vector;
+
+	@BeforeClass
+	public static void kernels() {
+		scalar = SeriesKernels.scalar();
+		vector = SeriesKernels.vector();
+		assertNotNull("Vector API unavailable; run with --add-modules jdk.incubator.vector", vector);
+	}
+
+	@Test
+	public void logReturns() {
+		for(int length : LENGTHS) {
+			double[] prices = prices(length);
+			compare("logReturns", length, 0, out -> scalar.logReturns(prices, out), out -> vector.logReturns(prices, out));
+		}
+	}
+
+	@Test
+	public void rollingSumAndMean() {
+		for(int length : LENGTHS) {
+			double[] prices = prices(length);
+			for(int window : new int[] {1, 2, 3, 4, 5, 8, 20, 252}) {
+				compare("rollingSum", length, window,
+						out -> scalar.rollingSum(prices, window, out), out -> vector.rollingSum(prices, window, out));
+				compare("rollingMean", length, window,
+						out -> scalar.rollingMean(prices, window, out), out -> vector.rollingMean(prices, window, out));
+			}
+		}
+	}
+
+	@Test
+	public void rollingVarianceAndZScores() {
+		for(int length : LENGTHS) {
+			double[] prices = prices(length);
+			for(int window : new int[] {2, 3, 4, 5, 8, 20, 252}) {
+				compare("rollingVariance", length, window,
+						out -> scalar.rollingVariance(prices, window, out), out -> vector.rollingVariance(prices, window, out));
+				compareZScores(prices, window);
+			}
+		}
+	}
+
+	@Test
+	public void scale() {
+		for(int length : LENGTHS) {
+			double[] prices = prices(length);
+			compare("scale", length, 0,
+					out -> scalar.scale(prices, 0.37, -100, out), out -> vector.scale(prices, 0.37, -100, out));
+		}
+	}
+
+	@Test
+	public void maxDrawdown() {
+		for(int length : LENGTHS) {
+			double[] prices = prices(length);
+			assertClose("maxDrawdown (length " + length + ")", scalar.maxDrawdown(prices), vector.maxDrawdown(prices));
+		}
+	}
+
+	@Test
+	public void maxDrawdownOfSteadyDecline() {
+		double[] prices = new double[37];
+		for(int i = 0; i < prices.length; i++) {
+			prices[i] = 100 - i;
+		}
+		assertEquals(0.36, scalar.maxDrawdown(prices), 1e-12);
+		assertEquals(0.36, vector.maxDrawdown(prices), 1e-12);
+	}
+
+	private interface Kernel {
+		void run(double[] out);
+	}
+
+	private static void compare(String name, int length, int window, Kernel expected, Kernel actual) {
+		double[] expectedOut = new double[length];
+		double[] actualOut = new double[length];
+		expected.run(expectedOut);
+		actual.run(actualOut);
+		for(int i = 0; i < length; i++) {
+			assertClose(String.format("%s (length %d, window %d) at %d", name, length, window, i), expectedOut[i], actualOut[i]);
+		}
+	}
+
+	private static void compareZScores(double[] prices, int window) {
+		int length = prices.length;
+		double[] mean = new double[length];
+		double[] variance = new double[length];
+		double[] expected = new double[length];
+		double[] actual = new double[length];
+		scalar.rollingMean(prices, window, mean);
+		scalar.rollingVariance(prices, window, variance);
+		scalar.zScores(prices, window, expected);
+		vector.zScores(prices, window, actual);
+
+		for(int i = 0; i < length; i++) {
+			String message = String.format("zScores (length %d, window %d) at %d", length, window, i);
+			if(Double.isNaN(expected[i])) {
+				assertEquals(message, expected[i], actual[i], 0);
+				continue;
+			}
+			double conditioning = mean[i] * mean[i] / variance[i];
+			double tolerance = Math.max(TOLERANCE, SUM_SQ_ERROR * conditioning) * Math.max(1, Math.abs(expected[i]));
+			assertEquals(message, expected[i], actual[i], tolerance);
+		}
+	}
+
+	private static void assertClose(String message, double expected, double actual) {
+		if(Double.isNaN(expected)) {
+			assertEquals(message, expected, actual, 0);
+			return;
+		}
+		assertEquals(message, expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)));
+	}
+
+	/**
+	 * Random walk of prices, the same for every call with a length.
+	 */
+	private static double[] prices(int length) {
+		Random random = new Random(length);
+		double[] prices = new double[length];
+		double price = 100;
+		for(int i = 0; i < length; i++) {
+			price *= 1 + random.nextGaussian() * 0.02;
+			prices[i] = price;
+		}
+		return prices;
+	}
+
+}
@@ -0,0 +1,374 @@
+package stockfetcher.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import stockfetcher.api.PriceData;
+
+/**
+ * Migrates version 1 databases (prices with an INT volume, before any
+ * migration was recorded) on H2 in MySQL mode.
+ */
+public class SchemaMigrationsTest {
+
+	private static final int SYMBOLS = 20;
+	private static final int DAYS = 30;
+	private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+	// Over Integer.MAX_VALUE, so it only fits once volume is a BIGINT
+	private static final long LARGE_VOLUME = 5_000_000_000L;
+
+	private static int databases = 0;
+
+	@Rule
+	public TemporaryFolder home = new TemporaryFolder();
+
+	private JdbcDataSource dataSource;
+
+	@Before
+	public void createVersion1Database() throws SQLException {
+		// Keeps the schema check of one test from being skipped by another
+		System.setProperty("stockfetcher.home", home.getRoot().getPath());
+
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:migrations" + (databases++)
+				+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			stmt.execute(
+				"CREATE TABLE symbols("
+				+ "		symbol_id INT NOT NULL AUTO_INCREMENT,"
+				+ "		symbol VARCHAR(10) NOT NULL UNIQUE,"
+				+ "		PRIMARY KEY (symbol_id)"
+				+ ")"
+			);
+			stmt.execute(
+				"CREATE TABLE prices("
+				+ "		symbol_id INT NOT NULL,"
+				+ "		date DATE NOT NULL,"
+				+ "		open DECIMAL(13, 4) NOT NULL,"
+				+ "		high DECIMAL(13, 4) NOT NULL,"
+				+ "		low DECIMAL(13, 4) NOT NULL,"
+				+ "		close DECIMAL(13, 4) NOT NULL,"
+				+ "		adjusted_close DECIMAL(13, 4) NOT NULL,"
+				+ "		volume INT NOT NULL,"
+				+ "		CONSTRAINT pk_price PRIMARY KEY (symbol_id, date),"
+				+ "		FOREIGN KEY (symbol_id) REFERENCES symbols(symbol_id)"
+				+ ")"
+			);
+			for(int symbol = 1; symbol <= SYMBOLS; symbol++) {
+				stmt.execute("INSERT INTO symbols(symbol) VALUES ('S" + symbol + "')");
+				for(int day = 0; day < DAYS; day++) {
+					stmt.execute(String.format("INSERT INTO prices VALUES (%d, DATE '%s', 10, 11, 9, 10, 10, %d)",
+							symbol, FIRST_DAY.plusDays(day), 1000 * symbol + day));
+				}
+			}
+		}
+	}
+
+	@After
+	public void close() throws SQLException {
+		if(StockDatabase.getConnection() != null) {
+			StockDatabase.getConnection().close();
+		}
+	}
+
+	@Test
+	public void migratesVersion1Database() throws Exception {
+		StockDatabase.initialize(dataSource, Runnable::run);
+		awaitMigrations();
+
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			assertEquals(Types.BIGINT, columnType(conn, "prices", "volume"));
+			assertEquals(SYMBOLS * DAYS, queryLong(stmt, "SELECT COUNT(*) FROM prices"));
+			assertEquals(1000 * 7 + 3, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 7 AND date = DATE '"
+					+ FIRST_DAY.plusDays(3) + "'"));
+			assertEquals(0, queryLong(stmt, "SELECT COUNT(*) FROM information_schema.tables "
+					+ "WHERE table_name IN ('prices_new', 'prices_old')"));
+			assertEquals(1, queryLong(stmt, "SELECT COUNT(*) FROM information_schema.indexes WHERE index_name = 'ix_prices_close'"));
+
+			ResultSet rs = stmt.executeQuery("SELECT version, applied_at, checkpoint FROM schema_migrations ORDER BY version");
+			for(int version = 2; version <= SchemaMigrations.LATEST; version++) {
+				assertTrue(rs.next());
+				assertEquals(version, rs.getInt(1));
+				assertTrue("Version " + version + " not applied", rs.getTimestamp(2) != null);
+				assertEquals(null, rs.getObject(3));
+			}
+			assertFalse(rs.next());
+		}
+	}
+
+	@Test
+	public void pricesAreWrittenDuringMigration() throws Exception {
+		// An open transaction holding the row of the first migration keeps
+		// it from starting until the transaction ends
+		Connection blocker = dataSource.getConnection();
+		try (
+			Statement stmt = blocker.createStatement();
+		) {
+			createMigrationsTable(stmt);
+			blocker.setAutoCommit(false);
+			stmt.execute("INSERT INTO schema_migrations (version, description) VALUES (2, 'Held by test')");
+		}
+
+		StockDatabase.initialize(dataSource, Runnable::run);
+		LocalDate day = FIRST_DAY.plusDays(DAYS);
+		Thread writer = new Thread(() -> StockDatabase.addPriceData(
+				new PriceData[] {new PriceData("S1", day, 10, 11, 9, 10, 10, 1234)}));
+		writer.start();
+		writer.join(10_000);
+		assertFalse("Prices weren't written during the migration", writer.isAlive());
+
+		// Too large for the old table, so it waits for the symbol to be copied
+		Thread largeWriter = new Thread(() -> StockDatabase.addPriceData(
+				new PriceData[] {new PriceData("S2", day, 10, 11, 9, 10, 10, LARGE_VOLUME)}));
+		largeWriter.start();
+		largeWriter.join(500);
+		assertTrue("Volume over the INT range was written to the old table", largeWriter.isAlive());
+
+		blocker.rollback();
+		blocker.close();
+		largeWriter.join(30_000);
+		assertFalse(largeWriter.isAlive());
+		awaitMigrations();
+
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			assertEquals(1234, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 1 AND date = DATE '" + day + "'"));
+			assertEquals(LARGE_VOLUME, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 2 AND date = DATE '" + day + "'"));
+		}
+	}
+
+	@Test
+	public void copiedSymbolsAreWrittenToRebuiltTable() throws Exception {
+		int checkpoint = SYMBOLS / 2;
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			createMigrationsTable(stmt);
+			stmt.execute("INSERT INTO schema_migrations (version, description, checkpoint) "
+					+ "VALUES (2, 'Rebuild prices', " + checkpoint + ")");
+			createRebuiltTable(stmt);
+			stmt.execute("INSERT INTO prices_new SELECT * FROM prices WHERE symbol_id <= " + checkpoint);
+		}
+
+		// Keeps the migration from resuming until the transaction ends
+		Connection blocker = dataSource.getConnection();
+		try (
+			Statement stmt = blocker.createStatement();
+		) {
+			blocker.setAutoCommit(false);
+			stmt.execute("UPDATE schema_migrations SET description = 'Held by test' WHERE version = 2");
+		}
+
+		StockDatabase.initialize(dataSource, Runnable::run);
+		LocalDate day = FIRST_DAY.plusDays(DAYS);
+		Thread writer = new Thread(() -> StockDatabase.addPriceData(new PriceData[] {
+			new PriceData("S1", day, 10, 11, 9, 10, 10, LARGE_VOLUME),
+			new PriceData("S" + SYMBOLS, day, 10, 11, 9, 10, 10, 1234)
+		}));
+		writer.start();
+		writer.join(10_000);
+		assertFalse("Prices weren't written during the migration", writer.isAlive());
+
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			String onDay = " AND date = DATE '" + day + "'";
+			assertEquals(LARGE_VOLUME, queryLong(stmt, "SELECT volume FROM prices_new WHERE symbol_id = 1" + onDay));
+			assertEquals(0, queryLong(stmt, "SELECT COUNT(*) FROM prices WHERE symbol_id = 1" + onDay));
+			assertEquals(1234, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = " + SYMBOLS + onDay));
+		}
+		assertEquals(DAYS + 1, StockDatabase.getSymbolPriceData("S1").size());
+		assertEquals(DAYS + 1, StockDatabase.getPriceSeries("S" + SYMBOLS).size());
+
+		blocker.rollback();
+		blocker.close();
+		awaitMigrations();
+
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			assertEquals(SYMBOLS * DAYS + 2, queryLong(stmt, "SELECT COUNT(*) FROM prices"));
+			assertEquals(LARGE_VOLUME, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 1 AND date = DATE '" + day + "'"));
+		}
+	}
+
+	@Test
+	public void storesVolumesOverIntRange() throws Exception {
+		StockDatabase.initialize(dataSource, Runnable::run);
+		awaitMigrations();
+
+		LocalDate day = FIRST_DAY.plusDays(DAYS);
+		StockDatabase.addPriceData(new PriceData[] {
+			new PriceData("S2", day, 10, 11, 9, 10, 10, LARGE_VOLUME),
+			new PriceData("S2", day.plusDays(1), 10, 11, 9, 10, 10, Long.MAX_VALUE)
+		});
+
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			assertEquals(LARGE_VOLUME, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 2 AND date = DATE '" + day + "'"));
+			assertEquals(Long.MAX_VALUE, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 2 AND date = DATE '"
+					+ day.plusDays(1) + "'"));
+		}
+	}
+
+	@Test
+	public void resumesFromCheckpoint() throws Exception {
+		// State left by exiting while the first half of the symbols had
+		// been copied. A copied row is marked to show it isn't copied again.
+		int checkpoint = SYMBOLS / 2;
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			createMigrationsTable(stmt);
+			stmt.execute("INSERT INTO schema_migrations (version, description, checkpoint) "
+					+ "VALUES (2, 'Rebuild prices', " + checkpoint + ")");
+			createRebuiltTable(stmt);
+			stmt.execute("INSERT INTO prices_new SELECT * FROM prices WHERE symbol_id <= " + checkpoint);
+			stmt.execute("UPDATE prices_new SET volume = " + LARGE_VOLUME + " WHERE symbol_id = 1 AND date = DATE '" + FIRST_DAY + "'");
+		}
+
+		StockDatabase.initialize(dataSource, Runnable::run);
+		awaitMigrations();
+
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			assertEquals(SYMBOLS * DAYS, queryLong(stmt, "SELECT COUNT(*) FROM prices"));
+			assertEquals(LARGE_VOLUME, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 1 AND date = DATE '" + FIRST_DAY + "'"));
+			assertEquals(1000 * SYMBOLS, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = " + SYMBOLS
+					+ " AND date = DATE '" + FIRST_DAY + "'"));
+		}
+	}
+
+	@Test
+	public void runningAgainChangesNothing() throws Exception {
+		StockDatabase.initialize(dataSource, Runnable::run);
+		awaitMigrations();
+
+		try (
+			Connection conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+		) {
+			List<Timestamp> applied = appliedTimes(stmt);
+			stmt.execute("UPDATE prices SET volume = 1 WHERE symbol_id = 3 AND date = DATE '" + FIRST_DAY + "'");
+
+			SchemaMigrations.run(dataSource);
+
+			assertFalse(SchemaMigrations.isPending(conn));
+			assertEquals(applied, appliedTimes(stmt));
+			assertEquals(SYMBOLS * DAYS, queryLong(stmt, "SELECT COUNT(*) FROM prices"));
+			assertEquals(1, queryLong(stmt, "SELECT volume FROM prices WHERE symbol_id = 3 AND date = DATE '" + FIRST_DAY + "'"));
+		}
+	}
+
+	/**
+	 * Waits for the migrations started by StockDatabase.initialize() in the
+	 * background.
+	 */
+	private void awaitMigrations() throws Exception {
+		long deadline = System.nanoTime() + 30_000_000_000L;
+		try (
+			Connection conn = dataSource.getConnection();
+		) {
+			while(SchemaMigrations.isPending(conn)) {
+				if(System.nanoTime() - deadline > 0) {
+					fail("Migrations didn't finish");
+				}
+				Thread.sleep(20);
+			}
+		}
+	}
+
+	/**
+	 * Same as the table created by SchemaMigrations, for setting up states
+	 * before it runs.
+	 */
+	private static void createMigrationsTable(Statement stmt) throws SQLException {
+		stmt.execute(
+			"CREATE TABLE schema_migrations("
+			+ "		version INT NOT NULL,"
+			+ "		description VARCHAR(100) NOT NULL,"
+			+ "		applied_at TIMESTAMP NULL,"
+			+ "		checkpoint INT NULL,"
+			+ "		PRIMARY KEY (version)"
+			+ ")"
+		);
+	}
+
+	/**
+	 * Same as the table the rebuild copies prices to, apart from the
+	 * foreign key.
+	 */
+	private static void createRebuiltTable(Statement stmt) throws SQLException {
+		stmt.execute(
+			"CREATE TABLE prices_new("
+			+ "		symbol_id INT NOT NULL,"
+			+ "		date DATE NOT NULL,"
+			+ "		open DECIMAL(13, 4) NOT NULL,"
+			+ "		high DECIMAL(13, 4) NOT NULL,"
+			+ "		low DECIMAL(13, 4) NOT NULL,"
+			+ "		close DECIMAL(13, 4) NOT NULL,"
+			+ "		adjusted_close DECIMAL(13, 4) NOT NULL,"
+			+ "		volume BIGINT NOT NULL,"
+			+ "		PRIMARY KEY (symbol_id, date)"
+			+ ")"
+		);
+	}
+
+	private static List<Timestamp> appliedTimes(Statement stmt) throws SQLException {
+		var times = new ArrayList<Timestamp>();
+		ResultSet rs = stmt.executeQuery("SELECT applied_at FROM schema_migrations ORDER BY version");
+		while(rs.next()) {
+			times.add(rs.getTimestamp(1));
+		}
+		return times;
+	}
+
+	private static long queryLong(Statement stmt, String sql) throws SQLException {
+		ResultSet rs = stmt.executeQuery(sql);
+		assertTrue("No result for " + sql, rs.next());
+		return rs.getLong(1);
+	}
+
+	private static int columnType(Connection conn, String table, String column) throws SQLException {
+		ResultSet rs = conn.getMetaData().getColumns(null, null, table, column);
+		assertTrue(rs.next());
+		return rs.getInt("DATA_TYPE");
+	}
+
+}
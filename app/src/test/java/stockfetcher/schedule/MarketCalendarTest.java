@@ -0,0 +1,144 @@
+package stockfetcher.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+/**
+ * Checks holidays against the exchange's published calendars, including
+ * the observed-day rules, and which session's prices are available at a
+ * given time.
+ */
+public class MarketCalendarTest {
+
+	private static final Duration DELAY = Duration.ofMinutes(30);
+
+	@Test
+	public void holidays2024() {
+		assertHolidays(2024,
+				"2024-01-01", "2024-01-15", "2024-02-19", "2024-03-29", "2024-05-27",
+				"2024-06-19", "2024-07-04", "2024-09-02", "2024-11-28", "2024-12-25");
+		assertEquals(252, tradingDays(2024));
+	}
+
+	@Test
+	public void holidays2023() {
+		// New Year's Day on a Sunday is observed on Monday
+		assertHolidays(2023,
+				"2023-01-02", "2023-01-16", "2023-02-20", "2023-04-07", "2023-05-29",
+				"2023-06-19", "2023-07-04", "2023-09-04", "2023-11-23", "2023-12-25");
+		assertEquals(250, tradingDays(2023));
+	}
+
+	@Test
+	public void holidays2022() {
+		// New Year's Day on a Saturday isn't observed; Juneteenth and
+		// Christmas on a Sunday are observed on Monday
+		assertHolidays(2022,
+				"2022-01-17", "2022-02-21", "2022-04-15", "2022-05-30", "2022-06-20",
+				"2022-07-04", "2022-09-05", "2022-11-24", "2022-12-26");
+		assertEquals(251, tradingDays(2022));
+	}
+
+	@Test
+	public void observedHolidays() {
+		// Saturday holidays are observed on Friday
+		assertTrue(MarketCalendar.isHoliday(LocalDate.parse("2020-07-03")));
+		assertTrue(MarketCalendar.isHoliday(LocalDate.parse("2021-12-24")));
+
+		// Sunday holidays are observed on Monday
+		assertTrue(MarketCalendar.isHoliday(LocalDate.parse("2021-07-05")));
+		assertTrue(MarketCalendar.isHoliday(LocalDate.parse("2017-01-02")));
+
+		// Except New Year's Day, which isn't moved into the previous year
+		assertTrue(MarketCalendar.isTradingDay(LocalDate.parse("2021-12-31")));
+		assertTrue(MarketCalendar.isTradingDay(LocalDate.parse("2010-12-31")));
+
+		// Juneteenth only from 2022
+		assertTrue(MarketCalendar.isTradingDay(LocalDate.parse("2021-06-18")));
+		assertTrue(MarketCalendar.isTradingDay(LocalDate.parse("2020-06-19")));
+	}
+
+	@Test
+	public void goodFriday() {
+		for(String date : new String[] {"2008-03-21", "2011-04-22", "2016-03-25", "2019-04-19", "2025-04-18", "2038-04-23"}) {
+			LocalDate goodFriday = LocalDate.parse(date);
+			assertTrue(date, MarketCalendar.isHoliday(goodFriday));
+			assertTrue(date, MarketCalendar.isTradingDay(goodFriday.minusDays(1)));
+			assertTrue(date, MarketCalendar.isTradingDay(goodFriday.plusDays(3)));
+		}
+	}
+
+	@Test
+	public void lastClosedSession() {
+		// Before and after prices are published
+		assertEquals(LocalDate.parse("2024-03-27"), lastClosedSession("2024-03-28T16:29"));
+		assertEquals(LocalDate.parse("2024-03-28"), lastClosedSession("2024-03-28T16:30"));
+		assertEquals(LocalDate.parse("2024-03-27"), lastClosedSession("2024-03-28T09:00"));
+
+		// Holidays and weekends fall back to the last session
+		assertEquals(LocalDate.parse("2024-03-28"), lastClosedSession("2024-03-29T18:00"));
+		assertEquals(LocalDate.parse("2024-03-28"), lastClosedSession("2024-03-31T12:00"));
+		assertEquals(LocalDate.parse("2024-03-28"), lastClosedSession("2024-04-01T16:00"));
+		assertEquals(LocalDate.parse("2023-12-29"), lastClosedSession("2024-01-01T20:00"));
+		assertEquals(LocalDate.parse("2023-12-29"), lastClosedSession("2024-01-02T10:00"));
+
+		// The time is converted to exchange time first: 02:00 UTC on Good
+		// Friday is still Thursday evening in New York
+		ZonedDateTime utc = ZonedDateTime.of(LocalDateTime.parse("2024-03-29T02:00"), ZoneOffset.UTC);
+		assertEquals(LocalDate.parse("2024-03-28"), MarketCalendar.lastClosedSession(utc, DELAY));
+	}
+
+	@Test
+	public void nextPublishTime() {
+		assertEquals(exchangeTime("2024-03-28T16:30"), MarketCalendar.nextPublishTime(exchangeTime("2024-03-28T10:00"), DELAY));
+		assertEquals(exchangeTime("2024-04-01T16:30"), MarketCalendar.nextPublishTime(exchangeTime("2024-03-28T16:30"), DELAY));
+		assertEquals(exchangeTime("2024-01-02T16:30"), MarketCalendar.nextPublishTime(exchangeTime("2023-12-29T17:00"), DELAY));
+	}
+
+	private static void assertHolidays(int year, String... dates) {
+		int found = 0;
+		for(LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+			boolean weekday = date.getDayOfWeek().getValue() <= 5;
+			if(weekday && MarketCalendar.isHoliday(date)) {
+				found++;
+				boolean listed = false;
+				for(String holiday : dates) {
+					listed |= date.equals(LocalDate.parse(holiday));
+				}
+				assertTrue("Unexpected holiday " + date, listed);
+			}
+		}
+		for(String holiday : dates) {
+			assertFalse("Trading on " + holiday, MarketCalendar.isTradingDay(LocalDate.parse(holiday)));
+		}
+		assertEquals(dates.length, found);
+	}
+
+	private static int tradingDays(int year) {
+		int days = 0;
+		for(LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+			if(MarketCalendar.isTradingDay(date)) {
+				days++;
+			}
+		}
+		return days;
+	}
+
+	private static ZonedDateTime exchangeTime(String time) {
+		return ZonedDateTime.of(LocalDateTime.parse(time), MarketCalendar.ZONE);
+	}
+
+	private static LocalDate lastClosedSession(String time) {
+		return MarketCalendar.lastClosedSession(exchangeTime(time), DELAY);
+	}
+
+}
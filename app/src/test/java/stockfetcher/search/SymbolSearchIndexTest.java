@@ -0,0 +1,123 @@
+package stockfetcher.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks prefix matches on symbols and names, the trigram fallback for
+ * typos and mid-word matches, and that renamed entries are found by their
+ * new name only.
+ */
+public class SymbolSearchIndexTest {
+
+	private SymbolSearchIndex index;
+
+	@Before
+	public void index() {
+		index = new SymbolSearchIndex();
+		index.putAll(Map.of(
+				"AAPL", "Apple Inc.",
+				"AAP", "Advance Auto Parts Inc.",
+				"AMZN", "Amazon.com, Inc.",
+				"MSFT", "Microsoft Corporation",
+				"MU", "Micron Technology, Inc.",
+				"SPY", "SPDR S&P 500 ETF Trust"));
+		index.add("QQQ");
+	}
+
+	@Test
+	public void symbolPrefix() {
+		assertEquals(List.of("AAP", "AAPL"), symbols("AAP", 2));
+		assertEquals(List.of("AAPL"), symbols("aapl", 1));
+		assertEquals(List.of("QQQ"), symbols("QQ", 1));
+
+		// Shorter symbols rank first
+		assertEquals(List.of("MU", "MSFT"), symbols("M", 2));
+	}
+
+	@Test
+	public void namePrefix() {
+		assertEquals(List.of("MSFT"), symbols("microsoft", 1));
+		assertEquals(List.of("MU", "MSFT"), symbols("micro", 2));
+		assertEquals(List.of("AAPL"), symbols("apple inc", 1));
+		assertEquals(List.of("SPY"), symbols("spdr etf", 1));
+
+		// An exact symbol ranks first
+		assertEquals("SPY", symbols("spy", 5).get(0));
+	}
+
+	@Test
+	public void trigramFallback() {
+		// Typos
+		assertEquals(List.of("MSFT"), symbols("mircosoft", 1));
+		assertEquals(List.of("AMZN"), symbols("amazn", 1));
+
+		// Mid-word
+		assertEquals(List.of("MSFT"), symbols("soft", 1));
+
+		// Too little in common
+		assertTrue(symbols("xylophone", 5).isEmpty());
+	}
+
+	@Test
+	public void rename() {
+		index.put("MSFT", "Macrohard Holdings");
+		assertEquals(7, index.size());
+		assertEquals(List.of("MSFT"), symbols("macrohard", 1));
+		assertEquals("Macrohard Holdings", index.search("MSFT", 1).get(0).name);
+		assertTrue(symbols("microsoft", 5).isEmpty());
+
+		// Other entries sharing the old name's keys are still found
+		assertEquals(List.of("MU"), symbols("micro", 5));
+
+		// Renaming back and forth keeps a single entry
+		for(int i = 0; i < 10; i++) {
+			index.put("MSFT", i % 2 == 0 ? "Microsoft Corporation" : "Macrohard Holdings");
+		}
+		assertEquals(7, index.size());
+		assertEquals(List.of("MSFT"), symbols("macrohard", 5));
+		assertTrue(symbols("microsoft", 5).isEmpty());
+
+		// Entries added afterwards get their own slot
+		index.put("META", "Meta Platforms, Inc.");
+		assertEquals(8, index.size());
+		assertEquals(List.of("META"), symbols("platforms", 5));
+		assertEquals(List.of("MSFT"), symbols("macrohard", 5));
+	}
+
+	@Test
+	public void unchangedNames() {
+		// Adding a known symbol or putting a null name keeps its name
+		index.add("AAPL");
+		index.put("AAPL", null);
+		assertEquals(7, index.size());
+		assertEquals("Apple Inc.", index.search("AAPL", 1).get(0).name);
+
+		// Names can be filled in later
+		index.put("QQQ", "Invesco QQQ Trust");
+		assertEquals(List.of("QQQ"), symbols("invesco", 1));
+	}
+
+	@Test
+	public void emptyQueries() {
+		assertTrue(index.search("", 5).isEmpty());
+		assertTrue(index.search(" ,; ", 5).isEmpty());
+		assertTrue(index.search("AAPL", 0).isEmpty());
+	}
+
+	private List<String> symbols(String query, int limit) {
+		ArrayList<String> symbols = new ArrayList<>();
+		for(SearchResult result : index.search(query, limit)) {
+			symbols.add(result.symbol);
+		}
+		return symbols;
+	}
+
+}
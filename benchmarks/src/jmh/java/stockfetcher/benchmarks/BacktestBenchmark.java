@@ -0,0 +1,82 @@
+package stockfetcher.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import stockfetcher.backtest.BacktestResult;
+import stockfetcher.backtest.BacktestSettings;
+import stockfetcher.backtest.Backtester;
+import stockfetcher.backtest.MovingAverageCross;
+import stockfetcher.backtest.Replay;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Times a moving average crossover backtest over 20 symbols of ~25 years
+ * of daily bars, alone and as a sweep over a grid of period pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BacktestBenchmark {
+
+	private static final int SYMBOLS = 20;
+	private static final int BARS = 6300;
+
+	private Replay replay;
+	private BacktestSettings settings;
+	private List<double[]> grid;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		ArrayList<PriceSeries> series = new ArrayList<>();
+		for(int s = 0; s < SYMBOLS; s++) {
+			int[] days = new int[BARS];
+			double[] open = new double[BARS];
+			double[] close = new double[BARS];
+			long[] volume = new long[BARS];
+			double price = 20 + random.nextDouble() * 200;
+			for(int i = 0; i < BARS; i++) {
+				// Weekdays only
+				days[i] = 10_000 + i + (i / 5) * 2;
+				open[i] = price;
+				price = Math.max(1, price * (1 + random.nextGaussian() * 0.02));
+				close[i] = price;
+				volume[i] = 1_000_000;
+			}
+			series.add(PriceSeries.of("SYM" + s, days, open, close, close, close, close, volume));
+		}
+
+		replay = Replay.of(series, LocalDate.ofEpochDay(0), LocalDate.ofEpochDay(100_000));
+		settings = new BacktestSettings(100_000, 1, 0.0005, 0.0005);
+		grid = new ArrayList<>();
+		for(int fast = 5; fast <= 50; fast += 5) {
+			for(int slow = 60; slow <= 250; slow += 10) {
+				grid.add(new double[] {fast, slow});
+			}
+		}
+	}
+
+	@Benchmark
+	public BacktestResult singleRun() {
+		return Backtester.run(replay, new MovingAverageCross(20, 100), settings);
+	}
+
+	@Benchmark
+	public List<BacktestResult> parameterSweep() {
+		return Backtester.sweep(replay, grid, p -> new MovingAverageCross((int) p[0], (int) p[1]), settings);
+	}
+
+}
@@ -0,0 +1,59 @@
+package stockfetcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javafx.scene.chart.XYChart;
+import stockfetcher.analytics.LinearForecast;
+import stockfetcher.db.PriceSeries;
+import stockfetcher.ui.ChartSeries;
+
+/**
+ * Times the work behind a chart that doesn't need a window: turning a
+ * price series into chart points and the linear prediction's fit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChartBenchmark {
+
+	// Days the linear prediction extends past the last price
+	private static final int FORECAST_DAYS = 100;
+
+	@Param({"10", "40"})
+	private int years;
+
+	private PriceSeries series;
+	private double[] days;
+	private double[] prices;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		series = Fixtures.series(Fixtures.history("BENCH", years, 42));
+		days = new double[series.size()];
+		for(int i = 0; i < days.length; i++) {
+			days[i] = series.getEpochDay(i);
+		}
+		prices = series.getAdjCloses();
+	}
+
+	@Benchmark
+	public XYChart.Series<Number, Double> toLine() {
+		return ChartSeries.toLine(series);
+	}
+
+	@Benchmark
+	public LinearForecast linearForecast() {
+		return LinearForecast.fit(days, prices, (long) days[days.length - 1] + 1 + FORECAST_DAYS);
+	}
+
+}
@@ -0,0 +1,81 @@
+package stockfetcher.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import stockfetcher.api.PriceData;
+import stockfetcher.api.StockApi;
+import stockfetcher.db.StockDatabase;
+
+/**
+ * Times the path price history takes from a download to the database and
+ * back: parsing the CSV, inserting it (with the summary and rollups
+ * updated alongside), and reading it back as rows.
+ * <p>
+ * The database is an in-memory H2 database in MySQL mode, so no server is
+ * needed; absolute times differ from MySQL, but changes in the SQL and the
+ * Java around it show up the same way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DataBenchmark {
+
+	@Param({"10", "40"})
+	private int years;
+
+	private String symbol;
+	private PriceData[] bars;
+	private String csv;
+
+	@Setup(Level.Trial)
+	public void setup() throws SQLException {
+		// One symbol per history length, in case trials share the database
+		symbol = "BENCH" + years;
+		bars = Fixtures.history(symbol, years, 42);
+		csv = Fixtures.csv(bars);
+
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:stock_data;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+		StockDatabase.initialize(dataSource, Runnable::run);
+		StockDatabase.addPriceData(bars);
+
+		if(StockDatabase.getSymbolPriceData(symbol).size() != bars.length) {
+			throw new IllegalStateException("Fixture prices were not stored.");
+		}
+	}
+
+	@Benchmark
+	public PriceData[] parseCsv() throws IOException {
+		return StockApi.parsePriceData(symbol, new BufferedReader(new StringReader(csv)));
+	}
+
+	/**
+	 * Re-inserts the full history, so every row takes the update path.
+	 */
+	@Benchmark
+	public void addPriceData() {
+		StockDatabase.addPriceData(bars);
+	}
+
+	@Benchmark
+	public ArrayList<PriceData> getSymbolPriceData() {
+		return StockDatabase.getSymbolPriceData(symbol);
+	}
+
+}
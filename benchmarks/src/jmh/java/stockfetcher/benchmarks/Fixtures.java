@@ -0,0 +1,100 @@
+package stockfetcher.benchmarks;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+
+import stockfetcher.api.PriceData;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Synthetic price histories shared by the benchmarks. Histories are daily
+ * weekday bars starting in 1985, so multi-decade fixtures cover the same
+ * dates real long histories do.
+ */
+final class Fixtures {
+
+	static final LocalDate START = LocalDate.of(1985, 1, 2);
+
+	private Fixtures() {}
+
+	/**
+	 * Random walk of daily bars with intraday ranges and volume.
+	 * @param symbol
+	 * @param years
+	 * @param seed
+	 * @return bars in date order
+	 */
+	static PriceData[] history(String symbol, int years, long seed) {
+		Random random = new Random(seed);
+		ArrayList<PriceData> bars = new ArrayList<>();
+		LocalDate end = START.plusYears(years);
+		double price = 20 + random.nextDouble() * 200;
+		for(LocalDate date = START; date.isBefore(end); date = date.plusDays(1)) {
+			DayOfWeek day = date.getDayOfWeek();
+			if(day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) {
+				continue;
+			}
+
+			double open = price;
+			price = Math.max(1, price * (1 + random.nextGaussian() * 0.02));
+			double high = Math.max(open, price) * (1 + random.nextDouble() * 0.01);
+			double low = Math.min(open, price) * (1 - random.nextDouble() * 0.01);
+			int volume = 100_000 + random.nextInt(10_000_000);
+			bars.add(new PriceData(symbol, date, round(open), round(high), round(low), round(price), round(price), volume));
+		}
+		return bars.toArray(new PriceData[bars.size()]);
+	}
+
+	/**
+	 * @param bars
+	 * @return the bars in the price download's CSV format
+	 */
+	static String csv(PriceData[] bars) {
+		StringBuilder csv = new StringBuilder("Date,Open,High,Low,Close,Adj Close,Volume\n");
+		for(PriceData bar : bars) {
+			csv.append(bar.date).append(',')
+				.append(bar.open).append(',')
+				.append(bar.high).append(',')
+				.append(bar.low).append(',')
+				.append(bar.close).append(',')
+				.append(bar.adjClose).append(',')
+				.append(bar.volume).append('\n');
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * @param bars bars of one symbol in date order
+	 * @return the bars as a price series
+	 */
+	static PriceSeries series(PriceData[] bars) {
+		int n = bars.length;
+		int[] days = new int[n];
+		double[] open = new double[n];
+		double[] high = new double[n];
+		double[] low = new double[n];
+		double[] close = new double[n];
+		double[] adjClose = new double[n];
+		long[] volume = new long[n];
+		for(int i = 0; i < n; i++) {
+			days[i] = (int) bars[i].date.toEpochDay();
+			open[i] = bars[i].open;
+			high[i] = bars[i].high;
+			low[i] = bars[i].low;
+			close[i] = bars[i].close;
+			adjClose[i] = bars[i].adjClose;
+			volume[i] = bars[i].volume;
+		}
+		return PriceSeries.of(bars[0].symbol, days, open, high, low, close, adjClose, volume);
+	}
+
+	/**
+	 * Rounds to the four decimals prices are stored with.
+	 */
+	private static double round(double price) {
+		return Math.round(price * 10_000) / 10_000.0;
+	}
+
+}
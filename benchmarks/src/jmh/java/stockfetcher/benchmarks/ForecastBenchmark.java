@@ -0,0 +1,56 @@
+package stockfetcher.benchmarks;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import stockfetcher.analytics.MonteCarlo;
+import stockfetcher.analytics.MonteCarloForecast;
+
+/**
+ * Times a one year Monte Carlo forecast from ten years of daily closes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ForecastBenchmark {
+
+	private static final int HISTORY = 2520;
+	private static final int HORIZON = 252;
+	private static final double[] PERCENTILES = {0.025, 0.16, 0.5, 0.84, 0.975};
+
+	@Param({"GBM", "BOOTSTRAP"})
+	private MonteCarlo.Model model;
+
+	@Param({"50000", "200000"})
+	private int paths;
+
+	private double[] prices;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		prices = new double[HISTORY];
+		double price = 100;
+		for(int i = 0; i < HISTORY; i++) {
+			price *= Math.exp(0.0003 + 0.02 * random.nextGaussian());
+			prices[i] = price;
+		}
+	}
+
+	@Benchmark
+	public MonteCarloForecast forecast() {
+		return MonteCarlo.forecast(prices, model, HORIZON, paths, PERCENTILES, new SplittableRandom(7));
+	}
+
+}
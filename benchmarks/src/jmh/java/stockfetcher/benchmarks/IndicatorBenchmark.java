@@ -0,0 +1,104 @@
+package stockfetcher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import stockfetcher.analytics.Indicators;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Computes 10 indicators over the full history of 5,000 symbols.
+ * <p>
+ * Symbols cycle through a pool of distinct synthetic series so the
+ * benchmark fits in a normal heap while still reading every bar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IndicatorBenchmark {
+
+	private static final int DISTINCT_SERIES = 64;
+
+	private static final List<String> SPECS = List.of(
+		"SMA(20)",
+		"SMA(50)",
+		"SMA(200)",
+		"EMA(12)",
+		"EMA(26)",
+		"RSI(14)",
+		"MACD(12,26,9)",
+		"BB(20,2)",
+		"ATR(14)",
+		"SMA(20,VOLUME)"
+	);
+
+	@Param({"5000"})
+	private int symbols;
+
+	// ~25 years of trading days
+	@Param({"6300"})
+	private int bars;
+
+	private List<PriceSeries> series;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		PriceSeries[] pool = new PriceSeries[DISTINCT_SERIES];
+		for(int i = 0; i < pool.length; i++) {
+			pool[i] = randomWalk("SYM" + i, bars, random);
+		}
+
+		series = new ArrayList<>(symbols);
+		for(int i = 0; i < symbols; i++) {
+			series.add(pool[i % pool.length]);
+		}
+	}
+
+	@Benchmark
+	public Map<String, double[][]> latestAll() {
+		return Indicators.latestAll(series, SPECS);
+	}
+
+	@Benchmark
+	public double[][] fullHistorySingleSymbol() {
+		return Indicators.compute(series.get(0), Indicators.parse("MACD(12,26,9)"));
+	}
+
+	private static PriceSeries randomWalk(String symbol, int bars, Random random) {
+		int[] days = new int[bars];
+		double[] open = new double[bars];
+		double[] high = new double[bars];
+		double[] low = new double[bars];
+		double[] close = new double[bars];
+		double[] adjClose = new double[bars];
+		long[] volume = new long[bars];
+
+		double price = 20 + random.nextDouble() * 200;
+		for(int i = 0; i < bars; i++) {
+			days[i] = 10_000 + i;
+			open[i] = price;
+			price = Math.max(1, price * (1 + random.nextGaussian() * 0.02));
+			close[i] = price;
+			adjClose[i] = price;
+			high[i] = Math.max(open[i], close[i]) * (1 + random.nextDouble() * 0.01);
+			low[i] = Math.min(open[i], close[i]) * (1 - random.nextDouble() * 0.01);
+			volume[i] = 100_000 + random.nextInt(10_000_000);
+		}
+		return PriceSeries.of(symbol, days, open, high, low, close, adjClose, volume);
+	}
+
+}
@@ -0,0 +1,200 @@
+package stockfetcher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import stockfetcher.analytics.RiskMetrics;
+import stockfetcher.analytics.SeriesKernels;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Compares the scalar and vector series kernels on ~25 years of daily
+ * prices, and times a risk scan over 5,000 symbols.
+ * <p>
+ * Setup checks that both implementations agree before anything is timed,
+ * and fails the run if the vector module isn't enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KernelBenchmark {
+
+	private static final int BARS = 6300;
+	private static final int SYMBOLS = 5000;
+	private static final int DISTINCT_SERIES = 64;
+	private static final int WINDOW = 20;
+
+	// Allowed relative difference between the two implementations
+	private static final double TOLERANCE = 1e-6;
+
+	@Param({"scalar", "vector"})
+	private String implementation;
+
+	private SeriesKernels kernels;
+	private double[] prices;
+	private double[] out;
+	private List<PriceSeries> universe;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		if(SeriesKernels.vector() == null) {
+			throw new IllegalStateException("Vector API unavailable; run with --add-modules jdk.incubator.vector");
+		}
+		kernels = implementation.equals("vector") ? SeriesKernels.vector() : SeriesKernels.scalar();
+
+		Random random = new Random(42);
+		prices = randomWalk(random);
+		out = new double[BARS];
+		validate();
+
+		PriceSeries[] pool = new PriceSeries[DISTINCT_SERIES];
+		int[] days = new int[BARS];
+		long[] volume = new long[BARS];
+		for(int i = 0; i < BARS; i++) {
+			days[i] = 10_000 + i;
+		}
+		for(int i = 0; i < pool.length; i++) {
+			double[] close = randomWalk(random);
+			pool[i] = PriceSeries.of("SYM" + i, days, close, close, close, close, close, volume);
+		}
+		universe = new ArrayList<>(SYMBOLS);
+		for(int i = 0; i < SYMBOLS; i++) {
+			universe.add(pool[i % pool.length]);
+		}
+	}
+
+	@Benchmark
+	public double[] logReturns() {
+		kernels.logReturns(prices, out);
+		return out;
+	}
+
+	@Benchmark
+	public double[] rollingMean() {
+		kernels.rollingMean(prices, WINDOW, out);
+		return out;
+	}
+
+	@Benchmark
+	public double[] rollingVariance() {
+		kernels.rollingVariance(prices, WINDOW, out);
+		return out;
+	}
+
+	@Benchmark
+	public double[] zScores() {
+		kernels.zScores(prices, WINDOW, out);
+		return out;
+	}
+
+	@Benchmark
+	public double[] scale() {
+		kernels.scale(prices, 100 / prices[0], -100, out);
+		return out;
+	}
+
+	@Benchmark
+	public double maxDrawdown() {
+		return kernels.maxDrawdown(prices);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Map<String, RiskMetrics> universeRiskScan() {
+		Map<String, RiskMetrics> results = new HashMap<>();
+		for(PriceSeries series : universe) {
+			results.put(series.getSymbol(), RiskMetrics.of(series, WINDOW, kernels));
+		}
+		return results;
+	}
+
+	/**
+	 * Checks every vector kernel against the scalar version, including
+	 * lengths and windows that leave partial vectors.
+	 */
+	private static void validate() {
+		SeriesKernels scalar = SeriesKernels.scalar();
+		SeriesKernels vector = SeriesKernels.vector();
+		Random random = new Random(7);
+
+		for(int length : new int[] {0, 1, 7, 17, 1030, BARS + 3}) {
+			double[] values = new double[length];
+			double price = 100;
+			for(int i = 0; i < length; i++) {
+				price *= 1 + random.nextGaussian() * 0.02;
+				values[i] = price;
+			}
+
+			for(int window : new int[] {2, 3, 20, 252}) {
+				double[] expected = new double[length];
+				double[] actual = new double[length];
+
+				scalar.logReturns(values, expected);
+				vector.logReturns(values, actual);
+				compare("logReturns", expected, actual);
+
+				scalar.rollingSum(values, window, expected);
+				vector.rollingSum(values, window, actual);
+				compare("rollingSum", expected, actual);
+
+				scalar.rollingMean(values, window, expected);
+				vector.rollingMean(values, window, actual);
+				compare("rollingMean", expected, actual);
+
+				scalar.rollingVariance(values, window, expected);
+				vector.rollingVariance(values, window, actual);
+				compare("rollingVariance", expected, actual);
+
+				scalar.zScores(values, window, expected);
+				vector.zScores(values, window, actual);
+				compare("zScores", expected, actual);
+			}
+
+			double[] expected = new double[length];
+			double[] actual = new double[length];
+			scalar.scale(values, 0.37, -100, expected);
+			vector.scale(values, 0.37, -100, actual);
+			compare("scale", expected, actual);
+
+			compare("maxDrawdown", new double[] {scalar.maxDrawdown(values)}, new double[] {vector.maxDrawdown(values)});
+		}
+	}
+
+	private static void compare(String kernel, double[] expected, double[] actual) {
+		for(int i = 0; i < expected.length; i++) {
+			boolean bothNaN = Double.isNaN(expected[i]) && Double.isNaN(actual[i]);
+			// Relative to the value, but not below 1 so near-zero results
+			// from cancelling sums don't fail on rounding alone
+			double scale = Math.max(1, Math.abs(expected[i]));
+			if(!bothNaN && !(Math.abs(expected[i] - actual[i]) <= TOLERANCE * scale)) {
+				throw new IllegalStateException(String.format("%s differs at %d: %s (scalar) vs %s (vector)",
+						kernel, i, expected[i], actual[i]));
+			}
+		}
+	}
+
+	private static double[] randomWalk(Random random) {
+		double[] prices = new double[BARS];
+		double price = 20 + random.nextDouble() * 200;
+		for(int i = 0; i < BARS; i++) {
+			price = Math.max(1, price * (1 + random.nextGaussian() * 0.02));
+			prices[i] = price;
+		}
+		return prices;
+	}
+
+}
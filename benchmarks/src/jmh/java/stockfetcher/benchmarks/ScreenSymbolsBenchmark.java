@@ -0,0 +1,74 @@
+package stockfetcher.benchmarks;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import stockfetcher.analytics.Screen;
+import stockfetcher.analytics.ScreenResult;
+import stockfetcher.analytics.Screener;
+import stockfetcher.db.StockDatabase;
+
+/**
+ * Screens symbols by name the way the screener tab does, reading their
+ * histories from the database: once from scratch, and again with the
+ * indicators already computed. The database is an in-memory H2 database
+ * in MySQL mode (see DataBenchmark).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScreenSymbolsBenchmark {
+
+	private static final int SYMBOLS = 200;
+	private static final int YEARS = 10;
+
+	private static final String QUERY = "PRICE > SMA(200) AND VOLUME > 120% * SMA(50,VOLUME) SORT BY RSI DESC";
+
+	private List<String> symbols;
+	private Screen screen;
+	private Screener coldScreener;
+	private Screener warmScreener;
+
+	@Setup(Level.Trial)
+	public void setup() throws SQLException {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:stock_data;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+		StockDatabase.initialize(dataSource, Runnable::run);
+
+		symbols = new ArrayList<>(SYMBOLS);
+		for(int i = 0; i < SYMBOLS; i++) {
+			String symbol = "SCREEN" + i;
+			StockDatabase.addPriceData(Fixtures.history(symbol, YEARS, i));
+			symbols.add(symbol);
+		}
+
+		screen = Screen.parse(QUERY);
+		coldScreener = new Screener();
+		warmScreener = new Screener();
+		warmScreener.screenSymbols(screen, symbols);
+	}
+
+	@Benchmark
+	public List<ScreenResult> coldScreenSymbols() {
+		coldScreener.retainSymbols(List.of());
+		return coldScreener.screenSymbols(screen, symbols);
+	}
+
+	@Benchmark
+	public List<ScreenResult> warmScreenSymbols() {
+		return warmScreener.screenSymbols(screen, symbols);
+	}
+
+}
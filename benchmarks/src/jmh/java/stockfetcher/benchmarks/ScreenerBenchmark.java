@@ -0,0 +1,89 @@
+package stockfetcher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import stockfetcher.analytics.Screen;
+import stockfetcher.analytics.ScreenResult;
+import stockfetcher.analytics.Screener;
+import stockfetcher.db.PriceSeries;
+
+/**
+ * Screens 5,000 symbols of ~25 years of daily bars, both from scratch and
+ * again with the indicators already computed (as on a price refresh).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScreenerBenchmark {
+
+	private static final int SYMBOLS = 5000;
+	private static final int DISTINCT_SERIES = 64;
+	private static final int BARS = 6300;
+
+	private static final String QUERY = "PRICE > SMA(200) AND VOLUME > 120% * SMA(50,VOLUME) SORT BY RSI DESC";
+
+	private List<PriceSeries> universe;
+	private Screen screen;
+	private Screener warmScreener;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		PriceSeries[] pool = new PriceSeries[DISTINCT_SERIES];
+		for(int s = 0; s < pool.length; s++) {
+			int[] days = new int[BARS];
+			double[] close = new double[BARS];
+			long[] volume = new long[BARS];
+			double price = 20 + random.nextDouble() * 200;
+			for(int i = 0; i < BARS; i++) {
+				price = Math.max(1, price * (1 + random.nextGaussian() * 0.02));
+				days[i] = 10_000 + i;
+				close[i] = price;
+				volume[i] = 100_000 + random.nextInt(1_000_000);
+			}
+			pool[s] = PriceSeries.of("POOL" + s, days, close, close, close, close, close, volume);
+		}
+
+		// Each symbol needs its own series, since state is cached per symbol
+		universe = new ArrayList<>(SYMBOLS);
+		for(int i = 0; i < SYMBOLS; i++) {
+			PriceSeries source = pool[i % pool.length];
+			int[] days = new int[BARS];
+			double[] close = new double[BARS];
+			long[] volume = new long[BARS];
+			for(int j = 0; j < BARS; j++) {
+				days[j] = (int) source.getEpochDay(j);
+				close[j] = source.getAdjClose(j);
+				volume[j] = source.getVolume(j);
+			}
+			universe.add(PriceSeries.of("SYM" + i, days, close, close, close, close, close, volume));
+		}
+
+		screen = Screen.parse(QUERY);
+		warmScreener = new Screener();
+		warmScreener.screen(screen, universe);
+	}
+
+	@Benchmark
+	public List<ScreenResult> coldScreen() {
+		return new Screener().screen(screen, universe);
+	}
+
+	@Benchmark
+	public List<ScreenResult> warmScreen() {
+		return warmScreener.screen(screen, universe);
+	}
+
+}
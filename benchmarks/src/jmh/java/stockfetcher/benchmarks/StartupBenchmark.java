@@ -0,0 +1,100 @@
+package stockfetcher.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import stockfetcher.api.PriceData;
+import stockfetcher.db.StartupCache;
+import stockfetcher.db.StockDatabase;
+
+/**
+ * Times the startup work done before the UI is usable with 2,000 tracked
+ * symbols: preparing the database with the schema checked (the first
+ * start at a schema version) or skipped through the cached marker (every
+ * later start), and reading the symbol snapshot shown until then.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark {
+
+	private static final int SYMBOLS = 2000;
+
+	@Param({"check", "cached"})
+	private String schema;
+
+	private Path home;
+	private JdbcDataSource dataSource;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, SQLException {
+		home = Files.createTempDirectory("stockfetcher-startup");
+		System.setProperty("stockfetcher.home", home.toString());
+
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+		StockDatabase.initialize(dataSource, Runnable::run);
+
+		var bars = new ArrayList<PriceData>();
+		for(int s = 0; s < SYMBOLS; s++) {
+			bars.addAll(Arrays.asList(Fixtures.history("SYM" + s, 1, s)).subList(0, 5));
+		}
+		StockDatabase.addPriceData(bars.toArray(new PriceData[bars.size()]));
+		StockDatabase.getConnection().close();
+		StartupCache.writeSymbols(StockDatabase.trackedSymbolsProperty());
+	}
+
+	@Setup(Level.Invocation)
+	public void forgetSchema() throws IOException {
+		if(schema.equals("check")) {
+			Files.deleteIfExists(home.resolve("schema"));
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void disconnect() throws SQLException {
+		StockDatabase.getConnection().close();
+	}
+
+	@TearDown(Level.Trial)
+	public void cleanup() throws IOException {
+		try (
+			Stream<Path> files = Files.walk(home);
+		) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public Connection initializeDatabase() throws SQLException {
+		StockDatabase.initialize(dataSource, Runnable::run);
+		return StockDatabase.getConnection();
+	}
+
+	@Benchmark
+	public List<String> readSymbolSnapshot() {
+		return StartupCache.readSymbols();
+	}
+
+}
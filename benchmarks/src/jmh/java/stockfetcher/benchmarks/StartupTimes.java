@@ -0,0 +1,113 @@
+package stockfetcher.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold start of the installed application, with and without the AppCDS
+ * archive made by {@code gradlew :app:cdsArchive}: time to the first frame
+ * and time until the UI is interactive (database connected), both as
+ * reported by the application from JVM launch, plus the wall time from
+ * starting the process until it's interactive. Each variant is run once
+ * unmeasured so the jars are in the file cache, then the given number of
+ * times; medians are reported.
+ * <p>
+ * Not a JMH benchmark, since each sample is a new process. Needs a display
+ * and the database. Run with: gradlew :app:cdsArchive :benchmarks:startupBenchmark
+ */
+public final class StartupTimes {
+
+	private static final Pattern RESULT = Pattern.compile("startup first_frame_ms=(-?\\d+) interactive_ms=(\\d+)");
+
+	private static final String COMMON_OPTS = "-Dstockfetcher.startup.exit=true -Dstockfetcher.refresh=false";
+
+	private StartupTimes() {}
+
+	/**
+	 * @param args installed application directory, and optionally the number of runs per variant
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path home = Paths.get(args[0]);
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		boolean windows = System.getProperty("os.name").toLowerCase().contains("windows");
+		Path launcher = home.resolve(windows ? "bin/app.bat" : "bin/app");
+		Path archive = home.resolve("lib/stockfetcher.jsa");
+		if(!Files.isRegularFile(launcher)) {
+			throw new IllegalArgumentException("No installed application at " + home + " (run gradlew :app:installDist).");
+		}
+
+		System.out.printf("%-10s %16s %16s %16s%n", "Variant", "First frame (ms)", "Interactive (ms)", "Wall (ms)");
+		report("default", measure(launcher, COMMON_OPTS, runs));
+		if(Files.isRegularFile(archive)) {
+			report("appcds", measure(launcher, COMMON_OPTS + " -XX:SharedArchiveFile=" + archive, runs));
+		}
+		else {
+			System.out.println("No archive at " + archive + " (run gradlew :app:cdsArchive); skipped appcds.");
+		}
+	}
+
+	/**
+	 * @return first frame, interactive, and wall times of each run
+	 */
+	private static List<long[]> measure(Path launcher, String javaOpts, int runs) throws IOException, InterruptedException {
+		var samples = new ArrayList<long[]>();
+		for(int run = 0; run <= runs; run++) {
+			long[] sample = launch(launcher, javaOpts);
+			if(run > 0) {
+				samples.add(sample);
+			}
+		}
+		return samples;
+	}
+
+	private static long[] launch(Path launcher, String javaOpts) throws IOException, InterruptedException {
+		ProcessBuilder builder = new ProcessBuilder(launcher.toString()).redirectErrorStream(true);
+		builder.environment().put("JAVA_OPTS", javaOpts);
+
+		long start = System.nanoTime();
+		Process process = builder.start();
+		long[] sample = null;
+		var output = new ArrayList<String>();
+		try (
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				Matcher matcher = RESULT.matcher(line);
+				if(sample == null && matcher.find()) {
+					long wall = (System.nanoTime() - start) / 1_000_000;
+					sample = new long[] {Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)), wall};
+				}
+				output.add(line);
+			}
+		}
+		int exit = process.waitFor();
+		if(sample == null) {
+			var tail = output.subList(Math.max(0, output.size() - 20), output.size());
+			throw new IllegalStateException("The application exited (" + exit + ") without reporting its startup time:\n"
+					+ String.join("\n", tail));
+		}
+		return sample;
+	}
+
+	private static void report(String variant, List<long[]> samples) {
+		System.out.printf("%-10s %16d %16d %16d%n", variant, median(samples, 0), median(samples, 1), median(samples, 2));
+	}
+
+	private static long median(List<long[]> samples, int column) {
+		long[] values = samples.stream().mapToLong(sample -> sample[column]).toArray();
+		Arrays.sort(values);
+		return values[values.length / 2];
+	}
+
+}